@@ -64,6 +64,7 @@ import com.android.settings.applications.manageapplications.ManageApplications;
 import com.android.settings.core.OnActivityResultListener;
 import com.android.settings.core.SettingsBaseActivity;
 import com.android.settings.core.SubSettingLauncher;
+import com.android.settings.core.gateway.FragmentRegistry;
 import com.android.settings.core.gateway.SettingsGateway;
 import com.android.settings.dashboard.DashboardFeatureProvider;
 import com.android.settings.homepage.DeepLinkHomepageActivityInternal;
@@ -281,6 +282,11 @@ public class SettingsActivity extends SettingsBaseActivity
 
         // Getting Intent properties can only be done after the super.onCreate(...)
         final String initialFragmentName = getInitialFragmentName(intent);
+        if (savedState == null && initialFragmentName != null
+                && isValidFragment(initialFragmentName)) {
+            // Load the metadata of the page while the activity layout is being inflated.
+            FragmentRegistry.getInstance().warm(this, initialFragmentName);
+        }
 
         // If this is a sub settings, then apply the SubSettings Theme for the ActionBar content
         // insets.
@@ -686,10 +692,7 @@ public class SettingsActivity extends SettingsBaseActivity
     protected boolean isValidFragment(String fragmentName) {
         // Almost all fragments are wrapped in this,
         // except for a few that have their own activities.
-        for (int i = 0; i < SettingsGateway.ENTRY_FRAGMENTS.length; i++) {
-            if (SettingsGateway.ENTRY_FRAGMENTS[i].equals(fragmentName)) return true;
-        }
-        return false;
+        return FragmentRegistry.isEntryFragment(fragmentName);
     }
 
     @Override
@@ -35,8 +35,12 @@ import android.telephony.TelephonyManager;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.instrumentation.PageTimingRecorder;
 import com.android.settings.datausage.lib.DataUsageLib;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
+import com.android.settings.homepage.HomepageStartupScheduler;
+import com.android.settings.network.CarrierConfigCache;
+import com.android.settings.network.TelephonyTaskExecutor;
 import com.android.settingslib.net.DataUsageController;
 
 import org.json.JSONArray;
@@ -46,6 +50,7 @@ import org.json.JSONObject;
 import java.io.File;
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
+import java.util.Map;
 
 public class SettingsDumpService extends Service {
     @VisibleForTesting
@@ -61,6 +66,16 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_CARRIER_CONFIG_CACHE = "carrier_config_cache";
+    @VisibleForTesting
+    static final String KEY_TELEPHONY_TASK_EXECUTOR = "telephony_task_executor";
+    @VisibleForTesting
+    static final String KEY_IMS_TASK_EXECUTOR = "ims_task_executor";
+    @VisibleForTesting
+    static final String KEY_HOMEPAGE_STARTUP = "homepage_startup";
+    @VisibleForTesting
+    static final String KEY_PAGE_TIMINGS = "page_timings";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -80,6 +95,13 @@ public class SettingsDumpService extends Service {
             dump.put(KEY_MEMORY, dumpMemory());
             dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
             dump.put(KEY_ANOMALY_DETECTION, dumpAnomalyDetection());
+            dump.put(KEY_CARRIER_CONFIG_CACHE, dumpCarrierConfigCache());
+            dump.put(KEY_TELEPHONY_TASK_EXECUTOR,
+                    dumpTelephonyTaskExecutor(TelephonyTaskExecutor.getInstance()));
+            dump.put(KEY_IMS_TASK_EXECUTOR,
+                    dumpTelephonyTaskExecutor(TelephonyTaskExecutor.getImsInstance()));
+            dump.put(KEY_HOMEPAGE_STARTUP, dumpHomepageStartup());
+            dump.put(KEY_PAGE_TIMINGS, dumpPageTimings());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -186,4 +208,64 @@ public class SettingsDumpService extends Service {
 
         return obj;
     }
+
+    @VisibleForTesting
+    JSONObject dumpCarrierConfigCache() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        final CarrierConfigCache cache = CarrierConfigCache.getInstance(this);
+        obj.put("hit", cache.getHitCount());
+        obj.put("miss", cache.getMissCount());
+        obj.put("load", cache.getLoadCount());
+        obj.put("total_load_latency_ms", cache.getTotalLoadLatencyMs());
+        obj.put("max_load_latency_ms", cache.getMaxLoadLatencyMs());
+
+        return obj;
+    }
+
+    @VisibleForTesting
+    JSONObject dumpTelephonyTaskExecutor(TelephonyTaskExecutor executor) throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("queue_depth", executor.getQueueDepth());
+        obj.put("max_queue_depth", executor.getMaxQueueDepth());
+        obj.put("tasks", executor.getTaskCount());
+        obj.put("total_wait_latency_ms", executor.getTotalWaitLatencyMs());
+        obj.put("max_wait_latency_ms", executor.getMaxWaitLatencyMs());
+        obj.put("total_run_latency_ms", executor.getTotalRunLatencyMs());
+        obj.put("max_run_latency_ms", executor.getMaxRunLatencyMs());
+
+        return obj;
+    }
+
+    @VisibleForTesting
+    JSONObject dumpHomepageStartup() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (Map.Entry<String, Long> timing
+                : HomepageStartupScheduler.getLastStartupTimings().entrySet()) {
+            obj.put(timing.getKey(), timing.getValue());
+        }
+
+        return obj;
+    }
+
+    @VisibleForTesting
+    JSONObject dumpPageTimings() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (Map.Entry<String, Map<String, PageTimingRecorder.PhaseStats>> page
+                : PageTimingRecorder.getInstance().getStats().entrySet()) {
+            final JSONObject pageObj = new JSONObject();
+            for (Map.Entry<String, PageTimingRecorder.PhaseStats> phase
+                    : page.getValue().entrySet()) {
+                final PageTimingRecorder.PhaseStats stats = phase.getValue();
+                final JSONObject phaseObj = new JSONObject();
+                phaseObj.put("count", stats.getCount());
+                phaseObj.put("last_us", stats.getLastMicros());
+                phaseObj.put("max_us", stats.getMaxMicros());
+                phaseObj.put("total_us", stats.getTotalMicros());
+                pageObj.put(phase.getKey(), phaseObj);
+            }
+            obj.put(page.getKey(), pageObj);
+        }
+
+        return obj;
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.AppOpsManager;
+import android.app.AppOpsManager.OpEntry;
+import android.app.AppOpsManager.PackageOps;
+import android.content.Context;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide snapshot of the app op modes set for each package, shared by the
+ * {@link AppStateAppOpsBridge}s of the special app access pages.
+ *
+ * <p>The modes of an op are fetched with a single {@link AppOpsManager#getPackagesForOps} call
+ * the first time the op is needed, and are dropped when a mode of the op changes.
+ */
+final class AppOpsSnapshot {
+
+    private static final AppOpsSnapshot sInstance = new AppOpsSnapshot();
+
+    @GuardedBy("this")
+    private final SparseArray<Map<String, PackageMode>> mSnapshots = new SparseArray<>();
+    // Incremented when an op is invalidated, so a fetch racing with a change is not kept.
+    @GuardedBy("this")
+    private final SparseIntArray mGenerations = new SparseIntArray();
+    @GuardedBy("this")
+    private final SparseArray<AppOpsManager.OnOpChangedListener> mListeners =
+            new SparseArray<>();
+
+    static AppOpsSnapshot getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AppOpsSnapshot() {
+    }
+
+    /**
+     * Returns the modes of the {@code op} set for each package. The op is watched through the
+     * {@link AppOpsManager} of the application context, as the snapshot outlives the pages.
+     */
+    Collection<PackageMode> getPackageModes(Context context, int op) {
+        final AppOpsManager appOpsManager = (AppOpsManager) context.getApplicationContext()
+                .getSystemService(Context.APP_OPS_SERVICE);
+        final int generation;
+        synchronized (this) {
+            final Map<String, PackageMode> snapshot = mSnapshots.get(op);
+            if (snapshot != null) {
+                return snapshot.values();
+            }
+            generation = mGenerations.get(op);
+            if (mListeners.get(op) == null) {
+                final AppOpsManager.OnOpChangedListener listener =
+                        (opStr, packageName) -> invalidate(op);
+                mListeners.put(op, listener);
+                appOpsManager.startWatchingMode(op, null /* packageName */, listener);
+            }
+        }
+
+        final Map<String, PackageMode> snapshot = new ArrayMap<>();
+        final List<PackageOps> packageOps = appOpsManager.getPackagesForOps(new int[]{op});
+        final int packageOpsCount = packageOps != null ? packageOps.size() : 0;
+        for (int i = 0; i < packageOpsCount; i++) {
+            final PackageOps packageOp = packageOps.get(i);
+            for (OpEntry entry : packageOp.getOps()) {
+                if (entry.getOp() == op) {
+                    snapshot.put(getKey(packageOp.getUid(), packageOp.getPackageName()),
+                            new PackageMode(packageOp.getPackageName(), packageOp.getUid(),
+                                    entry.getMode()));
+                    break;
+                }
+            }
+        }
+        final Map<String, PackageMode> result = Collections.unmodifiableMap(snapshot);
+        synchronized (this) {
+            if (mGenerations.get(op) == generation) {
+                mSnapshots.put(op, result);
+            }
+        }
+        return result.values();
+    }
+
+    /**
+     * Drops the snapshot of the {@code op} if its mode for the package differs from {@code mode},
+     * which was just read from {@link AppOpsManager}.
+     */
+    synchronized void verifyMode(int op, int uid, String packageName, int mode) {
+        final Map<String, PackageMode> snapshot = mSnapshots.get(op);
+        if (snapshot == null) {
+            return;
+        }
+        final PackageMode packageMode = snapshot.get(getKey(uid, packageName));
+        final int snapshotMode = packageMode != null ? packageMode.mode
+                : AppOpsManager.MODE_DEFAULT;
+        if (snapshotMode != mode) {
+            invalidate(op);
+        }
+    }
+
+    /** Drops the snapshot of the {@code op}. */
+    synchronized void invalidate(int op) {
+        mSnapshots.remove(op);
+        mGenerations.put(op, mGenerations.get(op) + 1);
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mSnapshots.clear();
+        mGenerations.clear();
+        mListeners.clear();
+    }
+
+    private static String getKey(int uid, String packageName) {
+        return uid + "/" + packageName;
+    }
+
+    /** The mode of an op set for a package. */
+    static final class PackageMode {
+        final String packageName;
+        final int uid;
+        final int mode;
+
+        PackageMode(String packageName, int uid, int mode) {
+            this.packageName = packageName;
+            this.uid = uid;
+            this.mode = mode;
+        }
+    }
+}
@@ -24,7 +24,7 @@ import androidx.preference.Preference;
 
 import com.android.settings.R;
 import com.android.settings.core.BasePreferenceController;
-import com.android.settingslib.applications.PermissionsSummaryHelper;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.List;
 import java.util.Set;
@@ -41,16 +41,6 @@ public class AppPermissionsPreferenceController extends BasePreferenceController
     private final PackageManager mPackageManager;
     private final Set<CharSequence> mPermissionGroups;
 
-    private final PermissionsSummaryHelper.PermissionsResultCallback mPermissionsCallback =
-            new PermissionsSummaryHelper.PermissionsResultCallback() {
-                @Override
-                public void onPermissionSummaryResult(int standardGrantedPermissionCount,
-                        int requestedPermissionCount, int additionalGrantedPermissionCount,
-                        List<CharSequence> grantedGroupLabels) {
-                    updateSummary(grantedGroupLabels);
-                }
-            };
-
     @VisibleForTesting
     int mNumPackageChecked;
 
@@ -71,23 +61,30 @@ public class AppPermissionsPreferenceController extends BasePreferenceController
     public void updateState(Preference preference) {
         mPreference = preference;
         mNumPackageChecked = 0;
+        mPermissionGroups.clear();
         queryPermissionSummary();
     }
 
     @VisibleForTesting
     void queryPermissionSummary() {
-        final List<PackageInfo> installedPackages =
-                mPackageManager.getInstalledPackages(PackageManager.GET_PERMISSIONS);
-        // Here we only get the first four apps and check their permissions.
-        final List<PackageInfo> packagesWithPermission = installedPackages.stream()
-                .filter(pInfo -> pInfo.permissions != null)
-                .limit(NUM_PACKAGE_TO_CHECK)
-                .collect(Collectors.toList());
-
-        for (PackageInfo installedPackage : packagesWithPermission) {
-            PermissionsSummaryHelper.getPermissionSummary(mContext,
-                    installedPackage.packageName, mPermissionsCallback);
-        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final List<PackageInfo> installedPackages =
+                    mPackageManager.getInstalledPackages(PackageManager.GET_PERMISSIONS);
+            // Here we only get the first four apps and check their permissions.
+            final List<String> packagesWithPermission = installedPackages.stream()
+                    .filter(pInfo -> pInfo.permissions != null)
+                    .limit(NUM_PACKAGE_TO_CHECK)
+                    .map(pInfo -> pInfo.packageName)
+                    .collect(Collectors.toList());
+
+            ThreadUtils.postOnMainThread(() -> PermissionSummaryCache.getInstance()
+                    .getPermissionSummaries(mContext, packagesWithPermission, summaries -> {
+                        for (PermissionSummaryCache.PermissionSummary summary
+                                : summaries.values()) {
+                            updateSummary(summary.grantedGroupLabels);
+                        }
+                    }));
+        });
     }
 
     @VisibleForTesting
@@ -17,6 +17,7 @@ package com.android.settings.applications;
 
 import android.app.AppGlobals;
 import android.app.AppOpsManager;
+import android.app.AppOpsManager.OpEntry;
 import android.app.AppOpsManager.PackageOps;
 import android.content.Context;
 import android.content.pm.IPackageManager;
@@ -26,6 +27,7 @@ import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
 
@@ -55,6 +57,7 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
     private final Context mContext;
     private final int[] mAppOpsOpCodes;
     private final String[] mPermissions;
+    private final AppOpsSnapshot mAppOpsSnapshot = AppOpsSnapshot.getInstance();
 
     public AppStateAppOpsBridge(Context context, ApplicationsState appState, Callback callback,
             int appOpsOpCode, String[] permissions) {
@@ -136,6 +139,10 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
             List<PackageOps> ops = mAppOpsManager.getOpsForPackage(uid, pkg, mAppOpsOpCodes);
             if (ops != null && ops.size() > 0 && ops.get(0).getOps().size() > 0) {
                 permissionState.appOpMode = ops.get(0).getOps().get(0).getMode();
+                // Drop the shared snapshot if it missed a change of this package.
+                for (OpEntry entry : ops.get(0).getOps()) {
+                    mAppOpsSnapshot.verifyMode(entry.getOp(), uid, pkg, entry.getMode());
+                }
             }
         } catch (RemoteException e) {
             Log.w(TAG, "PackageManager is dead. Can't get package info " + pkg, e);
@@ -257,35 +264,33 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
             return;
         }
 
-        // Find out which packages have been granted permission from AppOps.
-        final List<AppOpsManager.PackageOps> packageOps = mAppOpsManager.getPackagesForOps(
-                mAppOpsOpCodes);
-        final int packageOpsCount = packageOps != null ? packageOps.size() : 0;
-        for (int i = 0; i < packageOpsCount; i++) {
-            final AppOpsManager.PackageOps packageOp = packageOps.get(i);
-            final int userId = UserHandle.getUserId(packageOp.getUid());
-            if (!isThisUserAProfileOfCurrentUser(userId)) {
-                // This AppOp does not belong to any of this user's profiles.
-                continue;
-            }
-
-            final ArrayMap<String, PermissionState> entriesForProfile = entries.get(userId);
-            if (entriesForProfile == null) {
-                continue;
-            }
-            final PermissionState pe = entriesForProfile.get(packageOp.getPackageName());
-            if (pe == null) {
-                Log.w(TAG, "AppOp permission exists for package " + packageOp.getPackageName()
-                        + " of user " + userId + " but package doesn't exist or did not request "
-                        + Arrays.toString(mPermissions) + " access");
-                continue;
-            }
+        // Find out which packages have been granted permission from AppOps. When several ops
+        // are set for a package, the mode of the first one is used.
+        final Set<PermissionState> loadedStates = new ArraySet<>();
+        for (int op : mAppOpsOpCodes) {
+            for (AppOpsSnapshot.PackageMode packageMode
+                    : mAppOpsSnapshot.getPackageModes(mContext, op)) {
+                final int userId = UserHandle.getUserId(packageMode.uid);
+                if (!isThisUserAProfileOfCurrentUser(userId)) {
+                    // This AppOp does not belong to any of this user's profiles.
+                    continue;
+                }
 
-            if (packageOp.getOps().size() < 1) {
-                Log.w(TAG, "No AppOps permission exists for package " + packageOp.getPackageName());
-                continue;
+                final ArrayMap<String, PermissionState> entriesForProfile = entries.get(userId);
+                if (entriesForProfile == null) {
+                    continue;
+                }
+                final PermissionState pe = entriesForProfile.get(packageMode.packageName);
+                if (pe == null) {
+                    Log.w(TAG, "AppOp permission exists for package " + packageMode.packageName
+                            + " of user " + userId + " but package doesn't exist or did not "
+                            + "request " + Arrays.toString(mPermissions) + " access");
+                    continue;
+                }
+                if (loadedStates.add(pe)) {
+                    pe.appOpMode = packageMode.mode;
+                }
             }
-            pe.appOpMode = packageOp.getOps().get(0).getMode();
         }
     }
 
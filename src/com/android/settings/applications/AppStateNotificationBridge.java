@@ -18,12 +18,14 @@ package com.android.settings.applications;
 import android.app.usage.IUsageStatsManager;
 import android.app.usage.UsageEvents;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.format.DateUtils;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.SparseArray;
 import android.widget.CompoundButton;
 
 import com.android.settings.R;
@@ -51,6 +53,7 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     private IUsageStatsManager mUsageStatsManager;
     protected List<Integer> mUserIds;
     private NotificationBackend mBackend;
+    private final NotificationSentStatsCache mStatsCache;
     private static final int DAYS_TO_CHECK = 7;
 
     public AppStateNotificationBridge(Context context, ApplicationsState appState,
@@ -60,6 +63,7 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         mContext = context;
         mUsageStatsManager = usageStatsManager;
         mBackend = backend;
+        mStatsCache = NotificationSentStatsCache.getInstance(context);
         mUserIds = new ArrayList<>();
         mUserIds.add(mContext.getUserId());
         int workUserId = Utils.getManagedProfileId(userManager, mContext.getUserId());
@@ -78,23 +82,40 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
             return;
         }
 
-        final Map<String, NotificationsSentState> map = getAggregatedUsageEvents();
+        final SparseArray<Map<String, NotificationsSentState>> statsByUser =
+                getSentStatsByUser();
+        final List<ApplicationInfo> infos = new ArrayList<>(apps.size());
         for (AppEntry entry : apps) {
+            infos.add(entry.info);
+        }
+        final List<NotificationBackend.BlockState> blockStates =
+                mBackend.getBlockStates(mContext, infos);
+        for (int i = 0; i < apps.size(); i++) {
+            final AppEntry entry = apps.get(i);
+            final Map<String, NotificationsSentState> userStats =
+                    statsByUser.get(UserHandle.getUserId(entry.info.uid));
             NotificationsSentState stats =
-                    map.get(getKey(UserHandle.getUserId(entry.info.uid), entry.info.packageName));
+                    userStats == null ? null : userStats.get(entry.info.packageName);
             if (stats == null) {
                 stats = new NotificationsSentState();
             }
             calculateAvgSentCounts(stats);
-            addBlockStatus(entry, stats);
+            stats.blocked = blockStates.get(i).banned;
+            stats.blockable = blockStates.get(i).blockable;
             entry.extraInfo = stats;
         }
     }
 
     @Override
     protected void updateExtraInfo(AppEntry entry, String pkg, int uid) {
-        NotificationsSentState stats = getAggregatedUsageEvents(
-                UserHandle.getUserId(entry.info.uid), entry.info.packageName);
+        final int userId = UserHandle.getUserId(entry.info.uid);
+        final NotificationsSentState stats;
+        if (mStatsCache.hasUser(userId)) {
+            updateSentStats(userId);
+            stats = mStatsCache.getStats(userId, entry.info.packageName);
+        } else {
+            stats = getAggregatedUsageEvents(userId, entry.info.packageName);
+        }
         calculateAvgSentCounts(stats);
         addBlockStatus(entry, stats);
         entry.extraInfo = stats;
@@ -137,40 +158,42 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     }
 
     protected Map<String, NotificationsSentState> getAggregatedUsageEvents() {
-        ArrayMap<String, NotificationsSentState> aggregatedStats = new ArrayMap<>();
+        final ArrayMap<String, NotificationsSentState> aggregatedStats = new ArrayMap<>();
+        final SparseArray<Map<String, NotificationsSentState>> statsByUser =
+                getSentStatsByUser();
+        for (int i = 0; i < statsByUser.size(); i++) {
+            final int userId = statsByUser.keyAt(i);
+            statsByUser.valueAt(i).forEach(
+                    (pkg, stats) -> aggregatedStats.put(getKey(userId, pkg), stats));
+        }
+        return aggregatedStats;
+    }
 
-        long now = System.currentTimeMillis();
-        long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
+    /**
+     * Returns the notifications sent by the packages of each user, by package. Only the usage
+     * events since the previous load are scanned.
+     */
+    private SparseArray<Map<String, NotificationsSentState>> getSentStatsByUser() {
+        final SparseArray<Map<String, NotificationsSentState>> statsByUser = new SparseArray<>();
         for (int userId : mUserIds) {
-            UsageEvents events = null;
+            updateSentStats(userId);
+            statsByUser.put(userId, mStatsCache.getStats(userId));
+        }
+        return statsByUser;
+    }
+
+    private void updateSentStats(int userId) {
+        final long now = System.currentTimeMillis();
+        final long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
+        mStatsCache.update(userId, startTime, now, (beginTime, endTime) -> {
             try {
-                events = mUsageStatsManager.queryEventsForUser(
-                        startTime, now, userId, mContext.getPackageName());
+                return mUsageStatsManager.queryEventsForUser(
+                        beginTime, endTime, userId, mContext.getPackageName());
             } catch (RemoteException e) {
                 e.printStackTrace();
+                return null;
             }
-            if (events != null) {
-                UsageEvents.Event event = new UsageEvents.Event();
-                while (events.hasNextEvent()) {
-                    events.getNextEvent(event);
-                    NotificationsSentState stats =
-                            aggregatedStats.get(getKey(userId, event.getPackageName()));
-                    if (stats == null) {
-                        stats = new NotificationsSentState();
-                        aggregatedStats.put(getKey(userId, event.getPackageName()), stats);
-                    }
-
-                    if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                        if (event.getTimeStamp() > stats.lastSent) {
-                            stats.lastSent = event.getTimeStamp();
-                        }
-                        stats.sentCount++;
-                    }
-
-                }
-            }
-        }
-        return aggregatedStats;
+        });
     }
 
     protected NotificationsSentState getAggregatedUsageEvents(int userId, String pkg) {
@@ -19,6 +19,7 @@ package com.android.settings.applications;
 import android.app.Application;
 import android.app.usage.UsageStats;
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.icu.text.RelativeDateTimeFormatter;
 import android.os.UserHandle;
 import android.text.TextUtils;
@@ -36,9 +37,10 @@ import androidx.preference.PreferenceScreen;
 import com.android.settings.R;
 import com.android.settings.applications.appinfo.AppInfoDashboardFragment;
 import com.android.settings.core.BasePreferenceController;
-import com.android.settingslib.Utils;
+import com.android.settingslib.applications.AppUtils;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.utils.StringUtil;
+import com.android.settingslib.utils.ThreadUtils;
 import com.android.settingslib.widget.AppPreference;
 
 import java.util.List;
@@ -204,7 +206,7 @@ public class AppsPreferenceController extends BasePreferenceController implement
 
                 pref.setKey(pkgName);
                 pref.setTitle(appEntry.label);
-                pref.setIcon(Utils.getBadgedIcon(mContext, appEntry.info));
+                updateIcon(pref, appEntry);
                 pref.setSummary(StringUtil.formatRelativeTime(mContext,
                         System.currentTimeMillis() - stat.getLastTimeUsed(), false,
                         RelativeDateTimeFormatter.Style.SHORT));
@@ -228,4 +230,21 @@ public class AppsPreferenceController extends BasePreferenceController implement
             }
         }
     }
+
+    // Use the icon cached for the app, or load it off the main thread on first display.
+    private void updateIcon(Preference pref, ApplicationsState.AppEntry entry) {
+        synchronized (entry) {
+            final Drawable cachedIcon = AppUtils.getIconFromCache(entry);
+            if (cachedIcon != null && entry.mounted) {
+                pref.setIcon(cachedIcon);
+            } else {
+                ThreadUtils.postOnBackgroundThread(() -> {
+                    final Drawable icon = AppUtils.getIcon(mContext, entry);
+                    if (icon != null) {
+                        ThreadUtils.postOnMainThread(() -> pref.setIcon(icon));
+                    }
+                });
+            }
+        }
+    }
 }
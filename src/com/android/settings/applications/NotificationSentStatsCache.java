@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.usage.UsageEvents;
+import android.content.Context;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settings.applications.AppStateNotificationBridge.NotificationsSentState;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Process-wide cache of the notifications sent by each package of each user within a time
+ * window, shared by the {@link AppStateNotificationBridge} instances.
+ *
+ * <p>The first update of a user scans the whole window. Later updates only scan the usage events
+ * since the previous update, and drop the notifications which left the window.
+ *
+ * <p>The stats are persisted after each update which changed them, and read back at the first
+ * access after the process starts, so the next process also scans incrementally. The persisted
+ * stats are dropped when the file is corrupted.
+ */
+final class NotificationSentStatsCache {
+    private static final String TAG = "NotificationSentStats";
+
+    @VisibleForTesting
+    static final String FILE_NAME = "notification_sent_stats";
+    private static final int VERSION = 1;
+
+    /** Source of the usage events of a user. */
+    interface EventSource {
+        /**
+         * Returns the usage events of the user from {@code beginTime} inclusive to
+         * {@code endTime} exclusive, or null if they can not be queried.
+         */
+        UsageEvents queryEvents(long beginTime, long endTime);
+    }
+
+    private static NotificationSentStatsCache sInstance;
+
+    private final AtomicFile mFile;
+    @GuardedBy("this")
+    private final SparseArray<UserStats> mUsers = new SparseArray<>();
+    @GuardedBy("this")
+    private boolean mIsRead;
+
+    static synchronized NotificationSentStatsCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NotificationSentStatsCache(new AtomicFile(
+                    new File(context.getApplicationContext().getNoBackupFilesDir(), FILE_NAME)));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    NotificationSentStatsCache(AtomicFile file) {
+        mFile = file;
+    }
+
+    /** Returns whether the user has been scanned, so its updates are incremental. */
+    @WorkerThread
+    synchronized boolean hasUser(int userId) {
+        readIfNeededLocked();
+        return mUsers.get(userId) != null;
+    }
+
+    /**
+     * Scans the usage events of the user since the previous update, and drops the notifications
+     * sent before {@code windowStart}.
+     */
+    @WorkerThread
+    synchronized void update(int userId, long windowStart, long now, EventSource source) {
+        readIfNeededLocked();
+        UserStats user = mUsers.get(userId);
+        if (user != null && user.mCheckpoint > now) {
+            // The clock went back, so the scanned events can not be trusted.
+            mUsers.remove(userId);
+            user = null;
+        }
+        final boolean isIncremental = user != null;
+        final long beginTime = isIncremental ? Math.max(user.mCheckpoint, windowStart)
+                : windowStart;
+        final UsageEvents events = source.queryEvents(beginTime, now);
+        if (events == null) {
+            return;
+        }
+        // Only the new users, the new notifications and the expired ones change the file.
+        boolean isChanged = false;
+        if (user == null) {
+            user = new UserStats();
+            mUsers.put(userId, user);
+            isChanged = true;
+        }
+
+        final UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            if (event.getEventType() != UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
+                continue;
+            }
+            isChanged = true;
+            PackageStats stats = user.mPackages.get(event.getPackageName());
+            if (stats == null) {
+                stats = new PackageStats();
+                user.mPackages.put(event.getPackageName(), stats);
+            }
+            stats.add(event.getTimeStamp());
+        }
+        user.mCheckpoint = now;
+
+        // The first scan only returns events within the window, so only later ones expire.
+        if (isIncremental) {
+            for (int i = user.mPackages.size() - 1; i >= 0; i--) {
+                final PackageStats stats = user.mPackages.valueAt(i);
+                isChanged |= stats.removeBefore(windowStart);
+                if (stats.mSize == 0) {
+                    user.mPackages.removeAt(i);
+                }
+            }
+        }
+        if (isChanged) {
+            writeLocked();
+        }
+    }
+
+    /** Returns the stats of the packages of the user which sent notifications, by package. */
+    @WorkerThread
+    synchronized Map<String, NotificationsSentState> getStats(int userId) {
+        readIfNeededLocked();
+        final UserStats user = mUsers.get(userId);
+        if (user == null) {
+            return new ArrayMap<>();
+        }
+        final Map<String, NotificationsSentState> states = new ArrayMap<>(user.mPackages.size());
+        for (int i = 0; i < user.mPackages.size(); i++) {
+            states.put(user.mPackages.keyAt(i), user.mPackages.valueAt(i).toState());
+        }
+        return states;
+    }
+
+    /** Returns the stats of the package, or null if it sent no notification. */
+    @WorkerThread
+    synchronized NotificationsSentState getStats(int userId, String pkg) {
+        readIfNeededLocked();
+        final UserStats user = mUsers.get(userId);
+        final PackageStats stats = user == null ? null : user.mPackages.get(pkg);
+        return stats == null ? null : stats.toState();
+    }
+
+    /** Clears the in-memory and the persisted stats. */
+    @VisibleForTesting
+    synchronized void clear() {
+        mUsers.clear();
+        mIsRead = true;
+        mFile.delete();
+    }
+
+    @GuardedBy("this")
+    private void readIfNeededLocked() {
+        if (mIsRead) {
+            return;
+        }
+        mIsRead = true;
+        if (!mFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(mFile.openRead())) {
+            if (in.readInt() != VERSION) {
+                throw new IOException("unknown version");
+            }
+            final int userCount = readSize(in);
+            for (int i = 0; i < userCount; i++) {
+                final int userId = in.readInt();
+                final UserStats user = new UserStats();
+                user.mCheckpoint = in.readLong();
+                final int packageCount = readSize(in);
+                for (int j = 0; j < packageCount; j++) {
+                    final String pkg = in.readUTF();
+                    final PackageStats stats = new PackageStats();
+                    final int size = readSize(in);
+                    for (int k = 0; k < size; k++) {
+                        stats.add(in.readLong());
+                    }
+                    user.mPackages.put(pkg, stats);
+                }
+                mUsers.put(userId, user);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "drop the corrupted stats", e);
+            mUsers.clear();
+            mFile.delete();
+        }
+    }
+
+    @GuardedBy("this")
+    private void writeLocked() {
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = mFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(outputStream);
+            out.writeInt(VERSION);
+            out.writeInt(mUsers.size());
+            for (int i = 0; i < mUsers.size(); i++) {
+                final UserStats user = mUsers.valueAt(i);
+                out.writeInt(mUsers.keyAt(i));
+                out.writeLong(user.mCheckpoint);
+                out.writeInt(user.mPackages.size());
+                for (int j = 0; j < user.mPackages.size(); j++) {
+                    final PackageStats stats = user.mPackages.valueAt(j);
+                    out.writeUTF(user.mPackages.keyAt(j));
+                    out.writeInt(stats.mSize);
+                    for (int k = 0; k < stats.mSize; k++) {
+                        out.writeLong(stats.mTimestamps[k]);
+                    }
+                }
+            }
+            out.flush();
+            mFile.finishWrite(outputStream);
+        } catch (IOException e) {
+            Log.e(TAG, "writeLocked() failed", e);
+            mFile.failWrite(outputStream);
+        }
+    }
+
+    private static int readSize(DataInputStream in) throws IOException {
+        final int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("invalid size: " + size);
+        }
+        return size;
+    }
+
+    private static final class UserStats {
+        private long mCheckpoint;
+        private final ArrayMap<String, PackageStats> mPackages = new ArrayMap<>();
+    }
+
+    private static final class PackageStats {
+        private long[] mTimestamps = new long[4];
+        private int mSize;
+        private long mLastSent;
+
+        private void add(long timestamp) {
+            if (mSize == mTimestamps.length) {
+                mTimestamps = Arrays.copyOf(mTimestamps, mSize * 2);
+            }
+            mTimestamps[mSize++] = timestamp;
+            mLastSent = Math.max(mLastSent, timestamp);
+        }
+
+        /** Returns whether any notification was removed. */
+        private boolean removeBefore(long time) {
+            final int oldSize = mSize;
+            int size = 0;
+            long lastSent = 0;
+            for (int i = 0; i < mSize; i++) {
+                if (mTimestamps[i] >= time) {
+                    mTimestamps[size++] = mTimestamps[i];
+                    lastSent = Math.max(lastSent, mTimestamps[i]);
+                }
+            }
+            mSize = size;
+            mLastSent = lastSent;
+            return size != oldSize;
+        }
+
+        private NotificationsSentState toState() {
+            final NotificationsSentState state = new NotificationsSentState();
+            state.sentCount = mSize;
+            state.lastSent = mLastSent;
+            return state;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.LocaleList;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.PermissionsSummaryHelper;
+import com.android.settingslib.applications.PermissionsSummaryHelper.PermissionsResultCallback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Process-wide cache of the runtime permission summaries of the packages, shared by the pages
+ * showing them.
+ *
+ * <p>The summaries of several packages are requested from PermissionController together, and a
+ * package already being requested is not requested again. A summary is dropped when the
+ * permissions of its uid change, and a request started before the change is not cached. All the
+ * summaries are dropped when the locales change, as they hold localized permission group labels.
+ *
+ * <p>All methods must be called on the main thread, where the results are delivered.
+ */
+public final class PermissionSummaryCache {
+
+    /** Receives the summaries of a batch of packages. */
+    public interface BatchCallback {
+        /** Called with the summary of each requested package, keyed by package name. */
+        void onPermissionSummariesLoaded(Map<String, PermissionSummary> summaries);
+    }
+
+    /** Requests the summary of a package from PermissionController. */
+    @VisibleForTesting
+    interface SummaryLoader {
+        void loadSummary(Context context, String packageName, PermissionsResultCallback callback);
+    }
+
+    private static final PermissionSummaryCache sInstance =
+            new PermissionSummaryCache(PermissionsSummaryHelper::getPermissionSummary);
+
+    private final SummaryLoader mLoader;
+    private final Map<String, PermissionSummary> mSummaries = new ArrayMap<>();
+    private final Map<String, List<PermissionsResultCallback>> mPendingRequests =
+            new ArrayMap<>();
+    // Incremented when the summary of a package is dropped.
+    private final Map<String, Integer> mGenerations = new ArrayMap<>();
+    private PackageManager mPackageManager;
+    // Locales of the cached group labels.
+    private LocaleList mLocales;
+
+    /** Returns the process-wide instance. */
+    public static PermissionSummaryCache getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PermissionSummaryCache(SummaryLoader loader) {
+        mLoader = loader;
+    }
+
+    /**
+     * Delivers the summary of the package to {@code callback}, right away if it is cached.
+     */
+    public void getPermissionSummary(Context context, String packageName,
+            PermissionsResultCallback callback) {
+        getPermissionSummaries(context, Collections.singletonList(packageName),
+                summaries -> summaries.get(packageName).deliverTo(callback));
+    }
+
+    /**
+     * Delivers the summaries of the packages to {@code callback} once all of them are known,
+     * right away if all of them are cached.
+     */
+    public void getPermissionSummaries(Context context, List<String> packageNames,
+            BatchCallback callback) {
+        startWatchingPermissions(context);
+        checkLocales(context);
+        final Map<String, PermissionSummary> summaries = new ArrayMap<>(packageNames.size());
+        final Set<String> missingPackages = new ArraySet<>();
+        for (String packageName : packageNames) {
+            final PermissionSummary summary = mSummaries.get(packageName);
+            if (summary != null) {
+                summaries.put(packageName, summary);
+            } else {
+                missingPackages.add(packageName);
+            }
+        }
+        if (missingPackages.isEmpty()) {
+            callback.onPermissionSummariesLoaded(summaries);
+            return;
+        }
+        for (String packageName : new ArrayList<>(missingPackages)) {
+            requestSummary(context, packageName, new PermissionsResultCallback() {
+                @Override
+                public void onPermissionSummaryResult(int standardGrantedPermissionCount,
+                        int requestedPermissionCount, int additionalGrantedPermissionCount,
+                        List<CharSequence> grantedGroupLabels) {
+                    summaries.put(packageName, new PermissionSummary(
+                            standardGrantedPermissionCount, requestedPermissionCount,
+                            additionalGrantedPermissionCount, grantedGroupLabels));
+                    if (missingPackages.remove(packageName) && missingPackages.isEmpty()) {
+                        callback.onPermissionSummariesLoaded(summaries);
+                    }
+                }
+            });
+        }
+    }
+
+    /** Drops the summary of the package. */
+    public void invalidate(String packageName) {
+        mSummaries.remove(packageName);
+        mPendingRequests.remove(packageName);
+        final Integer generation = mGenerations.get(packageName);
+        mGenerations.put(packageName, generation == null ? 1 : generation + 1);
+    }
+
+    /** Drops the summaries of the packages of the uid, or all of them if they are unknown. */
+    public void invalidateUid(int uid) {
+        final String[] packageNames = mPackageManager != null
+                ? mPackageManager.getPackagesForUid(uid) : null;
+        if (packageNames == null) {
+            invalidateAll();
+            return;
+        }
+        for (String packageName : packageNames) {
+            invalidate(packageName);
+        }
+    }
+
+    @VisibleForTesting
+    void clear() {
+        mLocales = null;
+        mSummaries.clear();
+        mPendingRequests.clear();
+        mGenerations.clear();
+    }
+
+    private void requestSummary(Context context, String packageName,
+            PermissionsResultCallback callback) {
+        final List<PermissionsResultCallback> pendingCallbacks = mPendingRequests.get(packageName);
+        if (pendingCallbacks != null) {
+            pendingCallbacks.add(callback);
+            return;
+        }
+        final List<PermissionsResultCallback> callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        mPendingRequests.put(packageName, callbacks);
+        final Integer generation = mGenerations.get(packageName);
+        mLoader.loadSummary(context, packageName, new PermissionsResultCallback() {
+            @Override
+            public void onPermissionSummaryResult(int standardGrantedPermissionCount,
+                    int requestedPermissionCount, int additionalGrantedPermissionCount,
+                    List<CharSequence> grantedGroupLabels) {
+                // The request may have been dropped and replaced by a newer one meanwhile.
+                if (mPendingRequests.get(packageName) == callbacks) {
+                    mPendingRequests.remove(packageName);
+                }
+                final PermissionSummary summary = new PermissionSummary(
+                        standardGrantedPermissionCount, requestedPermissionCount,
+                        additionalGrantedPermissionCount, grantedGroupLabels);
+                if (Objects.equals(generation, mGenerations.get(packageName))) {
+                    mSummaries.put(packageName, summary);
+                }
+                for (PermissionsResultCallback pendingCallback : callbacks) {
+                    summary.deliverTo(pendingCallback);
+                }
+            }
+        });
+    }
+
+    private void invalidateAll() {
+        for (String packageName : new ArrayList<>(mSummaries.keySet())) {
+            invalidate(packageName);
+        }
+        for (String packageName : new ArrayList<>(mPendingRequests.keySet())) {
+            invalidate(packageName);
+        }
+    }
+
+    private void checkLocales(Context context) {
+        final LocaleList locales = context.getResources().getConfiguration().getLocales();
+        if (locales.equals(mLocales)) {
+            return;
+        }
+        if (mLocales != null) {
+            invalidateAll();
+        }
+        mLocales = locales;
+    }
+
+    private void startWatchingPermissions(Context context) {
+        if (mPackageManager != null) {
+            return;
+        }
+        mPackageManager = context.getApplicationContext().getPackageManager();
+        mPackageManager.addOnPermissionsChangeListener(this::invalidateUid);
+    }
+
+    /** The runtime permission summary of a package. */
+    public static final class PermissionSummary {
+        public final int standardGrantedPermissionCount;
+        public final int requestedPermissionCount;
+        public final int additionalGrantedPermissionCount;
+        public final List<CharSequence> grantedGroupLabels;
+
+        @VisibleForTesting
+        PermissionSummary(int standardGrantedPermissionCount, int requestedPermissionCount,
+                int additionalGrantedPermissionCount, List<CharSequence> grantedGroupLabels) {
+            this.standardGrantedPermissionCount = standardGrantedPermissionCount;
+            this.requestedPermissionCount = requestedPermissionCount;
+            this.additionalGrantedPermissionCount = additionalGrantedPermissionCount;
+            this.grantedGroupLabels = Collections.unmodifiableList(
+                    new ArrayList<>(grantedGroupLabels));
+        }
+
+        /** Delivers this summary to a {@link PermissionsSummaryHelper} callback. */
+        public void deliverTo(PermissionsResultCallback callback) {
+            callback.onPermissionSummaryResult(standardGrantedPermissionCount,
+                    requestedPermissionCount, additionalGrantedPermissionCount,
+                    grantedGroupLabels);
+        }
+    }
+}
@@ -26,7 +26,6 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.PowerManager;
 import android.os.UserHandle;
-import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 
@@ -45,7 +44,6 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 
@@ -115,29 +113,17 @@ public class RecentAppStatsMixin implements Comparator<UsageStats>, LifecycleObs
         mRecentApps.clear();
         mCalendar = Calendar.getInstance();
         mCalendar.add(Calendar.DAY_OF_YEAR, -1);
-        final List<UsageStats> mStats = mPowerManager.isPowerSaveMode()
+        final List<UsageStats> stats = mPowerManager.isPowerSaveMode()
                 ? new ArrayList<>()
-                : mUsageStatsManager.queryUsageStats(
-                        UsageStatsManager.INTERVAL_BEST, mCalendar.getTimeInMillis(),
-                        System.currentTimeMillis());
-
-        final Map<String, UsageStats> map = new ArrayMap<>();
-        final int statCount = mStats.size();
-        for (int i = 0; i < statCount; i++) {
-            final UsageStats pkgStats = mStats.get(i);
-            if (!shouldIncludePkgInRecents(pkgStats)) {
-                continue;
-            }
-            final String pkgName = pkgStats.getPackageName();
-            final UsageStats existingStats = map.get(pkgName);
-            if (existingStats == null) {
-                map.put(pkgName, pkgStats);
-            } else {
-                existingStats.add(pkgStats);
+                : RecentAppsStore.getInstance().getUsageStats(mUsageStatsManager,
+                        mCalendar.getTimeInMillis(), System.currentTimeMillis());
+
+        final List<UsageStats> packageStats = new ArrayList<>();
+        for (UsageStats pkgStats : stats) {
+            if (shouldIncludePkgInRecents(pkgStats)) {
+                packageStats.add(pkgStats);
             }
         }
-        final List<UsageStats> packageStats = new ArrayList<>();
-        packageStats.addAll(map.values());
         Collections.sort(packageStats, this /* comparator */);
         int count = 0;
         for (UsageStats stat : packageStats) {
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStats;
+import android.app.usage.UsageStatsManager;
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide model of the last time each package was used, shared by the
+ * {@link RecentAppStatsMixin} instances.
+ *
+ * <p>The first load aggregates the usage stats of the whole window. Later loads only read the
+ * activity events since the previous load, until the model is older than {@link #MAX_AGE_MS} and
+ * is aggregated again from the usage stats.
+ */
+final class RecentAppsStore {
+
+    @VisibleForTesting
+    static final long MAX_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+    private static final RecentAppsStore sInstance = new RecentAppsStore();
+
+    @GuardedBy("this")
+    private ArrayMap<String, UsageStats> mPackages;
+    @GuardedBy("this")
+    private long mCreatedTime;
+    @GuardedBy("this")
+    private long mCheckpoint;
+
+    static RecentAppsStore getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    RecentAppsStore() {
+    }
+
+    /**
+     * Returns the usage stats of the packages used since {@code windowStart}, one per package.
+     * The returned stats are copies and can be modified by the caller.
+     */
+    synchronized List<UsageStats> getUsageStats(UsageStatsManager usageStatsManager,
+            long windowStart, long now) {
+        if (mPackages == null || now - mCreatedTime > MAX_AGE_MS || now < mCheckpoint
+                || !readEvents(usageStatsManager, now)) {
+            readUsageStats(usageStatsManager, windowStart, now);
+        }
+
+        final List<UsageStats> stats = new ArrayList<>(mPackages.size());
+        for (int i = mPackages.size() - 1; i >= 0; i--) {
+            final UsageStats pkgStats = mPackages.valueAt(i);
+            if (pkgStats.getLastTimeUsed() < windowStart) {
+                mPackages.removeAt(i);
+                continue;
+            }
+            stats.add(new UsageStats(pkgStats));
+        }
+        return stats;
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mPackages = null;
+        mCreatedTime = 0;
+        mCheckpoint = 0;
+    }
+
+    @GuardedBy("this")
+    private void readUsageStats(UsageStatsManager usageStatsManager, long windowStart,
+            long now) {
+        mPackages = new ArrayMap<>();
+        mCreatedTime = now;
+        mCheckpoint = now;
+        final List<UsageStats> stats = usageStatsManager.queryUsageStats(
+                UsageStatsManager.INTERVAL_BEST, windowStart, now);
+        final int statCount = stats != null ? stats.size() : 0;
+        for (int i = 0; i < statCount; i++) {
+            final UsageStats pkgStats = stats.get(i);
+            final UsageStats existingStats = mPackages.get(pkgStats.getPackageName());
+            if (existingStats == null) {
+                mPackages.put(pkgStats.getPackageName(), new UsageStats(pkgStats));
+            } else {
+                existingStats.add(pkgStats);
+            }
+        }
+    }
+
+    /** Reads the activity events since the previous load, returns false if they are unknown. */
+    @GuardedBy("this")
+    private boolean readEvents(UsageStatsManager usageStatsManager, long now) {
+        final UsageEvents events = usageStatsManager.queryEvents(mCheckpoint, now);
+        if (events == null) {
+            return false;
+        }
+        final UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            final int type = event.getEventType();
+            if (type != UsageEvents.Event.ACTIVITY_RESUMED
+                    && type != UsageEvents.Event.ACTIVITY_PAUSED) {
+                continue;
+            }
+            UsageStats pkgStats = mPackages.get(event.getPackageName());
+            if (pkgStats == null) {
+                pkgStats = new UsageStats();
+                pkgStats.mPackageName = event.getPackageName();
+                mPackages.put(pkgStats.mPackageName, pkgStats);
+            }
+            pkgStats.mLastTimeUsed = Math.max(pkgStats.mLastTimeUsed, event.getTimeStamp());
+        }
+        mCheckpoint = now;
+        return true;
+    }
+}
@@ -65,6 +65,10 @@ public class AppDataUsagePreferenceController extends AppInfoPreferenceControlle
     public void displayPreference(PreferenceScreen screen) {
         super.displayPreference(screen);
         mPreference.setEnabled(AppUtils.isAppInstalled(mAppEntry));
+        if (mAppUsageData == null && mAppEntry != null && mAppEntry.info != null) {
+            // Show the usage of the last visit until the loader fetches it again.
+            mAppUsageData = AppInfoDataCache.getInstance().getDataUsage(mAppEntry.info.uid);
+        }
     }
 
     @Override
@@ -112,6 +116,7 @@ public class AppDataUsagePreferenceController extends AppInfoPreferenceControlle
     public void onLoadFinished(Loader<List<NetworkCycleDataForUid>> loader,
             List<NetworkCycleDataForUid> data) {
         mAppUsageData = data;
+        AppInfoDataCache.getInstance().putDataUsage(mParent.getAppEntry().info.uid, data);
         updateState(mPreference);
     }
 
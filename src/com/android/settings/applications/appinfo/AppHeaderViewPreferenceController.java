@@ -78,6 +78,11 @@ public class AppHeaderViewPreferenceController extends BasePreferenceController
         setAppLabelAndIcon(mParent.getPackageInfo(), mParent.getAppEntry());
     }
 
+    @Override
+    public int getRefreshInputs() {
+        return AppInfoDashboardFragment.INPUT_PACKAGE_INFO;
+    }
+
     // Utility method to set application label and icon.
     private void setAppLabelAndIcon(PackageInfo pkgInfo, AppEntry appEntry) {
         final Activity activity = mParent.getActivity();
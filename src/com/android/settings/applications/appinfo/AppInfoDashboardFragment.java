@@ -71,6 +71,7 @@ import com.android.settingslib.core.lifecycle.Lifecycle;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Dashboard fragment to display application information from Settings. This activity presents
@@ -138,15 +139,32 @@ public class AppInfoDashboardFragment extends DashboardFragment
     private boolean mUpdatedSysApp = false;
 
     private List<Callback> mCallbacks = new ArrayList<>();
+    // Hash of the package info fields shown by the callbacks, to find whether it has changed.
+    private int mPackageInfoState;
 
     private InstantAppButtonsPreferenceController mInstantAppButtonPreferenceController;
     private AppButtonsPreferenceController mAppButtonsPreferenceController;
 
+    /** Input of the app info: its package info. */
+    public static final int INPUT_PACKAGE_INFO = 1 << 0;
+    /** Input of the app info: the storage used by the app, which changes with its size. */
+    public static final int INPUT_STORAGE = 1 << 1;
+    /** All the inputs of the app info. */
+    public static final int INPUT_ALL = INPUT_PACKAGE_INFO | INPUT_STORAGE;
+
     /**
      * Callback to invoke when app info has been changed.
      */
     public interface Callback {
         void refreshUi();
+
+        /**
+         * Returns the inputs of the app info this callback depends on. {@link #refreshUi()} is
+         * only invoked when one of them changes.
+         */
+        default int getRefreshInputs() {
+            return INPUT_ALL;
+        }
     }
 
     @Override
@@ -356,7 +374,7 @@ public class AppInfoDashboardFragment extends DashboardFragment
             Log.d(TAG, "Package change irrelevant, skipping");
             return;
         }
-        refreshUi();
+        notifyInputsChanged(INPUT_STORAGE);
     }
 
     /**
@@ -581,10 +599,15 @@ public class AppInfoDashboardFragment extends DashboardFragment
 
         mState.ensureIcon(mAppEntry);
 
-        // Update the preference summaries.
-        for (Callback callback : mCallbacks) {
-            callback.refreshUi();
+        // Update the preference summaries. On resume, they have just been updated by the
+        // dashboard, so they are only refreshed again when the package info has changed.
+        final int packageInfoState = getPackageInfoState(mPackageInfo);
+        if (!mInitialized) {
+            notifyInputsChanged(INPUT_ALL);
+        } else if (packageInfoState != mPackageInfoState) {
+            notifyInputsChanged(INPUT_PACKAGE_INFO);
         }
+        mPackageInfoState = packageInfoState;
         if (mAppButtonsPreferenceController.isAvailable()) {
             mAppButtonsPreferenceController.refreshUi();
         }
@@ -615,6 +638,23 @@ public class AppInfoDashboardFragment extends DashboardFragment
         return true;
     }
 
+    /** Refreshes the callbacks depending on any of the {@code changedInputs}. */
+    @VisibleForTesting
+    void notifyInputsChanged(int changedInputs) {
+        for (Callback callback : mCallbacks) {
+            if ((callback.getRefreshInputs() & changedInputs) != 0) {
+                callback.refreshUi();
+            }
+        }
+    }
+
+    private static int getPackageInfoState(PackageInfo packageInfo) {
+        final ApplicationInfo info = packageInfo.applicationInfo;
+        return Objects.hash(packageInfo.getLongVersionCode(), packageInfo.lastUpdateTime,
+                info != null ? info.flags : 0, info != null && info.enabled,
+                info != null ? info.enabledSetting : 0);
+    }
+
     @Override
     protected boolean shouldSkipForInitialSUW() {
         return true;
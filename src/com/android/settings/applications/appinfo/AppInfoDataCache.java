@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.appinfo;
+
+import android.util.LruCache;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.StorageStatsSource.AppStorageStats;
+import com.android.settingslib.net.NetworkCycleDataForUid;
+
+import java.util.List;
+
+/**
+ * Process-wide cache of the last storage and data usage loaded for the recently shown apps.
+ *
+ * <p>The app info page shows the cached values while their loaders fetch fresh ones, instead of
+ * showing them as being computed on every visit.
+ */
+final class AppInfoDataCache {
+
+    @VisibleForTesting
+    static final int MAX_CACHED_APPS = 16;
+
+    private static final AppInfoDataCache sInstance = new AppInfoDataCache();
+
+    @GuardedBy("this")
+    private final LruCache<String, AppStorageStats> mStorageStats =
+            new LruCache<>(MAX_CACHED_APPS);
+    @GuardedBy("this")
+    private final LruCache<Integer, List<NetworkCycleDataForUid>> mDataUsage =
+            new LruCache<>(MAX_CACHED_APPS);
+
+    static AppInfoDataCache getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AppInfoDataCache() {
+    }
+
+    /** Returns the last storage stats loaded for the package of the user, or null. */
+    @Nullable
+    synchronized AppStorageStats getStorageStats(int userId, String packageName) {
+        return mStorageStats.get(getKey(userId, packageName));
+    }
+
+    synchronized void putStorageStats(int userId, String packageName, AppStorageStats stats) {
+        if (stats != null) {
+            mStorageStats.put(getKey(userId, packageName), stats);
+        }
+    }
+
+    /** Returns the last data usage loaded for the uid, or null. */
+    @Nullable
+    synchronized List<NetworkCycleDataForUid> getDataUsage(int uid) {
+        return mDataUsage.get(uid);
+    }
+
+    synchronized void putDataUsage(int uid, List<NetworkCycleDataForUid> data) {
+        if (data != null) {
+            mDataUsage.put(uid, data);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mStorageStats.evictAll();
+        mDataUsage.evictAll();
+    }
+
+    private static String getKey(int userId, String packageName) {
+        return userId + "/" + packageName;
+    }
+}
@@ -71,6 +71,11 @@ public abstract class AppInfoPreferenceControllerBase extends BasePreferenceCont
         updateState(mPreference);
     }
 
+    @Override
+    public int getRefreshInputs() {
+        return AppInfoDashboardFragment.INPUT_PACKAGE_INFO;
+    }
+
     public void setParentFragment(AppInfoDashboardFragment parent) {
         mParent = parent;
         parent.addToCallbackList(this);
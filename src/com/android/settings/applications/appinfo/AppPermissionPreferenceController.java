@@ -29,6 +29,7 @@ import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 
 import com.android.settings.R;
+import com.android.settings.applications.PermissionSummaryCache;
 import com.android.settingslib.applications.PermissionsSummaryHelper;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnStart;
@@ -87,7 +88,10 @@ public class AppPermissionPreferenceController extends AppInfoPreferenceControll
     };
 
     private final PackageManager.OnPermissionsChangedListener mOnPermissionsChangedListener =
-            uid -> updateState(mPreference);
+            uid -> {
+                PermissionSummaryCache.getInstance().invalidateUid(uid);
+                updateState(mPreference);
+            };
 
     public AppPermissionPreferenceController(Context context, String key) {
         super(context, key);
@@ -106,7 +110,8 @@ public class AppPermissionPreferenceController extends AppInfoPreferenceControll
 
     @Override
     public void updateState(Preference preference) {
-        PermissionsSummaryHelper.getPermissionSummary(mContext, mPackageName, mPermissionCallback);
+        PermissionSummaryCache.getInstance().getPermissionSummary(mContext, mPackageName,
+                mPermissionCallback);
     }
 
     @Override
@@ -52,6 +52,17 @@ public class AppStoragePreferenceController extends AppInfoPreferenceControllerB
     public void displayPreference(PreferenceScreen screen) {
         super.displayPreference(screen);
         mPreference.setEnabled(AppUtils.isAppInstalled(mAppEntry));
+        if (mLastResult == null && mAppEntry != null && mAppEntry.info != null) {
+            // Show the size of the last visit until the loader fetches it again.
+            mLastResult = AppInfoDataCache.getInstance().getStorageStats(UserHandle.myUserId(),
+                    mAppEntry.info.packageName);
+        }
+    }
+
+    @Override
+    public int getRefreshInputs() {
+        return AppInfoDashboardFragment.INPUT_PACKAGE_INFO
+                | AppInfoDashboardFragment.INPUT_STORAGE;
     }
 
     @Override
@@ -105,6 +116,8 @@ public class AppStoragePreferenceController extends AppInfoPreferenceControllerB
     public void onLoadFinished(Loader<StorageStatsSource.AppStorageStats> loader,
             StorageStatsSource.AppStorageStats result) {
         mLastResult = result;
+        AppInfoDataCache.getInstance().putStorageStats(UserHandle.myUserId(),
+                mParent.getAppEntry().info.packageName, result);
         updateState(mPreference);
     }
 
@@ -20,7 +20,6 @@ import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.content.ContentResolver;
 import android.content.Context;
-import android.content.Intent;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.PorterDuff;
@@ -29,7 +28,6 @@ import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
-import android.provider.MediaStore;
 import android.text.TextUtils;
 import android.util.Log;
 import android.util.Pair;
@@ -55,7 +53,6 @@ import com.android.settingslib.utils.StringUtil;
 import com.android.settingslib.utils.ThreadUtils;
 import com.android.settingslib.widget.LayoutPreference;
 
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -90,7 +87,9 @@ public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceCont
     @VisibleForTesting
     LayoutPreference mLayoutPreference;
     @VisibleForTesting
-    final Map<String, Bitmap> mIconCache;
+    BluetoothIconResolver mIconResolver;
+    // Icon URI each ImageView is waiting for, so late or stale icons are not shown.
+    private final Map<ImageView, String> mIconRequests;
     private CachedBluetoothDevice mCachedDevice;
     @VisibleForTesting
     BluetoothAdapter mBluetoothAdapter;
@@ -118,7 +117,8 @@ public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceCont
     public AdvancedBluetoothDetailsHeaderController(Context context, String prefKey) {
         super(context, prefKey);
         mBluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
-        mIconCache = new HashMap<>();
+        mIconResolver = BluetoothIconResolver.getInstance(context);
+        mIconRequests = new HashMap<>();
     }
 
     @Override
@@ -163,13 +163,8 @@ public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceCont
 
     @Override
     public void onDestroy() {
-        // Destroy icon bitmap associated with this header
-        for (Bitmap bitmap : mIconCache.values()) {
-            if (bitmap != null) {
-                bitmap.recycle();
-            }
-        }
-        mIconCache.clear();
+        // Icon bitmaps are shared through BluetoothIconResolver, so they are not recycled here.
+        mIconRequests.clear();
     }
 
     public void init(CachedBluetoothDevice cachedBluetoothDevice) {
@@ -264,8 +259,9 @@ public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceCont
         final String iconUri = BluetoothUtils.getStringMetaData(bluetoothDevice, iconMetaKey);
         final ImageView imageView = linearLayout.findViewById(R.id.header_icon);
         if (iconUri != null) {
-            updateIcon(imageView, iconUri);
+            updateIcon(imageView, iconMetaKey, iconUri);
         } else {
+            mIconRequests.remove(imageView);
             final Pair<Drawable, String> pair =
                     BluetoothUtils.getBtRainbowDrawableWithDescription(mContext, mCachedDevice);
             imageView.setImageDrawable(pair.first);
@@ -464,41 +460,39 @@ public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceCont
         }
         if (iconUri != null) {
             final ImageView imageView = linearLayout.findViewById(R.id.header_icon);
-            updateIcon(imageView, iconUri);
+            updateIcon(imageView, BluetoothDevice.METADATA_MAIN_ICON, iconUri);
         }
     }
 
     /**
-     * Update icon by {@code iconUri}. If icon exists in cache, use it; otherwise extract it
-     * from uri in background thread and update it in main thread.
+     * Update icon by {@code iconUri} from the {@code metadataKey} of the device. If icon exists
+     * in cache, use it; otherwise it is loaded by {@link BluetoothIconResolver} in background
+     * and updated in main thread.
      */
     @VisibleForTesting
-    void updateIcon(ImageView imageView, String iconUri) {
-        if (mIconCache.containsKey(iconUri)) {
+    void updateIcon(ImageView imageView, int metadataKey, String iconUri) {
+        final BluetoothDevice bluetoothDevice = mCachedDevice.getDevice();
+        final Bitmap cachedBitmap = mIconResolver.getIcon(bluetoothDevice, metadataKey, iconUri);
+        if (cachedBitmap != null) {
+            mIconRequests.remove(imageView);
             imageView.setAlpha(1f);
-            imageView.setImageBitmap(mIconCache.get(iconUri));
+            imageView.setImageBitmap(cachedBitmap);
             return;
         }
 
+        if (TextUtils.equals(mIconRequests.get(imageView), iconUri)) {
+            // Already waiting for this icon.
+            return;
+        }
+        mIconRequests.put(imageView, iconUri);
         imageView.setAlpha(HALF_ALPHA);
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Uri uri = Uri.parse(iconUri);
-            try {
-                mContext.getContentResolver().takePersistableUriPermission(uri,
-                        Intent.FLAG_GRANT_READ_URI_PERMISSION);
-
-                final Bitmap bitmap = MediaStore.Images.Media.getBitmap(
-                        mContext.getContentResolver(), uri);
-                ThreadUtils.postOnMainThread(() -> {
-                    mIconCache.put(iconUri, bitmap);
-                    imageView.setAlpha(1f);
-                    imageView.setImageBitmap(bitmap);
-                });
-            } catch (IOException e) {
-                Log.e(TAG, "Failed to get bitmap for: " + iconUri, e);
-            } catch (SecurityException e) {
-                Log.e(TAG, "Failed to take persistable permission for: " + uri, e);
+        mIconResolver.loadIcon(bluetoothDevice, metadataKey, iconUri, bitmap -> {
+            if (!TextUtils.equals(mIconRequests.get(imageView), iconUri)) {
+                return;
             }
+            mIconRequests.remove(imageView);
+            imageView.setAlpha(1f);
+            imageView.setImageBitmap(bitmap);
         });
     }
 
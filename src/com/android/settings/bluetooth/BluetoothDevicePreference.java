@@ -78,6 +78,10 @@ public final class BluetoothDevicePreference extends GearPreference {
     private String contentDescription = null;
     private boolean mHideSecondTarget = false;
     private boolean mIsCallbackRemoved = false;
+    private final BluetoothIconResolver mIconResolver;
+    // Whether the icon is being resolved, and whether it has to be resolved again after that.
+    private boolean mIsIconResolving = false;
+    private boolean mIsIconDirty = false;
     @VisibleForTesting
     boolean mNeedNotifyHierarchyChanged = false;
     /* Talk-back descriptions for various BT icons */
@@ -105,6 +109,7 @@ public final class BluetoothDevicePreference extends GearPreference {
             sDimAlpha = (int) (outValue.getFloat() * 255);
         }
 
+        mIconResolver = BluetoothIconResolver.getInstance(context);
         mCachedDevice = cachedDevice;
         mCallback = new BluetoothDevicePreferenceCallback();
         mCachedDevice.registerCallback(mCallback);
@@ -176,9 +181,14 @@ public final class BluetoothDevicePreference extends GearPreference {
     }
 
     void onPreferenceAttributesChanged() {
-        Pair<Drawable, String> pair = mCachedDevice.getDrawableWithDescription();
-        setIcon(pair.first);
-        contentDescription = pair.second;
+        // The icon may load bitmaps from the device metadata, so it is resolved after binding and
+        // the last known one, or else the icon of the device class, is shown until then.
+        if (getIcon() == null) {
+            final Pair<Drawable, String> cachedPair = mIconResolver.getDeviceIcon(mCachedDevice);
+            setIconWithDescription(cachedPair != null
+                    ? cachedPair : mIconResolver.getDeviceClassIcon(mCachedDevice));
+        }
+        resolveIcon();
 
         /*
          * The preference framework takes care of making sure the value has
@@ -202,6 +212,33 @@ public final class BluetoothDevicePreference extends GearPreference {
         }
     }
 
+    private void resolveIcon() {
+        if (mIsIconResolving) {
+            mIsIconDirty = true;
+            return;
+        }
+        mIsIconResolving = true;
+        mIconResolver.resolveDeviceIcon(mCachedDevice, pair -> {
+            mIsIconResolving = false;
+            if (pair != null) {
+                setIconWithDescription(pair);
+            }
+            if (mIsIconDirty) {
+                mIsIconDirty = false;
+                resolveIcon();
+            }
+        });
+    }
+
+    private void setIconWithDescription(Pair<Drawable, String> pair) {
+        if (!TextUtils.equals(contentDescription, pair.second)) {
+            contentDescription = pair.second;
+            // The description is applied to the icon view when it is bound.
+            notifyChanged();
+        }
+        setIcon(pair.first);
+    }
+
     @Override
     public void onBindViewHolder(PreferenceViewHolder view) {
         // Disable this view if the bluetooth enable/disable preference view is off
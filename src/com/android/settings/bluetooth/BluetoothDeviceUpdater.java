@@ -19,6 +19,11 @@ import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -39,7 +44,9 @@ import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Update the bluetooth devices. It gets bluetooth event from {@link LocalBluetoothManager} using
@@ -48,12 +55,20 @@ import java.util.Map;
  *
  * In {@link BluetoothDeviceUpdater}, it uses {@link BluetoothDeviceFilter.Filter} to detect
  * whether the {@link CachedBluetoothDevice} is relevant.
+ *
+ * Callbacks about a single device only update that device. The bursts of profile and ACL state
+ * changes of a device are coalesced: the first change is applied right away, the following ones
+ * within {@link #UPDATE_COALESCE_WINDOW_MS} are applied together at the end of the window.
  */
 public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         LocalBluetoothProfileManager.ServiceListener {
     private static final String TAG = "BluetoothDeviceUpdater";
     private static final boolean DBG = Log.isLoggable(TAG, Log.DEBUG);
 
+    @VisibleForTesting
+    static final long UPDATE_COALESCE_WINDOW_MS = 200;
+    private static final long FILTER_RATE_WINDOW_MS = 1000;
+
     protected final MetricsFeatureProvider mMetricsFeatureProvider;
     protected final DevicePreferenceCallback mDevicePreferenceCallback;
     protected final Map<BluetoothDevice, Preference> mPreferenceMap;
@@ -67,6 +82,19 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         launchDeviceDetails(pref);
     };
 
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<CachedBluetoothDevice, Long> mLastUpdateTimes = new ArrayMap<>();
+    private final Set<CachedBluetoothDevice> mPendingUpdates = new ArraySet<>();
+    @VisibleForTesting
+    final Runnable mPendingUpdatesRunnable = this::applyPendingUpdates;
+    // Cached devices of the ongoing forceUpdate(), so they are not copied for every device.
+    private Set<CachedBluetoothDevice> mCachedDevicesSnapshot;
+
+    private long mFilterEvaluationCount;
+    private int mFilterEvaluationsInWindow;
+    private long mFilterRateWindowStart;
+    private int mFilterEvaluationsPerSecond;
+
     public BluetoothDeviceUpdater(Context context, DashboardFragment fragment,
             DevicePreferenceCallback devicePreferenceCallback) {
         this(context, fragment, devicePreferenceCallback, Utils.getLocalBtManager(context));
@@ -107,6 +135,9 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         mLocalManager.setForegroundActivity(null);
         mLocalManager.getEventManager().unregisterCallback(this);
         mLocalManager.getProfileManager().removeServiceListener(this);
+        mHandler.removeCallbacks(mPendingUpdatesRunnable);
+        mPendingUpdates.clear();
+        mLastUpdateTimes.clear();
     }
 
     /**
@@ -120,9 +151,17 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         if (BluetoothAdapter.getDefaultAdapter().isEnabled()) {
             final Collection<CachedBluetoothDevice> cachedDevices =
                     mLocalManager.getCachedDeviceManager().getCachedDevicesCopy();
-            for (CachedBluetoothDevice cachedBluetoothDevice : cachedDevices) {
-                update(cachedBluetoothDevice);
+            mCachedDevicesSnapshot = new HashSet<>(cachedDevices);
+            try {
+                for (CachedBluetoothDevice cachedBluetoothDevice : cachedDevices) {
+                    update(cachedBluetoothDevice);
+                }
+            } finally {
+                mCachedDevicesSnapshot = null;
             }
+            // Every device is up to date now.
+            mHandler.removeCallbacks(mPendingUpdatesRunnable);
+            mPendingUpdates.clear();
         } else {
           removeAllDevicesFromPreference();
         }
@@ -159,6 +198,8 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         // Used to combine the hearing aid entries just after pairing. Once both the hearing aids
         // get connected and their hiSyncId gets populated, this gets called for one of the
         // 2 hearing aids so that only one entry in the connected devices list will be seen.
+        mPendingUpdates.remove(cachedDevice);
+        mLastUpdateTimes.remove(cachedDevice);
         removePreference(cachedDevice);
     }
 
@@ -174,7 +215,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.d(TAG, "onProfileConnectionStateChanged() device: " + cachedDevice.getName()
                     + ", state: " + state + ", bluetoothProfile: " + bluetoothProfile);
         }
-        update(cachedDevice);
+        updateCoalesced(cachedDevice);
     }
 
     @Override
@@ -183,7 +224,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.d(TAG, "onAclConnectionStateChanged() device: " + cachedDevice.getName()
                     + ", state: " + state);
         }
-        update(cachedDevice);
+        updateCoalesced(cachedDevice);
     }
 
     @Override
@@ -219,7 +260,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
      * Update whether to show {@link CachedBluetoothDevice} in the list.
      */
     protected void update(CachedBluetoothDevice cachedBluetoothDevice) {
-        if (isFilterMatched(cachedBluetoothDevice)) {
+        if (evaluateFilter(cachedBluetoothDevice)) {
             // Add the preference if it is new one
             addPreference(cachedBluetoothDevice);
         } else {
@@ -227,6 +268,71 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         }
     }
 
+    /**
+     * Return {@link #isFilterMatched(CachedBluetoothDevice)}, counting the evaluations.
+     */
+    protected boolean evaluateFilter(CachedBluetoothDevice cachedDevice) {
+        mFilterEvaluationCount++;
+        mFilterEvaluationsInWindow++;
+        final long now = SystemClock.uptimeMillis();
+        final long elapsed = now - mFilterRateWindowStart;
+        if (elapsed >= FILTER_RATE_WINDOW_MS) {
+            mFilterEvaluationsPerSecond =
+                    (int) (mFilterEvaluationsInWindow * FILTER_RATE_WINDOW_MS / elapsed);
+            if (DBG) {
+                Log.d(TAG, getPreferenceKey() + " filter evaluations per second: "
+                        + mFilterEvaluationsPerSecond + ", total: " + mFilterEvaluationCount);
+            }
+            mFilterRateWindowStart = now;
+            mFilterEvaluationsInWindow = 0;
+        }
+        return isFilterMatched(cachedDevice);
+    }
+
+    /**
+     * Return the number of filter evaluations since this updater is created.
+     */
+    public long getFilterEvaluationCount() {
+        return mFilterEvaluationCount;
+    }
+
+    /**
+     * Return the number of filter evaluations per second, measured over the last full second.
+     */
+    public int getFilterEvaluationsPerSecond() {
+        return mFilterEvaluationsPerSecond;
+    }
+
+    /**
+     * Update the {@code cachedDevice} right away, or at the end of the coalescing window if it
+     * has been updated within the window.
+     */
+    private void updateCoalesced(CachedBluetoothDevice cachedDevice) {
+        final long now = SystemClock.uptimeMillis();
+        final Long lastUpdateTime = mLastUpdateTimes.get(cachedDevice);
+        if (lastUpdateTime == null || now - lastUpdateTime >= UPDATE_COALESCE_WINDOW_MS) {
+            mLastUpdateTimes.put(cachedDevice, now);
+            mPendingUpdates.remove(cachedDevice);
+            update(cachedDevice);
+            return;
+        }
+        if (mPendingUpdates.isEmpty()) {
+            mHandler.postDelayed(mPendingUpdatesRunnable, UPDATE_COALESCE_WINDOW_MS);
+        }
+        mPendingUpdates.add(cachedDevice);
+    }
+
+    private void applyPendingUpdates() {
+        final long now = SystemClock.uptimeMillis();
+        final CachedBluetoothDevice[] cachedDevices =
+                mPendingUpdates.toArray(new CachedBluetoothDevice[0]);
+        mPendingUpdates.clear();
+        for (CachedBluetoothDevice cachedDevice : cachedDevices) {
+            mLastUpdateTimes.put(cachedDevice, now);
+            update(cachedDevice);
+        }
+    }
+
     /**
      * Add the {@link Preference} that represents the {@code cachedDevice}
      */
@@ -328,6 +434,9 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
     }
 
     protected boolean isDeviceInCachedDevicesList(CachedBluetoothDevice cachedDevice){
+        if (mCachedDevicesSnapshot != null) {
+            return mCachedDevicesSnapshot.contains(cachedDevice);
+        }
         return mLocalManager.getCachedDeviceManager().getCachedDevicesCopy().contains(cachedDevice);
     }
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.Pair;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.bluetooth.BluetoothUtils;
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+import com.android.settingslib.utils.ThreadUtils;
+import com.android.settingslib.widget.AdaptiveOutlineDrawable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Resolves the icons of Bluetooth devices asynchronously, so the device preferences and the
+ * details header are bound without waiting for them.
+ *
+ * <p>The bitmaps of the icon URIs in the {@link BluetoothDevice} metadata are decoded in
+ * background and kept in a cache shared by all the pages, keyed by device address and metadata
+ * key and bounded by size. The cached bitmaps may be shown by several views at a time, so they
+ * are never recycled.
+ *
+ * <p>The icon of a {@link CachedBluetoothDevice} is built from its class and profiles, which are
+ * only updated and safely read on the main thread, unless its metadata has a main icon. The
+ * metadata is read and its icon decoded in background, then the finished icon is passed back to
+ * the main thread. The last resolved icon is kept per device address.
+ *
+ * <p>Methods are called on the main thread, and the callbacks are invoked on the main thread.
+ */
+public final class BluetoothIconResolver {
+    private static final String TAG = "BluetoothIconResolver";
+
+    @VisibleForTesting
+    static final int MAX_ICON_CACHE_KB = 4 * 1024;
+    private static final int MAX_DEVICE_ICON_COUNT = 64;
+
+    private static BluetoothIconResolver sInstance;
+
+    private final Context mContext;
+    private final LruCache<String, IconEntry> mIconCache =
+            new LruCache<String, IconEntry>(MAX_ICON_CACHE_KB) {
+                @Override
+                protected int sizeOf(String key, IconEntry entry) {
+                    return Math.max(1, entry.mBitmap.getAllocationByteCount() / 1024);
+                }
+            };
+    private final LruCache<String, DeviceIcon> mDeviceIconCache =
+            new LruCache<>(MAX_DEVICE_ICON_COUNT);
+    // Callbacks waiting for the icons being loaded, keyed as mIconCache.
+    private final Map<String, List<Consumer<Bitmap>>> mPendingIconCallbacks = new ArrayMap<>();
+
+    @VisibleForTesting
+    Executor mBackgroundExecutor = ThreadUtils::postOnBackgroundThread;
+    @VisibleForTesting
+    Executor mMainExecutor = ThreadUtils::postOnMainThread;
+
+    /** Returns the process-wide instance. */
+    public static BluetoothIconResolver getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BluetoothIconResolver(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private BluetoothIconResolver(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the cached bitmap of the icon {@code iconUri} from the {@code metadataKey} of the
+     * {@code device}, or null if it is not loaded.
+     */
+    public Bitmap getIcon(BluetoothDevice device, int metadataKey, String iconUri) {
+        final IconEntry entry = mIconCache.get(getIconKey(device, metadataKey));
+        return (entry != null && TextUtils.equals(entry.mIconUri, iconUri)) ? entry.mBitmap : null;
+    }
+
+    /**
+     * Loads the bitmap of the icon {@code iconUri} from the {@code metadataKey} of the
+     * {@code device} in background, then passes it to {@code callback}. The callback is not
+     * invoked if the icon can not be loaded.
+     */
+    public void loadIcon(BluetoothDevice device, int metadataKey, String iconUri,
+            Consumer<Bitmap> callback) {
+        final Bitmap cachedBitmap = getIcon(device, metadataKey, iconUri);
+        if (cachedBitmap != null) {
+            callback.accept(cachedBitmap);
+            return;
+        }
+        final String key = getIconKey(device, metadataKey);
+        final String pendingKey = key + "|" + iconUri;
+        List<Consumer<Bitmap>> callbacks = mPendingIconCallbacks.get(pendingKey);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        mPendingIconCallbacks.put(pendingKey, callbacks);
+
+        mBackgroundExecutor.execute(() -> {
+            final Bitmap bitmap = decodeIcon(iconUri);
+            mMainExecutor.execute(() -> {
+                final List<Consumer<Bitmap>> pendingCallbacks =
+                        mPendingIconCallbacks.remove(pendingKey);
+                if (bitmap == null) {
+                    return;
+                }
+                mIconCache.put(key, new IconEntry(iconUri, bitmap));
+                if (pendingCallbacks != null) {
+                    for (Consumer<Bitmap> pendingCallback : pendingCallbacks) {
+                        pendingCallback.accept(bitmap);
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Returns a copy of the last resolved icon and its description of the {@code cachedDevice},
+     * or null if it has not been resolved.
+     */
+    public Pair<Drawable, String> getDeviceIcon(CachedBluetoothDevice cachedDevice) {
+        final String address = cachedDevice.getAddress();
+        if (address == null) {
+            return null;
+        }
+        final DeviceIcon deviceIcon = mDeviceIconCache.get(address);
+        return deviceIcon == null ? null : deviceIcon.newIcon();
+    }
+
+    /**
+     * Returns the icon and its description of the {@code cachedDevice} built from its class and
+     * profiles, without its metadata. It is the resolved icon of the devices without a main icon
+     * in their metadata.
+     */
+    public Pair<Drawable, String> getDeviceClassIcon(CachedBluetoothDevice cachedDevice) {
+        final Pair<Drawable, String> pair =
+                BluetoothUtils.getBtClassDrawableWithDescription(mContext, cachedDevice);
+        final String address = cachedDevice.getAddress();
+        return new Pair<>(BluetoothUtils.buildBtRainbowDrawable(mContext, pair.first,
+                address == null ? 0 : address.hashCode()), pair.second);
+    }
+
+    /**
+     * Resolves the icon and its description of the {@code cachedDevice}, then passes them to
+     * {@code callback} from a later main thread task. The main icon of the device metadata is
+     * loaded in background, falling back to {@link #getDeviceClassIcon}. Devices without an
+     * address are resolved but not cached.
+     */
+    public void resolveDeviceIcon(CachedBluetoothDevice cachedDevice,
+            Consumer<Pair<Drawable, String>> callback) {
+        final Pair<Drawable, String> classIcon = getDeviceClassIcon(cachedDevice);
+        final BluetoothDevice device = cachedDevice.getDevice();
+        final String address = cachedDevice.getAddress();
+        mBackgroundExecutor.execute(() -> {
+            final Bitmap mainIcon = loadMainIcon(device);
+            mMainExecutor.execute(() -> {
+                final DeviceIcon deviceIcon =
+                        new DeviceIcon(mainIcon, classIcon.first, classIcon.second);
+                if (address != null) {
+                    mDeviceIconCache.put(address, deviceIcon);
+                }
+                callback.accept(mainIcon != null ? deviceIcon.newIcon() : classIcon);
+            });
+        });
+    }
+
+    @VisibleForTesting
+    void putIcon(BluetoothDevice device, int metadataKey, String iconUri, Bitmap bitmap) {
+        mIconCache.put(getIconKey(device, metadataKey), new IconEntry(iconUri, bitmap));
+    }
+
+    @VisibleForTesting
+    void clear() {
+        mIconCache.evictAll();
+        mDeviceIconCache.evictAll();
+        mPendingIconCallbacks.clear();
+        mBackgroundExecutor = ThreadUtils::postOnBackgroundThread;
+        mMainExecutor = ThreadUtils::postOnMainThread;
+    }
+
+    /**
+     * Returns the bitmap of the main icon in the metadata of {@code device}, decoding it if it is
+     * not cached, or null if there is none. Called in background.
+     */
+    private Bitmap loadMainIcon(BluetoothDevice device) {
+        if (device == null || !Utils.isAdvancedDetailsHeader(device)) {
+            return null;
+        }
+        final String iconUri =
+                BluetoothUtils.getStringMetaData(device, BluetoothDevice.METADATA_MAIN_ICON);
+        if (iconUri == null) {
+            return null;
+        }
+        final Bitmap cachedBitmap = getIcon(device, BluetoothDevice.METADATA_MAIN_ICON, iconUri);
+        if (cachedBitmap != null) {
+            return cachedBitmap;
+        }
+        final Bitmap bitmap = decodeIcon(iconUri);
+        if (bitmap != null) {
+            putIcon(device, BluetoothDevice.METADATA_MAIN_ICON, iconUri, bitmap);
+        }
+        return bitmap;
+    }
+
+    private Bitmap decodeIcon(String iconUri) {
+        final Uri uri = Uri.parse(iconUri);
+        try {
+            mContext.getContentResolver().takePersistableUriPermission(uri,
+                    Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            return MediaStore.Images.Media.getBitmap(mContext.getContentResolver(), uri);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to get bitmap for: " + iconUri, e);
+        } catch (SecurityException e) {
+            Log.e(TAG, "Failed to take persistable permission for: " + uri, e);
+        }
+        return null;
+    }
+
+    private static String getIconKey(BluetoothDevice device, int metadataKey) {
+        return device.getAddress() + "/" + metadataKey;
+    }
+
+    /** The resolved icon of a device, either its main icon bitmap or its class icon. */
+    private final class DeviceIcon {
+        private final Bitmap mMainIcon;
+        private final Drawable mClassIcon;
+        private final String mDescription;
+
+        DeviceIcon(Bitmap mainIcon, Drawable classIcon, String description) {
+            mMainIcon = mainIcon;
+            mClassIcon = classIcon;
+            mDescription = description;
+        }
+
+        /** Drawables hold the state of the view showing them, so each view gets its own one. */
+        Pair<Drawable, String> newIcon() {
+            if (mMainIcon != null) {
+                return new Pair<>(new AdaptiveOutlineDrawable(mContext.getResources(), mMainIcon),
+                        mDescription);
+            }
+            final Drawable.ConstantState state = mClassIcon.getConstantState();
+            return state == null ? null : new Pair<>(state.newDrawable(), mDescription);
+        }
+    }
+
+    private static final class IconEntry {
+        private final String mIconUri;
+        private final Bitmap mBitmap;
+
+        IconEntry(String iconUri, Bitmap bitmap) {
+            mIconUri = iconUri;
+            mBitmap = bitmap;
+        }
+    }
+}
@@ -89,7 +89,7 @@ public class SavedBluetoothDeviceUpdater extends BluetoothDeviceUpdater
 
     @Override
     public void update(CachedBluetoothDevice cachedDevice) {
-        if (isFilterMatched(cachedDevice)) {
+        if (evaluateFilter(cachedDevice)) {
             // Add the preference if it is new one
             addPreference(cachedDevice, BluetoothDevicePreference.SortType.TYPE_NO_SORT);
         } else {
@@ -62,30 +62,17 @@ public class PreferenceControllerListHelper {
             return controllers;
         }
 
+        final PreferenceControllerRegistry registry = PreferenceControllerRegistry.getInstance();
         for (Bundle metadata : preferenceMetadata) {
             final String controllerName = metadata.getString(METADATA_CONTROLLER);
             if (TextUtils.isEmpty(controllerName)) {
                 continue;
             }
-            BasePreferenceController controller;
-            try {
-                controller = BasePreferenceController.createInstance(context, controllerName);
-            } catch (IllegalStateException e) {
-                Log.d(TAG, "Could not find Context-only controller for pref: " + controllerName);
-                final String key = metadata.getString(METADATA_KEY);
-                final boolean isWorkProfile = metadata.getBoolean(METADATA_FOR_WORK, false);
-                if (TextUtils.isEmpty(key)) {
-                    Log.w(TAG, "Controller requires key but it's not defined in xml: "
-                            + controllerName);
-                    continue;
-                }
-                try {
-                    controller = BasePreferenceController.createInstance(context, controllerName,
-                            key, isWorkProfile);
-                } catch (IllegalStateException e2) {
-                    Log.w(TAG, "Cannot instantiate controller from reflection: " + controllerName);
-                    continue;
-                }
+            final BasePreferenceController controller = registry.createController(context,
+                    controllerName, metadata.getString(METADATA_KEY),
+                    metadata.getBoolean(METADATA_FOR_WORK, false));
+            if (controller == null) {
+                continue;
             }
             controllers.add(controller);
         }
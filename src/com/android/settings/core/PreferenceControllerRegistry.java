@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Process-wide registry of the factories creating the {@link BasePreferenceController}s declared
+ * in preference xml, keyed by controller class name.
+ *
+ * <p>The constructor of a controller class is looked up once, the first time the class is
+ * needed. Later creations, from the pages as well as from the search and slice indexers, call the
+ * resolved constructor directly.
+ */
+public final class PreferenceControllerRegistry {
+
+    private static final String TAG = "PrefCtrlRegistry";
+
+    /** Creates a controller for a preference key. */
+    public interface Factory {
+        /** Returns a new controller, or null if it can not be created. */
+        @Nullable
+        BasePreferenceController create(Context context, @Nullable String key);
+    }
+
+    /** Factory of the classes which are not valid controllers. */
+    private static final Factory INVALID_FACTORY = (context, key) -> null;
+
+    private static final PreferenceControllerRegistry sInstance =
+            new PreferenceControllerRegistry();
+
+    @GuardedBy("mFactories")
+    private final Map<String, Factory> mFactories = new ArrayMap<>();
+
+    /** Returns the process-wide instance. */
+    public static PreferenceControllerRegistry getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PreferenceControllerRegistry() {
+    }
+
+    /** Registers the {@code factory} creating the controllers of the {@code controllerName}. */
+    public void register(String controllerName, Factory factory) {
+        synchronized (mFactories) {
+            mFactories.put(controllerName, factory);
+        }
+    }
+
+    /**
+     * Returns a new controller of the {@code controllerName}, or null if it can not be created.
+     *
+     * <p>Controllers with a {@code (Context)} constructor ignore the {@code key} and
+     * {@code isWorkProfile}, as {@link BasePreferenceController#createInstance(Context, String)}
+     * did. The others need a {@code (Context, String)} constructor and a non-empty {@code key}.
+     * They, and the controllers of registered factories, are marked for work when
+     * {@code isWorkProfile} is set.
+     */
+    @Nullable
+    public BasePreferenceController createController(Context context, String controllerName,
+            @Nullable String key, boolean isWorkProfile) {
+        final Factory factory = getFactory(controllerName);
+        final BasePreferenceController controller = factory.create(context, key);
+        if (controller != null && isWorkProfile && !isContextOnly(factory)) {
+            controller.setForWork(true);
+        }
+        return controller;
+    }
+
+    /**
+     * Resolves the factory of the {@code controllerName} ahead of its first creation. The class
+     * is loaded but not initialized, so this can be called from a background thread.
+     */
+    public void prefetch(String controllerName) {
+        getFactory(controllerName);
+    }
+
+    @VisibleForTesting
+    Factory getFactory(String controllerName) {
+        synchronized (mFactories) {
+            final Factory factory = mFactories.get(controllerName);
+            if (factory != null) {
+                return factory;
+            }
+        }
+        // Resolve outside the lock, resolving a class twice is harmless.
+        final Factory factory = resolveFactory(controllerName);
+        synchronized (mFactories) {
+            mFactories.put(controllerName, factory);
+        }
+        return factory;
+    }
+
+    @VisibleForTesting
+    void clear() {
+        synchronized (mFactories) {
+            mFactories.clear();
+        }
+    }
+
+    private static boolean isContextOnly(Factory factory) {
+        return factory instanceof ConstructorFactory && !((ConstructorFactory) factory).mNeedsKey;
+    }
+
+    private static Factory resolveFactory(String controllerName) {
+        final Class<?> clazz;
+        try {
+            clazz = Class.forName(controllerName, false /* initialize */,
+                    PreferenceControllerRegistry.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            Log.w(TAG, "Cannot find controller: " + controllerName);
+            return INVALID_FACTORY;
+        }
+        if (!BasePreferenceController.class.isAssignableFrom(clazz)) {
+            Log.w(TAG, "Not a preference controller: " + controllerName);
+            return INVALID_FACTORY;
+        }
+
+        Constructor<?> contextConstructor = null;
+        Constructor<?> keyConstructor = null;
+        for (Constructor<?> constructor : clazz.getConstructors()) {
+            final Class<?>[] params = constructor.getParameterTypes();
+            if (Arrays.equals(params, new Class<?>[]{Context.class})) {
+                contextConstructor = constructor;
+            } else if (Arrays.equals(params, new Class<?>[]{Context.class, String.class})) {
+                keyConstructor = constructor;
+            }
+        }
+        if (contextConstructor != null) {
+            return new ConstructorFactory(contextConstructor, false /* needsKey */);
+        }
+        if (keyConstructor != null) {
+            return new ConstructorFactory(keyConstructor, true /* needsKey */);
+        }
+        Log.w(TAG, "No valid constructor for controller: " + controllerName);
+        return INVALID_FACTORY;
+    }
+
+    /** Factory calling a resolved constructor of the controller class. */
+    private static final class ConstructorFactory implements Factory {
+        private final Constructor<?> mConstructor;
+        private final boolean mNeedsKey;
+
+        private ConstructorFactory(Constructor<?> constructor, boolean needsKey) {
+            mConstructor = constructor;
+            mNeedsKey = needsKey;
+        }
+
+        @Override
+        public BasePreferenceController create(Context context, String key) {
+            if (mNeedsKey && TextUtils.isEmpty(key)) {
+                Log.w(TAG, "Controller requires key but it's not defined in xml: "
+                        + mConstructor.getName());
+                return null;
+            }
+            try {
+                return (BasePreferenceController) (mNeedsKey
+                        ? mConstructor.newInstance(context, key)
+                        : mConstructor.newInstance(context));
+            } catch (InstantiationException | IllegalAccessException
+                    | InvocationTargetException e) {
+                Log.w(TAG, "Cannot instantiate controller: " + mConstructor.getName(), e);
+                return null;
+            }
+        }
+    }
+}
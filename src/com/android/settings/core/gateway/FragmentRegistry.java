@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.gateway;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_CONTROLLER;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.provider.SearchIndexableResource;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.PreferenceControllerRegistry;
+import com.android.settings.core.PreferenceXmlParserUtils;
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+import com.android.settings.overlay.FeatureFactory;
+import com.android.settingslib.search.Indexable;
+import com.android.settingslib.search.SearchIndexableData;
+import com.android.settingslib.utils.ThreadUtils;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hash-indexed view of the fragments listed in {@link SettingsGateway}, with the controllers
+ * declared in the preference xml of each of them.
+ *
+ * <p>The controller names of a fragment are looked up once and cached.
+ * {@link #warm(Context, String)} resolves their factories in background, so a deep link can
+ * prepare its target page while the activity is being created. The fragment itself is still
+ * created by name, and loads its xml when it is created.
+ */
+public final class FragmentRegistry {
+    private static final String TAG = "FragmentRegistry";
+
+    private static final Set<String> ENTRY_FRAGMENTS =
+            new ArraySet<>(Arrays.asList(SettingsGateway.ENTRY_FRAGMENTS));
+
+    private static final FragmentRegistry sInstance = new FragmentRegistry();
+
+    @GuardedBy("this")
+    private Map<String, Indexable.SearchIndexProvider> mSearchProviders;
+    @GuardedBy("this")
+    private final Map<String, FragmentInfo> mFragmentInfos = new ArrayMap<>();
+
+    /** Returns the process-wide instance. */
+    public static FragmentRegistry getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    FragmentRegistry() {
+    }
+
+    /** Returns whether the fragment can be hosted by SettingsActivity. */
+    public static boolean isEntryFragment(String fragmentName) {
+        return fragmentName != null && ENTRY_FRAGMENTS.contains(fragmentName);
+    }
+
+    /** Loads the metadata of the fragment and its controller classes in background. */
+    public void warm(Context context, String fragmentName) {
+        if (TextUtils.isEmpty(fragmentName)) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        ThreadUtils.postOnBackgroundThread(() -> prefetchControllers(appContext, fragmentName));
+    }
+
+    /**
+     * Resolves the controllers declared in the preference xml of the fragment, and returns how
+     * many were resolved. The controller classes are loaded but not initialized, as some of them
+     * must be created on the main thread.
+     */
+    public int prefetchControllers(Context context, String fragmentName) {
+        final PreferenceControllerRegistry registry = PreferenceControllerRegistry.getInstance();
+        final List<String> controllerNames = getFragmentInfo(context, fragmentName)
+                .getControllerNames();
+        for (String controllerName : controllerNames) {
+            registry.prefetch(controllerName);
+        }
+        return controllerNames.size();
+    }
+
+    /** Returns the controllers of the fragment, loading them on first use. */
+    public FragmentInfo getFragmentInfo(Context context, String fragmentName) {
+        synchronized (this) {
+            final FragmentInfo info = mFragmentInfos.get(fragmentName);
+            if (info != null) {
+                return info;
+            }
+        }
+        // Load outside the lock, loading a fragment twice is harmless.
+        final FragmentInfo info = loadFragmentInfo(context, fragmentName);
+        synchronized (this) {
+            mFragmentInfos.put(fragmentName, info);
+        }
+        return info;
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mSearchProviders = null;
+        mFragmentInfos.clear();
+    }
+
+    private FragmentInfo loadFragmentInfo(Context context, String fragmentName) {
+        final Indexable.SearchIndexProvider provider = getSearchProvider(context, fragmentName);
+        if (provider == null) {
+            return new FragmentInfo(Collections.emptyList());
+        }
+        final List<SearchIndexableResource> resources =
+                provider.getXmlResourcesToIndex(context, true /* enabled */);
+        if (resources == null || resources.isEmpty()) {
+            return new FragmentInfo(Collections.emptyList());
+        }
+        return new FragmentInfo(
+                getControllerNames(context, fragmentName, resources.get(0).xmlResId));
+    }
+
+    private synchronized Indexable.SearchIndexProvider getSearchProvider(Context context,
+            String fragmentName) {
+        if (mSearchProviders == null) {
+            mSearchProviders = new ArrayMap<>();
+            for (SearchIndexableData data : FeatureFactory.getFactory(context)
+                    .getSearchFeatureProvider().getSearchIndexableResources()
+                    .getProviderValues()) {
+                mSearchProviders.put(data.getTargetClass().getName(),
+                        data.getSearchIndexProvider());
+            }
+        }
+        return mSearchProviders.get(fragmentName);
+    }
+
+    private static List<String> getControllerNames(Context context, String fragmentName,
+            int xmlResId) {
+        final List<Bundle> preferenceMetadata;
+        try {
+            preferenceMetadata = PreferenceXmlParserUtils.extractMetadata(context, xmlResId,
+                    MetadataFlag.FLAG_NEED_PREF_CONTROLLER | MetadataFlag.FLAG_INCLUDE_PREF_SCREEN);
+        } catch (IOException | XmlPullParserException e) {
+            Log.w(TAG, "Failed to parse preference xml of " + fragmentName, e);
+            return Collections.emptyList();
+        }
+        final List<String> controllerNames = new ArrayList<>();
+        for (Bundle metadata : preferenceMetadata) {
+            final String controllerName = metadata.getString(METADATA_CONTROLLER);
+            if (!TextUtils.isEmpty(controllerName)) {
+                controllerNames.add(controllerName);
+            }
+        }
+        return Collections.unmodifiableList(controllerNames);
+    }
+
+    /** Controllers of a fragment hosted by SettingsActivity. */
+    public static final class FragmentInfo {
+        private final List<String> mControllerNames;
+
+        private FragmentInfo(List<String> controllerNames) {
+            mControllerNames = controllerNames;
+        }
+
+        /** Returns the class names of the controllers declared in the preference xml. */
+        public List<String> getControllerNames() {
+            return mControllerNames;
+        }
+    }
+}
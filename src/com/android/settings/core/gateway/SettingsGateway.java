@@ -190,6 +190,7 @@ public class SettingsGateway {
     /**
      * A list of fragment that can be hosted by SettingsActivity. SettingsActivity will throw a
      * security exception if the fragment it needs to display is not in this list.
+     * Look it up with {@link FragmentRegistry#isEntryFragment(String)}.
      */
     public static final String[] ENTRY_FRAGMENTS = {
             AdvancedConnectedDeviceDashboardFragment.class.getName(),
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long the phases of building a Settings page take, e.g. creating its controllers or
+ * inflating its preference xml.
+ *
+ * <p>Each phase is also a {@link Trace} section named {@code <page>#<phase>}, so it shows in
+ * system traces. The recorded durations are reported by
+ * {@link com.android.settings.SettingsDumpService}, and tests check them against their budgets
+ * with {@link #getLastDurationMicros(String, String)}.
+ */
+public final class PageTimingRecorder {
+
+    /** Creating the preference controllers of the page. */
+    public static final String PHASE_CONTROLLER_CREATION = "controller_creation";
+    /** Inflating the preference xml of the page. */
+    public static final String PHASE_XML_INFLATION = "xml_inflation";
+    /** Binding the injected tiles of the page. */
+    public static final String PHASE_TILE_BINDING = "tile_binding";
+    /** Waiting for the dynamic data of the injected tiles. */
+    public static final String PHASE_OBSERVER_WAIT = "observer_wait";
+    /** From attaching the page until its first frame is drawn. */
+    public static final String PHASE_FIRST_DRAW = "first_draw";
+
+    private static final PageTimingRecorder sInstance = new PageTimingRecorder();
+
+    @GuardedBy("this")
+    private final Map<String, Map<String, PhaseStats>> mPages = new ArrayMap<>();
+
+    /** Returns the process-wide instance. */
+    public static PageTimingRecorder getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PageTimingRecorder() {
+    }
+
+    /**
+     * Starts timing the {@code phase} of the {@code page}. The phase ends when the returned
+     * {@link Section} is closed, on the same thread.
+     */
+    public Section beginPhase(String page, String phase) {
+        return new Section(page, phase);
+    }
+
+    /** Records that the {@code phase} of the {@code page} took {@code durationNanos}. */
+    public void record(String page, String phase, long durationNanos) {
+        final long durationMicros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+        synchronized (this) {
+            Map<String, PhaseStats> phases = mPages.get(page);
+            if (phases == null) {
+                phases = new ArrayMap<>();
+                mPages.put(page, phases);
+            }
+            PhaseStats stats = phases.get(phase);
+            if (stats == null) {
+                stats = new PhaseStats();
+                phases.put(phase, stats);
+            }
+            stats.add(durationMicros);
+        }
+    }
+
+    /**
+     * Returns the last duration in microseconds of the {@code phase} of the {@code page}, or -1
+     * if it has not been recorded.
+     */
+    public synchronized long getLastDurationMicros(String page, String phase) {
+        final PhaseStats stats = getPhaseStats(page, phase);
+        return stats == null ? -1 : stats.mLastMicros;
+    }
+
+    /** Returns a copy of the recorded statistics, keyed by page and phase. */
+    public synchronized Map<String, Map<String, PhaseStats>> getStats() {
+        final Map<String, Map<String, PhaseStats>> pages = new ArrayMap<>(mPages.size());
+        for (Map.Entry<String, Map<String, PhaseStats>> page : mPages.entrySet()) {
+            final Map<String, PhaseStats> phases = new ArrayMap<>(page.getValue().size());
+            for (Map.Entry<String, PhaseStats> phase : page.getValue().entrySet()) {
+                phases.put(phase.getKey(), phase.getValue().copy());
+            }
+            pages.put(page.getKey(), phases);
+        }
+        return pages;
+    }
+
+    @VisibleForTesting
+    public synchronized void clear() {
+        mPages.clear();
+    }
+
+    @GuardedBy("this")
+    private PhaseStats getPhaseStats(String page, String phase) {
+        final Map<String, PhaseStats> phases = mPages.get(page);
+        return phases == null ? null : phases.get(phase);
+    }
+
+    /** A phase being timed, which ends when it is closed. */
+    public final class Section implements AutoCloseable {
+        private final String mPage;
+        private final String mPhase;
+        private final long mStartNanos;
+
+        private Section(String page, String phase) {
+            mPage = page;
+            mPhase = phase;
+            Trace.beginSection(page + "#" + phase);
+            mStartNanos = SystemClock.elapsedRealtimeNanos();
+        }
+
+        @Override
+        public void close() {
+            record(mPage, mPhase, SystemClock.elapsedRealtimeNanos() - mStartNanos);
+            Trace.endSection();
+        }
+    }
+
+    /** Durations of a phase of a page. */
+    public static final class PhaseStats {
+        private int mCount;
+        private long mLastMicros;
+        private long mMaxMicros;
+        private long mTotalMicros;
+
+        private void add(long durationMicros) {
+            mCount++;
+            mLastMicros = durationMicros;
+            mMaxMicros = Math.max(mMaxMicros, durationMicros);
+            mTotalMicros += durationMicros;
+        }
+
+        private PhaseStats copy() {
+            final PhaseStats stats = new PhaseStats();
+            stats.mCount = mCount;
+            stats.mLastMicros = mLastMicros;
+            stats.mMaxMicros = mMaxMicros;
+            stats.mTotalMicros = mTotalMicros;
+            return stats;
+        }
+
+        /** Returns how many times the phase has been recorded. */
+        public int getCount() {
+            return mCount;
+        }
+
+        /** Returns the last duration in microseconds. */
+        public long getLastMicros() {
+            return mLastMicros;
+        }
+
+        /** Returns the longest duration in microseconds. */
+        public long getMaxMicros() {
+            return mMaxMicros;
+        }
+
+        /** Returns the total duration in microseconds. */
+        public long getTotalMicros() {
+            return mTotalMicros;
+        }
+    }
+}
@@ -20,9 +20,12 @@ import android.app.settings.SettingsEnums;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import androidx.annotation.CallSuper;
 import androidx.annotation.VisibleForTesting;
@@ -39,6 +42,7 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.CategoryMixin.CategoryListener;
 import com.android.settings.core.PreferenceControllerListHelper;
+import com.android.settings.core.instrumentation.PageTimingRecorder;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.PrimarySwitchPreference;
 import com.android.settingslib.core.AbstractPreferenceController;
@@ -81,6 +85,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private List<String> mSuppressInjectedTileKeys;
+    private final PageTimingRecorder mTimingRecorder = PageTimingRecorder.getInstance();
+    private long mAttachTimeNanos;
+    private boolean mIsFirstDrawRecorded;
 
     @Override
     public void onAttach(Context context) {
@@ -89,12 +96,17 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 R.array.config_suppress_injected_tile_keys));
         mDashboardFeatureProvider = FeatureFactory.getFactory(context).
                 getDashboardFeatureProvider(context);
-        // Load preference controllers from code
-        final List<AbstractPreferenceController> controllersFromCode =
-                createPreferenceControllers(context);
-        // Load preference controllers from xml definition
-        final List<BasePreferenceController> controllersFromXml = PreferenceControllerListHelper
-                .getPreferenceControllersFromXml(context, getPreferenceScreenResId());
+        mAttachTimeNanos = SystemClock.elapsedRealtimeNanos();
+        final List<AbstractPreferenceController> controllersFromCode;
+        final List<BasePreferenceController> controllersFromXml;
+        try (PageTimingRecorder.Section section = mTimingRecorder.beginPhase(
+                getTimingPageName(), PageTimingRecorder.PHASE_CONTROLLER_CREATION)) {
+            // Load preference controllers from code
+            controllersFromCode = createPreferenceControllers(context);
+            // Load preference controllers from xml definition
+            controllersFromXml = PreferenceControllerListHelper
+                    .getPreferenceControllersFromXml(context, getPreferenceScreenResId());
+        }
         // Filter xml-based controllers in case a similar controller is created from code already.
         final List<BasePreferenceController> uniqueControllerFromXml =
                 PreferenceControllerListHelper.filterControllers(
@@ -165,6 +177,28 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         }
     }
 
+    @Override
+    public void onViewCreated(View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        if (mIsFirstDrawRecorded) {
+            return;
+        }
+        final ViewTreeObserver observer = view.getViewTreeObserver();
+        observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                if (!mIsFirstDrawRecorded) {
+                    mIsFirstDrawRecorded = true;
+                    mTimingRecorder.record(getTimingPageName(),
+                            PageTimingRecorder.PHASE_FIRST_DRAW,
+                            SystemClock.elapsedRealtimeNanos() - mAttachTimeNanos);
+                }
+                return true;
+            }
+        });
+    }
+
     @Override
     public void onCategoriesChanged(Set<String> categories) {
         final String categoryKey = getCategoryKey();
@@ -336,7 +370,10 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         if (resId <= 0) {
             return;
         }
-        addPreferencesFromResource(resId);
+        try (PageTimingRecorder.Section section = mTimingRecorder.beginPhase(
+                getTimingPageName(), PageTimingRecorder.PHASE_XML_INFLATION)) {
+            addPreferencesFromResource(resId);
+        }
         final PreferenceScreen screen = getPreferenceScreen();
         screen.setOnExpandButtonClickListener(this);
         displayResourceTilesToScreen(screen);
@@ -484,53 +521,57 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             Log.d(tag, "tile list is empty, skipping category " + category.key);
             return;
         }
-        // Create a list to track which tiles are to be removed.
-        final Map<String, List<DynamicDataObserver>> remove = new ArrayMap(mDashboardTilePrefKeys);
-
-        // Install dashboard tiles and collect pending observers.
-        final boolean forceRoundedIcons = shouldForceRoundedIcon();
         final List<DynamicDataObserver> pendingObservers = new ArrayList<>();
-        for (Tile tile : tiles) {
-            final String key = mDashboardFeatureProvider.getDashboardKeyForTile(tile);
-            if (TextUtils.isEmpty(key)) {
-                Log.d(tag, "tile does not contain a key, skipping " + tile);
-                continue;
-            }
-            if (!displayTile(tile)) {
-                continue;
-            }
-            final List<DynamicDataObserver> observers;
-            if (mDashboardTilePrefKeys.containsKey(key)) {
-                // Have the key already, will rebind.
-                final Preference preference = screen.findPreference(key);
-                observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
-                        getActivity(), this, forceRoundedIcons, preference, tile, key,
-                        mPlaceholderPreferenceController.getOrder());
-            } else {
-                // Don't have this key, add it.
-                final Preference pref = createPreference(tile);
-                observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
-                        getActivity(), this, forceRoundedIcons, pref, tile, key,
-                        mPlaceholderPreferenceController.getOrder());
-                screen.addPreference(pref);
-                registerDynamicDataObservers(observers);
-                mDashboardTilePrefKeys.put(key, observers);
-            }
-            if (observers != null) {
-                pendingObservers.addAll(observers);
+        try (PageTimingRecorder.Section section = mTimingRecorder.beginPhase(
+                getTimingPageName(), PageTimingRecorder.PHASE_TILE_BINDING)) {
+            // Create a list to track which tiles are to be removed.
+            final Map<String, List<DynamicDataObserver>> remove =
+                    new ArrayMap(mDashboardTilePrefKeys);
+
+            // Install dashboard tiles and collect pending observers.
+            final boolean forceRoundedIcons = shouldForceRoundedIcon();
+            for (Tile tile : tiles) {
+                final String key = mDashboardFeatureProvider.getDashboardKeyForTile(tile);
+                if (TextUtils.isEmpty(key)) {
+                    Log.d(tag, "tile does not contain a key, skipping " + tile);
+                    continue;
+                }
+                if (!displayTile(tile)) {
+                    continue;
+                }
+                final List<DynamicDataObserver> observers;
+                if (mDashboardTilePrefKeys.containsKey(key)) {
+                    // Have the key already, will rebind.
+                    final Preference preference = screen.findPreference(key);
+                    observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
+                            getActivity(), this, forceRoundedIcons, preference, tile, key,
+                            mPlaceholderPreferenceController.getOrder());
+                } else {
+                    // Don't have this key, add it.
+                    final Preference pref = createPreference(tile);
+                    observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
+                            getActivity(), this, forceRoundedIcons, pref, tile, key,
+                            mPlaceholderPreferenceController.getOrder());
+                    screen.addPreference(pref);
+                    registerDynamicDataObservers(observers);
+                    mDashboardTilePrefKeys.put(key, observers);
+                }
+                if (observers != null) {
+                    pendingObservers.addAll(observers);
+                }
+                remove.remove(key);
             }
-            remove.remove(key);
-        }
 
-        // Remove tiles that are gone.
-        for (Map.Entry<String, List<DynamicDataObserver>> entry : remove.entrySet()) {
-            final String key = entry.getKey();
-            mDashboardTilePrefKeys.remove(key);
-            final Preference preference = screen.findPreference(key);
-            if (preference != null) {
-                screen.removePreference(preference);
+            // Remove tiles that are gone.
+            for (Map.Entry<String, List<DynamicDataObserver>> entry : remove.entrySet()) {
+                final String key = entry.getKey();
+                mDashboardTilePrefKeys.remove(key);
+                final Preference preference = screen.findPreference(key);
+                if (preference != null) {
+                    screen.removePreference(preference);
+                }
+                unregisterDynamicDataObservers(entry.getValue());
             }
-            unregisterDynamicDataObservers(entry.getValue());
         }
 
         // Wait for pending observers to update UI.
@@ -542,12 +583,19 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 mainLatch.countDown();
             }).start();
             Log.d(tag, "Start waiting observers");
-            awaitObserverLatch(mainLatch);
+            try (PageTimingRecorder.Section section = mTimingRecorder.beginPhase(
+                    getTimingPageName(), PageTimingRecorder.PHASE_OBSERVER_WAIT)) {
+                awaitObserverLatch(mainLatch);
+            }
             Log.d(tag, "Stop waiting observers");
             pendingObservers.forEach(DynamicDataObserver::updateUi);
         }
     }
 
+    private String getTimingPageName() {
+        return getClass().getSimpleName();
+    }
+
     @Override
     public void onBlockerWorkFinished(BasePreferenceController controller) {
         mBlockerController.countDown(controller.getPreferenceKey());
@@ -14,31 +14,24 @@
 
 package com.android.settings.datausage;
 
-import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
-import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
 import static android.net.NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND;
 
 import android.app.Activity;
-import android.app.ActivityManager;
 import android.app.settings.SettingsEnums;
-import android.app.usage.NetworkStats;
-import android.app.usage.NetworkStats.Bucket;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.UserInfo;
 import android.graphics.Color;
 import android.net.ConnectivityManager;
 import android.net.NetworkPolicy;
 import android.net.NetworkTemplate;
 import android.os.Bundle;
-import android.os.Process;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.Settings;
 import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
 import android.util.Log;
-import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 import android.view.View;
 import android.view.View.AccessibilityDelegate;
 import android.view.accessibility.AccessibilityEvent;
@@ -53,6 +46,8 @@ import androidx.loader.app.LoaderManager.LoaderCallbacks;
 import androidx.loader.content.Loader;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.settings.R;
 import com.android.settings.core.SubSettingLauncher;
@@ -63,7 +58,6 @@ import com.android.settings.widget.LoadingViewController;
 import com.android.settingslib.AppItem;
 import com.android.settingslib.net.NetworkCycleChartData;
 import com.android.settingslib.net.NetworkCycleChartDataLoader;
-import com.android.settingslib.net.NetworkStatsSummaryLoader;
 import com.android.settingslib.net.UidDetailProvider;
 
 import java.util.ArrayList;
@@ -95,6 +89,16 @@ public class DataUsageList extends DataUsageBaseFragment
     static final int LOADER_CHART_DATA = 2;
     @VisibleForTesting
     static final int LOADER_SUMMARY = 3;
+    @VisibleForTesting
+    static final int LOADER_PREFETCH = 4;
+
+    // Number of cycles other than the selected one loaded in the background.
+    private static final int MAX_PREFETCH_CYCLES = 5;
+    // Number of app rows created at once, the first page uses the items materialized by the
+    // loader.
+    private static final int ITEMS_PER_PAGE = NetworkCycleAppUsageLoader.TOP_ITEM_COUNT;
+    // Number of remaining rows below the visible area that triggers the next page.
+    private static final int LOAD_MORE_THRESHOLD = 5;
 
     @VisibleForTesting
     MobileDataEnabledListener mDataStateListener;
@@ -118,9 +122,18 @@ public class DataUsageList extends DataUsageBaseFragment
     // which need be cleared when resumed.
     private CycleAdapter.CycleItem mLastDisplayedCycle;
     private UidDetailProvider mUidDetailProvider;
+    // Per-UID usage of the loaded cycles, which need be cleared when resumed.
+    private final NetworkCycleAppUsageCache mAppUsageCache = new NetworkCycleAppUsageCache();
     private CycleAdapter mCycleAdapter;
     private Preference mUsageAmount;
     private PreferenceGroup mApps;
+    // The usage bound to mApps, rows are created page by page up to mBoundItemCount.
+    private NetworkCycleAppUsage mBoundUsage;
+    private int mBoundItemCount;
+    private final SparseBooleanArray mRestrictedKeys = new SparseBooleanArray();
+    private final List<AppItem> mRestrictedOnlyItems = new ArrayList<>();
+    // Position of the first restricted app without usage among the bound rows.
+    private int mRestrictedOnlyPosition;
     private View mHeader;
 
     @Override
@@ -204,6 +217,10 @@ public class DataUsageList extends DataUsageBaseFragment
 
         mLoadingViewController = new LoadingViewController(
                 getView().findViewById(R.id.loading_container), getListView());
+        final RecyclerView listView = getListView();
+        if (listView != null) {
+            listView.addOnScrollListener(mAppListScrollListener);
+        }
     }
 
     @Override
@@ -213,6 +230,7 @@ public class DataUsageList extends DataUsageBaseFragment
         mDataStateListener.start(mSubId);
         mCycles = null;
         mLastDisplayedCycle = null;
+        mAppUsageCache.clear();
 
         // kick off loader for network history
         // TODO: consider chaining two loaders together instead of reloading
@@ -230,6 +248,7 @@ public class DataUsageList extends DataUsageBaseFragment
 
         getLoaderManager().destroyLoader(LOADER_CHART_DATA);
         getLoaderManager().destroyLoader(LOADER_SUMMARY);
+        getLoaderManager().destroyLoader(LOADER_PREFETCH);
     }
 
     @Override
@@ -373,12 +392,21 @@ public class DataUsageList extends DataUsageBaseFragment
      * current mode. Updates {@link #mAdapter} with sorted list
      * of applications data usage.
      */
-    private void updateDetailData() {
+    @VisibleForTesting
+    void updateDetailData() {
         if (LOGD) Log.d(TAG, "updateDetailData()");
 
-        // kick off loader for detailed stats
-        getLoaderManager().restartLoader(LOADER_SUMMARY, null /* args */,
-                mNetworkStatsDetailCallbacks);
+        final NetworkCycleAppUsage cachedUsage = mAppUsageCache.get(mTemplate,
+                mChart.getInspectStart(), mChart.getInspectEnd());
+        if (cachedUsage != null) {
+            // Served from the cycles loaded before, drop the query of the previous selection.
+            getLoaderManager().destroyLoader(LOADER_SUMMARY);
+            bindDetailData(cachedUsage);
+        } else {
+            // kick off loader for detailed stats
+            getLoaderManager().restartLoader(LOADER_SUMMARY, null /* args */,
+                    mNetworkStatsDetailCallbacks);
+        }
 
         final long totalBytes = mCycleData != null && !mCycleData.isEmpty()
             ? mCycleData.get(mCycleSpinner.getSelectedItemPosition()).getTotalUsage() : 0;
@@ -386,96 +414,76 @@ public class DataUsageList extends DataUsageBaseFragment
         mUsageAmount.setTitle(getString(R.string.data_used_template, totalPhrase));
     }
 
+    private void bindDetailData(NetworkCycleAppUsage usage) {
+        final int[] restrictedUids = services.mPolicyManager.getUidsWithPolicy(
+                POLICY_REJECT_METERED_BACKGROUND);
+        bindStats(usage, restrictedUids);
+        updateEmptyVisible();
+    }
+
     /**
-     * Bind the given {@link NetworkStats}, or {@code null} to clear list.
+     * Bind the given {@link NetworkCycleAppUsage}, or {@code null} to clear list. Only the first
+     * page of rows is created, the others are created when the list is scrolled to them.
      */
-    private void bindStats(NetworkStats stats, int[] restrictedUids) {
+    @VisibleForTesting
+    void bindStats(NetworkCycleAppUsage usage, int[] restrictedUids) {
         mApps.removeAll();
-        if (stats == null) {
+        mBoundUsage = usage;
+        mBoundItemCount = 0;
+        mRestrictedKeys.clear();
+        mRestrictedOnlyItems.clear();
+        if (usage == null) {
             if (LOGD) {
                 Log.d(TAG, "No network stats data. App list cleared.");
             }
             return;
         }
 
-        final ArrayList<AppItem> items = new ArrayList<>();
-        long largest = 0;
-
-        final int currentUserId = ActivityManager.getCurrentUser();
-        final UserManager userManager = UserManager.get(getContext());
-        final List<UserHandle> profiles = userManager.getUserProfiles();
-        final SparseArray<AppItem> knownItems = new SparseArray<AppItem>();
-
-        final Bucket bucket = new Bucket();
-        while (stats.hasNextBucket() && stats.getNextBucket(bucket)) {
-            // Decide how to collapse items together
-            final int uid = bucket.getUid();
-            final int collapseKey;
-            final int category;
-            final int userId = UserHandle.getUserId(uid);
-            if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
-                if (profiles.contains(new UserHandle(userId))) {
-                    if (userId != currentUserId) {
-                        // Add to a managed user item.
-                        final int managedKey = UidDetailProvider.buildKeyForUser(userId);
-                        largest = accumulate(managedKey, knownItems, bucket,
-                            AppItem.CATEGORY_USER, items, largest);
-                    }
-                    // Map SDK sandbox back to its corresponding app
-                    if (Process.isSdkSandboxUid(uid)) {
-                        collapseKey = Process.getAppUidForSdkSandboxUid(uid);
-                    } else {
-                        collapseKey = uid;
-                    }
-                    category = AppItem.CATEGORY_APP;
-                } else {
-                    // If it is a removed user add it to the removed users' key
-                    final UserInfo info = userManager.getUserInfo(userId);
-                    if (info == null) {
-                        collapseKey = UID_REMOVED;
-                        category = AppItem.CATEGORY_APP;
-                    } else {
-                        // Add to other user item.
-                        collapseKey = UidDetailProvider.buildKeyForUser(userId);
-                        category = AppItem.CATEGORY_USER;
-                    }
-                }
-            } else if (uid == UID_REMOVED || uid == UID_TETHERING
-                    || uid == Process.OTA_UPDATE_UID) {
-                collapseKey = uid;
-                category = AppItem.CATEGORY_APP;
-            } else {
-                collapseKey = android.os.Process.SYSTEM_UID;
-                category = AppItem.CATEGORY_APP;
-            }
-            largest = accumulate(collapseKey, knownItems, bucket, category, items, largest);
-        }
-        stats.close();
-
+        final List<UserHandle> profiles = UserManager.get(getContext()).getUserProfiles();
         final int restrictedUidsMax = restrictedUids.length;
         for (int i = 0; i < restrictedUidsMax; ++i) {
             final int uid = restrictedUids[i];
             // Only splice in restricted state for current user or managed users
-            if (!profiles.contains(new UserHandle(UserHandle.getUserId(uid)))) {
+            if (!profiles.contains(new UserHandle(UserHandle.getUserId(uid)))
+                    || mRestrictedKeys.get(uid)) {
                 continue;
             }
+            mRestrictedKeys.put(uid, true);
 
-            AppItem item = knownItems.get(uid);
-            if (item == null) {
-                item = new AppItem(uid);
+            if (usage.getPosition(uid) < 0) {
+                final AppItem item = new AppItem(uid);
                 item.total = -1;
                 item.addUid(uid);
-                items.add(item);
-                knownItems.put(item.key, item);
+                item.restricted = true;
+                mRestrictedOnlyItems.add(item);
             }
-            item.restricted = true;
         }
+        // Keeps the order of AppItem#compareTo: restricted apps without usage are listed after
+        // the items of the same category, which is the default one, and before the others.
+        mRestrictedOnlyPosition = 0;
+        final int restrictedOnlyCategory = new AppItem().category;
+        while (mRestrictedOnlyPosition < usage.getItemCount()
+                && usage.getCategory(mRestrictedOnlyPosition) <= restrictedOnlyCategory) {
+            mRestrictedOnlyPosition++;
+        }
+
+        bindNextPage();
+    }
 
-        Collections.sort(items);
-        for (int i = 0; i < items.size(); i++) {
-            final int percentTotal = largest != 0 ? (int) (items.get(i).total * 100 / largest) : 0;
+    /** Creates the rows of the next page of the bound items. */
+    @VisibleForTesting
+    void bindNextPage() {
+        if (mBoundUsage == null) {
+            return;
+        }
+        final long largest = mBoundUsage.getLargest();
+        final int itemCount = mBoundUsage.getItemCount() + mRestrictedOnlyItems.size();
+        final int end = Math.min(itemCount, mBoundItemCount + ITEMS_PER_PAGE);
+        for (; mBoundItemCount < end; mBoundItemCount++) {
+            final AppItem item = getBoundItem(mBoundItemCount);
+            final int percentTotal = largest != 0 ? (int) (item.total * 100 / largest) : 0;
             final AppDataUsagePreference preference = new AppDataUsagePreference(getContext(),
-                    items.get(i), percentTotal, mUidDetailProvider);
+                    item, percentTotal, mUidDetailProvider);
             preference.setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
                 @Override
                 public boolean onPreferenceClick(Preference preference) {
@@ -489,6 +497,84 @@ public class DataUsageList extends DataUsageBaseFragment
         }
     }
 
+    private AppItem getBoundItem(int position) {
+        if (position >= mRestrictedOnlyPosition) {
+            final int restrictedOnlyIndex = position - mRestrictedOnlyPosition;
+            if (restrictedOnlyIndex < mRestrictedOnlyItems.size()) {
+                return mRestrictedOnlyItems.get(restrictedOnlyIndex);
+            }
+            position -= mRestrictedOnlyItems.size();
+        }
+        final AppItem item = mBoundUsage.getItem(position);
+        if (!mRestrictedKeys.get(item.key)) {
+            return item;
+        }
+        // The cached items are shared across binds, so restricted items are copied instead of
+        // being modified in place.
+        final AppItem restrictedItem = copyAppItem(item);
+        restrictedItem.restricted = true;
+        return restrictedItem;
+    }
+
+    private static AppItem copyAppItem(AppItem item) {
+        final AppItem copy = new AppItem(item.key);
+        copy.category = item.category;
+        copy.total = item.total;
+        copy.restricted = item.restricted;
+        copy.uids = item.uids.clone();
+        return copy;
+    }
+
+    private void updateEmptyVisible() {
+        if ((mApps.getPreferenceCount() != 0) !=
+                (getPreferenceScreen().getPreferenceCount() != 0)) {
+            if (mApps.getPreferenceCount() != 0) {
+                getPreferenceScreen().addPreference(mUsageAmount);
+                getPreferenceScreen().addPreference(mApps);
+            } else {
+                getPreferenceScreen().removeAll();
+            }
+        }
+    }
+
+    /**
+     * Loads the usage of the cycles other than the selected one into {@link #mAppUsageCache}, so
+     * that switching cycles can be served without waiting for another query.
+     */
+    private void prefetchCycles() {
+        if (mCycleData == null) {
+            return;
+        }
+        final int selectedPosition = mCycleSpinner.getSelectedItemPosition();
+        final List<NetworkCycleChartData> cycles = new ArrayList<>();
+        for (int i = 0; i < mCycleData.size() && cycles.size() < MAX_PREFETCH_CYCLES; i++) {
+            if (i != selectedPosition) {
+                cycles.add(mCycleData.get(i));
+            }
+        }
+        if (cycles.isEmpty()) {
+            return;
+        }
+        // Only prefetch once per resume, the loader skips the cycles already cached.
+        getLoaderManager().initLoader(LOADER_PREFETCH, null /* args */,
+                new LoaderCallbacks<NetworkCycleAppUsage>() {
+                    @Override
+                    public Loader<NetworkCycleAppUsage> onCreateLoader(int id, Bundle args) {
+                        return new NetworkCycleAppUsageLoader(getContext(), mAppUsageCache,
+                                mTemplate, cycles);
+                    }
+
+                    @Override
+                    public void onLoadFinished(Loader<NetworkCycleAppUsage> loader,
+                            NetworkCycleAppUsage data) {
+                    }
+
+                    @Override
+                    public void onLoaderReset(Loader<NetworkCycleAppUsage> loader) {
+                    }
+                });
+    }
+
     @VisibleForTesting
     void startAppDataUsage(AppItem item) {
         final Bundle args = new Bundle();
@@ -515,29 +601,22 @@ public class DataUsageList extends DataUsageBaseFragment
                 .launch();
     }
 
-    /**
-     * Accumulate data usage of a network stats entry for the item mapped by the collapse key.
-     * Creates the item if needed.
-     *
-     * @param collapseKey  the collapse key used to map the item.
-     * @param knownItems   collection of known (already existing) items.
-     * @param bucket       the network stats bucket to extract data usage from.
-     * @param itemCategory the item is categorized on the list view by this category. Must be
-     */
-    private static long accumulate(int collapseKey, final SparseArray<AppItem> knownItems,
-            Bucket bucket, int itemCategory, ArrayList<AppItem> items, long largest) {
-        final int uid = bucket.getUid();
-        AppItem item = knownItems.get(collapseKey);
-        if (item == null) {
-            item = new AppItem(collapseKey);
-            item.category = itemCategory;
-            items.add(item);
-            knownItems.put(item.key, item);
-        }
-        item.addUid(uid);
-        item.total += bucket.getRxBytes() + bucket.getTxBytes();
-        return Math.max(largest, item.total);
-    }
+    private final RecyclerView.OnScrollListener mAppListScrollListener =
+            new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            final RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (dy <= 0 || !(layoutManager instanceof LinearLayoutManager)) {
+                return;
+            }
+            // Creates the next page before the end of the list is reached.
+            final int lastVisiblePosition =
+                    ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+            if (lastVisiblePosition >= layoutManager.getItemCount() - LOAD_MORE_THRESHOLD) {
+                bindNextPage();
+            }
+        }
+    };
 
     private final OnItemSelectedListener mCycleListener = new OnItemSelectedListener() {
         @Override
@@ -577,41 +656,26 @@ public class DataUsageList extends DataUsageBaseFragment
         }
     };
 
-    private final LoaderCallbacks<NetworkStats> mNetworkStatsDetailCallbacks =
-            new LoaderCallbacks<NetworkStats>() {
+    private final LoaderCallbacks<NetworkCycleAppUsage> mNetworkStatsDetailCallbacks =
+            new LoaderCallbacks<NetworkCycleAppUsage>() {
         @Override
-        public Loader<NetworkStats> onCreateLoader(int id, Bundle args) {
-            return new NetworkStatsSummaryLoader.Builder(getContext())
-                    .setStartTime(mChart.getInspectStart())
-                    .setEndTime(mChart.getInspectEnd())
-                    .setNetworkTemplate(mTemplate)
-                    .build();
+        public Loader<NetworkCycleAppUsage> onCreateLoader(int id, Bundle args) {
+            return new NetworkCycleAppUsageLoader(getContext(), mAppUsageCache, mTemplate,
+                    Collections.singletonList(
+                            mCycleData.get(mCycleSpinner.getSelectedItemPosition())));
         }
 
         @Override
-        public void onLoadFinished(Loader<NetworkStats> loader, NetworkStats data) {
-            final int[] restrictedUids = services.mPolicyManager.getUidsWithPolicy(
-                    POLICY_REJECT_METERED_BACKGROUND);
-            bindStats(data, restrictedUids);
-            updateEmptyVisible();
+        public void onLoadFinished(Loader<NetworkCycleAppUsage> loader,
+                NetworkCycleAppUsage data) {
+            bindDetailData(data);
+            prefetchCycles();
         }
 
         @Override
-        public void onLoaderReset(Loader<NetworkStats> loader) {
+        public void onLoaderReset(Loader<NetworkCycleAppUsage> loader) {
             bindStats(null, new int[0]);
             updateEmptyVisible();
         }
-
-        private void updateEmptyVisible() {
-            if ((mApps.getPreferenceCount() != 0) !=
-                    (getPreferenceScreen().getPreferenceCount() != 0)) {
-                if (mApps.getPreferenceCount() != 0) {
-                    getPreferenceScreen().addPreference(mUsageAmount);
-                    getPreferenceScreen().addPreference(mApps);
-                } else {
-                    getPreferenceScreen().removeAll();
-                }
-            }
-        }
     };
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import android.util.SparseIntArray;
+
+import com.android.settingslib.AppItem;
+
+/**
+ * Per-UID data usage breakdown of one network cycle, with the items collapsed by user and app
+ * and sorted by usage.
+ *
+ * <p>Only the top items are kept as {@link AppItem}, the other items stay in primitive arrays
+ * and are materialized when requested, e.g. when the list is scrolled to them.
+ */
+public class NetworkCycleAppUsage {
+
+    private final int[] mKeys;
+    private final int[] mCategories;
+    private final long[] mTotals;
+    // The uids of the item at position i are mUids[mUidOffsets[i]] to mUids[mUidOffsets[i + 1]].
+    private final int[] mUidOffsets;
+    private final int[] mUids;
+    private final long mLargest;
+    private final AppItem[] mTopItems;
+    private SparseIntArray mPositionOfKey;
+
+    NetworkCycleAppUsage(int[] keys, int[] categories, long[] totals, int[] uidOffsets,
+            int[] uids, long largest, int topCount) {
+        mKeys = keys;
+        mCategories = categories;
+        mTotals = totals;
+        mUidOffsets = uidOffsets;
+        mUids = uids;
+        mLargest = largest;
+        mTopItems = new AppItem[Math.min(topCount, keys.length)];
+        for (int i = 0; i < mTopItems.length; i++) {
+            mTopItems[i] = createItem(i);
+        }
+    }
+
+    /** Returns the number of items. */
+    public int getItemCount() {
+        return mKeys.length;
+    }
+
+    /**
+     * Returns the item at the given position. Items out of the top items are created on each
+     * call. Returned items are shared and must not be modified by callers.
+     */
+    public AppItem getItem(int position) {
+        return position < mTopItems.length ? mTopItems[position] : createItem(position);
+    }
+
+    /** Returns the category of the item at the given position. */
+    public int getCategory(int position) {
+        return mCategories[position];
+    }
+
+    /** Returns the position of the item with the given key, or -1 if there is no such item. */
+    public synchronized int getPosition(int key) {
+        if (mPositionOfKey == null) {
+            mPositionOfKey = new SparseIntArray(mKeys.length);
+            for (int i = 0; i < mKeys.length; i++) {
+                mPositionOfKey.put(mKeys[i], i);
+            }
+        }
+        return mPositionOfKey.get(key, -1);
+    }
+
+    /** Returns the largest usage in bytes among the items. */
+    public long getLargest() {
+        return mLargest;
+    }
+
+    private AppItem createItem(int position) {
+        final AppItem item = new AppItem(mKeys[position]);
+        item.category = mCategories[position];
+        item.total = mTotals[position];
+        for (int i = mUidOffsets[position]; i < mUidOffsets[position + 1]; i++) {
+            item.addUid(mUids[i]);
+        }
+        return item;
+    }
+}
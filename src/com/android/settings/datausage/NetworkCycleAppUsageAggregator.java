@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import android.util.SparseIntArray;
+
+import java.util.Arrays;
+
+/**
+ * Streams the network stats buckets of one cycle into per collapse key totals, kept in primitive
+ * arrays so that no object is allocated per bucket.
+ */
+class NetworkCycleAppUsageAggregator {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final SparseIntArray mIndexOfKey = new SparseIntArray();
+    private int[] mKeys = new int[INITIAL_CAPACITY];
+    private int[] mCategories = new int[INITIAL_CAPACITY];
+    private long[] mTotals = new long[INITIAL_CAPACITY];
+    private int mSize;
+    // (item index << 32 | uid) of every uid attributed to an item, may contain duplicates.
+    private long[] mItemUids = new long[INITIAL_CAPACITY];
+    private int mItemUidCount;
+    private long mLargest;
+
+    /** Adds the usage of the uid to the item mapped by the collapse key. */
+    void add(int collapseKey, int category, int uid, long bytes) {
+        int index = mIndexOfKey.get(collapseKey, -1);
+        if (index < 0) {
+            index = mSize++;
+            if (index == mKeys.length) {
+                final int capacity = index * 2;
+                mKeys = Arrays.copyOf(mKeys, capacity);
+                mCategories = Arrays.copyOf(mCategories, capacity);
+                mTotals = Arrays.copyOf(mTotals, capacity);
+            }
+            mKeys[index] = collapseKey;
+            mCategories[index] = category;
+            mIndexOfKey.put(collapseKey, index);
+        }
+        mTotals[index] += bytes;
+        mLargest = Math.max(mLargest, mTotals[index]);
+
+        final long itemUid = ((long) index << 32) | (uid & 0xffffffffL);
+        // Buckets of the same uid are usually adjacent, skip the obvious duplicates early.
+        if (mItemUidCount > 0 && mItemUids[mItemUidCount - 1] == itemUid) {
+            return;
+        }
+        if (mItemUidCount == mItemUids.length) {
+            mItemUids = Arrays.copyOf(mItemUids, mItemUidCount * 2);
+        }
+        mItemUids[mItemUidCount++] = itemUid;
+    }
+
+    /**
+     * Builds the {@link NetworkCycleAppUsage} sorted in the same order as
+     * {@link com.android.settingslib.AppItem#compareTo}, only the first {@code topCount} items
+     * are materialized.
+     */
+    NetworkCycleAppUsage build(int topCount) {
+        // Items are sorted by category, then by usage in descending order. The sort is stable
+        // so items with the same usage keep the order they were first seen.
+        final Integer[] order = new Integer[mSize];
+        for (int i = 0; i < mSize; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            final int comparison = Integer.compare(mCategories[a], mCategories[b]);
+            return comparison != 0 ? comparison : Long.compare(mTotals[b], mTotals[a]);
+        });
+
+        // Sorts the uids by item index and drops the duplicates.
+        Arrays.sort(mItemUids, 0, mItemUidCount);
+        final int[] uidStartOfIndex = new int[mSize + 1];
+        final int[] uidsOfIndex = new int[mItemUidCount];
+        int uidCount = 0;
+        for (int i = 0; i < mItemUidCount; i++) {
+            if (i > 0 && mItemUids[i] == mItemUids[i - 1]) {
+                continue;
+            }
+            uidStartOfIndex[(int) (mItemUids[i] >>> 32) + 1]++;
+            uidsOfIndex[uidCount++] = (int) mItemUids[i];
+        }
+        for (int i = 0; i < mSize; i++) {
+            uidStartOfIndex[i + 1] += uidStartOfIndex[i];
+        }
+
+        final int[] keys = new int[mSize];
+        final int[] categories = new int[mSize];
+        final long[] totals = new long[mSize];
+        final int[] uidOffsets = new int[mSize + 1];
+        final int[] uids = new int[uidCount];
+        for (int position = 0; position < mSize; position++) {
+            final int index = order[position];
+            keys[position] = mKeys[index];
+            categories[position] = mCategories[index];
+            totals[position] = mTotals[index];
+            final int start = uidStartOfIndex[index];
+            final int count = uidStartOfIndex[index + 1] - start;
+            System.arraycopy(uidsOfIndex, start, uids, uidOffsets[position], count);
+            uidOffsets[position + 1] = uidOffsets[position] + count;
+        }
+        return new NetworkCycleAppUsage(keys, categories, totals, uidOffsets, uids, mLargest,
+                topCount);
+    }
+}
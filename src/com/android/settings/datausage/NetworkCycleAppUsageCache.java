@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import android.net.NetworkTemplate;
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Objects;
+
+/**
+ * Caches the {@link NetworkCycleAppUsage} of recently loaded cycles keyed by
+ * {@link NetworkTemplate} and cycle range, so switching cycles in {@link DataUsageList} does not
+ * query and aggregate the network stats again.
+ *
+ * <p>The footprint is bounded by the total number of cached items. This class is thread safe.
+ */
+public class NetworkCycleAppUsageCache {
+
+    @VisibleForTesting
+    static final int MAX_CACHED_ITEMS = 2000;
+
+    private final LruCache<CycleKey, NetworkCycleAppUsage> mCache;
+
+    public NetworkCycleAppUsageCache() {
+        this(MAX_CACHED_ITEMS);
+    }
+
+    @VisibleForTesting
+    NetworkCycleAppUsageCache(int maxCachedItems) {
+        mCache = new LruCache<CycleKey, NetworkCycleAppUsage>(maxCachedItems) {
+            @Override
+            protected int sizeOf(CycleKey key, NetworkCycleAppUsage value) {
+                // Counts the cycle itself so that cycles without any usage are bounded too.
+                return value.getItemCount() + 1;
+            }
+        };
+    }
+
+    /** Returns the cached usage of the cycle, or null if it is not loaded yet. */
+    public NetworkCycleAppUsage get(NetworkTemplate template, long start, long end) {
+        return mCache.get(new CycleKey(template, start, end));
+    }
+
+    /** Caches the usage of the cycle. */
+    public void put(NetworkTemplate template, long start, long end, NetworkCycleAppUsage usage) {
+        mCache.put(new CycleKey(template, start, end), usage);
+    }
+
+    /** Drops all cached cycles. */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    private static final class CycleKey {
+        private final NetworkTemplate mTemplate;
+        private final long mStart;
+        private final long mEnd;
+
+        CycleKey(NetworkTemplate template, long start, long end) {
+            mTemplate = template;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CycleKey)) {
+                return false;
+            }
+            final CycleKey other = (CycleKey) o;
+            return mStart == other.mStart
+                    && mEnd == other.mEnd
+                    && Objects.equals(mTemplate, other.mTemplate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mTemplate, mStart, mEnd);
+        }
+    }
+}
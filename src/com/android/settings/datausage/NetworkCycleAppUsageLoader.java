@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
+
+import android.app.ActivityManager;
+import android.app.usage.NetworkStats;
+import android.app.usage.NetworkStats.Bucket;
+import android.app.usage.NetworkStatsManager;
+import android.content.Context;
+import android.content.pm.UserInfo;
+import android.net.NetworkTemplate;
+import android.os.Process;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.NetworkCycleData;
+import com.android.settingslib.net.UidDetailProvider;
+import com.android.settingslib.utils.AsyncLoaderCompat;
+
+import java.util.List;
+
+/**
+ * Loads the per-UID data usage of the given cycles in one background pass and stores them into
+ * the {@link NetworkCycleAppUsageCache}. Cycles already cached are skipped.
+ *
+ * <p>The result is the usage of the first cycle, or null if its network stats are unavailable.
+ */
+public class NetworkCycleAppUsageLoader extends AsyncLoaderCompat<NetworkCycleAppUsage> {
+    private static final String TAG = "NetworkCycleAppUsageLoader";
+
+    /** Number of items materialized up front, enough to fill the first screen of the list. */
+    static final int TOP_ITEM_COUNT = 30;
+
+    private final NetworkStatsManager mNetworkStatsManager;
+    private final NetworkCycleAppUsageCache mCache;
+    private final NetworkTemplate mTemplate;
+    private final List<? extends NetworkCycleData> mCycles;
+
+    public NetworkCycleAppUsageLoader(Context context, NetworkCycleAppUsageCache cache,
+            NetworkTemplate template, List<? extends NetworkCycleData> cycles) {
+        super(context);
+        mNetworkStatsManager = context.getSystemService(NetworkStatsManager.class);
+        mCache = cache;
+        mTemplate = template;
+        mCycles = cycles;
+    }
+
+    @Override
+    public NetworkCycleAppUsage loadInBackground() {
+        NetworkCycleAppUsage result = null;
+        for (int i = 0; i < mCycles.size(); i++) {
+            if (isLoadInBackgroundCanceled()) {
+                break;
+            }
+            final NetworkCycleData cycle = mCycles.get(i);
+            NetworkCycleAppUsage usage =
+                    mCache.get(mTemplate, cycle.getStartTime(), cycle.getEndTime());
+            if (usage == null) {
+                usage = loadCycle(cycle.getStartTime(), cycle.getEndTime());
+                if (usage != null) {
+                    mCache.put(mTemplate, cycle.getStartTime(), cycle.getEndTime(), usage);
+                }
+            }
+            if (i == 0) {
+                result = usage;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected void onDiscardResult(NetworkCycleAppUsage result) {
+    }
+
+    private NetworkCycleAppUsage loadCycle(long start, long end) {
+        final NetworkStats stats;
+        try {
+            stats = mNetworkStatsManager.querySummary(mTemplate, start, end);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Exception querying network detail.", e);
+            return null;
+        }
+        if (stats == null) {
+            return null;
+        }
+        try {
+            return aggregate(getContext(), stats, TOP_ITEM_COUNT);
+        } finally {
+            stats.close();
+        }
+    }
+
+    /**
+     * Collapses the buckets of the given {@link NetworkStats} into items by user and app, and
+     * sorts them by usage. Only the first {@code topCount} items are materialized.
+     */
+    private static NetworkCycleAppUsage aggregate(Context context, NetworkStats stats,
+            int topCount) {
+        final NetworkCycleAppUsageAggregator aggregator = new NetworkCycleAppUsageAggregator();
+
+        final int currentUserId = ActivityManager.getCurrentUser();
+        final UserManager userManager = UserManager.get(context);
+        final List<UserHandle> profiles = userManager.getUserProfiles();
+
+        final Bucket bucket = new Bucket();
+        while (stats.hasNextBucket() && stats.getNextBucket(bucket)) {
+            addUsage(aggregator, userManager, profiles, currentUserId, bucket.getUid(),
+                    bucket.getRxBytes() + bucket.getTxBytes());
+        }
+        return aggregator.build(topCount);
+    }
+
+    /** Adds the usage of the uid to the items it is collapsed into. */
+    @VisibleForTesting
+    static void addUsage(NetworkCycleAppUsageAggregator aggregator, UserManager userManager,
+            List<UserHandle> profiles, int currentUserId, int uid, long bytes) {
+        // Decide how to collapse items together
+        final int collapseKey;
+        final int category;
+        final int userId = UserHandle.getUserId(uid);
+        if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
+            if (profiles.contains(new UserHandle(userId))) {
+                if (userId != currentUserId) {
+                    // Add to a managed user item.
+                    final int managedKey = UidDetailProvider.buildKeyForUser(userId);
+                    aggregator.add(managedKey, AppItem.CATEGORY_USER, uid, bytes);
+                }
+                // Map SDK sandbox back to its corresponding app
+                if (Process.isSdkSandboxUid(uid)) {
+                    collapseKey = Process.getAppUidForSdkSandboxUid(uid);
+                } else {
+                    collapseKey = uid;
+                }
+                category = AppItem.CATEGORY_APP;
+            } else {
+                // If it is a removed user add it to the removed users' key
+                final UserInfo info = userManager.getUserInfo(userId);
+                if (info == null) {
+                    collapseKey = UID_REMOVED;
+                    category = AppItem.CATEGORY_APP;
+                } else {
+                    // Add to other user item.
+                    collapseKey = UidDetailProvider.buildKeyForUser(userId);
+                    category = AppItem.CATEGORY_USER;
+                }
+            }
+        } else if (uid == UID_REMOVED || uid == UID_TETHERING
+                || uid == Process.OTA_UPDATE_UID) {
+            collapseKey = uid;
+            category = AppItem.CATEGORY_APP;
+        } else {
+            collapseKey = android.os.Process.SYSTEM_UID;
+            category = AppItem.CATEGORY_APP;
+        }
+        aggregator.add(collapseKey, category, uid, bytes);
+    }
+}
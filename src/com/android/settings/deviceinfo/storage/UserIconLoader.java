@@ -23,7 +23,8 @@ import android.os.UserManager;
 import android.util.SparseArray;
 
 import com.android.internal.util.Preconditions;
-import com.android.settings.Utils;
+import com.android.settings.users.UserIconCache;
+import com.android.settingslib.drawable.UserIconDrawable;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 /**
@@ -61,13 +62,22 @@ public class UserIconLoader extends AsyncLoaderCompat<SparseArray<Drawable>> {
 
     /**
      * Loads the user icons using a given context. This returns a {@link SparseArray} which maps
-     * user ids to their user icons.
+     * user ids to their user icons. The icons are shared with the other pages through
+     * {@link UserIconCache}.
      */
     public static SparseArray<Drawable> loadUserIconsWithContext(Context context) {
         SparseArray<Drawable> value = new SparseArray<>();
         UserManager um = context.getSystemService(UserManager.class);
+        UserIconCache iconCache = UserIconCache.getInstance();
+        int iconSize = UserIconDrawable.getDefaultSize(context);
         for (UserInfo userInfo : um.getUsers()) {
-            value.put(userInfo.id, Utils.getUserIcon(context, um, userInfo));
+            if (userInfo.isManagedProfile()) {
+                Drawable icon = UserIconDrawable.getManagedUserDrawable(context);
+                icon.setBounds(0, 0, iconSize, iconSize);
+                value.put(userInfo.id, icon);
+            } else {
+                value.put(userInfo.id, iconCache.loadIcon(context, userInfo.id, iconSize));
+            }
         }
         return value;
     }
@@ -124,8 +124,10 @@ public class BatteryBroadcastReceiver extends BroadcastReceiver {
                 } else if (batteryHealth != mBatteryHealth) {
                     mBatteryListener.onBatteryChanged(BatteryUpdateType.BATTERY_HEALTH);
                 } else if(!batteryLevel.equals(mBatteryLevel)) {
+                    BatteryUsageStatsCache.invalidate();
                     mBatteryListener.onBatteryChanged(BatteryUpdateType.BATTERY_LEVEL);
                 } else if (!batteryStatus.equals(mBatteryStatus)) {
+                    BatteryUsageStatsCache.invalidate();
                     mBatteryListener.onBatteryChanged(BatteryUpdateType.BATTERY_STATUS);
                 }
                 mBatteryLevel = batteryLevel;
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import android.content.Context;
+import android.os.BatteryStatsManager;
+import android.os.BatteryUsageStats;
+import android.os.BatteryUsageStatsQuery;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+/**
+ * Process-wide snapshot of {@link BatteryUsageStats} shared by all battery pages.
+ *
+ * <p>A snapshot stays valid for {@link #VALIDITY_WINDOW_MS} or until {@link #invalidate()} is
+ * called by {@link BatteryBroadcastReceiver} on a battery change, so opening the battery page and
+ * then an app detail page only fetches the stats from {@link BatteryStatsManager} once.
+ *
+ * <p>Only snapshots without battery history are shared, and they must not be closed by callers.
+ * Iterating the history of a snapshot is not thread-safe, so a request including history always
+ * fetches a new snapshot that the caller owns and must close.
+ */
+public final class BatteryUsageStatsCache {
+    private static final String TAG = "BatteryUsageStatsCache";
+
+    @VisibleForTesting
+    static final long VALIDITY_WINDOW_MS = 10_000L;
+
+    private static final Object sLock = new Object();
+
+    @GuardedBy("sLock")
+    private static BatteryUsageStats sBatteryUsageStats;
+    @GuardedBy("sLock")
+    private static long sFetchTimeMs;
+    // Incremented on invalidate(), so a fetch started before it is not cached.
+    @GuardedBy("sLock")
+    private static int sGeneration;
+
+    private BatteryUsageStatsCache() {
+    }
+
+    /**
+     * Returns the cached {@link BatteryUsageStats} if still valid, otherwise fetches a new
+     * snapshot. The fetch runs without holding the lock, so {@link #invalidate()} never waits for
+     * it. A snapshot fetched before an invalidation is returned to its caller but not cached.
+     *
+     * <p>With {@code includeBatteryHistory}, a new snapshot is fetched for the caller, who must
+     * close it.
+     */
+    @WorkerThread
+    @NonNull
+    public static BatteryUsageStats getBatteryUsageStats(Context context,
+            boolean includeBatteryHistory) {
+        if (includeBatteryHistory) {
+            final BatteryUsageStats batteryUsageStats = fetchBatteryUsageStats(context,
+                    /* includeBatteryHistory */ true);
+            return batteryUsageStats != null
+                    ? batteryUsageStats : getDefaultBatteryUsageStats();
+        }
+        final int generation;
+        synchronized (sLock) {
+            final long now = SystemClock.elapsedRealtime();
+            if (sBatteryUsageStats != null && now - sFetchTimeMs < VALIDITY_WINDOW_MS) {
+                return sBatteryUsageStats;
+            }
+            generation = sGeneration;
+        }
+        final BatteryUsageStats batteryUsageStats = fetchBatteryUsageStats(context,
+                /* includeBatteryHistory */ false);
+        if (batteryUsageStats == null) {
+            // Use default BatteryUsageStats and retry on the next request.
+            return getDefaultBatteryUsageStats();
+        }
+        synchronized (sLock) {
+            if (generation != sGeneration) {
+                // Invalidated during the fetch, the caller still gets the stats it asked for.
+                // Without history they hold no buffer, so leaving them unclosed is harmless.
+                return batteryUsageStats;
+            }
+            final long now = SystemClock.elapsedRealtime();
+            if (sBatteryUsageStats != null && now - sFetchTimeMs < VALIDITY_WINDOW_MS) {
+                // Another caller published a snapshot meanwhile, share it.
+                close(batteryUsageStats);
+                return sBatteryUsageStats;
+            }
+            setSnapshotLocked(batteryUsageStats, now);
+            return batteryUsageStats;
+        }
+    }
+
+    /** Drops the cached snapshot so that the next request fetches fresh data. */
+    public static void invalidate() {
+        synchronized (sLock) {
+            sGeneration++;
+            setSnapshotLocked(null, 0L);
+        }
+    }
+
+    /** Closes a snapshot, logging any failure. */
+    public static void close(BatteryUsageStats batteryUsageStats) {
+        if (batteryUsageStats == null) {
+            return;
+        }
+        try {
+            batteryUsageStats.close();
+        } catch (Exception e) {
+            Log.e(TAG, "BatteryUsageStats.close() failed", e);
+        }
+    }
+
+    @GuardedBy("sLock")
+    private static void setSnapshotLocked(BatteryUsageStats batteryUsageStats, long fetchTimeMs) {
+        // A snapshot without history holds no history buffer, so closing it is safe even while
+        // another page still reads it.
+        if (sBatteryUsageStats != null && sBatteryUsageStats != batteryUsageStats) {
+            close(sBatteryUsageStats);
+        }
+        sBatteryUsageStats = batteryUsageStats;
+        sFetchTimeMs = fetchTimeMs;
+    }
+
+    private static BatteryUsageStats fetchBatteryUsageStats(Context context,
+            boolean includeBatteryHistory) {
+        final BatteryUsageStatsQuery.Builder builder = new BatteryUsageStatsQuery.Builder();
+        if (includeBatteryHistory) {
+            builder.includeBatteryHistory();
+        }
+        final long startTime = System.currentTimeMillis();
+        try {
+            return context.getSystemService(BatteryStatsManager.class)
+                    .getBatteryUsageStats(builder.build());
+        } catch (RuntimeException e) {
+            Log.e(TAG, "getBatteryUsageStats() failed", e);
+            return null;
+        } finally {
+            BatteryUtils.logRuntime(TAG, "getBatteryUsageStats", startTime);
+        }
+    }
+
+    private static BatteryUsageStats getDefaultBatteryUsageStats() {
+        return new BatteryUsageStats.Builder(new String[0]).build();
+    }
+}
@@ -26,9 +26,7 @@ import android.content.pm.ResolveInfo;
 import android.os.BatteryConsumer;
 import android.os.BatteryManager;
 import android.os.BatteryStats;
-import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
-import android.os.BatteryUsageStatsQuery;
 import android.os.Build;
 import android.os.Process;
 import android.os.SystemClock;
@@ -394,17 +392,8 @@ public class BatteryUtils {
 
     @WorkerThread
     public BatteryInfo getBatteryInfo(final String tag) {
-        final BatteryStatsManager systemService = mContext.getSystemService(
-                BatteryStatsManager.class);
-        BatteryUsageStats batteryUsageStats;
-        try {
-            batteryUsageStats = systemService.getBatteryUsageStats(
-                    new BatteryUsageStatsQuery.Builder().includeBatteryHistory().build());
-        } catch (RuntimeException e) {
-            Log.e(TAG, "getBatteryInfo() error from getBatteryUsageStats()", e);
-            // Use default BatteryUsageStats.
-            batteryUsageStats = new BatteryUsageStats.Builder(new String[0]).build();
-        }
+        final BatteryUsageStats batteryUsageStats = BatteryUsageStatsCache.getBatteryUsageStats(
+                mContext, /* includeBatteryHistory */ true);
 
         final long startTime = System.currentTimeMillis();
 
@@ -431,11 +420,7 @@ public class BatteryUtils {
                 batteryUsageStats, estimate, elapsedRealtimeUs, false /* shortString */);
         BatteryUtils.logRuntime(tag, "BatteryInfoLoader.loadInBackground", startTime);
 
-        try {
-            batteryUsageStats.close();
-        } catch (Exception e) {
-            Log.e(TAG, "BatteryUsageStats.close() failed", e);
-        }
+        BatteryUsageStatsCache.close(batteryUsageStats);
         return batteryInfo;
     }
 
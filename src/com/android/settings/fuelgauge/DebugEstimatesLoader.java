@@ -18,10 +18,8 @@ package com.android.settings.fuelgauge;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
 import android.os.SystemClock;
-import android.util.Log;
 
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.fuelgauge.Estimate;
@@ -33,7 +31,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class DebugEstimatesLoader extends AsyncLoaderCompat<List<BatteryInfo>> {
-    private static final String TAG = "DebugEstimatesLoader";
 
     public DebugEstimatesLoader(Context context) {
         super(context);
@@ -55,15 +52,8 @@ public class DebugEstimatesLoader extends AsyncLoaderCompat<List<BatteryInfo>> {
                 SystemClock.elapsedRealtime());
         Intent batteryBroadcast = getContext().registerReceiver(null,
                 new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
-        BatteryUsageStats batteryUsageStats;
-        try {
-            batteryUsageStats = context.getSystemService(BatteryStatsManager.class)
-                    .getBatteryUsageStats();
-        } catch (RuntimeException e) {
-            Log.e(TAG, "getBatteryInfo() from getBatteryUsageStats()", e);
-            // Use default BatteryUsageStats.
-            batteryUsageStats = new BatteryUsageStats.Builder(new String[0]).build();
-        }
+        final BatteryUsageStats batteryUsageStats = BatteryUsageStatsCache.getBatteryUsageStats(
+                context, /* includeBatteryHistory */ false);
         BatteryInfo oldinfo = BatteryInfo.getBatteryInfoOld(getContext(), batteryBroadcast,
                 batteryUsageStats, elapsedRealtimeUs, false);
 
@@ -78,12 +68,6 @@ public class DebugEstimatesLoader extends AsyncLoaderCompat<List<BatteryInfo>> {
         List<BatteryInfo> infos = new ArrayList<>();
         infos.add(oldinfo);
         infos.add(newInfo);
-
-        try {
-            batteryUsageStats.close();
-        } catch (Exception e) {
-            Log.e(TAG, "BatteryUsageStats.close() failed", e);
-        }
         return infos;
     }
 }
@@ -34,6 +34,7 @@ import android.view.accessibility.AccessibilityManager;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
@@ -109,6 +110,7 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
     private boolean mIs24HourFormat;
     private boolean mIsFooterPrefAdded = false;
     private boolean mHourlyChartVisible = true;
+    private boolean mIsBatteryHistoryLoaded = false;
     private View mBatteryChartViewGroup;
     private View mCategoryTitleView;
     private PreferenceScreen mPreferenceScreen;
@@ -290,7 +292,24 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
                 mPrefContext,
                 SettingsEnums.ACTION_BATTERY_HISTORY_LOADED,
                 getTotalHours(batteryLevelData));
+        mIsBatteryHistoryLoaded = true;
+        setBatteryLevelData(batteryLevelData);
+    }
 
+    /**
+     * Shows the battery level data persisted by previous visits until the battery history is
+     * loaded, the battery usage list is shown after the battery history is loaded.
+     */
+    void setCachedBatteryLevelData(@Nullable final BatteryLevelData batteryLevelData) {
+        if (mIsBatteryHistoryLoaded || batteryLevelData == null) {
+            return;
+        }
+        Log.d(TAG, "setCachedBatteryLevelData: " + batteryLevelData);
+        animateBatteryChartViewGroup();
+        setBatteryLevelData(batteryLevelData);
+    }
+
+    private void setBatteryLevelData(@Nullable final BatteryLevelData batteryLevelData) {
         if (batteryLevelData == null) {
             mDailyChartIndex = BatteryChartViewModel.SELECTED_INDEX_ALL;
             mHourlyChartIndex = BatteryChartViewModel.SELECTED_INDEX_ALL;
@@ -299,6 +318,11 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
             refreshUi();
             return;
         }
+        // The restored or cached selection might be out of range of the new data.
+        if (mDailyChartIndex >= batteryLevelData.getHourlyBatteryLevelsPerDay().size()) {
+            mDailyChartIndex = BatteryChartViewModel.SELECTED_INDEX_ALL;
+            mHourlyChartIndex = BatteryChartViewModel.SELECTED_INDEX_ALL;
+        }
         mDailyViewModel = new BatteryChartViewModel(
                 batteryLevelData.getDailyBatteryLevels().getLevels(),
                 batteryLevelData.getDailyBatteryLevels().getTimestamps(),
@@ -87,8 +87,20 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private AccessibilityNodeProvider mAccessibilityNodeProvider;
     private BatteryChartView.OnSelectListener mOnSelectListener;
 
+    // Chart geometry, recomputed only when the view model or the view size is changed.
+    private boolean mIsGeometryDirty = true;
+    private float[] mVerticalDividerXs = new float[0];
+    private Rect[] mAxisLabelDisplayAreas = new Rect[0];
+    private Path[] mTrapezoidPaths = new Path[0];
+
     @VisibleForTesting
     TrapezoidSlot[] mTrapezoidSlots;
+    // Counts how many times the chart geometry and the chart itself are drawn, used to verify
+    // that frames without model or size changes reuse the cached geometry.
+    @VisibleForTesting
+    int mGeometryUpdateCount;
+    @VisibleForTesting
+    int mDrawCount;
     // Records the location to calculate selected index.
     @VisibleForTesting
     float mTouchUpEventX = Float.MIN_VALUE;
@@ -116,9 +128,17 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
 
         Log.d(TAG, String.format("setViewModel(): size: %d, selectedIndex: %d.",
                 viewModel.size(), viewModel.selectedIndex()));
+        if (viewModel == mViewModel && mTrapezoidSlots != null
+                && mTrapezoidSlots.length == viewModel.size() - 1) {
+            // Only the selected index is changed, so the cached geometry is still valid and the
+            // chart only needs to be repainted with the new trapezoid colors.
+            invalidate();
+            return;
+        }
         mViewModel = viewModel;
         initializeAxisLabelsBounds();
         initializeTrapezoidSlots(viewModel.size() - 1);
+        initializeGeometryBuffers(viewModel.size());
         setClickable(hasAnyValidTrapezoid(viewModel));
         requestLayout();
     }
@@ -168,17 +188,26 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         } else {
             mIndent.set(0, 0, 0, 0);
         }
+        mIsGeometryDirty = true;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mIsGeometryDirty = true;
     }
 
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
+        mDrawCount++;
         // Before mLevels initialized, the count of trapezoids is unknown. Only draws the
         // horizontal percentages and dividers.
         drawHorizontalDividers(canvas);
         if (mViewModel == null) {
             return;
         }
+        updateGeometryIfNeeded();
         drawVerticalDividers(canvas);
         drawTrapezoids(canvas);
     }
@@ -296,6 +325,30 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
+    private void initializeGeometryBuffers(int size) {
+        mVerticalDividerXs = new float[size];
+        mAxisLabelDisplayAreas = new Rect[size];
+        for (int index = 0; index < size; index++) {
+            mAxisLabelDisplayAreas[index] = new Rect();
+        }
+        mTrapezoidPaths = new Path[size - 1];
+        for (int index = 0; index < size - 1; index++) {
+            mTrapezoidPaths[index] = new Path();
+        }
+        mIsGeometryDirty = true;
+    }
+
+    /** Computes all the positions and paths used by {@link #draw(Canvas)} into the buffers. */
+    private void updateGeometryIfNeeded() {
+        if (!mIsGeometryDirty) {
+            return;
+        }
+        mIsGeometryDirty = false;
+        mGeometryUpdateCount++;
+        updateVerticalDividersAndSlots();
+        updateTrapezoidPaths();
+    }
+
     private void initializeColors(Context context) {
         setBackgroundColor(Color.TRANSPARENT);
         mTrapezoidSolidColor = Utils.getColorAccentDefaultColor(context);
@@ -359,18 +412,15 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
-    private void drawVerticalDividers(Canvas canvas) {
+    private void updateVerticalDividersAndSlots() {
         final int width = getWidth() - mIndent.right;
         final int dividerCount = mTrapezoidSlots.length + 1;
         final float dividerSpace = dividerCount * mDividerWidth;
         final float unitWidth = (width - dividerSpace) / (float) mTrapezoidSlots.length;
-        final float bottomY = getHeight() - mIndent.bottom;
-        final float startY = bottomY - mDividerHeight;
         final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
-        // Draws each vertical dividers.
         float startX = mDividerWidth * .5f;
         for (int index = 0; index < dividerCount; index++) {
-            canvas.drawLine(startX, startY, startX, bottomY, mDividerPaint);
+            mVerticalDividerXs[index] = startX;
             final float nextX = startX + mDividerWidth + unitWidth;
             // Updates the trapezoid slots for drawing.
             if (index < mTrapezoidSlots.length) {
@@ -379,38 +429,51 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             }
             startX = nextX;
         }
-        // Draws the axis label slot information.
-        if (mViewModel != null) {
-            final float baselineY = getHeight() - mTextPadding;
-            Rect[] axisLabelDisplayAreas;
-            switch (mViewModel.axisLabelPosition()) {
-                case CENTER_OF_TRAPEZOIDS:
-                    axisLabelDisplayAreas = getAxisLabelDisplayAreas(
-                            /* size= */ mViewModel.size() - 1,
-                            /* baselineX= */ mDividerWidth + unitWidth * .5f,
-                            /* offsetX= */ mDividerWidth + unitWidth,
-                            baselineY,
-                            /* shiftFirstAndLast= */ false);
-                    break;
-                case BETWEEN_TRAPEZOIDS:
-                default:
-                    axisLabelDisplayAreas = getAxisLabelDisplayAreas(
-                            /* size= */ mViewModel.size(),
-                            /* baselineX= */ mDividerWidth * .5f,
-                            /* offsetX= */ mDividerWidth + unitWidth,
-                            baselineY,
-                            /* shiftFirstAndLast= */ true);
-                    break;
-            }
-            drawAxisLabels(canvas, axisLabelDisplayAreas, baselineY);
+        // Updates the axis label slot information.
+        final float baselineY = getHeight() - mTextPadding;
+        switch (mViewModel.axisLabelPosition()) {
+            case CENTER_OF_TRAPEZOIDS:
+                updateAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size() - 1,
+                        /* baselineX= */ mDividerWidth + unitWidth * .5f,
+                        /* offsetX= */ mDividerWidth + unitWidth,
+                        baselineY,
+                        /* shiftFirstAndLast= */ false);
+                break;
+            case BETWEEN_TRAPEZOIDS:
+            default:
+                updateAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size(),
+                        /* baselineX= */ mDividerWidth * .5f,
+                        /* offsetX= */ mDividerWidth + unitWidth,
+                        baselineY,
+                        /* shiftFirstAndLast= */ true);
+                break;
         }
     }
 
-    /** Gets all the axis label texts displaying area positions if they are shown. */
-    private Rect[] getAxisLabelDisplayAreas(final int size, final float baselineX,
+    private void drawVerticalDividers(Canvas canvas) {
+        final float bottomY = getHeight() - mIndent.bottom;
+        final float startY = bottomY - mDividerHeight;
+        // Draws each vertical dividers.
+        for (int index = 0; index < mTrapezoidSlots.length + 1; index++) {
+            final float x = mVerticalDividerXs[index];
+            canvas.drawLine(x, startY, x, bottomY, mDividerPaint);
+        }
+        // Draws the axis label slot information.
+        drawAxisLabels(canvas, getAxisLabelDisplayAreaCount(), getHeight() - mTextPadding);
+    }
+
+    private int getAxisLabelDisplayAreaCount() {
+        return mViewModel.axisLabelPosition()
+                == BatteryChartViewModel.AxisLabelPosition.CENTER_OF_TRAPEZOIDS
+                ? mViewModel.size() - 1 : mViewModel.size();
+    }
+
+    /** Updates all the axis label texts displaying area positions if they are shown. */
+    private void updateAxisLabelDisplayAreas(final int size, final float baselineX,
             final float offsetX, final float baselineY, final boolean shiftFirstAndLast) {
-        final Rect[] result = new Rect[size];
-        for (int index = 0; index < result.length; index++) {
+        for (int index = 0; index < size; index++) {
             final float width = mAxisLabelsBounds.get(index).width();
             float middle = baselineX + index * offsetX;
             if (shiftFirstAndLast) {
@@ -425,13 +488,14 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             final float right = left + width;
             final float top = baselineY + mAxisLabelsBounds.get(index).top;
             final float bottom = top + mAxisLabelsBounds.get(index).height();
-            result[index] = new Rect(round(left), round(top), round(right), round(bottom));
+            mAxisLabelDisplayAreas[index].set(
+                    round(left), round(top), round(right), round(bottom));
         }
-        return result;
     }
 
-    private void drawAxisLabels(Canvas canvas, final Rect[] displayAreas, final float baselineY) {
-        final int lastIndex = displayAreas.length - 1;
+    private void drawAxisLabels(Canvas canvas, final int size, final float baselineY) {
+        final Rect[] displayAreas = mAxisLabelDisplayAreas;
+        final int lastIndex = size - 1;
         // Suppose first and last labels are always able to draw.
         drawAxisLabelText(canvas, 0, displayAreas[0], baselineY);
         drawAxisLabelText(canvas, lastIndex, displayAreas[lastIndex], baselineY);
@@ -496,38 +560,24 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                 mTextPaint);
     }
 
-    private void drawTrapezoids(Canvas canvas) {
-        // Ignores invalid trapezoid data.
-        if (mViewModel == null) {
-            return;
-        }
+    private void updateTrapezoidPaths() {
         final float trapezoidBottom =
                 getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth
                         - mTrapezoidVOffset;
         final float availableSpace =
                 trapezoidBottom - mDividerWidth * .5f - mIndent.top - mTrapezoidVOffset;
         final float unitHeight = availableSpace / 100f;
-        // Draws all trapezoid shapes into the canvas.
-        final Path trapezoidPath = new Path();
-        Path trapezoidCurvePath = null;
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
+            final Path trapezoidPath = mTrapezoidPaths[index];
+            trapezoidPath.reset();
             // Not draws the trapezoid for corner or not initialization cases.
             if (!isValidToDraw(mViewModel, index)) {
                 continue;
             }
-            // Configures the trapezoid paint color.
-            final int trapezoidColor = (mViewModel.selectedIndex() == index
-                    || mViewModel.selectedIndex() == BatteryChartViewModel.SELECTED_INDEX_ALL)
-                    ? mTrapezoidSolidColor : mTrapezoidColor;
-            final boolean isHoverState = mHoveredIndex == index && isValidToDraw(mViewModel,
-                    mHoveredIndex);
-            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
-
             final float leftTop = round(
                     trapezoidBottom - requireNonNull(mViewModel.getLevel(index)) * unitHeight);
             final float rightTop = round(trapezoidBottom
                     - requireNonNull(mViewModel.getLevel(index + 1)) * unitHeight);
-            trapezoidPath.reset();
             trapezoidPath.moveTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, rightTop);
@@ -535,8 +585,24 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             // A tricky way to make the trapezoid shape drawing the rounded corner.
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
-            // Draws the trapezoid shape into canvas.
-            canvas.drawPath(trapezoidPath, mTrapezoidPaint);
+        }
+    }
+
+    private void drawTrapezoids(Canvas canvas) {
+        // Draws all the cached trapezoid shapes into the canvas.
+        for (int index = 0; index < mTrapezoidSlots.length; index++) {
+            // Not draws the trapezoid for corner or not initialization cases.
+            if (!isValidToDraw(mViewModel, index)) {
+                continue;
+            }
+            // Configures the trapezoid paint color.
+            final int trapezoidColor = (mViewModel.selectedIndex() == index
+                    || mViewModel.selectedIndex() == BatteryChartViewModel.SELECTED_INDEX_ALL)
+                    ? mTrapezoidSolidColor : mTrapezoidColor;
+            final boolean isHoverState = mHoveredIndex == index && isValidToDraw(mViewModel,
+                    mHoveredIndex);
+            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
+            canvas.drawPath(mTrapezoidPaths[index], mTrapezoidPaint);
         }
     }
 
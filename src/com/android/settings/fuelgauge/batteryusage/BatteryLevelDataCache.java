@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.content.Context;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+
+/**
+ * Persists the processed battery level timeline since the last full charge, so the usage chart
+ * can be shown at screen open before the battery history is loaded, and the levels of the time
+ * slots already processed by previous visits are not computed again.
+ *
+ * <p>The timeline is dropped and fully recomputed when the timezone or the last full charge time
+ * is changed, or when the persisted file is corrupted.
+ *
+ * <p>The file is only read and written on background threads, and never while holding the lock
+ * that guards the in-memory timeline, which is also taken on the main thread.
+ */
+public final class BatteryLevelDataCache {
+    private static final String TAG = "BatteryLevelDataCache";
+
+    @VisibleForTesting
+    static final String FILE_NAME = "battery_level_timeline";
+    private static final int VERSION = 1;
+    private static final int NO_LEVEL = -1;
+    private static final int NOT_COMPUTED = -2;
+
+    private static final Object sLock = new Object();
+    // Serializes the file accesses, must not be acquired while holding sLock.
+    private static final Object sFileLock = new Object();
+
+    @GuardedBy("sLock")
+    private static LevelTimeline sLevelTimeline;
+
+    private BatteryLevelDataCache() {
+    }
+
+    /**
+     * @param lastFullChargeTime the time of the last full charge, a timeline started before it
+     * is dropped
+     * @return Returns the battery level data from the persisted timeline. Returns null if there is
+     * no valid timeline or not enough data to show in usage chart.
+     */
+    @WorkerThread
+    @Nullable
+    public static BatteryLevelData loadBatteryLevelData(Context context,
+            final long lastFullChargeTime) {
+        final LevelTimeline levelTimeline = getValidLevelTimeline(context, lastFullChargeTime);
+        if (levelTimeline == null) {
+            return null;
+        }
+        return DataProcessor.getLevelDataThroughTimestamps(
+                levelTimeline.mTimestamps, levelTimeline.mLevels::get);
+    }
+
+    /**
+     * @return Returns the battery level data of the processed history map. The levels of the time
+     * slots before the end of the cached timeline are reused, other levels are computed from the
+     * processed history map. The updated timeline is persisted in the background.
+     */
+    @Nullable
+    static BatteryLevelData getBatteryLevelData(
+            Context context,
+            final long fullChargeTimestamp,
+            final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap) {
+        LevelTimeline cachedTimeline;
+        synchronized (sLock) {
+            cachedTimeline = sLevelTimeline;
+        }
+        // Only reuses the in-memory timeline here to avoid disk reads on the main thread.
+        if (cachedTimeline != null && !cachedTimeline.isValidSince(fullChargeTimestamp)) {
+            cachedTimeline = null;
+        }
+        final LevelTimeline reusableTimeline = cachedTimeline;
+        final long lastCachedTimestamp = reusableTimeline == null
+                ? Long.MIN_VALUE
+                : reusableTimeline.getLastTimestamp();
+        final Map<Long, Integer> levels = new ArrayMap<>();
+        final int[] reusedCount = new int[1];
+        final BatteryLevelData batteryLevelData = DataProcessor.getLevelDataThroughTimestamps(
+                processedBatteryHistoryMap.keySet(),
+                timestamp -> {
+                    Integer level;
+                    // The latest cached slot is interpolated with the end of the previous history,
+                    // so it is always computed again.
+                    if (timestamp < lastCachedTimestamp
+                            && reusableTimeline.mLevels.containsKey(timestamp)) {
+                        level = reusableTimeline.mLevels.get(timestamp);
+                        reusedCount[0]++;
+                    } else {
+                        level = DataProcessor.getLevel(
+                                context, processedBatteryHistoryMap, timestamp);
+                    }
+                    levels.put(timestamp, level);
+                    return level;
+                });
+        Log.d(TAG, String.format("getBatteryLevelData() reused=%d computed=%d",
+                reusedCount[0], levels.size() - reusedCount[0]));
+
+        final List<Long> timestamps = new ArrayList<>(processedBatteryHistoryMap.keySet());
+        Collections.sort(timestamps);
+        final LevelTimeline levelTimeline = new LevelTimeline(
+                TimeZone.getDefault().getID(), fullChargeTimestamp, timestamps, levels);
+        synchronized (sLock) {
+            sLevelTimeline = levelTimeline;
+        }
+        ThreadUtils.postOnBackgroundThread(() -> writeLevelTimeline(context, levelTimeline));
+        return batteryLevelData;
+    }
+
+    /** Clears the in-memory and the persisted timeline. */
+    @VisibleForTesting
+    @WorkerThread
+    static void clear(Context context) {
+        synchronized (sLock) {
+            sLevelTimeline = null;
+        }
+        synchronized (sFileLock) {
+            getAtomicFile(context).delete();
+        }
+    }
+
+    @WorkerThread
+    @Nullable
+    private static LevelTimeline getValidLevelTimeline(Context context,
+            final long lastFullChargeTime) {
+        LevelTimeline levelTimeline;
+        synchronized (sLock) {
+            levelTimeline = sLevelTimeline;
+        }
+        if (levelTimeline == null) {
+            final LevelTimeline persistedTimeline;
+            synchronized (sFileLock) {
+                persistedTimeline = readLevelTimeline(context);
+            }
+            synchronized (sLock) {
+                // Another thread may have set a newer timeline meanwhile.
+                if (sLevelTimeline == null) {
+                    sLevelTimeline = persistedTimeline;
+                }
+                levelTimeline = sLevelTimeline;
+            }
+        }
+        if (levelTimeline == null || levelTimeline.isValidSince(lastFullChargeTime)) {
+            return levelTimeline;
+        }
+        Log.d(TAG, "timezone or full charge is changed, drop the level timeline");
+        synchronized (sLock) {
+            if (sLevelTimeline != levelTimeline) {
+                return null;
+            }
+            sLevelTimeline = null;
+        }
+        synchronized (sFileLock) {
+            getAtomicFile(context).delete();
+        }
+        return null;
+    }
+
+    @GuardedBy("sFileLock")
+    @Nullable
+    private static LevelTimeline readLevelTimeline(Context context) {
+        final AtomicFile atomicFile = getAtomicFile(context);
+        if (!atomicFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(atomicFile.openRead())) {
+            if (in.readInt() != VERSION) {
+                throw new IOException("unknown version");
+            }
+            final String timeZoneId = in.readUTF();
+            final long fullChargeTimestamp = in.readLong();
+            final int size = in.readInt();
+            if (size < 0) {
+                throw new IOException("invalid size: " + size);
+            }
+            final List<Long> timestamps = new ArrayList<>(size);
+            final Map<Long, Integer> levels = new ArrayMap<>(size);
+            long lastTimestamp = Long.MIN_VALUE;
+            for (int index = 0; index < size; index++) {
+                final long timestamp = in.readLong();
+                final int level = in.readInt();
+                if (timestamp <= lastTimestamp) {
+                    throw new IOException("unsorted timestamp: " + timestamp);
+                }
+                lastTimestamp = timestamp;
+                timestamps.add(timestamp);
+                if (level != NOT_COMPUTED) {
+                    levels.put(timestamp, level == NO_LEVEL ? null : level);
+                }
+            }
+            return new LevelTimeline(timeZoneId, fullChargeTimestamp, timestamps, levels);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "drop the corrupted level timeline", e);
+            atomicFile.delete();
+            return null;
+        }
+    }
+
+    @WorkerThread
+    private static void writeLevelTimeline(Context context, LevelTimeline levelTimeline) {
+        synchronized (sFileLock) {
+            synchronized (sLock) {
+                // Skips the outdated timeline if a newer one has been set, it is written after.
+                if (sLevelTimeline != levelTimeline) {
+                    return;
+                }
+            }
+            final AtomicFile atomicFile = getAtomicFile(context);
+            FileOutputStream outputStream = null;
+            try {
+                outputStream = atomicFile.startWrite();
+                final DataOutputStream out = new DataOutputStream(outputStream);
+                out.writeInt(VERSION);
+                out.writeUTF(levelTimeline.mTimeZoneId);
+                out.writeLong(levelTimeline.mFullChargeTimestamp);
+                out.writeInt(levelTimeline.mTimestamps.size());
+                for (long timestamp : levelTimeline.mTimestamps) {
+                    final Integer level = levelTimeline.mLevels.get(timestamp);
+                    out.writeLong(timestamp);
+                    if (!levelTimeline.mLevels.containsKey(timestamp)) {
+                        out.writeInt(NOT_COMPUTED);
+                    } else {
+                        out.writeInt(level == null ? NO_LEVEL : level);
+                    }
+                }
+                out.flush();
+                atomicFile.finishWrite(outputStream);
+            } catch (IOException e) {
+                Log.e(TAG, "writeLevelTimeline() failed", e);
+                atomicFile.failWrite(outputStream);
+            }
+        }
+    }
+
+    private static AtomicFile getAtomicFile(Context context) {
+        return new AtomicFile(new File(context.getNoBackupFilesDir(), FILE_NAME));
+    }
+
+    /** The level of each hourly time slot since the last full charge. */
+    private static final class LevelTimeline {
+        private final String mTimeZoneId;
+        private final long mFullChargeTimestamp;
+        // Sorted hourly time slots, mLevels only contains the slots displayed in usage chart.
+        private final List<Long> mTimestamps;
+        private final Map<Long, Integer> mLevels;
+
+        LevelTimeline(String timeZoneId, long fullChargeTimestamp, List<Long> timestamps,
+                Map<Long, Integer> levels) {
+            mTimeZoneId = timeZoneId;
+            mFullChargeTimestamp = fullChargeTimestamp;
+            mTimestamps = timestamps;
+            mLevels = levels;
+        }
+
+        /**
+         * Whether the timeline starts after the last full charge, in the current timezone. Both
+         * the reads and the updates of the timeline use it, so they keep or drop the same ones.
+         */
+        boolean isValidSince(long lastFullChargeTime) {
+            return mFullChargeTimestamp >= lastFullChargeTime
+                    && Objects.equals(mTimeZoneId, TimeZone.getDefault().getID());
+        }
+
+        long getLastTimestamp() {
+            return mTimestamps.isEmpty()
+                    ? Long.MIN_VALUE
+                    : mTimestamps.get(mTimestamps.size() - 1);
+        }
+    }
+}
@@ -17,43 +17,37 @@
 package com.android.settings.fuelgauge.batteryusage;
 
 import android.content.Context;
-import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
-import android.os.BatteryUsageStatsQuery;
-import android.util.Log;
 
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 /**
- * Loader to get new {@link BatteryUsageStats} in the background
+ * Loader to get {@link BatteryUsageStats} in the background, the shared snapshot unless battery
+ * history is included
  */
 public class BatteryUsageStatsLoader extends AsyncLoaderCompat<BatteryUsageStats> {
-    private static final String TAG = "BatteryUsageStatsLoader";
-    private final BatteryStatsManager mBatteryStatsManager;
     private final boolean mIncludeBatteryHistory;
 
     public BatteryUsageStatsLoader(Context context, boolean includeBatteryHistory) {
         super(context);
-        mBatteryStatsManager = context.getSystemService(BatteryStatsManager.class);
         mIncludeBatteryHistory = includeBatteryHistory;
     }
 
+    /** Returns whether the loaded snapshot includes history, and so must be closed. */
+    public boolean isBatteryHistoryIncluded() {
+        return mIncludeBatteryHistory;
+    }
+
     @Override
     public BatteryUsageStats loadInBackground() {
-        final BatteryUsageStatsQuery.Builder builder = new BatteryUsageStatsQuery.Builder();
-        if (mIncludeBatteryHistory) {
-            builder.includeBatteryHistory();
-        }
-        try {
-            return mBatteryStatsManager.getBatteryUsageStats(builder.build());
-        } catch (RuntimeException e) {
-            Log.e(TAG, "loadInBackground() for getBatteryUsageStats()", e);
-            // Use default BatteryUsageStats.
-            return new BatteryUsageStats.Builder(new String[0]).build();
-        }
+        return BatteryUsageStatsCache.getBatteryUsageStats(getContext(), mIncludeBatteryHistory);
     }
 
     @Override
     protected void onDiscardResult(BatteryUsageStats result) {
+        if (mIncludeBatteryHistory) {
+            BatteryUsageStatsCache.close(result);
+        }
     }
 }
@@ -22,9 +22,7 @@ import android.app.settings.SettingsEnums;
 import android.content.ContentValues;
 import android.content.Context;
 import android.os.AsyncTask;
-import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
-import android.os.BatteryUsageStatsQuery;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.UserHandle;
@@ -38,6 +36,7 @@ import androidx.annotation.Nullable;
 
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.settings.Utils;
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
@@ -53,6 +52,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -111,9 +111,13 @@ public final class DataProcessor {
         // Process raw history map data into hourly timestamps.
         final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap =
                 getHistoryMapWithExpectedTimestamps(context, batteryHistoryMap);
-        // Wrap and processed history map into easy-to-use format for UI rendering.
+        // Wrap and processed history map into easy-to-use format for UI rendering. The levels of
+        // the time slots persisted by previous visits are reused from the level timeline cache.
         final BatteryLevelData batteryLevelData =
-                getLevelDataThroughProcessedHistoryMap(context, processedBatteryHistoryMap);
+                BatteryLevelDataCache.getBatteryLevelData(
+                        context,
+                        Collections.min(batteryHistoryMap.keySet()),
+                        processedBatteryHistoryMap);
         if (batteryLevelData == null) {
             loadBatteryUsageDataFromBatteryStatsService(
                     context, handler, asyncResponseDelegate);
@@ -206,7 +210,21 @@ public final class DataProcessor {
     static BatteryLevelData getLevelDataThroughProcessedHistoryMap(
             Context context,
             final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap) {
-        final List<Long> timestampList = new ArrayList<>(processedBatteryHistoryMap.keySet());
+        return getLevelDataThroughTimestamps(
+                processedBatteryHistoryMap.keySet(),
+                timestamp -> getLevel(context, processedBatteryHistoryMap, timestamp));
+    }
+
+    /**
+     * @return Returns the battery level data of the given hourly time slots, the level of each
+     * displayed time slot is resolved through the levelFunction.
+     * Returns null if there is not enough data to show in usage chart.
+     */
+    @Nullable
+    static BatteryLevelData getLevelDataThroughTimestamps(
+            final Collection<Long> timestamps,
+            final Function<Long, Integer> levelFunction) {
+        final List<Long> timestampList = new ArrayList<>(timestamps);
         Collections.sort(timestampList);
         final List<Long> dailyTimestamps = getDailyTimestamps(timestampList);
         // There should be at least the start and end timestamps. Otherwise, return null to not show
@@ -217,10 +235,9 @@ public final class DataProcessor {
 
         final List<List<Long>> hourlyTimestamps = getHourlyTimestamps(dailyTimestamps);
         final BatteryLevelData.PeriodBatteryLevelData dailyLevelData =
-                getPeriodBatteryLevelData(context, processedBatteryHistoryMap, dailyTimestamps);
+                getPeriodBatteryLevelData(levelFunction, dailyTimestamps);
         final List<BatteryLevelData.PeriodBatteryLevelData> hourlyLevelData =
-                getHourlyPeriodBatteryLevelData(
-                        context, processedBatteryHistoryMap, hourlyTimestamps);
+                getHourlyPeriodBatteryLevelData(levelFunction, hourlyTimestamps);
         return new BatteryLevelData(dailyLevelData, hourlyLevelData);
     }
 
@@ -495,23 +512,19 @@ public final class DataProcessor {
     private static BatteryDiffData getBatteryDiffDataFromBatteryStatsService(
             final Context context) {
         BatteryDiffData batteryDiffData = null;
+        BatteryUsageStats batteryUsageStats = null;
         try {
-            final BatteryUsageStatsQuery batteryUsageStatsQuery =
-                    new BatteryUsageStatsQuery.Builder().includeBatteryHistory().build();
-            final BatteryUsageStats batteryUsageStats =
-                    context.getSystemService(BatteryStatsManager.class)
-                            .getBatteryUsageStats(batteryUsageStatsQuery);
-
-            if (batteryUsageStats == null) {
-                Log.w(TAG, "batteryUsageStats is null content");
-                return null;
-            }
+            // Includes history, so this is a new snapshot owned here.
+            batteryUsageStats = BatteryUsageStatsCache.getBatteryUsageStats(
+                    context, /* includeBatteryHistory */ true);
 
             final List<BatteryEntry> batteryEntryList =
                     generateBatteryEntryListFromBatteryUsageStats(context, batteryUsageStats);
             batteryDiffData = generateBatteryDiffData(context, batteryEntryList, batteryUsageStats);
         } catch (RuntimeException e) {
             Log.e(TAG, "load batteryUsageStats:" + e);
+        } finally {
+            BatteryUsageStatsCache.close(batteryUsageStats);
         }
 
         return batteryDiffData;
@@ -748,28 +761,24 @@ public final class DataProcessor {
     }
 
     private static List<BatteryLevelData.PeriodBatteryLevelData> getHourlyPeriodBatteryLevelData(
-            Context context,
-            final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap,
+            final Function<Long, Integer> levelFunction,
             final List<List<Long>> timestamps) {
         final List<BatteryLevelData.PeriodBatteryLevelData> levelData = new ArrayList<>();
         timestamps.forEach(
                 timestampList -> levelData.add(
-                        getPeriodBatteryLevelData(
-                                context, processedBatteryHistoryMap, timestampList)));
+                        getPeriodBatteryLevelData(levelFunction, timestampList)));
         return levelData;
     }
 
     private static BatteryLevelData.PeriodBatteryLevelData getPeriodBatteryLevelData(
-            Context context,
-            final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap,
+            final Function<Long, Integer> levelFunction,
             final List<Long> timestamps) {
         final List<Integer> levels = new ArrayList<>();
-        timestamps.forEach(
-                timestamp -> levels.add(getLevel(context, processedBatteryHistoryMap, timestamp)));
+        timestamps.forEach(timestamp -> levels.add(levelFunction.apply(timestamp)));
         return new BatteryLevelData.PeriodBatteryLevelData(timestamps, levels);
     }
 
-    private static Integer getLevel(
+    static Integer getLevel(
             Context context,
             final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap,
             final long timestamp) {
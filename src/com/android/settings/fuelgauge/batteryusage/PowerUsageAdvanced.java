@@ -37,11 +37,13 @@ import androidx.loader.content.Loader;
 import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.fuelgauge.BatteryBroadcastReceiver;
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settings.fuelgauge.PowerUsageFeatureProvider;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.search.SearchIndexable;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -89,6 +91,7 @@ public class PowerUsageAdvanced extends PowerUsageBase {
         mHistPref = (BatteryHistoryPreference) findPreference(KEY_BATTERY_GRAPH);
         if (mIsChartGraphEnabled) {
             setBatteryChartPreferenceController();
+            loadCachedBatteryLevelData(context);
         } else {
             updateHistPrefSummary(context);
         }
@@ -214,6 +217,23 @@ public class PowerUsageAdvanced extends PowerUsageBase {
         }
     }
 
+    private void loadCachedBatteryLevelData(Context context) {
+        final Context appContext = context.getApplicationContext();
+        ThreadUtils.postOnBackgroundThread(() -> {
+            // Battery stats are reset on a full charge, a timeline started before is outdated.
+            final long lastFullChargeTime = BatteryUsageStatsCache.getBatteryUsageStats(
+                    appContext, /* includeBatteryHistory */ false).getStatsStartTimestamp();
+            final BatteryLevelData batteryLevelData =
+                    BatteryLevelDataCache.loadBatteryLevelData(appContext, lastFullChargeTime);
+            ThreadUtils.postOnMainThread(() -> {
+                if (mBatteryChartPreferenceController != null) {
+                    mBatteryChartPreferenceController.setCachedBatteryLevelData(
+                            batteryLevelData);
+                }
+            });
+        });
+    }
+
     private void setBatteryChartPreferenceController() {
         if (mHistPref != null && mBatteryChartPreferenceController != null) {
             mHistPref.setChartPreferenceController(mBatteryChartPreferenceController);
@@ -22,7 +22,6 @@ import android.content.Context;
 import android.os.BatteryUsageStats;
 import android.os.Bundle;
 import android.os.UserManager;
-import android.util.Log;
 
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
@@ -32,6 +31,7 @@ import androidx.loader.content.Loader;
 
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.fuelgauge.BatteryBroadcastReceiver;
+import com.android.settings.fuelgauge.BatteryUsageStatsCache;
 import com.android.settings.fuelgauge.BatteryUtils;
 
 import java.lang.annotation.Retention;
@@ -49,6 +49,7 @@ public abstract class PowerUsageBase extends DashboardFragment {
     static final String KEY_INCLUDE_HISTORY = "include_history";
     @VisibleForTesting
     BatteryUsageStats mBatteryUsageStats;
+    private boolean mShouldCloseBatteryUsageStats;
 
     protected UserManager mUm;
     protected boolean mIsBatteryPresent = true;
@@ -161,6 +162,8 @@ public abstract class PowerUsageBase extends DashboardFragment {
                 BatteryUsageStats batteryUsageStats) {
             closeBatteryUsageStatsIfNeeded();
             mBatteryUsageStats = batteryUsageStats;
+            mShouldCloseBatteryUsageStats =
+                    ((BatteryUsageStatsLoader) loader).isBatteryHistoryIncluded();
             PowerUsageBase.this.onLoadFinished(mRefreshType);
         }
 
@@ -170,15 +173,11 @@ public abstract class PowerUsageBase extends DashboardFragment {
     }
 
     private void closeBatteryUsageStatsIfNeeded() {
-        if (mBatteryUsageStats == null) {
-            return;
-        }
-        try {
-            mBatteryUsageStats.close();
-        } catch (Exception e) {
-            Log.e(TAG, "BatteryUsageStats.close() failed", e);
-        } finally {
-            mBatteryUsageStats = null;
+        // Snapshots without history are shared through BatteryUsageStatsCache, only drop them.
+        if (mShouldCloseBatteryUsageStats) {
+            BatteryUsageStatsCache.close(mBatteryUsageStats);
         }
+        mBatteryUsageStats = null;
+        mShouldCloseBatteryUsageStats = false;
     }
 }
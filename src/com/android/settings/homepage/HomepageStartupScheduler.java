@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.gateway.FragmentRegistry;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schedules the startup work of {@link SettingsHomepageActivity}, so the top level list is shown
+ * before the secondary parts of the homepage.
+ *
+ * <p>Work which is not needed for the first frame runs from an idle handler of the main looper,
+ * and the controllers of the page the user most likely opens next are prefetched in background.
+ * The time of each startup phase since the activity creation is kept for the last startup and
+ * reported by {@link com.android.settings.SettingsDumpService}.
+ */
+public final class HomepageStartupScheduler {
+    private static final String TAG = "HomepageStartup";
+
+    /** The top level list has been added. */
+    public static final String PHASE_TOP_LEVEL = "top_level_ms";
+    /** {@link SettingsHomepageActivity#onCreate} has returned. */
+    public static final String PHASE_CREATE = "create_ms";
+    /** The deferred work has run after the main looper became idle. */
+    public static final String PHASE_DEFERRED = "deferred_ms";
+    /** The controllers of the likely next page have been prefetched. */
+    public static final String PHASE_PREFETCH = "prefetch_ms";
+
+    private static final Object sLock = new Object();
+    @GuardedBy("sLock")
+    private static Map<String, Long> sLastTimings = Collections.emptyMap();
+
+    private final long mStartMillis;
+    @GuardedBy("sLock")
+    private final Map<String, Long> mTimings = new ArrayMap<>();
+    private final List<Runnable> mDeferredTasks = new ArrayList<>();
+    private final MessageQueue.IdleHandler mIdleHandler = () -> {
+        runDeferredTasks();
+        return false;
+    };
+    private boolean mIsIdleHandlerAdded;
+    private boolean mIsCancelled;
+
+    HomepageStartupScheduler() {
+        mStartMillis = SystemClock.elapsedRealtime();
+    }
+
+    /** Returns the phase timings in milliseconds of the last homepage startup. */
+    public static Map<String, Long> getLastStartupTimings() {
+        synchronized (sLock) {
+            return sLastTimings;
+        }
+    }
+
+    /** Records that the {@code phase} is reached. Can be called from any thread. */
+    void markPhase(String phase) {
+        final long elapsedMillis = SystemClock.elapsedRealtime() - mStartMillis;
+        synchronized (sLock) {
+            mTimings.put(phase, elapsedMillis);
+            sLastTimings = Collections.unmodifiableMap(new ArrayMap<>(mTimings));
+        }
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, phase + ": " + elapsedMillis);
+        }
+    }
+
+    /** Runs the {@code task} on the main thread once the startup work is done. */
+    void runWhenIdle(Runnable task) {
+        if (mIsCancelled) {
+            return;
+        }
+        mDeferredTasks.add(task);
+        if (!mIsIdleHandlerAdded) {
+            mIsIdleHandlerAdded = true;
+            Looper.getMainLooper().getQueue().addIdleHandler(mIdleHandler);
+        }
+    }
+
+    /**
+     * Loads in background the preference xml and the controller classes of the
+     * {@code fragmentName} page, so opening it does not wait for them.
+     */
+    void prefetch(Context context, String fragmentName) {
+        if (mIsCancelled || TextUtils.isEmpty(fragmentName)) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        ThreadUtils.postOnBackgroundThread(() -> {
+            prefetchControllers(appContext, fragmentName);
+            markPhase(PHASE_PREFETCH);
+        });
+    }
+
+    /** Drops the deferred work which has not run yet. */
+    void cancel() {
+        mIsCancelled = true;
+        mDeferredTasks.clear();
+        if (mIsIdleHandlerAdded) {
+            mIsIdleHandlerAdded = false;
+            Looper.getMainLooper().getQueue().removeIdleHandler(mIdleHandler);
+        }
+    }
+
+    @VisibleForTesting
+    void runDeferredTasks() {
+        mIsIdleHandlerAdded = false;
+        final List<Runnable> tasks = new ArrayList<>(mDeferredTasks);
+        mDeferredTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        if (!tasks.isEmpty()) {
+            markPhase(PHASE_DEFERRED);
+        }
+    }
+
+    @VisibleForTesting
+    static int prefetchControllers(Context context, String fragmentName) {
+        return FragmentRegistry.getInstance().prefetchControllers(context, fragmentName);
+    }
+}
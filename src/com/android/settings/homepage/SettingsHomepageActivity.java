@@ -56,6 +56,7 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.preference.Preference;
 import androidx.window.embedding.SplitController;
 import androidx.window.embedding.SplitRule;
 
@@ -97,6 +98,8 @@ public class SettingsHomepageActivity extends FragmentActivity implements
     private static final long HOMEPAGE_LOADING_TIMEOUT_MS = 300;
 
     private TopLevelSettings mMainFragment;
+    @VisibleForTesting
+    HomepageStartupScheduler mStartupScheduler;
     private View mHomepageView;
     private View mSuggestionView;
     private View mTwoPaneSuggestionView;
@@ -169,6 +172,7 @@ public class SettingsHomepageActivity extends FragmentActivity implements
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        mStartupScheduler = new HomepageStartupScheduler();
         super.onCreate(savedInstanceState);
 
         mIsEmbeddingActivityEnabled = ActivityEmbeddingUtils.isEmbeddingActivityEnabled(this);
@@ -213,9 +217,8 @@ public class SettingsHomepageActivity extends FragmentActivity implements
                     && !TextUtils.equals(getString(DEFAULT_HIGHLIGHT_MENU_KEY), highlightMenuKey);
             showSuggestionFragment(scrollNeeded);
             if (FeatureFlagUtils.isEnabled(this, FeatureFlags.CONTEXTUAL_HOME)) {
-                showFragment(() -> new ContextualCardsFragment(), R.id.contextual_cards_content);
-                ((FrameLayout) findViewById(R.id.main_content))
-                        .getLayoutTransition().enableTransitionType(LayoutTransition.CHANGING);
+                // Contextual cards are not needed for the first frame of the top level list.
+                mStartupScheduler.runWhenIdle(this::showContextualCardsFragment);
             }
         }
         mMainFragment = showFragment(() -> {
@@ -224,11 +227,22 @@ public class SettingsHomepageActivity extends FragmentActivity implements
                     highlightMenuKey);
             return fragment;
         }, R.id.main_content);
+        mStartupScheduler.markPhase(HomepageStartupScheduler.PHASE_TOP_LEVEL);
+        mStartupScheduler.runWhenIdle(() -> prefetchHighlightedFragment(highlightMenuKey));
 
         // Launch the intent from deep link for large screen devices.
         launchDeepLinkIntentToRight();
         updateHomepagePaddings();
         updateSplitLayout();
+        mStartupScheduler.markPhase(HomepageStartupScheduler.PHASE_CREATE);
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (mStartupScheduler != null) {
+            mStartupScheduler.cancel();
+        }
+        super.onDestroy();
     }
 
     @Override
@@ -386,8 +400,43 @@ public class SettingsHomepageActivity extends FragmentActivity implements
         showFragment(new SuggestionFragCreator(fragmentClass, /* isTwoPaneLayout= */ false),
                 R.id.suggestion_content);
         if (mIsEmbeddingActivityEnabled) {
-            showFragment(new SuggestionFragCreator(fragmentClass, /* isTwoPaneLayout= */ true),
-                    R.id.two_pane_suggestion_content);
+            final FragmentCreator twoPaneCreator =
+                    new SuggestionFragCreator(fragmentClass, /* isTwoPaneLayout= */ true);
+            if (mIsTwoPane) {
+                showFragment(twoPaneCreator, R.id.two_pane_suggestion_content);
+            } else {
+                // The two pane suggestion is hidden until the window is split.
+                mStartupScheduler.runWhenIdle(() -> {
+                    if (canCommitFragments()) {
+                        showFragment(twoPaneCreator, R.id.two_pane_suggestion_content);
+                    }
+                });
+            }
+        }
+    }
+
+    private void showContextualCardsFragment() {
+        if (!canCommitFragments()) {
+            return;
+        }
+        showFragment(() -> new ContextualCardsFragment(), R.id.contextual_cards_content);
+        ((FrameLayout) findViewById(R.id.main_content))
+                .getLayoutTransition().enableTransitionType(LayoutTransition.CHANGING);
+    }
+
+    private boolean canCommitFragments() {
+        return !isFinishing() && !getSupportFragmentManager().isStateSaved();
+    }
+
+    /** Prefetches the page of the highlighted menu, which is the most likely one to open. */
+    private void prefetchHighlightedFragment(String highlightMenuKey) {
+        final String preferenceKey = HighlightableMenu.lookupPreferenceKey(highlightMenuKey);
+        if (TextUtils.isEmpty(preferenceKey)) {
+            return;
+        }
+        final Preference preference = mMainFragment.findPreference(preferenceKey);
+        if (preference != null) {
+            mStartupScheduler.prefetch(this, preference.getFragment());
         }
     }
 
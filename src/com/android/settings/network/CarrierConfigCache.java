@@ -27,6 +27,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.PersistableBundle;
+import android.os.SystemClock;
 import android.telephony.CarrierConfigManager;
 import android.telephony.SubscriptionManager;
 import android.util.Log;
@@ -34,8 +35,12 @@ import android.util.Log;
 import androidx.annotation.GuardedBy;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settingslib.utils.ThreadUtils;
+
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is a singleton class for Carrier-Configuration cache.
@@ -62,9 +67,20 @@ public class CarrierConfigCache {
     @VisibleForTesting
     protected static final Map<Integer, PersistableBundle> sCarrierConfigs =
             new ConcurrentHashMap<>();
+    /**
+     * The fetches in progress, used to share one fetch with the concurrent callers of a subId.
+     */
+    private static final Map<Integer, CompletableFuture<PersistableBundle>> sLoadingConfigs =
+            new ConcurrentHashMap<>();
     @VisibleForTesting
     protected static CarrierConfigManager sCarrierConfigManager;
 
+    private static final AtomicLong sHitCount = new AtomicLong();
+    private static final AtomicLong sMissCount = new AtomicLong();
+    private static final AtomicLong sLoadCount = new AtomicLong();
+    private static final AtomicLong sTotalLoadLatencyMs = new AtomicLong();
+    private static final AtomicLong sMaxLoadLatencyMs = new AtomicLong();
+
     /**
      * Static method to create a singleton class for Carrier-Configuration cache.
      *
@@ -83,7 +99,7 @@ public class CarrierConfigCache {
             if (sInstance != null) return sInstance;
 
             sInstance = new CarrierConfigCache();
-            final CarrierConfigChangeReceiver receiver = new CarrierConfigChangeReceiver();
+            final CarrierConfigChangeReceiver receiver = new CarrierConfigChangeReceiver(sInstance);
             final Context appContext = context.getApplicationContext();
             sCarrierConfigManager = appContext.getSystemService(CarrierConfigManager.class);
             appContext.registerReceiver(receiver, new IntentFilter(ACTION_CARRIER_CONFIG_CHANGED));
@@ -139,17 +155,48 @@ public class CarrierConfigCache {
     public PersistableBundle getConfigForSubId(int subId) {
         if (sCarrierConfigManager == null) return null;
 
-        synchronized (sCarrierConfigs) {
-            if (sCarrierConfigs.containsKey(subId)) {
-                return sCarrierConfigs.get(subId);
-            }
-            final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId);
+        final PersistableBundle cachedConfig = sCarrierConfigs.get(subId);
+        if (cachedConfig != null) {
+            sHitCount.incrementAndGet();
+            return cachedConfig;
+        }
+        sMissCount.incrementAndGet();
+
+        // Only one caller of a subId fetches from the manager, the others wait for its result
+        // without blocking the callers of other subIds.
+        final CompletableFuture<PersistableBundle> future = new CompletableFuture<>();
+        final CompletableFuture<PersistableBundle> inFlightFuture =
+                sLoadingConfigs.putIfAbsent(subId, future);
+        if (inFlightFuture != null) {
+            return inFlightFuture.join();
+        }
+        return loadConfigForSubId(subId, future);
+    }
+
+    private static PersistableBundle loadConfigForSubId(int subId,
+            CompletableFuture<PersistableBundle> future) {
+        final long startTime = SystemClock.elapsedRealtime();
+        PersistableBundle config = null;
+        try {
+            config = sCarrierConfigManager.getConfigForSubId(subId);
             if (config == null) {
                 Log.e(TAG, "Could not get carrier config, subId:" + subId);
-                return null;
             }
-            sCarrierConfigs.put(subId, config);
             return config;
+        } finally {
+            final long latency = SystemClock.elapsedRealtime() - startTime;
+            sLoadCount.incrementAndGet();
+            sTotalLoadLatencyMs.addAndGet(latency);
+            sMaxLoadLatencyMs.accumulateAndGet(latency, Math::max);
+
+            final PersistableBundle loadedConfig = config;
+            // Caches the config only if it is not invalidated during the loading.
+            sLoadingConfigs.computeIfPresent(subId, (key, value) -> {
+                if (value != future) return value;
+                if (loadedConfig != null) sCarrierConfigs.put(key, loadedConfig);
+                return null;
+            });
+            future.complete(config);
         }
     }
 
@@ -164,19 +211,74 @@ public class CarrierConfigCache {
         return getConfigForSubId(SubscriptionManager.getDefaultSubscriptionId());
     }
 
+    private void prefetchConfigs(Context context, int subId) {
+        if (sCarrierConfigManager == null) return;
+
+        final int[] subIds;
+        if (SubscriptionManager.isValidSubscriptionId(subId)) {
+            subIds = new int[] {subId};
+        } else {
+            final SubscriptionManager subscriptionManager =
+                    context.getSystemService(SubscriptionManager.class);
+            subIds = subscriptionManager == null
+                    ? new int[0] : subscriptionManager.getActiveSubscriptionIdList();
+        }
+        for (int id : subIds) {
+            if (!sCarrierConfigs.containsKey(id)) {
+                getConfigForSubId(id);
+            }
+        }
+    }
+
+    /** Returns the number of requests served from the cache. */
+    public long getHitCount() {
+        return sHitCount.get();
+    }
+
+    /** Returns the number of requests not found in the cache. */
+    public long getMissCount() {
+        return sMissCount.get();
+    }
+
+    /** Returns the number of configs fetched from {@link CarrierConfigManager}. */
+    public long getLoadCount() {
+        return sLoadCount.get();
+    }
+
+    /** Returns the total time in milliseconds spent on fetching configs. */
+    public long getTotalLoadLatencyMs() {
+        return sTotalLoadLatencyMs.get();
+    }
+
+    /** Returns the longest time in milliseconds spent on fetching a config. */
+    public long getMaxLoadLatencyMs() {
+        return sMaxLoadLatencyMs.get();
+    }
+
     private static class CarrierConfigChangeReceiver extends BroadcastReceiver {
+        private final CarrierConfigCache mCache;
+
+        CarrierConfigChangeReceiver(CarrierConfigCache cache) {
+            mCache = cache;
+        }
+
         @Override
         public void onReceive(Context context, Intent intent) {
             if (!ACTION_CARRIER_CONFIG_CHANGED.equals(intent.getAction())) return;
 
             final int subId = intent.getIntExtra(EXTRA_SUBSCRIPTION_INDEX, INVALID_SUBSCRIPTION_ID);
-            synchronized (sCarrierConfigs) {
-                if (SubscriptionManager.isValidSubscriptionId(subId)) {
-                    sCarrierConfigs.remove(subId);
-                } else {
-                    sCarrierConfigs.clear();
-                }
+            if (SubscriptionManager.isValidSubscriptionId(subId)) {
+                sLoadingConfigs.remove(subId);
+                sCarrierConfigs.remove(subId);
+            } else {
+                sLoadingConfigs.clear();
+                sCarrierConfigs.clear();
             }
+
+            // Reloads the configs in background, so the settings pages opened after the change
+            // do not wait for the binder calls.
+            final Context appContext = context.getApplicationContext();
+            ThreadUtils.postOnBackgroundThread(() -> mCache.prefetchConfigs(appContext, subId));
         }
     }
 }
@@ -34,6 +34,7 @@ import android.net.wifi.WifiManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.Settings;
@@ -197,6 +198,39 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         setProgressBarVisible(false);
     };
 
+    @VisibleForTesting
+    WifiEntryUpdateScheduler mUpdateScheduler = new WifiEntryUpdateScheduler();
+    // Whether an update of the Wi-Fi entries is held back until the list stops scrolling.
+    private boolean mIsUpdateDeferred;
+    @VisibleForTesting
+    int mCreatedPreferenceCount;
+    @VisibleForTesting
+    int mReboundPreferenceCount;
+    @VisibleForTesting
+    final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            final boolean isScrolling = newState != RecyclerView.SCROLL_STATE_IDLE;
+            mUpdateScheduler.setScrolling(isScrolling);
+            final View view = getView();
+            if (view == null) {
+                return;
+            }
+            if (isScrolling) {
+                // Keep the list still under the user's finger.
+                final Handler handler = view.getHandler();
+                if (handler != null && handler.hasCallbacks(mUpdateWifiEntryPreferencesRunnable)) {
+                    view.removeCallbacks(mUpdateWifiEntryPreferencesRunnable);
+                    mIsUpdateDeferred = true;
+                }
+            } else if (mIsUpdateDeferred) {
+                mIsUpdateDeferred = false;
+                view.postDelayed(mUpdateWifiEntryPreferencesRunnable,
+                        WifiEntryUpdateScheduler.MIN_DELAY_MILLIS);
+            }
+        }
+    };
+
     protected WifiManager mWifiManager;
     private WifiManager.ActionListener mConnectListener;
     private WifiManager.ActionListener mSaveListener;
@@ -274,6 +308,11 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         setPinnedHeaderView(R.layout.progress_header);
         setProgressBarVisible(false);
 
+        final RecyclerView listView = getListView();
+        if (listView != null) {
+            listView.addOnScrollListener(mScrollListener);
+        }
+
         if (hasWifiManager()) {
             setLoading(true, false);
             mIsViewLoading = true;
@@ -510,6 +549,7 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
     @Override
     public void onStop() {
         mIsWifiEntryListStale = true;
+        mIsUpdateDeferred = false;
         getView().removeCallbacks(mRemoveLoadingRunnable);
         getView().removeCallbacks(mUpdateWifiEntryPreferencesRunnable);
         getView().removeCallbacks(mHideProgressBarRunnable);
@@ -924,19 +964,28 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
 
     /**
      * Updates WifiEntries from {@link WifiPickerTracker#getWifiEntries()}. Adds a delay to have
-     * progress bar displayed before starting to modify entries.
+     * progress bar displayed before starting to modify entries, and to coalesce the changes
+     * arriving in the meantime. The delay is decided by {@link WifiEntryUpdateScheduler}.
      */
     private void updateWifiEntryPreferencesDelayed() {
         // Safeguard from some delayed event handling
         if (getActivity() != null && !mIsRestricted && mWifiPickerTracker != null
                 && mWifiPickerTracker.getWifiState() == WifiManager.WIFI_STATE_ENABLED) {
+            final long delayMillis =
+                    mUpdateScheduler.onUpdateRequested(SystemClock.uptimeMillis());
             final View view = getView();
             final Handler handler = view.getHandler();
             if (handler != null && handler.hasCallbacks(mUpdateWifiEntryPreferencesRunnable)) {
                 return;
             }
+            if (delayMillis < 0) {
+                // Applied by mScrollListener when the list stops scrolling.
+                mIsUpdateDeferred = true;
+                return;
+            }
+            mIsUpdateDeferred = false;
             setProgressBarVisible(true);
-            view.postDelayed(mUpdateWifiEntryPreferencesRunnable, 300);
+            view.postDelayed(mUpdateWifiEntryPreferencesRunnable, delayMillis);
         }
     }
 
@@ -998,26 +1047,26 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
             LongPressWifiEntryPreference pref =
                     (LongPressWifiEntryPreference) getCachedPreference(key);
             if (pref != null) {
-                if (pref.getWifiEntry() == wifiEntry) {
-                    pref.setOrder(index++);
-                    continue;
-                } else {
-                    // Create a new preference if the underlying WifiEntry object has changed
-                    removePreference(key);
+                if (pref.getWifiEntry() != wifiEntry) {
+                    // Rebind the preference in place if the underlying WifiEntry object has
+                    // changed, so only its order may move in the list.
+                    pref.setWifiEntry(wifiEntry);
+                    setHelpButtonClickListener(pref);
+                    mReboundPreferenceCount++;
                 }
+                pref.setOrder(index++);
+                continue;
             }
 
             pref = createLongPressWifiEntryPreference(wifiEntry);
             pref.setKey(wifiEntry.getKey());
             pref.setOrder(index++);
             pref.refresh();
-
             if (wifiEntry.getHelpUriString() != null) {
-                pref.setOnButtonClickListener(preference -> {
-                    openSubscriptionHelpPage(wifiEntry);
-                });
+                setHelpButtonClickListener(pref);
             }
             mWifiEntryPreferenceCategory.addPreference(pref);
+            mCreatedPreferenceCount++;
         }
         removeCachedPrefs(mWifiEntryPreferenceCategory);
 
@@ -1037,6 +1086,27 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         mAddWifiNetworkPreference.setOrder(index++);
         mWifiEntryPreferenceCategory.addPreference(mAddWifiNetworkPreference);
         setAdditionalSettingsSummaries();
+
+        mUpdateScheduler.onUpdated();
+        if (isVerboseLoggingEnabled()) {
+            Log.i(TAG, "updateWifiEntryPreferences: changes="
+                    + mUpdateScheduler.getRequestCount()
+                    + ", updates=" + mUpdateScheduler.getUpdateCount()
+                    + ", averageIntervalMs=" + mUpdateScheduler.getAverageIntervalMillis()
+                    + ", created=" + mCreatedPreferenceCount
+                    + ", rebound=" + mReboundPreferenceCount);
+        }
+    }
+
+    private void setHelpButtonClickListener(LongPressWifiEntryPreference pref) {
+        if (pref.getWifiEntry().getHelpUriString() != null) {
+            pref.setOnButtonClickListener(preference -> {
+                openSubscriptionHelpPage(preference.getWifiEntry());
+            });
+        } else {
+            // Drops the listener of the previous WifiEntry of a rebound preference.
+            pref.setOnButtonClickListener(null);
+        }
     }
 
     @VisibleForTesting
@@ -128,6 +128,9 @@ public class ProxySubscriptionManager implements LifecycleObserver {
     @Keep
     @VisibleForTesting
     protected void notifySubscriptionInfoMightChanged() {
+        // drop the snapshot before notifying, so listeners read the latest subscriptions
+        SubscriptionSnapshot.invalidate();
+
         // create a merged list for processing all listeners
         List<OnActiveSubscriptionChangedListener> listeners =
                 new ArrayList<OnActiveSubscriptionChangedListener>(mPendingNotifyListeners);
@@ -246,6 +249,7 @@ public class ProxySubscriptionManager implements LifecycleObserver {
      */
     public void clearCache() {
         mSubscriptionMonitor.clearCache();
+        SubscriptionSnapshot.invalidate();
     }
 
     /**
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.android.internal.util.CollectionUtils.emptyIfNull;
+
+import android.content.Context;
+import android.os.LocaleList;
+import android.os.Looper;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.telephony.SubscriptionManager.OnSubscriptionsChangedListener;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the subscriptions shown to the user, shared by the
+ * {@link SubscriptionUtil} helpers until the next subscription change.
+ *
+ * <p>One snapshot is kept per process. It is dropped by the snapshot's own
+ * {@link OnSubscriptionsChangedListener} when the subscriptions change. The order of the
+ * subscription callbacks is not defined, so every {@link SubscriptionsChangeListener} also drops
+ * it before reporting the change to its client. Clients reading {@link SubscriptionUtil} from
+ * their callback then see the new subscriptions. It is also dropped when {@link #invalidate()}
+ * is called.
+ */
+final class SubscriptionSnapshot {
+
+    private static final Object sLock = new Object();
+
+    @GuardedBy("sLock")
+    private static SubscriptionSnapshot sSnapshot;
+    @GuardedBy("sLock")
+    private static int sGeneration;
+    @GuardedBy("sLock")
+    private static SubscriptionManager sListeningSubscriptionManager;
+    @GuardedBy("sLock")
+    private static OnSubscriptionsChangedListener sSubscriptionsChangedListener;
+
+    private final LocaleList mLocales;
+    private final List<SubscriptionInfo> mSelectableSubscriptions;
+    @GuardedBy("this")
+    private Map<Integer, CharSequence> mUniqueDisplayNames;
+
+    private SubscriptionSnapshot(LocaleList locales,
+            List<SubscriptionInfo> selectableSubscriptions) {
+        mLocales = locales;
+        mSelectableSubscriptions = (selectableSubscriptions == null)
+                ? null : Collections.unmodifiableList(selectableSubscriptions);
+    }
+
+    /**
+     * Returns the snapshot of the subscriptions, which is built if there is no valid one.
+     */
+    static SubscriptionSnapshot get(Context context) {
+        final SubscriptionManager subscriptionManager =
+                context.getSystemService(SubscriptionManager.class);
+        final LocaleList locales = context.getResources().getConfiguration().getLocales();
+        final boolean isListening;
+        final int generation;
+        synchronized (sLock) {
+            isListening = startListeningIfNeeded(context);
+            if (sSnapshot != null && sSnapshot.mLocales.equals(locales)) {
+                return sSnapshot;
+            }
+            generation = sGeneration;
+        }
+
+        final SubscriptionSnapshot snapshot = new SubscriptionSnapshot(locales,
+                SubscriptionUtil.buildSelectableSubscriptionInfoList(
+                        context, subscriptionManager));
+        synchronized (sLock) {
+            // Only keeps the snapshot if no change happened while building it.
+            if (isListening && generation == sGeneration) {
+                sSnapshot = snapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    /** Drops the snapshot, so the next request rebuilds it. */
+    static void invalidate() {
+        synchronized (sLock) {
+            sGeneration++;
+            sSnapshot = null;
+        }
+    }
+
+    @VisibleForTesting
+    static void resetForTesting() {
+        synchronized (sLock) {
+            invalidate();
+            if (sSubscriptionsChangedListener != null) {
+                sListeningSubscriptionManager.removeOnSubscriptionsChangedListener(
+                        sSubscriptionsChangedListener);
+                sListeningSubscriptionManager = null;
+                sSubscriptionsChangedListener = null;
+            }
+        }
+    }
+
+    @GuardedBy("sLock")
+    private static boolean startListeningIfNeeded(Context context) {
+        if (sSubscriptionsChangedListener != null) {
+            return true;
+        }
+        final Context appContext = context.getApplicationContext();
+        final SubscriptionManager subscriptionManager = (appContext == null)
+                ? null : appContext.getSystemService(SubscriptionManager.class);
+        if (subscriptionManager == null) {
+            // Snapshots can not be invalidated without the listener, so they are not kept.
+            return false;
+        }
+        sSubscriptionsChangedListener = new OnSubscriptionsChangedListener(Looper.getMainLooper()) {
+            @Override
+            public void onSubscriptionsChanged() {
+                invalidate();
+            }
+        };
+        sListeningSubscriptionManager = subscriptionManager;
+        subscriptionManager.addOnSubscriptionsChangedListener(
+                appContext.getMainExecutor(), sSubscriptionsChangedListener);
+        return true;
+    }
+
+    /**
+     * Returns the user selectable subscriptions, or null if the available subscriptions are
+     * unknown. The returned list is not modifiable.
+     */
+    List<SubscriptionInfo> getSelectableSubscriptionInfoList() {
+        return mSelectableSubscriptions;
+    }
+
+    /** Returns the unique display names of the subscriptions. The map is not modifiable. */
+    synchronized Map<Integer, CharSequence> getUniqueSubscriptionDisplayNames(Context context) {
+        if (mUniqueDisplayNames == null) {
+            mUniqueDisplayNames = Collections.unmodifiableMap(
+                    SubscriptionUtil.buildUniqueSubscriptionDisplayNames(
+                            context, emptyIfNull(mSelectableSubscriptions)));
+        }
+        return mUniqueDisplayNames;
+    }
+}
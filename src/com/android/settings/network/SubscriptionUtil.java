@@ -65,6 +65,7 @@ public class SubscriptionUtil {
     @VisibleForTesting
     public static void setAvailableSubscriptionsForTesting(List<SubscriptionInfo> results) {
         sAvailableResultsForTesting = results;
+        SubscriptionSnapshot.invalidate();
     }
 
     @VisibleForTesting
@@ -72,6 +73,12 @@ public class SubscriptionUtil {
         sActiveResultsForTesting = results;
     }
 
+    /** Drops the shared snapshot of the subscriptions and stops listening to their changes. */
+    @VisibleForTesting
+    public static void resetSubscriptionSnapshotForTesting() {
+        SubscriptionSnapshot.resetForTesting();
+    }
+
     public static List<SubscriptionInfo> getActiveSubscriptions(SubscriptionManager manager) {
         if (sActiveResultsForTesting != null) {
             return sActiveResultsForTesting;
@@ -113,7 +120,8 @@ public class SubscriptionUtil {
         if (sAvailableResultsForTesting != null) {
             return sAvailableResultsForTesting;
         }
-        return new ArrayList<>(emptyIfNull(getSelectableSubscriptionInfoList(context)));
+        return new ArrayList<>(emptyIfNull(
+                SubscriptionSnapshot.get(context).getSelectableSubscriptionInfoList()));
     }
 
     /**
@@ -254,6 +262,18 @@ public class SubscriptionUtil {
      */
     @VisibleForTesting
     public static Map<Integer, CharSequence> getUniqueSubscriptionDisplayNames(Context context) {
+        if (sAvailableResultsForTesting != null) {
+            return buildUniqueSubscriptionDisplayNames(context, sAvailableResultsForTesting);
+        }
+        return SubscriptionSnapshot.get(context).getUniqueSubscriptionDisplayNames(context);
+    }
+
+    /**
+     * Builds the mapping of subscription ids to unique display names for
+     * {@link #getUniqueSubscriptionDisplayNames(Context)}.
+     */
+    static Map<Integer, CharSequence> buildUniqueSubscriptionDisplayNames(Context context,
+            List<SubscriptionInfo> availableSubscriptions) {
         class DisplayInfo {
             public SubscriptionInfo subscriptionInfo;
             public CharSequence originalName;
@@ -262,7 +282,7 @@ public class SubscriptionUtil {
 
         // Map of SubscriptionId to DisplayName
         final Supplier<Stream<DisplayInfo>> originalInfos =
-                () -> getAvailableSubscriptions(context)
+                () -> availableSubscriptions
                 .stream()
                 .filter(i -> {
                     // Filter out null values.
@@ -346,7 +366,13 @@ public class SubscriptionUtil {
     @VisibleForTesting
     public static CharSequence getUniqueSubscriptionDisplayName(
             Integer subscriptionId, Context context) {
-        final Map<Integer, CharSequence> displayNames = getUniqueSubscriptionDisplayNames(context);
+        Map<Integer, CharSequence> displayNames = getUniqueSubscriptionDisplayNames(context);
+        if (!displayNames.containsKey(subscriptionId) && sAvailableResultsForTesting == null) {
+            // The shared snapshot may predate the subscription, so look it up without it.
+            displayNames = buildUniqueSubscriptionDisplayNames(context,
+                    emptyIfNull(buildSelectableSubscriptionInfoList(context,
+                            context.getSystemService(SubscriptionManager.class))));
+        }
         return displayNames.getOrDefault(subscriptionId, "");
     }
 
@@ -405,7 +431,17 @@ public class SubscriptionUtil {
      * @return list of user selectable subscriptions.
      */
     public static List<SubscriptionInfo> getSelectableSubscriptionInfoList(Context context) {
-        SubscriptionManager subManager = context.getSystemService(SubscriptionManager.class);
+        final List<SubscriptionInfo> selectableList =
+                SubscriptionSnapshot.get(context).getSelectableSubscriptionInfoList();
+        return (selectableList == null) ? null : new ArrayList<>(selectableList);
+    }
+
+    /**
+     * Builds the list of user selectable subscriptions for
+     * {@link #getSelectableSubscriptionInfoList(Context)}.
+     */
+    static List<SubscriptionInfo> buildSelectableSubscriptionInfoList(Context context,
+            SubscriptionManager subManager) {
         List<SubscriptionInfo> availableList = subManager.getAvailableSubscriptionInfoList();
         if (availableList == null) {
             return null;
@@ -100,12 +100,15 @@ public class SubscriptionsChangeListener extends ContentObserver {
     }
 
     private void subscriptionsChangedCallback() {
+        // Drops the shared snapshot first, so the client does not read stale subscriptions.
+        SubscriptionSnapshot.invalidate();
         mClient.onSubscriptionsChanged();
     }
 
     @Override
     public void onChange(boolean selfChange, Uri uri) {
         if (uri.equals(mAirplaneModeSettingUri)) {
+            SubscriptionSnapshot.invalidate();
             mClient.onAirplaneModeChanged(isAirplaneModeOn());
         }
     }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide executor for the background work of the network and telephony pages, e.g. network
+ * scans, so those pages do not own a thread pool each.
+ *
+ * <p>IMS queries block for up to two seconds each and run on their own instance from
+ * {@link #getImsInstance()}, so they and long synchronous network scans do not starve each other.
+ *
+ * <p>Clients which need their tasks run in order, or cancelled together when their page goes
+ * away, use a {@link SerialTaskGroup} from {@link #newSerialTaskGroup()}.
+ *
+ * <p>The executor keeps the queue depth and the time tasks spend waiting and running, which are
+ * reported by {@link com.android.settings.SettingsDumpService}.
+ */
+public final class TelephonyTaskExecutor implements Executor {
+
+    private static final int POOL_SIZE = 4;
+    private static final int IMS_POOL_SIZE = 2;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile TelephonyTaskExecutor sInstance;
+    private static volatile TelephonyTaskExecutor sImsInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+    private final AtomicLong mTaskCount = new AtomicLong();
+    private final AtomicLong mTotalWaitLatencyMs = new AtomicLong();
+    private final AtomicLong mMaxWaitLatencyMs = new AtomicLong();
+    private final AtomicLong mTotalRunLatencyMs = new AtomicLong();
+    private final AtomicLong mMaxRunLatencyMs = new AtomicLong();
+
+    /** Returns the process-wide instance. */
+    public static TelephonyTaskExecutor getInstance() {
+        if (sInstance == null) {
+            synchronized (TelephonyTaskExecutor.class) {
+                if (sInstance == null) {
+                    sInstance = new TelephonyTaskExecutor("TelephonyTaskExecutor", POOL_SIZE);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /** Returns the process-wide instance for IMS queries. */
+    public static TelephonyTaskExecutor getImsInstance() {
+        if (sImsInstance == null) {
+            synchronized (TelephonyTaskExecutor.class) {
+                if (sImsInstance == null) {
+                    sImsInstance = new TelephonyTaskExecutor("ImsTaskExecutor", IMS_POOL_SIZE);
+                }
+            }
+        }
+        return sImsInstance;
+    }
+
+    @VisibleForTesting
+    TelephonyTaskExecutor(String name, int poolSize) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, name + "-" + threadCount.incrementAndGet());
+        mExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        final long enqueueTime = SystemClock.elapsedRealtime();
+        updateMax(mMaxQueueDepth, mQueueDepth.incrementAndGet());
+        mExecutor.execute(() -> {
+            final long startTime = SystemClock.elapsedRealtime();
+            mQueueDepth.decrementAndGet();
+            try {
+                task.run();
+            } finally {
+                final long waitLatency = startTime - enqueueTime;
+                final long runLatency = SystemClock.elapsedRealtime() - startTime;
+                mTaskCount.incrementAndGet();
+                mTotalWaitLatencyMs.addAndGet(waitLatency);
+                updateMax(mMaxWaitLatencyMs, waitLatency);
+                mTotalRunLatencyMs.addAndGet(runLatency);
+                updateMax(mMaxRunLatencyMs, runLatency);
+            }
+        });
+    }
+
+    /** Returns a new {@link SerialTaskGroup} running on this executor. */
+    public SerialTaskGroup newSerialTaskGroup() {
+        return new SerialTaskGroup(this);
+    }
+
+    /** Returns the number of tasks waiting to run. */
+    public int getQueueDepth() {
+        return mQueueDepth.get();
+    }
+
+    /** Returns the largest number of tasks which have been waiting to run at the same time. */
+    public int getMaxQueueDepth() {
+        return mMaxQueueDepth.get();
+    }
+
+    /** Returns the number of completed tasks. */
+    public long getTaskCount() {
+        return mTaskCount.get();
+    }
+
+    /** Returns the total time in milliseconds the completed tasks waited to run. */
+    public long getTotalWaitLatencyMs() {
+        return mTotalWaitLatencyMs.get();
+    }
+
+    /** Returns the longest time in milliseconds a task waited to run. */
+    public long getMaxWaitLatencyMs() {
+        return mMaxWaitLatencyMs.get();
+    }
+
+    /** Returns the total run time in milliseconds of the completed tasks. */
+    public long getTotalRunLatencyMs() {
+        return mTotalRunLatencyMs.get();
+    }
+
+    /** Returns the longest run time in milliseconds of a task. */
+    public long getMaxRunLatencyMs() {
+        return mMaxRunLatencyMs.get();
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * {@link Executor} which runs its tasks one at a time and in order on a shared executor.
+     * Tasks which have not started yet are dropped by {@link #cancel()}, so an owner tied to a
+     * lifecycle cancels the group when it is destroyed.
+     */
+    public static final class SerialTaskGroup implements Executor {
+        private final Executor mExecutor;
+
+        @GuardedBy("this")
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+        @GuardedBy("this")
+        private boolean mIsRunning;
+        @GuardedBy("this")
+        private boolean mIsCancelled;
+
+        @VisibleForTesting
+        SerialTaskGroup(Executor executor) {
+            mExecutor = executor;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            if (mIsCancelled) {
+                return;
+            }
+            mTasks.offer(task);
+            if (!mIsRunning) {
+                scheduleNext();
+            }
+        }
+
+        /** Drops the pending tasks and the tasks executed later. */
+        public synchronized void cancel() {
+            mIsCancelled = true;
+            mTasks.clear();
+        }
+
+        /** Returns whether the group is cancelled. */
+        public synchronized boolean isCancelled() {
+            return mIsCancelled;
+        }
+
+        @GuardedBy("this")
+        private void scheduleNext() {
+            final Runnable task = mTasks.poll();
+            mIsRunning = (task != null);
+            if (task == null) {
+                return;
+            }
+            mExecutor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    synchronized (SerialTaskGroup.this) {
+                        scheduleNext();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Decides how long the Wi-Fi list updates of {@link NetworkProviderSettings} are coalesced.
+ *
+ * <p>The delay grows with the rate of the {@link com.android.wifitrackerlib.WifiEntry} changes,
+ * so a busy radio environment does not rebuild the list more often than the user can read it.
+ * While the list is scrolled, the updates are held back until the scroll stops, up to
+ * {@link #MAX_SCROLLING_DEFER_MILLIS}.
+ */
+class WifiEntryUpdateScheduler {
+
+    @VisibleForTesting
+    static final long MIN_DELAY_MILLIS = 300;
+    @VisibleForTesting
+    static final long MAX_DELAY_MILLIS = 2000;
+    @VisibleForTesting
+    static final long MAX_SCROLLING_DEFER_MILLIS = 5000;
+    // Changes arriving slower than this are applied after the minimal delay.
+    private static final long QUIET_INTERVAL_MILLIS = 1000;
+    // Weight of the latest interval in the moving average.
+    private static final double SMOOTHING_FACTOR = 0.25;
+
+    private double mAverageIntervalMillis = -1;
+    private long mLastRequestMillis = -1;
+    private long mFirstDeferredMillis = -1;
+    private boolean mIsScrolling;
+
+    private int mRequestCount;
+    private int mUpdateCount;
+
+    /**
+     * Records a change of the Wi-Fi entries.
+     *
+     * @param nowMillis current uptime in milliseconds
+     * @return the delay in milliseconds to apply the change, or -1 to hold it back until the
+     *         scroll stops
+     */
+    long onUpdateRequested(long nowMillis) {
+        mRequestCount++;
+        if (mLastRequestMillis >= 0) {
+            final long interval = nowMillis - mLastRequestMillis;
+            mAverageIntervalMillis = (mAverageIntervalMillis < 0) ? interval
+                    : mAverageIntervalMillis
+                            + (interval - mAverageIntervalMillis) * SMOOTHING_FACTOR;
+        }
+        mLastRequestMillis = nowMillis;
+
+        if (mIsScrolling) {
+            if (mFirstDeferredMillis < 0) {
+                mFirstDeferredMillis = nowMillis;
+            }
+            if (nowMillis - mFirstDeferredMillis < MAX_SCROLLING_DEFER_MILLIS) {
+                return -1;
+            }
+        }
+        return getDelayMillis();
+    }
+
+    /** Records that the Wi-Fi list has been updated. */
+    void onUpdated() {
+        mUpdateCount++;
+        mFirstDeferredMillis = -1;
+    }
+
+    /** Sets whether the user is scrolling the list. */
+    void setScrolling(boolean isScrolling) {
+        mIsScrolling = isScrolling;
+        if (!isScrolling) {
+            mFirstDeferredMillis = -1;
+        }
+    }
+
+    @VisibleForTesting
+    long getDelayMillis() {
+        if (mAverageIntervalMillis < 0 || mAverageIntervalMillis >= QUIET_INTERVAL_MILLIS) {
+            return MIN_DELAY_MILLIS;
+        }
+        final long delay = (long) (MIN_DELAY_MILLIS * QUIET_INTERVAL_MILLIS
+                / Math.max(mAverageIntervalMillis, 1));
+        return Math.min(delay, MAX_DELAY_MILLIS);
+    }
+
+    /** Returns the average interval in milliseconds between changes, or -1 if unknown. */
+    long getAverageIntervalMillis() {
+        return (long) mAverageIntervalMillis;
+    }
+
+    /** Returns the number of changes recorded. */
+    int getRequestCount() {
+        return mRequestCount;
+    }
+
+    /** Returns the number of list updates the changes have been coalesced into. */
+    int getUpdateCount() {
+        return mUpdateCount;
+    }
+}
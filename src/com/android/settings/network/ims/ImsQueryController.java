@@ -16,26 +16,29 @@
 
 package com.android.settings.network.ims;
 
+import android.content.Context;
 import android.telephony.AccessNetworkConstants;
 import android.telephony.SubscriptionManager;
 import android.telephony.ims.ImsException;
-import android.telephony.ims.ImsMmTelManager;
 import android.telephony.ims.feature.ImsFeature;
 import android.telephony.ims.feature.MmTelFeature;
 import android.telephony.ims.stub.ImsRegistrationImplBase;
 
 import androidx.annotation.VisibleForTesting;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Controller class for querying IMS status
  */
 abstract class ImsQueryController {
 
-    private static final long TIMEOUT_MILLIS = 2000;
+    private static final long TIMEOUT_MILLIS = ImsQueryService.TIMEOUT_MILLIS;
 
+    private final Context mContext;
     private volatile int mCapability;
     private volatile int mTech;
     private volatile int mTransportType;
@@ -43,14 +46,16 @@ abstract class ImsQueryController {
     /**
      * Constructor for query IMS status
      *
+     * @param context {@link Context}
      * @param capability {@link MmTelFeature.MmTelCapabilities#MmTelCapability}
      * @param tech {@link ImsRegistrationImplBase#ImsRegistrationTech}
      * @param transportType {@link AccessNetworkConstants#TransportType}
      */
-    ImsQueryController(
+    ImsQueryController(Context context,
             @MmTelFeature.MmTelCapabilities.MmTelCapability int capability,
             @ImsRegistrationImplBase.ImsRegistrationTech int tech,
             @AccessNetworkConstants.TransportType int transportType) {
+        mContext = context;
         mCapability = capability;
         mTech = tech;
         mTransportType = transportType;
@@ -69,16 +74,10 @@ abstract class ImsQueryController {
         if (!SubscriptionManager.isValidSubscriptionId(subId)) {
             return false;
         }
-
-        final ImsMmTelManager imsMmTelManager = ImsMmTelManager.createForSubscriptionId(subId);
-        // TODO: have a shared thread pool instead of create ExecutorService
-        //       everytime to improve performance.
-        final ExecutorService executor = Executors.newSingleThreadExecutor();
-        final BooleanConsumer booleanResult = new BooleanConsumer();
-        imsMmTelManager.isSupported(mCapability, mTransportType, executor, booleanResult);
-        // get() will be blocked until end of execution(isSupported()) within thread(executor)
+        // get() will be blocked until the shared query completes
         // or timeout after TIMEOUT_MILLIS milliseconds
-        return booleanResult.get(TIMEOUT_MILLIS);
+        return getResult(ImsQueryService.getInstance(mContext)
+                .isSupported(subId, mCapability, mTransportType), false);
     }
 
     @VisibleForTesting
@@ -95,13 +94,26 @@ abstract class ImsQueryController {
         if (!SubscriptionManager.isValidSubscriptionId(subId)) {
             return false;
         }
+        return getResult(ImsQueryService.getInstance(mContext).getFeatureState(subId),
+                ImsFeature.STATE_UNAVAILABLE) == ImsFeature.STATE_READY;
+    }
 
-        final ImsMmTelManager imsMmTelManager = ImsMmTelManager.createForSubscriptionId(subId);
-        // TODO: have a shared thread pool instead of create ExecutorService
-        //       everytime to improve performance.
-        final ExecutorService executor = Executors.newSingleThreadExecutor();
-        final IntegerConsumer intResult = new IntegerConsumer();
-        imsMmTelManager.getFeatureState(executor, intResult);
-        return (intResult.get(TIMEOUT_MILLIS) == ImsFeature.STATE_READY);
+    private static <T> T getResult(CompletableFuture<T> future, T defaultValue)
+            throws InterruptedException, ImsException, IllegalArgumentException {
+        try {
+            return future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            return defaultValue;
+        } catch (ExecutionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof ImsException) {
+                throw (ImsException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            // Timeout of the shared query
+            return defaultValue;
+        }
     }
 }
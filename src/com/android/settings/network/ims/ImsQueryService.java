@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.ims;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.SystemClock;
+import android.telephony.AccessNetworkConstants;
+import android.telephony.CarrierConfigManager;
+import android.telephony.SubscriptionManager;
+import android.telephony.ims.ImsException;
+import android.telephony.ims.ImsMmTelManager;
+import android.telephony.ims.ImsReasonInfo;
+import android.telephony.ims.feature.ImsFeature;
+import android.telephony.ims.feature.MmTelFeature;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.network.TelephonyTaskExecutor;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Shared engine for the asynchronous IMS queries of {@link ImsQueryController}.
+ *
+ * <p>Queries run on the IMS instance of {@link TelephonyTaskExecutor}. Results are cached per
+ * subscription, capability and transport type, and concurrent callers of the same query share
+ * the in-flight request. The cached results of a subscription are dropped when its IMS
+ * registration, MmTel capabilities or carrier config change. The IMS callbacks of a
+ * subscription are unregistered once it is no longer active.
+ */
+public final class ImsQueryService {
+
+    private static final String LOG_TAG = "ImsQueryService";
+
+    static final long TIMEOUT_MILLIS = 2000;
+
+    // Delay before retrying to register the IMS callbacks of a subscription after a failure,
+    // doubled on each consecutive failure.
+    @VisibleForTesting
+    static final long REGISTRATION_RETRY_MIN_MILLIS = 1000;
+    @VisibleForTesting
+    static final long REGISTRATION_RETRY_MAX_MILLIS = 60000;
+
+    private static final int QUERY_SUPPORTED = 0;
+    private static final int QUERY_FEATURE_STATE = 1;
+
+    private static volatile ImsQueryService sInstance;
+
+    private final Context mContext;
+    private final Executor mExecutor;
+    private final IntFunction<ImsMmTelManager> mImsMmTelManagerFactory;
+    private final long mTimeoutMillis;
+    private final Map<QueryKey, CompletableFuture<?>> mResults = new ConcurrentHashMap<>();
+    @GuardedBy("mStateCallbacks")
+    private final SparseArray<ImsStateCallback> mStateCallbacks = new SparseArray<>();
+    @GuardedBy("mStateCallbacks")
+    private final SparseArray<RegistrationRetry> mRegistrationRetries = new SparseArray<>();
+
+    @VisibleForTesting
+    final BroadcastReceiver mCarrierConfigReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final int subId = intent.getIntExtra(CarrierConfigManager.EXTRA_SUBSCRIPTION_INDEX,
+                    SubscriptionManager.INVALID_SUBSCRIPTION_ID);
+            if (SubscriptionManager.isValidSubscriptionId(subId)) {
+                invalidate(subId);
+            } else {
+                mResults.clear();
+            }
+        }
+    };
+
+    @VisibleForTesting
+    final SubscriptionManager.OnSubscriptionsChangedListener mSubscriptionsChangedListener =
+            new SubscriptionManager.OnSubscriptionsChangedListener() {
+        @Override
+        public void onSubscriptionsChanged() {
+            releaseInactiveSubscriptions();
+        }
+    };
+
+    /** Returns the process-wide instance. */
+    public static ImsQueryService getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (ImsQueryService.class) {
+                if (sInstance == null) {
+                    sInstance = new ImsQueryService(context.getApplicationContext(),
+                            TelephonyTaskExecutor.getImsInstance(),
+                            ImsMmTelManager::createForSubscriptionId, TIMEOUT_MILLIS);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ImsQueryService(Context context, Executor executor,
+            IntFunction<ImsMmTelManager> imsMmTelManagerFactory, long timeoutMillis) {
+        mContext = context;
+        mExecutor = executor;
+        mImsMmTelManagerFactory = imsMmTelManagerFactory;
+        mTimeoutMillis = timeoutMillis;
+        mContext.registerReceiver(mCarrierConfigReceiver,
+                new IntentFilter(CarrierConfigManager.ACTION_CARRIER_CONFIG_CHANGED),
+                Context.RECEIVER_EXPORTED_UNAUDITED);
+        mContext.getSystemService(SubscriptionManager.class).addOnSubscriptionsChangedListener(
+                mContext.getMainExecutor(), mSubscriptionsChangedListener);
+    }
+
+    /**
+     * Query whether the MmTel capability is supported by the platform on the transport type.
+     *
+     * @param subId subscription's id
+     * @param capability {@link MmTelFeature.MmTelCapabilities#MmTelCapability}
+     * @param transportType {@link AccessNetworkConstants#TransportType}
+     * @return future of the result, which completes exceptionally with {@link ImsException} or
+     *         {@link java.util.concurrent.TimeoutException} when the query fails.
+     */
+    public CompletableFuture<Boolean> isSupported(int subId,
+            @MmTelFeature.MmTelCapabilities.MmTelCapability int capability,
+            @AccessNetworkConstants.TransportType int transportType) {
+        return query(new QueryKey(QUERY_SUPPORTED, subId, capability, transportType),
+                future -> mImsMmTelManagerFactory.apply(subId).isSupported(
+                        capability, transportType, Runnable::run,
+                        value -> future.complete((value != null) && value)));
+    }
+
+    /**
+     * Query the state of the MmTel feature.
+     *
+     * @param subId subscription's id
+     * @return future of {@link ImsFeature#ImsState}, which completes exceptionally with
+     *         {@link ImsException} or {@link java.util.concurrent.TimeoutException} when the
+     *         query fails.
+     */
+    public CompletableFuture<Integer> getFeatureState(int subId) {
+        return query(new QueryKey(QUERY_FEATURE_STATE, subId, 0, 0),
+                future -> mImsMmTelManagerFactory.apply(subId).getFeatureState(
+                        Runnable::run,
+                        value -> future.complete(
+                                (value != null) ? value : ImsFeature.STATE_UNAVAILABLE)));
+    }
+
+    /** Drops the cached results of the subscription. */
+    public void invalidate(int subId) {
+        mResults.keySet().removeIf(key -> key.mSubId == subId);
+    }
+
+    private <T> CompletableFuture<T> query(QueryKey key, Query<T> query) {
+        if (!SubscriptionManager.isValidSubscriptionId(key.mSubId)) {
+            final CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(
+                    new IllegalArgumentException("Invalid subscription ID: " + key.mSubId));
+            return future;
+        }
+
+        // Results are only cached when they can be invalidated by the IMS state changes.
+        final boolean cacheable = registerStateCallbackIfNeeded(key.mSubId);
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        if (cacheable) {
+            @SuppressWarnings("unchecked")
+            final CompletableFuture<T> cachedFuture =
+                    (CompletableFuture<T>) mResults.putIfAbsent(key, future);
+            if (cachedFuture != null) {
+                return cachedFuture;
+            }
+            future.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    // Failures are not cached and retried by the next query.
+                    mResults.remove(key, future);
+                }
+            });
+        }
+        future.orTimeout(mTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        mExecutor.execute(() -> {
+            try {
+                query.run(future);
+            } catch (ImsException | RuntimeException exception) {
+                future.completeExceptionally(exception);
+            }
+        });
+        return future;
+    }
+
+    private boolean registerStateCallbackIfNeeded(int subId) {
+        synchronized (mStateCallbacks) {
+            if (mStateCallbacks.get(subId) != null) {
+                return true;
+            }
+            final RegistrationRetry retry = mRegistrationRetries.get(subId);
+            final long now = SystemClock.elapsedRealtime();
+            if ((retry != null) && (now < retry.mNextAttemptTime)) {
+                return false;
+            }
+            final ImsStateCallback callback = new ImsStateCallback(subId);
+            final ImsMmTelManager imsMmTelManager = mImsMmTelManagerFactory.apply(subId);
+            try {
+                imsMmTelManager.registerImsRegistrationCallback(Runnable::run,
+                        callback.mRegistrationCallback);
+            } catch (ImsException | RuntimeException exception) {
+                Log.w(LOG_TAG, "fail to register IMS status for subId=" + subId, exception);
+                onRegistrationFailedLocked(subId, retry, now);
+                return false;
+            }
+            try {
+                imsMmTelManager.registerMmTelCapabilityCallback(Runnable::run,
+                        callback.mCapabilityCallback);
+            } catch (ImsException | RuntimeException exception) {
+                Log.w(LOG_TAG, "fail to register capability for subId=" + subId, exception);
+                imsMmTelManager.unregisterImsRegistrationCallback(callback.mRegistrationCallback);
+                onRegistrationFailedLocked(subId, retry, now);
+                return false;
+            }
+            mStateCallbacks.put(subId, callback);
+            mRegistrationRetries.remove(subId);
+            return true;
+        }
+    }
+
+    @GuardedBy("mStateCallbacks")
+    private void onRegistrationFailedLocked(int subId, RegistrationRetry retry, long now) {
+        final long delay = (retry == null) ? REGISTRATION_RETRY_MIN_MILLIS
+                : Math.min(retry.mDelay * 2, REGISTRATION_RETRY_MAX_MILLIS);
+        mRegistrationRetries.put(subId, new RegistrationRetry(delay, now + delay));
+    }
+
+    /** Unregisters the IMS callbacks and drops the cached results of inactive subscriptions. */
+    @VisibleForTesting
+    void releaseInactiveSubscriptions() {
+        final SubscriptionManager subscriptionManager =
+                mContext.getSystemService(SubscriptionManager.class);
+        synchronized (mStateCallbacks) {
+            for (int i = mStateCallbacks.size() - 1; i >= 0; i--) {
+                final int subId = mStateCallbacks.keyAt(i);
+                if (subscriptionManager.getActiveSubscriptionInfo(subId) != null) {
+                    continue;
+                }
+                final ImsStateCallback callback = mStateCallbacks.valueAt(i);
+                mStateCallbacks.removeAt(i);
+                final ImsMmTelManager imsMmTelManager = mImsMmTelManagerFactory.apply(subId);
+                try {
+                    imsMmTelManager.unregisterImsRegistrationCallback(
+                            callback.mRegistrationCallback);
+                    imsMmTelManager.unregisterMmTelCapabilityCallback(
+                            callback.mCapabilityCallback);
+                } catch (RuntimeException exception) {
+                    Log.w(LOG_TAG, "fail to unregister IMS callbacks for subId=" + subId,
+                            exception);
+                }
+                invalidate(subId);
+            }
+            for (int i = mRegistrationRetries.size() - 1; i >= 0; i--) {
+                if (subscriptionManager.getActiveSubscriptionInfo(mRegistrationRetries.keyAt(i))
+                        == null) {
+                    mRegistrationRetries.removeAt(i);
+                }
+            }
+        }
+    }
+
+    /** Returns whether the IMS callbacks of the subscription are registered. */
+    @VisibleForTesting
+    boolean isListening(int subId) {
+        synchronized (mStateCallbacks) {
+            return mStateCallbacks.get(subId) != null;
+        }
+    }
+
+    private interface Query<T> {
+        void run(CompletableFuture<T> future) throws ImsException;
+    }
+
+    /** Drops the cached results of a subscription when its IMS state changes. */
+    private final class ImsStateCallback {
+        private final int mSubId;
+
+        private final ImsMmTelManager.RegistrationCallback mRegistrationCallback =
+                new ImsMmTelManager.RegistrationCallback() {
+            @Override
+            public void onRegistered(int imsTransportType) {
+                invalidate(mSubId);
+            }
+
+            @Override
+            public void onUnregistered(ImsReasonInfo info) {
+                invalidate(mSubId);
+            }
+
+            @Override
+            public void onTechnologyChangeFailed(int imsTransportType, ImsReasonInfo info) {
+                invalidate(mSubId);
+            }
+        };
+
+        private final ImsMmTelManager.CapabilityCallback mCapabilityCallback =
+                new ImsMmTelManager.CapabilityCallback() {
+            @Override
+            public void onCapabilitiesStatusChanged(MmTelFeature.MmTelCapabilities capabilities) {
+                invalidate(mSubId);
+            }
+        };
+
+        ImsStateCallback(int subId) {
+            mSubId = subId;
+        }
+    }
+
+    private static final class RegistrationRetry {
+        private final long mDelay;
+        private final long mNextAttemptTime;
+
+        RegistrationRetry(long delay, long nextAttemptTime) {
+            mDelay = delay;
+            mNextAttemptTime = nextAttemptTime;
+        }
+    }
+
+    private static final class QueryKey {
+        private final int mQuery;
+        private final int mSubId;
+        private final int mCapability;
+        private final int mTransportType;
+
+        QueryKey(int query, int subId, int capability, int transportType) {
+            mQuery = query;
+            mSubId = subId;
+            mCapability = capability;
+            mTransportType = transportType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof QueryKey)) {
+                return false;
+            }
+            final QueryKey other = (QueryKey) o;
+            return mQuery == other.mQuery
+                    && mSubId == other.mSubId
+                    && mCapability == other.mCapability
+                    && mTransportType == other.mTransportType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mQuery, mSubId, mCapability, mTransportType);
+        }
+    }
+}
@@ -45,16 +45,14 @@ import androidx.preference.PreferenceCategory;
 import com.android.internal.telephony.OperatorInfo;
 import com.android.settings.R;
 import com.android.settings.dashboard.DashboardFragment;
+import com.android.settings.network.TelephonyTaskExecutor;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * "Choose network" settings UI for the Settings app.
@@ -84,7 +82,9 @@ public class NetworkSelectSettings extends DashboardFragment {
     private List<String> mForbiddenPlmns;
     private boolean mShow4GForLTE = false;
     private NetworkScanHelper mNetworkScanHelper;
-    private final ExecutorService mNetworkScanExecutor = Executors.newFixedThreadPool(1);
+    // Runs the scan and delivers its results in order, cancelled when the page is destroyed.
+    private final TelephonyTaskExecutor.SerialTaskGroup mNetworkScanExecutor =
+            TelephonyTaskExecutor.getInstance().newSerialTaskGroup();
     private MetricsFeatureProvider mMetricsFeatureProvider;
     private boolean mUseNewApi;
     private long mRequestIdManualNetworkSelect;
@@ -259,7 +259,8 @@ public class NetworkSelectSettings extends DashboardFragment {
             mRequestIdManualNetworkSelect = getNewRequestId();
             mWaitingForNumberOfScanResults = MIN_NUMBER_OF_SCAN_REQUIRED;
             final OperatorInfo operator = mSelectedPreference.getOperatorInfo();
-            ThreadUtils.postOnBackgroundThread(() -> {
+            // Not queued behind the scan, which may keep running until it completes.
+            TelephonyTaskExecutor.getInstance().execute(() -> {
                 final Message msg = mHandler.obtainMessage(
                         EVENT_SET_NETWORK_SELECTION_MANUALLY_DONE);
                 msg.obj = mTelephonyManager.setNetworkSelectionModeManual(
@@ -617,7 +618,7 @@ public class NetworkSelectSettings extends DashboardFragment {
     @Override
     public void onDestroy() {
         stopNetworkQuery();
-        mNetworkScanExecutor.shutdown();
+        mNetworkScanExecutor.cancel();
         super.onDestroy();
     }
 }
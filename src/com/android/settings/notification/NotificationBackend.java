@@ -55,8 +55,10 @@ import android.provider.Settings;
 import android.service.notification.ConversationChannelWrapper;
 import android.service.notification.NotificationListenerFilter;
 import android.text.format.DateUtils;
+import android.util.ArrayMap;
 import android.util.IconDrawableFactory;
 import android.util.Log;
+import android.util.SparseArray;
 
 import androidx.annotation.VisibleForTesting;
 
@@ -82,6 +84,9 @@ public class NotificationBackend {
     static IUsageStatsManager sUsageStatsManager = IUsageStatsManager.Stub.asInterface(
             ServiceManager.getService(Context.USAGE_STATS_SERVICE));
     private static final int DAYS_TO_CHECK = 7;
+    private static final int NOTIFICATION_PERMISSION_NOT_REQUESTED = 0;
+    private static final int NOTIFICATION_PERMISSION_GRANTED = 1;
+    private static final int NOTIFICATION_PERMISSION_DENIED = 2;
     static INotificationManager sINM = INotificationManager.Stub.asInterface(
             ServiceManager.getService(Context.NOTIFICATION_SERVICE));
 
@@ -122,15 +127,18 @@ public class NotificationBackend {
 
         // if the app targets T but has not requested the permission, we cannot change the
         // permission state
-        if (app.applicationInfo.targetSdkVersion > Build.VERSION_CODES.S_V2) {
-            if (app.requestedPermissions == null || Arrays.stream(app.requestedPermissions)
-                    .noneMatch(p -> p.equals(android.Manifest.permission.POST_NOTIFICATIONS))) {
-                row.lockedImportance = true;
-                row.permissionStateLocked = true;
-            }
+        if (isPermissionStateLocked(app)) {
+            row.lockedImportance = true;
+            row.permissionStateLocked = true;
         }
     }
 
+    private static boolean isPermissionStateLocked(PackageInfo app) {
+        return app.applicationInfo.targetSdkVersion > Build.VERSION_CODES.S_V2
+                && (app.requestedPermissions == null || Arrays.stream(app.requestedPermissions)
+                        .noneMatch(p -> p.equals(android.Manifest.permission.POST_NOTIFICATIONS)));
+    }
+
     static public CharSequence getDeviceList(ICompanionDeviceManager cdm, LocalBluetoothManager lbm,
             String pkg, int userId) {
         boolean multiple = false;
@@ -166,16 +174,81 @@ public class NotificationBackend {
         try {
             PackageInfo info = context.getPackageManager().getPackageInfo(
                     app.packageName, PackageManager.GET_PERMISSIONS);
-            final AppRow row = new AppRow();
-            recordCanBeBlocked(info, row);
-            boolean systemBlockable = !row.systemApp || (row.systemApp && row.banned);
-            return systemBlockable && !row.lockedImportance;
+            return canBeBlocked(info);
         } catch (PackageManager.NameNotFoundException e) {
             e.printStackTrace();
         }
         return false;
     }
 
+    private boolean canBeBlocked(PackageInfo info) {
+        final AppRow row = new AppRow();
+        recordCanBeBlocked(info, row);
+        boolean systemBlockable = !row.systemApp || (row.systemApp && row.banned);
+        return systemBlockable && !row.lockedImportance;
+    }
+
+    /**
+     * Returns the {@link BlockState} of each of the {@code apps}, in the same order. The package
+     * info, with the grant state of the notification permission, is fetched once per user instead
+     * of once per app as {@link #enableSwitch} does. NotificationManager is then only asked for
+     * the importance lock of the apps whose permission state is not locked already, and for the
+     * apps missing from the package info.
+     */
+    public List<BlockState> getBlockStates(Context context, List<ApplicationInfo> apps) {
+        final SparseArray<Map<String, PackageInfo>> packagesByUser = new SparseArray<>();
+        final List<BlockState> states = new ArrayList<>(apps.size());
+        for (ApplicationInfo app : apps) {
+            final int userId = UserHandle.getUserId(app.uid);
+            Map<String, PackageInfo> packages = packagesByUser.get(userId);
+            if (packages == null) {
+                packages = new ArrayMap<>();
+                // GET_PERMISSIONS fills requestedPermissions and their grant flags, which tell
+                // whether the app is banned and whether it targets T without requesting
+                // POST_NOTIFICATIONS.
+                for (PackageInfo info : context.getPackageManager().getInstalledPackagesAsUser(
+                        PackageManager.GET_PERMISSIONS, userId)) {
+                    packages.put(info.packageName, info);
+                }
+                packagesByUser.put(userId, packages);
+            }
+            final PackageInfo info = packages.get(app.packageName);
+            if (info == null) {
+                states.add(new BlockState(getNotificationsBanned(app.packageName, app.uid),
+                        enableSwitch(context, app)));
+                continue;
+            }
+            final int grantState = getNotificationPermissionGrantState(info);
+            final boolean banned = grantState == NOTIFICATION_PERMISSION_NOT_REQUESTED
+                    ? getNotificationsBanned(app.packageName, app.uid)
+                    : grantState == NOTIFICATION_PERMISSION_DENIED;
+            // The importance lock is only queried if the permission state does not lock it.
+            final boolean blockable = !isPermissionStateLocked(info) && canBeBlocked(info);
+            states.add(new BlockState(banned, blockable));
+        }
+        return states;
+    }
+
+    /**
+     * Returns the grant state of the notification permission of the package, which is what
+     * NotificationManager checks for {@link #getNotificationsBanned}. Apps targeting S or lower
+     * request it implicitly.
+     */
+    private static int getNotificationPermissionGrantState(PackageInfo info) {
+        if (info.requestedPermissions == null || info.requestedPermissionsFlags == null) {
+            return NOTIFICATION_PERMISSION_NOT_REQUESTED;
+        }
+        for (int i = 0; i < info.requestedPermissions.length; i++) {
+            if (android.Manifest.permission.POST_NOTIFICATIONS.equals(
+                    info.requestedPermissions[i])) {
+                return (info.requestedPermissionsFlags[i]
+                        & PackageInfo.REQUESTED_PERMISSION_GRANTED) != 0
+                        ? NOTIFICATION_PERMISSION_GRANTED : NOTIFICATION_PERMISSION_DENIED;
+            }
+        }
+        return NOTIFICATION_PERMISSION_NOT_REQUESTED;
+    }
+
     public boolean getNotificationsBanned(String pkg, int uid) {
         try {
             final boolean enabled = sINM.areNotificationsEnabledForPackage(pkg, uid);
@@ -674,6 +747,17 @@ public class NotificationBackend {
         public String section;
     }
 
+    /** Whether the notifications of an app are blocked, and whether the user can change it. */
+    public static class BlockState {
+        public final boolean banned;
+        public final boolean blockable;
+
+        public BlockState(boolean banned, boolean blockable) {
+            this.banned = banned;
+            this.blockable = blockable;
+        }
+    }
+
     public static class AppRow extends Row {
         public String pkg;
         public int uid;
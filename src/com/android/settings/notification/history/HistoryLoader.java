@@ -21,9 +21,14 @@ import android.app.NotificationHistory.HistoricalNotification;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.util.Slog;
 
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.instrumentation.PageTimingRecorder;
 import com.android.settings.notification.NotificationBackend;
 import com.android.settingslib.utils.ThreadUtils;
 
@@ -32,12 +37,39 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
+/**
+ * Loads the notification history grouped by package, most recent first.
+ *
+ * <p>The packages are published in pages of {@link #PAGE_SIZE} with their labels resolved. The
+ * first page is published once the history is read, and the next ones when the user scrolls
+ * near the end of the shown packages, see {@link #loadNextPage()}. Icons are only resolved for
+ * the rows being bound, see {@link #loadIcon}.
+ */
 public class HistoryLoader {
     private static final String TAG = "HistoryLoader";
+    private static final String PAGE = "NotificationHistory";
+    /** From the start of the load until the first page is shown. */
+    private static final String PHASE_FIRST_PAGE = "first_page";
+
+    @VisibleForTesting
+    static final int PAGE_SIZE = 10;
+
+    @VisibleForTesting
+    Executor mBackgroundExecutor = ThreadUtils::postOnBackgroundThread;
+    @VisibleForTesting
+    Executor mMainExecutor = ThreadUtils::postOnMainThread;
+
     private final Context mContext;
     private final NotificationBackend mBackend;
     private final PackageManager mPm;
+    private volatile boolean mCancelled;
+    // The fields below are only used on the main thread.
+    private OnHistoryLoaderListener mListener;
+    private List<NotificationHistoryPackage> mPackages;
+    private int mNextOffset;
+    private boolean mLoadingPage;
 
     public HistoryLoader(Context context, NotificationBackend backend, PackageManager pm) {
         mContext = context;
@@ -45,55 +77,159 @@ public class HistoryLoader {
         mPm = pm;
     }
 
+    /** Reads the history in background, then publishes its first page. */
     public void load(OnHistoryLoaderListener listener) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        mListener = listener;
+        mLoadingPage = true;
+        final long startNanos = SystemClock.elapsedRealtimeNanos();
+        mBackgroundExecutor.execute(() -> {
             try {
-                Map<String, NotificationHistoryPackage> historicalNotifications = new HashMap<>();
-                NotificationHistory history =
-                        mBackend.getNotificationHistory(mContext.getPackageName(),
-                                mContext.getAttributionTag());
-                while (history.hasNextNotification()) {
-                    HistoricalNotification hn = history.getNextNotification();
-
-                    String key = hn.getPackage() + "|" + hn.getUid();
-                    NotificationHistoryPackage hnsForPackage = historicalNotifications.getOrDefault(
-                            key,
-                            new NotificationHistoryPackage(hn.getPackage(), hn.getUid()));
-                    hnsForPackage.notifications.add(hn);
-                    historicalNotifications.put(key, hnsForPackage);
-                }
-                List<NotificationHistoryPackage> packages =
-                        new ArrayList<>(historicalNotifications.values());
-                Collections.sort(packages,
-                        (o1, o2) -> -1 * Long.compare(o1.getMostRecent(), o2.getMostRecent()));
-                for (NotificationHistoryPackage nhp : packages) {
-                    ApplicationInfo info;
-                    try {
-                        info = mPm.getApplicationInfoAsUser(
-                                nhp.pkgName,
-                                PackageManager.MATCH_UNINSTALLED_PACKAGES
-                                        | PackageManager.MATCH_DISABLED_COMPONENTS
-                                        | PackageManager.MATCH_DIRECT_BOOT_UNAWARE
-                                        | PackageManager.MATCH_DIRECT_BOOT_AWARE,
-                                UserHandle.getUserId(nhp.uid));
-                        if (info != null) {
-                            nhp.label = String.valueOf(mPm.getApplicationLabel(info));
-                            nhp.icon = mPm.getUserBadgedIcon(mPm.getApplicationIcon(info),
-                                    UserHandle.of(UserHandle.getUserId(nhp.uid)));
-                        }
-                    } catch (PackageManager.NameNotFoundException e) {
-                        // app is gone, just show package name and generic icon
-                        nhp.icon = mPm.getDefaultActivityIcon();
+                final List<NotificationHistoryPackage> packages = loadPackages();
+                final List<NotificationHistoryPackage> page = loadPage(packages, 0);
+                mMainExecutor.execute(() -> {
+                    if (deliver(packages, page, 0)) {
+                        PageTimingRecorder.getInstance().record(PAGE, PHASE_FIRST_PAGE,
+                                SystemClock.elapsedRealtimeNanos() - startNanos);
                     }
-                }
-                ThreadUtils.postOnMainThread(() -> listener.onHistoryLoaded(packages));
+                });
             } catch (Exception e) {
                 Slog.e(TAG, "Error loading history", e);
             }
         });
     }
 
+    /**
+     * Publishes the next page of the history, e.g. when the user scrolls near the end of the
+     * shown packages. Does nothing while a page is being loaded or once every page is published.
+     */
+    public void loadNextPage() {
+        if (mCancelled || mLoadingPage || !hasMorePages()) {
+            return;
+        }
+        mLoadingPage = true;
+        final List<NotificationHistoryPackage> packages = mPackages;
+        final int offset = mNextOffset;
+        mBackgroundExecutor.execute(() -> {
+            final List<NotificationHistoryPackage> page = loadPage(packages, offset);
+            mMainExecutor.execute(() -> deliver(packages, page, offset));
+        });
+    }
+
+    /** Returns whether some pages of the loaded history are not published yet. */
+    public boolean hasMorePages() {
+        return mPackages != null && mNextOffset < mPackages.size();
+    }
+
+    /**
+     * Resolves the icon of the package in background, then runs {@code onLoaded} on the main
+     * thread with {@link NotificationHistoryPackage#icon} set. Runs it at once if the icon is
+     * already resolved.
+     */
+    public void loadIcon(NotificationHistoryPackage nhp, Runnable onLoaded) {
+        if (nhp.icon != null) {
+            onLoaded.run();
+            return;
+        }
+        mBackgroundExecutor.execute(() -> {
+            final Drawable icon = getIcon(nhp);
+            mMainExecutor.execute(() -> {
+                if (mCancelled) {
+                    return;
+                }
+                nhp.icon = icon;
+                onLoaded.run();
+            });
+        });
+    }
+
+    /** Stops publishing pages and icons, e.g. when the history is loaded again. */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    private List<NotificationHistoryPackage> loadPackages() {
+        Map<String, NotificationHistoryPackage> historicalNotifications = new HashMap<>();
+        NotificationHistory history =
+                mBackend.getNotificationHistory(mContext.getPackageName(),
+                        mContext.getAttributionTag());
+        int notificationCount = 0;
+        while (history.hasNextNotification()) {
+            HistoricalNotification hn = history.getNextNotification();
+
+            String key = hn.getPackage() + "|" + hn.getUid();
+            NotificationHistoryPackage hnsForPackage = historicalNotifications.get(key);
+            if (hnsForPackage == null) {
+                hnsForPackage = new NotificationHistoryPackage(hn.getPackage(), hn.getUid());
+                historicalNotifications.put(key, hnsForPackage);
+            }
+            hnsForPackage.notifications.add(hn);
+            notificationCount++;
+        }
+        List<NotificationHistoryPackage> packages =
+                new ArrayList<>(historicalNotifications.values());
+        Collections.sort(packages,
+                (o1, o2) -> -1 * Long.compare(o1.getMostRecent(), o2.getMostRecent()));
+        Slog.d(TAG, "Loaded " + notificationCount + " notifications of " + packages.size()
+                + " packages");
+        return packages;
+    }
+
+    private List<NotificationHistoryPackage> loadPage(List<NotificationHistoryPackage> packages,
+            int offset) {
+        final List<NotificationHistoryPackage> page = new ArrayList<>(packages.subList(
+                offset, Math.min(offset + PAGE_SIZE, packages.size())));
+        for (NotificationHistoryPackage nhp : page) {
+            final ApplicationInfo info = getApplicationInfo(nhp);
+            if (info != null) {
+                nhp.label = String.valueOf(mPm.getApplicationLabel(info));
+            }
+        }
+        return page;
+    }
+
+    private Drawable getIcon(NotificationHistoryPackage nhp) {
+        final ApplicationInfo info = getApplicationInfo(nhp);
+        if (info == null) {
+            // app is gone, just show package name and generic icon
+            return mPm.getDefaultActivityIcon();
+        }
+        return mPm.getUserBadgedIcon(mPm.getApplicationIcon(info),
+                UserHandle.of(UserHandle.getUserId(nhp.uid)));
+    }
+
+    private ApplicationInfo getApplicationInfo(NotificationHistoryPackage nhp) {
+        try {
+            return mPm.getApplicationInfoAsUser(
+                    nhp.pkgName,
+                    PackageManager.MATCH_UNINSTALLED_PACKAGES
+                            | PackageManager.MATCH_DISABLED_COMPONENTS
+                            | PackageManager.MATCH_DIRECT_BOOT_UNAWARE
+                            | PackageManager.MATCH_DIRECT_BOOT_AWARE,
+                    UserHandle.getUserId(nhp.uid));
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    /** Publishes the page unless the load is cancelled, and returns whether it did. */
+    private boolean deliver(List<NotificationHistoryPackage> packages,
+            List<NotificationHistoryPackage> page, int offset) {
+        if (mCancelled) {
+            return false;
+        }
+        mPackages = packages;
+        mNextOffset = offset + page.size();
+        mLoadingPage = false;
+        mListener.onHistoryLoaded(page, offset, hasMorePages());
+        return true;
+    }
+
     interface OnHistoryLoaderListener {
-        void onHistoryLoaded(List<NotificationHistoryPackage> notificationsByPackage);
+        /**
+         * Called on the main thread with the next page of the packages. The first page starts
+         * at {@code offset} 0, and the last one has no more pages after it.
+         */
+        void onHistoryLoaded(List<NotificationHistoryPackage> notificationsByPackage, int offset,
+                boolean hasMore);
     }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import android.util.ArrayMap;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Fixed-capacity ring buffer of notification events, newest first.
+ *
+ * <p>Adding an event to a full buffer evicts the oldest one. The newest event of each
+ * notification key is indexed, so that an update to a notification finds its entry without
+ * walking the buffer.
+ */
+final class NotificationEventBuffer<T> {
+
+    private final Object[] mEntries;
+    private final Function<T, String> mKeyFunction;
+    private final Map<String, T> mNewestByKey = new ArrayMap<>();
+    // Index in mEntries of the newest entry.
+    private int mHead;
+    private int mSize;
+
+    NotificationEventBuffer(int capacity, Function<T, String> keyFunction) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        mEntries = new Object[capacity];
+        mKeyFunction = keyFunction;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    boolean isFull() {
+        return mSize == mEntries.length;
+    }
+
+    /** Returns the entry at {@code index}, 0 being the newest. */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+        return (T) mEntries[(mHead + index) % mEntries.length];
+    }
+
+    /** Returns the newest entry with the key, or null. */
+    @Nullable
+    T getNewest(String key) {
+        return mNewestByKey.get(key);
+    }
+
+    /**
+     * Adds the entry as the newest one.
+     *
+     * @return the oldest entry if it was evicted to make room, or null
+     */
+    @Nullable
+    T addFirst(T entry) {
+        final T evicted = isFull() ? get(mSize - 1) : null;
+        if (evicted != null) {
+            removeFromIndex(evicted);
+            mSize--;
+        }
+        mHead = (mHead + mEntries.length - 1) % mEntries.length;
+        mEntries[mHead] = entry;
+        mSize++;
+        mNewestByKey.put(mKeyFunction.apply(entry), entry);
+        return evicted;
+    }
+
+    /**
+     * Adds the entry as the oldest one, used to fill the buffer with entries sorted newest first.
+     *
+     * @return false if the buffer is full and the entry was not added
+     */
+    boolean addLast(T entry) {
+        if (isFull()) {
+            return false;
+        }
+        mEntries[(mHead + mSize) % mEntries.length] = entry;
+        mSize++;
+        final String key = mKeyFunction.apply(entry);
+        if (!mNewestByKey.containsKey(key)) {
+            mNewestByKey.put(key, entry);
+        }
+        return true;
+    }
+
+    void clear() {
+        for (int i = 0; i < mEntries.length; i++) {
+            mEntries[i] = null;
+        }
+        mNewestByKey.clear();
+        mHead = 0;
+        mSize = 0;
+    }
+
+    private void removeFromIndex(T entry) {
+        final String key = mKeyFunction.apply(entry);
+        if (mNewestByKey.get(key) == entry) {
+            mNewestByKey.remove(key);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Outline;
+import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.RemoteException;
 import android.os.ServiceManager;
@@ -50,6 +51,7 @@ import android.view.ViewOutlineProvider;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.core.widget.NestedScrollView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -78,6 +80,7 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
     // in the notification service historical archive
     private static final int MAX_RECENT_DISMISS_ITEM_COUNT = 50;
 
+    private NestedScrollView mScrollView;
     private ViewGroup mHistoryOn;
     private ViewGroup mHistoryOff;
     private ViewGroup mHistoryEmpty;
@@ -153,15 +156,18 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         }
     }
 
-    private HistoryLoader.OnHistoryLoaderListener mOnHistoryLoaderListener = notifications -> {
-        findViewById(R.id.today_list).setVisibility(
-                notifications.isEmpty() ? View.GONE : View.VISIBLE);
-        mCountdownLatch.countDown();
-        View recyclerView = mTodayView.findViewById(R.id.apps);
-        recyclerView.setClipToOutline(true);
-        mTodayView.setOutlineProvider(mOutlineProvider);
-        mSnoozeView.setOutlineProvider(mOutlineProvider);
-        // for each package, new header and recycler view
+    private HistoryLoader.OnHistoryLoaderListener mOnHistoryLoaderListener =
+            (notifications, offset, hasMore) -> {
+        if (offset == 0) {
+            findViewById(R.id.today_list).setVisibility(
+                    notifications.isEmpty() ? View.GONE : View.VISIBLE);
+            mCountdownLatch.countDown();
+            View recyclerView = mTodayView.findViewById(R.id.apps);
+            recyclerView.setClipToOutline(true);
+            mTodayView.setOutlineProvider(mOutlineProvider);
+            mSnoozeView.setOutlineProvider(mOutlineProvider);
+        }
+        // for each package of the page, new header and recycler view
         for (int i = 0, notificationsSize = notifications.size(); i < notificationsSize; i++) {
             NotificationHistoryPackage nhp = notifications.get(i);
             View viewForPackage = LayoutInflater.from(this)
@@ -180,7 +186,7 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
             header.setStateDescription(container.getVisibility() == View.VISIBLE
                     ? getString(R.string.condition_expand_hide)
                     : getString(R.string.condition_expand_show));
-            int finalI = i;
+            int finalI = offset + i;
             header.setOnClickListener(v -> {
                 container.setVisibility(container.getVisibility() == View.VISIBLE
                         ? View.GONE : View.VISIBLE);
@@ -200,7 +206,8 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
             label.setContentDescription(mUm.getBadgedLabelForUser(label.getText(),
                     UserHandle.getUserHandleForUid(nhp.uid)));
             ImageView icon = viewForPackage.findViewById(R.id.icon);
-            icon.setImageDrawable(nhp.icon);
+            // Only the rows being bound resolve their icon.
+            mHistoryLoader.loadIcon(nhp, () -> icon.setImageDrawable(nhp.icon));
 
             TextView count = viewForPackage.findViewById(R.id.count);
             count.setText(getResources().getQuantityString(R.plurals.notification_history_count,
@@ -224,6 +231,23 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         }
     };
 
+    /**
+     * Loads the next page of the history when the end of the shown packages is less than a
+     * screen away, or already on screen.
+     */
+    private void loadNextPageIfNearEnd() {
+        if (mHistoryLoader == null || !mHistoryLoader.hasMorePages()) {
+            return;
+        }
+        final Rect todayBounds = new Rect();
+        mTodayView.getDrawingRect(todayBounds);
+        mScrollView.offsetDescendantRectToMyCoords(mTodayView, todayBounds);
+        final int viewportHeight = mScrollView.getHeight();
+        if (todayBounds.bottom - (mScrollView.getScrollY() + viewportHeight) < viewportHeight) {
+            mHistoryLoader.loadNextPage();
+        }
+    }
+
     private void configureNotificationList(View recyclerView) {
         recyclerView.setClipToOutline(true);
         recyclerView.setOutlineProvider(mOutlineProvider);
@@ -235,6 +259,11 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         setTitle(R.string.notification_history);
         setContentView(R.layout.notification_history);
         mTodayView = findViewById(R.id.apps);
+        mScrollView = findViewById(R.id.scroll);
+        mScrollView.setOnScrollChangeListener((NestedScrollView.OnScrollChangeListener)
+                (v, scrollX, scrollY, oldScrollX, oldScrollY) -> loadNextPageIfNearEnd());
+        // Also checked once the rows of a page are laid out, as they may not fill the screen.
+        mScrollView.getViewTreeObserver().addOnGlobalLayoutListener(this::loadNextPageIfNearEnd);
         mSnoozeView = findViewById(R.id.snoozed_list);
         mDismissView = findViewById(R.id.recently_dismissed_list);
         configureNotificationList(mDismissView.findViewById(R.id.notification_list));
@@ -262,6 +291,9 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         mCountdownLatch = new CountDownLatch(2);
 
         mTodayView.removeAllViews();
+        if (mHistoryLoader != null) {
+            mHistoryLoader.cancel();
+        }
         mHistoryLoader = new HistoryLoader(this, new NotificationBackend(), mPm);
         mHistoryLoader.load(mOnHistoryLoaderListener);
 
@@ -312,6 +344,9 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         if (mCountdownFuture != null) {
             mCountdownFuture.cancel(true);
         }
+        if (mHistoryLoader != null) {
+            mHistoryLoader.cancel();
+        }
         super.onDestroy();
     }
 
@@ -36,6 +36,8 @@ import android.graphics.PorterDuff;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.RemoteException;
 import android.os.ServiceManager;
@@ -50,12 +52,14 @@ import android.text.SpannableStringBuilder;
 import android.text.TextUtils;
 import android.text.style.StyleSpan;
 import android.util.Log;
+import android.util.Pair;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.DateTimeView;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceViewHolder;
 import androidx.recyclerview.widget.RecyclerView;
@@ -63,11 +67,13 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.Utils;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class NotificationStation extends SettingsPreferenceFragment {
     private static final String TAG = NotificationStation.class.getSimpleName();
@@ -75,8 +81,12 @@ public class NotificationStation extends SettingsPreferenceFragment {
     private static final boolean DEBUG = false;
     private static final boolean DUMP_EXTRAS = true;
     private static final boolean DUMP_PARCEL = true;
+    // Oldest entries are dropped beyond this, so that a storm of notifications can't grow the list
+    // without bound.
+    private static final int MAX_NOTIFICATIONS = 200;
 
-    private static class HistoricalNotificationInfo {
+    @VisibleForTesting
+    static class HistoricalNotificationInfo {
         public String key;
         public NotificationChannel channel;
         // Historical notifications don't have Ranking information. for most fields that's ok
@@ -108,7 +118,7 @@ public class NotificationStation extends SettingsPreferenceFragment {
             this.active = updatedInfo.active;
             this.alerted = updatedInfo.alerted;
             this.visuallyInterruptive = updatedInfo.visuallyInterruptive;
-            this.notificationExtra = updatedInfo.notificationExtra;
+            // notificationExtra is reloaded in the background, keep showing the old one meanwhile.
             this.rankingExtra = updatedInfo.rankingExtra;
         }
     }
@@ -116,7 +126,16 @@ public class NotificationStation extends SettingsPreferenceFragment {
     private PackageManager mPm;
     private INotificationManager mNoMan;
     private RankingMap mRanking;
-    private LinkedList<HistoricalNotificationInfo> mNotificationInfos;
+    private final NotificationEventBuffer<HistoricalNotificationPreference> mNotifications =
+            new NotificationEventBuffer<>(MAX_NOTIFICATIONS, p -> p.mInfo.key);
+    // Order of the next added preference, lower than all the others to be shown first.
+    private int mNextOrder;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mUpdateFromRanking = this::updateNotificationsFromRanking;
+    @VisibleForTesting
+    Executor mBackgroundExecutor = ThreadUtils::postOnBackgroundThread;
+    @VisibleForTesting
+    Executor mMainExecutor = ThreadUtils::postOnMainThread;
 
     private final NotificationListenerService mListener = new NotificationListenerService() {
         @Override
@@ -146,7 +165,9 @@ public class NotificationStation extends SettingsPreferenceFragment {
             logd("onNotificationRankingUpdate with update for %d",
                     ranking == null ? 0 : ranking.getOrderedKeys().length);
             mRanking = ranking;
-            updateNotificationsFromRanking();
+            // Ranking updates come with every post, refresh the list once for a burst of them.
+            mHandler.removeCallbacks(mUpdateFromRanking);
+            mHandler.post(mUpdateFromRanking);
         }
 
         @Override
@@ -160,8 +181,8 @@ public class NotificationStation extends SettingsPreferenceFragment {
 
     private Context mContext;
 
-    private final Comparator<HistoricalNotificationInfo> mNotificationSorter
-            = (lhs, rhs) -> Long.compare(rhs.timestamp, lhs.timestamp);
+    private final Comparator<Pair<StatusBarNotification, Boolean>> mNotificationSorter
+            = (lhs, rhs) -> Long.compare(rhs.first.getPostTime(), lhs.first.getPostTime());
 
     @Override
     public void onAttach(Activity activity) {
@@ -171,7 +192,6 @@ public class NotificationStation extends SettingsPreferenceFragment {
         mPm = mContext.getPackageManager();
         mNoMan = INotificationManager.Stub.asInterface(
                 ServiceManager.getService(Context.NOTIFICATION_SERVICE));
-        mNotificationInfos = new LinkedList<>();
     }
 
     @Override
@@ -182,6 +202,7 @@ public class NotificationStation extends SettingsPreferenceFragment {
 
     @Override
     public void onPause() {
+        mHandler.removeCallbacks(mUpdateFromRanking);
         try {
             mListener.unregisterAsSystemService();
         } catch (RemoteException e) {
@@ -220,32 +241,40 @@ public class NotificationStation extends SettingsPreferenceFragment {
      * Adds all current and historical notifications when the NLS connects.
      */
     private void populateNotifications() {
-        loadNotifications();
-        final int N = mNotificationInfos.size();
+        final List<Pair<StatusBarNotification, Boolean>> sbns = loadNotifications();
+        final int N = sbns.size();
         logd("adding %d infos", N);
         if (getPreferenceScreen() == null) {
             setPreferenceScreen(getPreferenceManager().createPreferenceScreen(getContext()));
         }
         getPreferenceScreen().removeAll();
+        mNotifications.clear();
+        mNextOrder = -1;
+        final List<Pair<StatusBarNotification, HistoricalNotificationPreference>> entries =
+                new ArrayList<>(N);
         for (int i = 0; i < N; i++) {
-            getPreferenceScreen().addPreference(new HistoricalNotificationPreference(
-                    getPrefContext(), mNotificationInfos.get(i), i));
-        }
+            final StatusBarNotification sbn = sbns.get(i).first;
+            final HistoricalNotificationInfo info = createFromSbn(sbn, sbns.get(i).second);
+            logd("   [%d] %s: %s", info.timestamp, info.pkg, info.title);
+            final HistoricalNotificationPreference pref =
+                    new HistoricalNotificationPreference(getPrefContext(), info, i);
+            mNotifications.addLast(pref);
+            getPreferenceScreen().addPreference(pref);
+            entries.add(Pair.create(sbn, pref));
+        }
+        loadNotificationExtras(entries);
     }
 
     /**
      * Finds and dims the given notification in the preferences list.
      */
     private void markNotificationAsDismissed(StatusBarNotification sbn) {
-        final int N = mNotificationInfos.size();
-        for (int i = 0; i < N; i++) {
-            final HistoricalNotificationInfo info = mNotificationInfos.get(i);
-            if (TextUtils.equals(info.key, sbn.getKey())) {
-                info.active = false;
-                ((HistoricalNotificationPreference) getPreferenceScreen().findPreference(
-                        sbn.getKey())).updatePreference(info);
-               break;
-            }
+        final HistoricalNotificationPreference pref = mNotifications.getNewest(sbn.getKey());
+        if (pref != null) {
+            pref.mInfo.active = false;
+            // Only active notifications are refreshed on ranking updates, refresh it a last time.
+            updateFromRanking(pref.mInfo);
+            pref.updatePreference(pref.mInfo);
         }
     }
 
@@ -255,43 +284,67 @@ public class NotificationStation extends SettingsPreferenceFragment {
      */
     private void addOrUpdateNotification(StatusBarNotification sbn) {
         HistoricalNotificationInfo newInfo = createFromSbn(sbn, true);
-        boolean needsAdd = true;
-        final int N = mNotificationInfos.size();
-        for (int i = 0; i < N; i++) {
-            final HistoricalNotificationInfo info = mNotificationInfos.get(i);
-            if (TextUtils.equals(info.key, sbn.getKey()) && info.active
-                    && !newInfo.alerted && !newInfo.visuallyInterruptive) {
-                info.updateFrom(newInfo);
-
-                ((HistoricalNotificationPreference) getPreferenceScreen().findPreference(
-                        sbn.getKey())).updatePreference(info);
-                needsAdd = false;
-                break;
-            }
+        final HistoricalNotificationPreference existing = mNotifications.getNewest(sbn.getKey());
+        if (existing != null && existing.mInfo.active
+                && !newInfo.alerted && !newInfo.visuallyInterruptive) {
+            existing.mInfo.updateFrom(newInfo);
+            existing.updatePreference(existing.mInfo);
+            loadNotificationExtras(Collections.singletonList(Pair.create(sbn, existing)));
+            return;
         }
-        if (needsAdd) {
-            mNotificationInfos.addFirst(newInfo);
-            getPreferenceScreen().addPreference(new HistoricalNotificationPreference(
-                    getPrefContext(), mNotificationInfos.peekFirst(),
-                    -1 * mNotificationInfos.size()));
+        final HistoricalNotificationPreference pref =
+                new HistoricalNotificationPreference(getPrefContext(), newInfo, mNextOrder--);
+        final HistoricalNotificationPreference evicted = mNotifications.addFirst(pref);
+        if (evicted != null) {
+            getPreferenceScreen().removePreference(evicted);
         }
+        getPreferenceScreen().addPreference(pref);
+        loadNotificationExtras(Collections.singletonList(Pair.create(sbn, pref)));
     }
 
     /**
-     * Updates all notifications in the list based on new information in the ranking.
+     * Updates all active notifications in the list based on new information in the ranking.
      */
     private void updateNotificationsFromRanking() {
-        Ranking rank = new Ranking();
-        for (int i = 0; i < getPreferenceScreen().getPreferenceCount(); i++) {
-            final HistoricalNotificationPreference p =
-                    (HistoricalNotificationPreference) getPreferenceScreen().getPreference(i);
-            final HistoricalNotificationInfo info = mNotificationInfos.get(i);
-            mRanking.getRanking(p.getKey(), rank);
+        if (getPreferenceScreen() == null) {
+            return;
+        }
+        final int N = mNotifications.size();
+        for (int i = 0; i < N; i++) {
+            final HistoricalNotificationPreference pref = mNotifications.get(i);
+            if (pref.mInfo.active) {
+                updateFromRanking(pref.mInfo);
+                pref.updatePreference(pref.mInfo);
+            }
+        }
+    }
 
-            updateFromRanking(info);
-            ((HistoricalNotificationPreference) getPreferenceScreen().findPreference(
-                    info.key)).updatePreference(info);
+    /**
+     * Generates the debug information of the notifications in one background pass, as it is only
+     * shown once an entry is expanded, then shows all of it in one main thread update.
+     */
+    @VisibleForTesting
+    void loadNotificationExtras(
+            List<Pair<StatusBarNotification, HistoricalNotificationPreference>> entries) {
+        if (entries.isEmpty()) {
+            return;
         }
+        mBackgroundExecutor.execute(() -> {
+            final CharSequence[] extras = new CharSequence[entries.size()];
+            for (int i = 0; i < extras.length; i++) {
+                extras[i] = generateExtraText(entries.get(i).first, entries.get(i).second.mInfo);
+            }
+            mMainExecutor.execute(() -> {
+                for (int i = 0; i < extras.length; i++) {
+                    final HistoricalNotificationPreference pref = entries.get(i).second;
+                    // Drop it if the entry was updated by a newer post meanwhile.
+                    if (pref.mInfo.timestamp == entries.get(i).first.getPostTime()) {
+                        pref.mInfo.notificationExtra = extras[i];
+                        pref.updatePreference(pref.mInfo);
+                    }
+                }
+            });
+        });
     }
 
     private static void logd(String msg, Object... args) {
@@ -368,16 +421,16 @@ public class NotificationStation extends SettingsPreferenceFragment {
 
     /**
      * Reads all current and past notifications (up to the system limit, since the device was
-     * booted), stores the data we need to present them, and sorts them chronologically for display.
+     * booted) and sorts them chronologically for display, along with whether they are active.
      */
-    private void loadNotifications() {
+    private List<Pair<StatusBarNotification, Boolean>> loadNotifications() {
         try {
             StatusBarNotification[] active = mNoMan.getActiveNotificationsWithAttribution(
                     mContext.getPackageName(), mContext.getAttributionTag());
             StatusBarNotification[] dismissed = mNoMan.getHistoricalNotificationsWithAttribution(
                     mContext.getPackageName(), mContext.getAttributionTag(), 50, false);
 
-            List<HistoricalNotificationInfo> list
+            List<Pair<StatusBarNotification, Boolean>> list
                     = new ArrayList<>(active.length + dismissed.length);
 
             for (StatusBarNotification[] resultSet
@@ -386,20 +439,19 @@ public class NotificationStation extends SettingsPreferenceFragment {
                     if (sbn.getNotification().isGroupSummary()) {
                         continue;
                     }
-                    final HistoricalNotificationInfo info = createFromSbn(sbn, resultSet == active);
-                    logd("   [%d] %s: %s", info.timestamp, info.pkg, info.title);
-                    list.add(info);
+                    list.add(Pair.create(sbn, resultSet == active));
                 }
             }
 
             // notifications are given to us in the same order as the shade; sorted by inferred
-            // priority. Resort chronologically for our display.
+            // priority. Resort chronologically for our display, keeping the newest ones.
             list.sort(mNotificationSorter);
-            mNotificationInfos = new LinkedList<>(list);
+            return list.size() > MAX_NOTIFICATIONS ? list.subList(0, MAX_NOTIFICATIONS) : list;
 
         } catch (RemoteException e) {
             Log.e(TAG, "Cannot load Notifications: ", e);
         }
+        return new ArrayList<>();
     }
 
     private HistoricalNotificationInfo createFromSbn(StatusBarNotification sbn, boolean active) {
@@ -422,7 +474,6 @@ public class NotificationStation extends SettingsPreferenceFragment {
         info.channelId = sbn.getNotification().getChannelId();
 
         info.active = active;
-        info.notificationExtra = generateExtraText(sbn, info);
 
         updateFromRanking(info);
 
@@ -511,16 +562,16 @@ public class NotificationStation extends SettingsPreferenceFragment {
                                            HistoricalNotificationInfo info) {
         final Notification n = sbn.getNotification();
         final SpannableStringBuilder sb = new SpannableStringBuilder();
-        final String delim = getString(R.string.notification_log_details_delimiter);
-        sb.append(bold(getString(R.string.notification_log_details_package)))
+        final String delim = mContext.getString(R.string.notification_log_details_delimiter);
+        sb.append(bold(mContext.getString(R.string.notification_log_details_package)))
                 .append(delim)
                 .append(info.pkg)
                 .append("\n")
-                .append(bold(getString(R.string.notification_log_details_key)))
+                .append(bold(mContext.getString(R.string.notification_log_details_key)))
                 .append(delim)
                 .append(sbn.getKey());
         sb.append("\n")
-                .append(bold(getString(R.string.notification_log_details_icon)))
+                .append(bold(mContext.getString(R.string.notification_log_details_icon)))
                 .append(delim)
                 .append(String.valueOf(n.getSmallIcon()));
         sb.append("\n")
@@ -535,17 +586,17 @@ public class NotificationStation extends SettingsPreferenceFragment {
         }
         if (sbn.isGroup()) {
             sb.append("\n")
-                    .append(bold(getString(R.string.notification_log_details_group)))
+                    .append(bold(mContext.getString(R.string.notification_log_details_group)))
                     .append(delim)
                     .append(String.valueOf(sbn.getGroupKey()));
             if (n.isGroupSummary()) {
                 sb.append(bold(
-                        getString(R.string.notification_log_details_group_summary)));
+                        mContext.getString(R.string.notification_log_details_group_summary)));
             }
         }
         if (n.publicVersion != null) {
             sb.append("\n")
-                    .append(bold(getString(
+                    .append(bold(mContext.getString(
                             R.string.notification_log_details_public_version)))
                     .append(delim)
                     .append(getTitleString(n.publicVersion));
@@ -553,45 +604,45 @@ public class NotificationStation extends SettingsPreferenceFragment {
 
         if (n.contentIntent != null) {
             sb.append("\n")
-                    .append(bold(getString(
+                    .append(bold(mContext.getString(
                             R.string.notification_log_details_content_intent)))
                     .append(delim)
                     .append(formatPendingIntent(n.contentIntent));
         }
         if (n.deleteIntent != null) {
             sb.append("\n")
-                    .append(bold(getString(
+                    .append(bold(mContext.getString(
                             R.string.notification_log_details_delete_intent)))
                     .append(delim)
                     .append(formatPendingIntent(n.deleteIntent));
         }
         if (n.fullScreenIntent != null) {
             sb.append("\n")
-                    .append(bold(getString(
+                    .append(bold(mContext.getString(
                             R.string.notification_log_details_full_screen_intent)))
                     .append(delim)
                     .append(formatPendingIntent(n.fullScreenIntent));
         }
         if (n.actions != null && n.actions.length > 0) {
             sb.append("\n")
-                    .append(bold(getString(R.string.notification_log_details_actions)));
+                    .append(bold(mContext.getString(R.string.notification_log_details_actions)));
             for (int ai=0; ai<n.actions.length; ai++) {
                 final Notification.Action action = n.actions[ai];
                 sb.append("\n  ").append(String.valueOf(ai)).append(' ')
-                        .append(bold(getString(
+                        .append(bold(mContext.getString(
                                 R.string.notification_log_details_title)))
                         .append(delim)
                         .append(action.title);
                 if (action.actionIntent != null) {
                     sb.append("\n    ")
-                            .append(bold(getString(
+                            .append(bold(mContext.getString(
                                     R.string.notification_log_details_content_intent)))
                             .append(delim)
                             .append(formatPendingIntent(action.actionIntent));
                 }
                 if (action.getRemoteInputs() != null) {
                     sb.append("\n    ")
-                            .append(bold(getString(
+                            .append(bold(mContext.getString(
                                     R.string.notification_log_details_remoteinput)))
                             .append(delim)
                             .append(String.valueOf(action.getRemoteInputs().length));
@@ -600,7 +651,7 @@ public class NotificationStation extends SettingsPreferenceFragment {
         }
         if (n.contentView != null) {
             sb.append("\n")
-                    .append(bold(getString(
+                    .append(bold(mContext.getString(
                             R.string.notification_log_details_content_view)))
                     .append(delim)
                     .append(n.contentView.toString());
@@ -621,7 +672,7 @@ public class NotificationStation extends SettingsPreferenceFragment {
         if (DUMP_EXTRAS) {
             if (n.extras != null && n.extras.size() > 0) {
                 sb.append("\n")
-                        .append(bold(getString(
+                        .append(bold(mContext.getString(
                                 R.string.notification_log_details_extras)));
                 for (String extraKey : n.extras.keySet()) {
                     String val = String.valueOf(n.extras.get(extraKey));
@@ -634,11 +685,11 @@ public class NotificationStation extends SettingsPreferenceFragment {
             final Parcel p = Parcel.obtain();
             n.writeToParcel(p, 0);
             sb.append("\n")
-                    .append(bold(getString(R.string.notification_log_details_parcel)))
+                    .append(bold(mContext.getString(R.string.notification_log_details_parcel)))
                     .append(delim)
                     .append(String.valueOf(p.dataPosition()))
                     .append(' ')
-                    .append(bold(getString(R.string.notification_log_details_ashmem)))
+                    .append(bold(mContext.getString(R.string.notification_log_details_ashmem)))
                     .append(delim)
                     .append(String.valueOf(p.getOpenAshmemSize()))
                     .append("\n");
@@ -668,8 +719,10 @@ public class NotificationStation extends SettingsPreferenceFragment {
         return pkg;
     }
 
-    private static class HistoricalNotificationPreference extends Preference {
-        private final HistoricalNotificationInfo mInfo;
+    @VisibleForTesting
+    static class HistoricalNotificationPreference extends Preference {
+        @VisibleForTesting
+        final HistoricalNotificationInfo mInfo;
         private static long sLastExpandedTimestamp; // quick hack to keep things from collapsing
         public ViewGroup mItemView; // hack to update prefs fast;
         private Context mContext;
@@ -48,6 +48,7 @@ import com.android.settings.SettingsActivity;
 import com.android.settings.SubSettings;
 import com.android.settings.Utils;
 import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.PreferenceControllerRegistry;
 import com.android.settings.core.SliderPreferenceController;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.core.TogglePreferenceController;
@@ -353,13 +354,14 @@ public class SliceBuilderUtils {
 
     static BasePreferenceController getPreferenceController(Context context,
             String controllerClassName, String controllerKey) {
-        try {
-            return BasePreferenceController.createInstance(context, controllerClassName);
-        } catch (IllegalStateException e) {
-            // Do nothing
+        final BasePreferenceController controller = PreferenceControllerRegistry.getInstance()
+                .createController(context, controllerClassName, controllerKey,
+                        false /* isWorkProfile */);
+        if (controller == null) {
+            throw new IllegalStateException(
+                    "Invalid preference controller: " + controllerClassName);
         }
-
-        return BasePreferenceController.createInstance(context, controllerClassName, controllerKey);
+        return controller;
     }
 
     private static SliceAction getToggleAction(Context context, SliceData sliceData,
@@ -24,6 +24,7 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.instrumentation.PageTimingRecorder;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
@@ -38,6 +39,7 @@ import java.util.List;
 class SlicesIndexer implements Runnable {
 
     private static final String TAG = "SlicesIndexer";
+    private static final String PHASE_INDEXING = "indexing";
 
     private Context mContext;
 
@@ -70,14 +72,14 @@ class SlicesIndexer implements Runnable {
 
         long startTime = System.currentTimeMillis();
         database.beginTransaction();
-        try {
+        try (PageTimingRecorder.Section section = PageTimingRecorder.getInstance()
+                .beginPhase(TAG, PHASE_INDEXING)) {
             mHelper.reconstruct(database);
             List<SliceData> indexData = getSliceData();
             insertSliceData(database, indexData);
 
             mHelper.setIndexedState();
 
-            // TODO (b/71503044) Log indexing time.
             Log.d(TAG,
                     "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
             database.setTransactionSuccessful();
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.ArrayMap;
+import android.util.LruCache;
+import android.util.SparseIntArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.internal.util.UserIcons;
+import com.android.settingslib.drawable.CircleFramedDrawable;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the circular icons of the users in background, and keeps them in a cache shared by the
+ * pages showing users.
+ *
+ * <p>Each icon is decoded and encircled once at the requested size, then kept as a bitmap keyed
+ * by user id, icon generation and size. {@link #invalidate(int)} starts a new generation when the
+ * icon of a user changes, so icons still being loaded for the old one are never returned. The
+ * cache listens to {@link Intent#ACTION_USER_INFO_CHANGED} once it has loaded an icon, so every
+ * page sharing it sees the new icons.
+ */
+public final class UserIconCache {
+
+    @VisibleForTesting
+    static final int MAX_ICON_CACHE_KB = 2 * 1024;
+
+    private static final UserIconCache sInstance = new UserIconCache(
+            ThreadUtils::postOnBackgroundThread, ThreadUtils::postOnMainThread);
+
+    private final Executor mBackgroundExecutor;
+    private final Executor mMainExecutor;
+    @GuardedBy("this")
+    private final LruCache<String, Bitmap> mIcons =
+            new LruCache<String, Bitmap>(MAX_ICON_CACHE_KB) {
+                @Override
+                protected int sizeOf(String key, Bitmap bitmap) {
+                    return Math.max(1, bitmap.getAllocationByteCount() / 1024);
+                }
+            };
+    @GuardedBy("this")
+    private final SparseIntArray mGenerations = new SparseIntArray();
+    // Loads waiting for each key being loaded.
+    @GuardedBy("this")
+    private final Map<String, List<PendingLoad>> mPendingLoads = new ArrayMap<>();
+    @GuardedBy("this")
+    private boolean mReceiverRegistered;
+
+    private final BroadcastReceiver mUserInfoChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final int userId = intent.getIntExtra(Intent.EXTRA_USER_HANDLE, UserHandle.USER_NULL);
+            if (userId != UserHandle.USER_NULL) {
+                invalidate(userId);
+            }
+        }
+    };
+
+    /** Returns the process-wide instance. */
+    public static UserIconCache getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    UserIconCache(Executor backgroundExecutor, Executor mainExecutor) {
+        mBackgroundExecutor = backgroundExecutor;
+        mMainExecutor = mainExecutor;
+    }
+
+    /**
+     * Returns a drawable of the cached icon of the user at {@code sizePx}, or null if it has not
+     * been loaded.
+     */
+    @Nullable
+    public Drawable getIcon(Resources res, int userId, int sizePx) {
+        final Bitmap bitmap;
+        synchronized (this) {
+            bitmap = mIcons.get(getKey(userId, sizePx));
+        }
+        return bitmap == null ? null : new BitmapDrawable(res, bitmap);
+    }
+
+    /**
+     * Loads the icons of the users at {@code sizePx} in background, then runs {@code onLoaded} on
+     * the main thread once they are all cached. Icons already cached are skipped. Icons already
+     * being loaded by an earlier call are not loaded again, but {@code onLoaded} still waits for
+     * them. {@code onLoaded} is not run if all the icons are already cached.
+     */
+    public void loadIcons(Context context, List<Integer> userIds, int sizePx,
+            Runnable onLoaded) {
+        registerReceiverIfNeeded(context);
+        final PendingLoad load = new PendingLoad(onLoaded);
+        final List<Integer> missingUserIds = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+        synchronized (this) {
+            for (int userId : userIds) {
+                final String key = getKey(userId, sizePx);
+                if (mIcons.get(key) != null) {
+                    continue;
+                }
+                List<PendingLoad> loads = mPendingLoads.get(key);
+                if (loads == null) {
+                    loads = new ArrayList<>();
+                    mPendingLoads.put(key, loads);
+                    missingUserIds.add(userId);
+                    keys.add(key);
+                }
+                loads.add(load);
+                load.mRemainingKeys++;
+            }
+            if (load.mRemainingKeys == 0) {
+                return;
+            }
+        }
+        if (missingUserIds.isEmpty()) {
+            // Everything is loaded by earlier calls, which will run onLoaded.
+            return;
+        }
+        mBackgroundExecutor.execute(() -> {
+            for (int i = 0; i < missingUserIds.size(); i++) {
+                final Bitmap bitmap = createIcon(context, missingUserIds.get(i), sizePx);
+                final List<Runnable> finished = new ArrayList<>();
+                synchronized (this) {
+                    mIcons.put(keys.get(i), bitmap);
+                    final List<PendingLoad> loads = mPendingLoads.remove(keys.get(i));
+                    if (loads != null) {
+                        for (PendingLoad pendingLoad : loads) {
+                            if (--pendingLoad.mRemainingKeys == 0) {
+                                finished.add(pendingLoad.mOnLoaded);
+                            }
+                        }
+                    }
+                }
+                for (Runnable onLoadedCallback : finished) {
+                    mMainExecutor.execute(onLoadedCallback);
+                }
+            }
+        });
+    }
+
+    /** Returns a drawable of the icon of the user at {@code sizePx}, loading it if needed. */
+    @WorkerThread
+    public Drawable loadIcon(Context context, int userId, int sizePx) {
+        registerReceiverIfNeeded(context);
+        final String key;
+        synchronized (this) {
+            key = getKey(userId, sizePx);
+        }
+        Drawable icon = getIcon(context.getResources(), userId, sizePx);
+        if (icon == null) {
+            final Bitmap bitmap = createIcon(context, userId, sizePx);
+            synchronized (this) {
+                mIcons.put(key, bitmap);
+            }
+            icon = new BitmapDrawable(context.getResources(), bitmap);
+        }
+        return icon;
+    }
+
+    /**
+     * Drops the cached icons of the user, whose icon has changed, and starts a new generation so
+     * the icons still being loaded for the old one are not returned either.
+     */
+    public synchronized void invalidate(int userId) {
+        final String prefix = userId + "/";
+        for (String key : mIcons.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                mIcons.remove(key);
+            }
+        }
+        mGenerations.put(userId, mGenerations.get(userId) + 1);
+    }
+
+    @VisibleForTesting
+    synchronized void putIcon(int userId, int sizePx, Bitmap bitmap) {
+        mIcons.put(getKey(userId, sizePx), bitmap);
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mIcons.evictAll();
+        mGenerations.clear();
+        mPendingLoads.clear();
+    }
+
+    private void registerReceiverIfNeeded(Context context) {
+        synchronized (this) {
+            if (mReceiverRegistered) {
+                return;
+            }
+            mReceiverRegistered = true;
+        }
+        // Registered on the application context, as the cache lives as long as the process.
+        context.getApplicationContext().registerReceiverAsUser(mUserInfoChangedReceiver,
+                UserHandle.ALL, new IntentFilter(Intent.ACTION_USER_INFO_CHANGED),
+                null /* broadcastPermission */, null /* scheduler */,
+                Context.RECEIVER_EXPORTED_UNAUDITED);
+    }
+
+    @GuardedBy("this")
+    private String getKey(int userId, int sizePx) {
+        return userId + "/" + mGenerations.get(userId) + "/" + sizePx;
+    }
+
+    private static Bitmap createIcon(Context context, int userId, int sizePx) {
+        final Resources res = context.getResources();
+        Bitmap bitmap = context.getSystemService(UserManager.class).getUserIcon(userId);
+        if (bitmap == null) {
+            bitmap = UserIcons.convertToBitmapAtUserIconSize(res,
+                    UserIcons.getDefaultUserIcon(res, userId, false /* light */));
+        }
+        final Drawable circle = new CircleFramedDrawable(bitmap, sizePx);
+        final Bitmap icon = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        circle.setBounds(0, 0, sizePx, sizePx);
+        circle.draw(new Canvas(icon));
+        return icon;
+    }
+
+    /** A {@link #loadIcons} call waiting for its icons. */
+    private static final class PendingLoad {
+        private final Runnable mOnLoaded;
+        // Icons of the call not loaded yet, guarded by the cache.
+        private int mRemainingKeys;
+
+        private PendingLoad(Runnable onLoaded) {
+            mOnLoaded = onLoaded;
+        }
+    }
+}
@@ -195,7 +195,7 @@ public class UserSettings extends SettingsPreferenceFragment
     @VisibleForTesting
     RestrictedPreference mAddSupervisedUser;
     @VisibleForTesting
-    SparseArray<Bitmap> mUserIcons = new SparseArray<>();
+    UserIconCache mUserIconCache = UserIconCache.getInstance();
     private int mRemovingUserId = -1;
     private boolean mAddingUser;
     private boolean mGuestUserAutoCreated;
@@ -251,12 +251,8 @@ public class UserSettings extends SettingsPreferenceFragment
         public void onReceive(Context context, Intent intent) {
             if (intent.getAction().equals(Intent.ACTION_USER_REMOVED)) {
                 mRemovingUserId = -1;
-            } else if (intent.getAction().equals(Intent.ACTION_USER_INFO_CHANGED)) {
-                int userHandle = intent.getIntExtra(Intent.EXTRA_USER_HANDLE, -1);
-                if (userHandle != -1) {
-                    mUserIcons.remove(userHandle);
-                }
             }
+            // Changed user icons are dropped by UserIconCache, which listens to user info changes.
             mHandler.sendEmptyMessage(MESSAGE_UPDATE_LIST);
         }
     };
@@ -486,9 +482,11 @@ public class UserSettings extends SettingsPreferenceFragment
         }
 
         new AsyncTask<Void, Void, String>() {
+            private boolean mPhotoAssigned;
+
             @Override
             protected void onPostExecute(String result) {
-                finishLoadProfile(result);
+                finishLoadProfile(result, mPhotoAssigned);
             }
 
             @Override
@@ -497,23 +495,37 @@ public class UserSettings extends SettingsPreferenceFragment
                 if (user.iconPath == null || user.iconPath.equals("")) {
                     // Assign profile photo.
                     copyMeProfilePhoto(getActivity(), user);
+                    mPhotoAssigned = true;
                 }
                 return user.name;
             }
         }.execute();
     }
 
-    private void finishLoadProfile(String profileName) {
+    @VisibleForTesting
+    void finishLoadProfile(String profileName, boolean photoAssigned) {
         if (getActivity() == null) {
             return;
         }
         mMePreference.setTitle(getString(R.string.user_you, profileName));
-        int myUserId = UserHandle.myUserId();
-        Bitmap b = mUserManager.getUserIcon(myUserId);
-        if (b != null) {
-            mMePreference.setIcon(encircleUserIcon(b));
-            mUserIcons.put(myUserId, b);
+        final int myUserId = UserHandle.myUserId();
+        if (photoAssigned) {
+            // The cached icon, if any, is the default one.
+            mUserIconCache.invalidate(myUserId);
+        } else {
+            final Drawable cachedIcon = getCachedUserIcon(myUserId);
+            if (cachedIcon != null) {
+                mMePreference.setIcon(cachedIcon);
+                return;
+            }
         }
+        mUserIconCache.loadIcons(getContext(), Collections.singletonList(myUserId),
+                getUserIconSize(), () -> {
+                    final Drawable icon = getCachedUserIcon(myUserId);
+                    if (getActivity() != null && icon != null) {
+                        mMePreference.setIcon(icon);
+                    }
+                });
     }
 
     private boolean hasLockscreenSecurity() {
@@ -1236,12 +1248,13 @@ public class UserSettings extends SettingsPreferenceFragment
                 pref.setSummary(R.string.user_summary_restricted_profile);
             }
             if (user.iconPath != null) {
-                if (mUserIcons.get(user.id) == null) {
+                final Drawable icon = getCachedUserIcon(user.id);
+                if (icon == null) {
                     // Icon not loaded yet, print a placeholder
                     missingIcons.add(user.id);
                     pref.setIcon(getEncircledDefaultIcon());
                 } else {
-                    setPhotoId(pref, user);
+                    pref.setIcon(icon);
                 }
             } else {
                 // Icon not available yet, print a placeholder
@@ -1515,24 +1528,11 @@ public class UserSettings extends SettingsPreferenceFragment
     }
 
     private void loadIconsAsync(List<Integer> missingIcons) {
-        new AsyncTask<List<Integer>, Void, Void>() {
-            @Override
-            protected void onPostExecute(Void result) {
+        mUserIconCache.loadIcons(getContext(), missingIcons, getUserIconSize(), () -> {
+            if (getActivity() != null) {
                 updateUserList();
             }
-
-            @Override
-            protected Void doInBackground(List<Integer>... values) {
-                for (int userId : values[0]) {
-                    Bitmap bitmap = mUserManager.getUserIcon(userId);
-                    if (bitmap == null) {
-                        bitmap = getDefaultUserIconAsBitmap(getContext().getResources(), userId);
-                    }
-                    mUserIcons.append(userId, bitmap);
-                }
-                return null;
-            }
-        }.execute(missingIcons);
+        });
     }
 
     private Drawable getEncircledDefaultIcon() {
@@ -1543,11 +1543,13 @@ public class UserSettings extends SettingsPreferenceFragment
         return mDefaultIconDrawable;
     }
 
-    private void setPhotoId(Preference pref, UserInfo user) {
-        Bitmap bitmap = mUserIcons.get(user.id);
-        if (bitmap != null) {
-            pref.setIcon(encircleUserIcon(bitmap));
-        }
+    private Drawable getCachedUserIcon(int userId) {
+        return mUserIconCache.getIcon(getContext().getResources(), userId, getUserIconSize());
+    }
+
+    private int getUserIconSize() {
+        return getContext().getResources().getDimensionPixelSize(
+                R.dimen.multiple_users_user_icon_size);
     }
 
     @Override
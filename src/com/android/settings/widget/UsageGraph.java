@@ -53,7 +53,11 @@ public class UsageGraph extends View {
     private final Drawable mTintedDivider;
     private final int mDividerSize;
 
-    private final Path mPath = new Path();
+    // Drawing paths built from the local paths, only rebuilt when the local paths are changed.
+    private final Path mLinePath = new Path();
+    private final Path mFilledPath = new Path();
+    private final Path mProjectedLinePath = new Path();
+    private boolean mIsDrawingPathsDirty = true;
 
     // Paths in coordinates they are passed in.
     private final SparseIntArray mPaths = new SparseIntArray();
@@ -68,6 +72,13 @@ public class UsageGraph extends View {
     private final int mCornerRadius;
     private int mAccentColor;
 
+    // Counts how many times the drawing paths and the graph itself are drawn, used to verify
+    // that frames without data or size changes reuse the cached paths.
+    @VisibleForTesting
+    int mPathBuildCount;
+    @VisibleForTesting
+    int mDrawCount;
+
     private float mMaxX = 100;
     private float mMaxY = 100;
 
@@ -111,6 +122,7 @@ public class UsageGraph extends View {
         mLocalPaths.clear();
         mProjectedPaths.clear();
         mLocalProjectedPaths.clear();
+        mIsDrawingPathsDirty = true;
     }
 
     void setMax(int maxX, int maxY) {
@@ -180,6 +192,7 @@ public class UsageGraph extends View {
             return;
         }
         localPaths.clear();
+        mIsDrawingPathsDirty = true;
         // Store the local coordinates of the most recent point.
         int lx = 0;
         int ly = PATH_DELIM;
@@ -241,7 +254,7 @@ public class UsageGraph extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        final long startTime = System.currentTimeMillis();
+        mDrawCount++;
         // Draw lines across the top, middle, and bottom.
         if (mMiddleDividerLoc != 0) {
             drawDivider(0, canvas, mTopDividerTint);
@@ -256,62 +269,71 @@ public class UsageGraph extends View {
             return;
         }
 
+        updateDrawingPathsIfNeeded();
         canvas.save();
         if (getLayoutDirection() == LAYOUT_DIRECTION_RTL) {
             // Flip the canvas along the y-axis of the center of itself before drawing paths.
             canvas.scale(-1, 1, canvas.getWidth() * 0.5f, 0);
         }
-        drawLinePath(canvas, mLocalProjectedPaths, mDottedPaint);
-        drawFilledPath(canvas, mLocalPaths, mFillPaint);
-        drawLinePath(canvas, mLocalPaths, mLinePaint);
+        canvas.drawPath(mProjectedLinePath, mDottedPaint);
+        canvas.drawPath(mFilledPath, mFillPaint);
+        canvas.drawPath(mLinePath, mLinePaint);
         canvas.restore();
-        BatteryUtils.logRuntime(LOG_TAG, "onDraw", startTime);
     }
 
-    private void drawLinePath(Canvas canvas, SparseIntArray localPaths, Paint paint) {
+    private void updateDrawingPathsIfNeeded() {
+        if (!mIsDrawingPathsDirty) {
+            return;
+        }
+        mIsDrawingPathsDirty = false;
+        mPathBuildCount++;
+        buildLinePath(mProjectedLinePath, mLocalProjectedPaths);
+        buildFilledPath(mFilledPath, mLocalPaths);
+        buildLinePath(mLinePath, mLocalPaths);
+    }
+
+    private void buildLinePath(Path path, SparseIntArray localPaths) {
+        path.reset();
         if (localPaths.size() == 0) {
             return;
         }
-        mPath.reset();
-        mPath.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
+        path.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
         for (int i = 1; i < localPaths.size(); i++) {
             int x = localPaths.keyAt(i);
             int y = localPaths.valueAt(i);
             if (y == PATH_DELIM) {
                 if (++i < localPaths.size()) {
-                    mPath.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
+                    path.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
                 }
             } else {
-                mPath.lineTo(x, y);
+                path.lineTo(x, y);
             }
         }
-        canvas.drawPath(mPath, paint);
     }
 
     @VisibleForTesting
-    void drawFilledPath(Canvas canvas, SparseIntArray localPaths, Paint paint) {
+    void buildFilledPath(Path path, SparseIntArray localPaths) {
+        path.reset();
         if (localPaths.size() == 0) {
             return;
         }
-        mPath.reset();
         float lastStartX = localPaths.keyAt(0);
-        mPath.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
+        path.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
         for (int i = 1; i < localPaths.size(); i++) {
             int x = localPaths.keyAt(i);
             int y = localPaths.valueAt(i);
             if (y == PATH_DELIM) {
-                mPath.lineTo(localPaths.keyAt(i - 1), getHeight());
-                mPath.lineTo(lastStartX, getHeight());
-                mPath.close();
+                path.lineTo(localPaths.keyAt(i - 1), getHeight());
+                path.lineTo(lastStartX, getHeight());
+                path.close();
                 if (++i < localPaths.size()) {
                     lastStartX = localPaths.keyAt(i);
-                    mPath.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
+                    path.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
                 }
             } else {
-                mPath.lineTo(x, y);
+                path.lineTo(x, y);
             }
         }
-        canvas.drawPath(mPath, paint);
     }
 
     private void drawDivider(int y, Canvas canvas, int tintColor) {
@@ -93,6 +93,22 @@ public class WifiEntryPreference extends Preference implements WifiEntry.WifiEnt
         return mWifiEntry;
     }
 
+    /**
+     * Binds the preference to another WifiEntry of the same key, e.g. when the tracker recreates
+     * the WifiEntry, so the preference does not need to be recreated.
+     */
+    public void setWifiEntry(@NonNull WifiEntry wifiEntry) {
+        if (mWifiEntry == wifiEntry) {
+            return;
+        }
+        mWifiEntry.setListener(null);
+        mWifiEntry = wifiEntry;
+        mWifiEntry.setListener(this);
+        refresh();
+        // The help button and the friction icon depend on the WifiEntry as well.
+        notifyChanged();
+    }
+
     @Override
     public void onBindViewHolder(final PreferenceViewHolder view) {
         super.onBindViewHolder(view);
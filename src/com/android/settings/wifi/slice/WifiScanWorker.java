@@ -19,14 +19,16 @@ package com.android.settings.wifi.slice;
 import static com.android.settings.wifi.slice.WifiSlice.DEFAULT_EXPANDED_ROW_COUNT;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.net.Uri;
 import android.net.wifi.WifiManager;
-import android.text.TextUtils;
+import android.util.ArrayMap;
 
 import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.LifecycleRegistry;
+import androidx.slice.builders.ListBuilder;
 
 import com.android.settings.slices.SliceBackgroundWorker;
 import com.android.settings.wifi.WifiPickerTrackerHelper;
@@ -35,7 +37,9 @@ import com.android.wifitrackerlib.WifiEntry.WifiEntryCallback;
 import com.android.wifitrackerlib.WifiPickerTracker;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * {@link SliceBackgroundWorker} for Wi-Fi, used by {@link WifiSlice}.
@@ -51,6 +55,15 @@ public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> impleme
     protected WifiPickerTracker mWifiPickerTracker;
     protected WifiPickerTrackerHelper mWifiPickerTrackerHelper;
 
+    // Index of the WifiEntries by key, rebuilt when the entries change. Null if it is stale.
+    private Map<String, WifiEntry> mWifiEntryMap;
+    // The WifiEntries shown by the slice, which are listened for updates.
+    private final List<WifiEntry> mShownWifiEntries = new ArrayList<>();
+    // The rows built for the shown items, so unchanged rows are not built again.
+    private Map<WifiSliceItem, ListBuilder.RowBuilder> mRowCache = new ArrayMap<>();
+    // The configuration the cached rows were built with, which sets their texts and tint.
+    private Configuration mRowCacheConfiguration;
+
     public WifiScanWorker(Context context, Uri uri) {
         super(context, uri);
 
@@ -74,6 +87,9 @@ public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> impleme
     protected void onSliceUnpinned() {
         mLifecycleRegistry.markState(Lifecycle.State.STARTED);
         mLifecycleRegistry.markState(Lifecycle.State.CREATED);
+        setShownWifiEntries(new ArrayList<>());
+        mRowCache = new ArrayMap<>();
+        mRowCacheConfiguration = null;
     }
 
     @Override
@@ -89,6 +105,7 @@ public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> impleme
     /** Called when the state of Wifi has changed. */
     @Override
     public void onWifiStateChanged() {
+        mWifiEntryMap = null;
         notifySliceChange();
     }
 
@@ -97,7 +114,8 @@ public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> impleme
      */
     @Override
     public void onWifiEntriesChanged() {
-        updateResults();
+        mWifiEntryMap = buildWifiEntryMap();
+        updateResultsIfShownEntriesChanged();
     }
 
     /**
@@ -127,46 +145,108 @@ public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> impleme
      * To get the WifiEntry of key.
      */
     public WifiEntry getWifiEntry(String key) {
-        // Get specified WifiEntry.
-        WifiEntry keyWifiEntry = null;
+        if (mWifiEntryMap == null) {
+            mWifiEntryMap = buildWifiEntryMap();
+        }
+        return mWifiEntryMap.get(key);
+    }
+
+    private Map<String, WifiEntry> buildWifiEntryMap() {
+        final List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
+        final Map<String, WifiEntry> wifiEntryMap = new HashMap<>(wifiEntries.size() + 1);
+        for (WifiEntry wifiEntry : wifiEntries) {
+            wifiEntryMap.put(wifiEntry.getKey(), wifiEntry);
+        }
+        // The connected WifiEntry takes precedence over a reachable one of the same key.
         final WifiEntry connectedWifiEntry = mWifiPickerTracker.getConnectedWifiEntry();
-        if (connectedWifiEntry != null && TextUtils.equals(key, connectedWifiEntry.getKey())) {
-            keyWifiEntry = connectedWifiEntry;
-        } else {
-            for (WifiEntry wifiEntry : mWifiPickerTracker.getWifiEntries()) {
-                if (TextUtils.equals(key, wifiEntry.getKey())) {
-                    keyWifiEntry = wifiEntry;
-                    break;
-                }
-            }
+        if (connectedWifiEntry != null) {
+            wifiEntryMap.put(connectedWifiEntry.getKey(), connectedWifiEntry);
         }
-        return keyWifiEntry;
+        return wifiEntryMap;
+    }
+
+    /**
+     * Returns the row built for an equal {@link WifiSliceItem} by the last
+     * {@link #setCachedRows(Configuration, Map)}, or null if there is no such row or if it was
+     * built with another configuration, e.g. before a locale or theme change.
+     */
+    ListBuilder.RowBuilder getCachedRow(Configuration configuration,
+            WifiSliceItem wifiSliceItem) {
+        if (!configuration.equals(mRowCacheConfiguration)) {
+            return null;
+        }
+        return mRowCache.get(wifiSliceItem);
+    }
+
+    /** Keeps the rows built for the shown items, replacing the previously cached ones. */
+    void setCachedRows(Configuration configuration,
+            Map<WifiSliceItem, ListBuilder.RowBuilder> rows) {
+        mRowCacheConfiguration = new Configuration(configuration);
+        mRowCache = rows;
     }
 
     @VisibleForTesting
     void updateResults() {
         if (mWifiPickerTracker.getWifiState() != WifiManager.WIFI_STATE_ENABLED
                 || mLifecycleRegistry.getCurrentState() != Lifecycle.State.RESUMED) {
+            setShownWifiEntries(new ArrayList<>());
             super.updateResults(null);
             return;
         }
 
-        final List<WifiSliceItem> resultList = new ArrayList<>();
+        final List<WifiEntry> shownWifiEntries = getWifiEntriesToShow();
+        setShownWifiEntries(shownWifiEntries);
+        final List<WifiSliceItem> resultList = new ArrayList<>(shownWifiEntries.size());
+        for (WifiEntry wifiEntry : shownWifiEntries) {
+            resultList.add(new WifiSliceItem(getContext(), wifiEntry));
+        }
+        super.updateResults(resultList);
+    }
+
+    /**
+     * Scan results reorder or update WifiEntries which are not shown most of the time. The shown
+     * WifiEntries notify their own updates through {@link #onUpdated()}, so the results are only
+     * updated when the set of the shown WifiEntries changes.
+     */
+    private void updateResultsIfShownEntriesChanged() {
+        if (mWifiPickerTracker.getWifiState() == WifiManager.WIFI_STATE_ENABLED
+                && mLifecycleRegistry.getCurrentState() == Lifecycle.State.RESUMED
+                && !mShownWifiEntries.isEmpty()
+                && mShownWifiEntries.equals(getWifiEntriesToShow())) {
+            return;
+        }
+        updateResults();
+    }
+
+    private List<WifiEntry> getWifiEntriesToShow() {
+        final List<WifiEntry> wifiEntries = new ArrayList<>();
         final WifiEntry connectedWifiEntry = mWifiPickerTracker.getConnectedWifiEntry();
         if (connectedWifiEntry != null) {
-            connectedWifiEntry.setListener(this);
-            resultList.add(new WifiSliceItem(getContext(), connectedWifiEntry));
+            wifiEntries.add(connectedWifiEntry);
         }
         for (WifiEntry wifiEntry : mWifiPickerTracker.getWifiEntries()) {
-            if (resultList.size() >= getApRowCount()) {
+            if (wifiEntries.size() >= getApRowCount()) {
                 break;
             }
             if (wifiEntry.getLevel() != WifiEntry.WIFI_LEVEL_UNREACHABLE) {
-                wifiEntry.setListener(this);
-                resultList.add(new WifiSliceItem(getContext(), wifiEntry));
+                wifiEntries.add(wifiEntry);
             }
         }
-        super.updateResults(resultList);
+        return wifiEntries;
+    }
+
+    /** Listens to the shown WifiEntries only, the others are not relevant to the slice. */
+    private void setShownWifiEntries(List<WifiEntry> wifiEntries) {
+        for (WifiEntry wifiEntry : mShownWifiEntries) {
+            if (!wifiEntries.contains(wifiEntry)) {
+                wifiEntry.setListener(null);
+            }
+        }
+        for (WifiEntry wifiEntry : wifiEntries) {
+            wifiEntry.setListener(this);
+        }
+        mShownWifiEntries.clear();
+        mShownWifiEntries.addAll(wifiEntries);
     }
 
     /** Enables/disables the carrier network if the carrier network provision disabled */
@@ -27,6 +27,7 @@ import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.content.res.Configuration;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
@@ -36,6 +37,7 @@ import android.os.Binder;
 import android.os.Bundle;
 import android.os.UserManager;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.EventLog;
 import android.util.Log;
 
@@ -64,6 +66,7 @@ import com.android.wifitrackerlib.WifiEntry;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -133,11 +136,20 @@ public class WifiSlice implements CustomSliceable {
             return listBuilder.build();
         }
 
-        // Add AP rows
+        // Add AP rows, reusing the rows of the items which did not change.
         final CharSequence placeholder = mContext.getText(R.string.summary_placeholder);
+        final Configuration configuration = mContext.getResources().getConfiguration();
+        final Map<WifiSliceItem, ListBuilder.RowBuilder> rows = new ArrayMap<>(apCount);
         for (int i = 0; i < DEFAULT_EXPANDED_ROW_COUNT; i++) {
             if (i < apCount) {
-                listBuilder.addRow(getWifiSliceItemRow(apList.get(i)));
+                final WifiSliceItem item = apList.get(i);
+                ListBuilder.RowBuilder row = worker != null
+                        ? worker.getCachedRow(configuration, item) : null;
+                if (row == null) {
+                    row = getWifiSliceItemRow(item);
+                }
+                rows.put(item, row);
+                listBuilder.addRow(row);
             } else if (i == apCount) {
                 listBuilder.addRow(getLoadingRow(placeholder));
             } else {
@@ -146,6 +158,9 @@ public class WifiSlice implements CustomSliceable {
                         .setSubtitle(placeholder));
             }
         }
+        if (worker != null) {
+            worker.setCachedRows(configuration, rows);
+        }
         return listBuilder.build();
     }
 
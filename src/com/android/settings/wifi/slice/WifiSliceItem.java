@@ -22,6 +22,8 @@ import android.text.TextUtils;
 import com.android.settingslib.R;
 import com.android.wifitrackerlib.WifiEntry;
 
+import java.util.Objects;
+
 /**
  * The data set which is needed by a Wi-Fi Slice, it collects necessary data from {@link WifiEntry}
  * and provides similar getter methods for corresponding data.
@@ -71,6 +73,12 @@ public class WifiSliceItem {
         if (!TextUtils.equals(getKey(), otherItem.getKey())) {
             return false;
         }
+        if (!TextUtils.equals(getTitle(), otherItem.getTitle())) {
+            return false;
+        }
+        if (getSecurity() != otherItem.getSecurity()) {
+            return false;
+        }
         if (getConnectedState() != otherItem.getConnectedState()) {
             return false;
         }
@@ -80,12 +88,20 @@ public class WifiSliceItem {
         if (shouldShowXLevelIcon() != otherItem.shouldShowXLevelIcon()) {
             return false;
         }
+        if (shouldEditBeforeConnect() != otherItem.shouldEditBeforeConnect()) {
+            return false;
+        }
         if (!TextUtils.equals(getSummary(), otherItem.getSummary())) {
             return false;
         }
         return true;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(mKey, mConnectedState, mLevel, mSummary);
+    }
+
     public String getKey() {
         return mKey;
     }
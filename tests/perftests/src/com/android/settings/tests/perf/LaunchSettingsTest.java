@@ -30,12 +30,15 @@ import android.support.test.uiautomator.Until;
 import androidx.test.InstrumentationRegistry;
 import androidx.test.runner.AndroidJUnit4;
 
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Collections;
@@ -63,6 +66,17 @@ public class LaunchSettingsTest {
     private static final Pattern PATTERN = Pattern.compile("TotalTime:\\s[0-9]*");
     private static final Page[] PAGES;
     private static final String TAG = "SettingsPerfTests";
+    private static final String HOMEPAGE_ACTION = "android.settings.SETTINGS";
+    private static final String DUMP_SERVICE_COMMAND =
+            "dumpsys activity service com.android.settings/.SettingsDumpService";
+    private static final String KEY_HOMEPAGE_STARTUP = "homepage_startup";
+    // Startup phases reported by HomepageStartupScheduler.
+    private static final String[] HOMEPAGE_STARTUP_PHASES = {
+            "top_level_ms", "create_ms", "deferred_ms", "prefetch_ms"};
+    private static final String KEY_PAGE_TIMINGS = "page_timings";
+    // Phase reported by PageTimingRecorder, and the field of its last duration.
+    private static final String PHASE_CONTROLLER_CREATION = "controller_creation";
+    private static final String KEY_LAST_DURATION = "last_us";
 
     static {
         PAGES = new Page[]{
@@ -71,7 +85,9 @@ public class LaunchSettingsTest {
                 new Page("android.settings.BLUETOOTH_SETTINGS", "Connected devices", "BlueTooth"),
                 new Page("android.settings.APPLICATION_SETTINGS", "App info", "Application"),
                 new Page("android.intent.action.POWER_USAGE_SUMMARY", "Battery", "Battery"),
-                new Page("android.settings.INTERNAL_STORAGE_SETTINGS", "Storage", "Storage")
+                new Page("android.settings.INTERNAL_STORAGE_SETTINGS", "Storage", "Storage"),
+                new Page("android.settings.DISPLAY_SETTINGS", "Brightness level", "Display"),
+                new Page("android.settings.SOUND_SETTINGS", "Media volume", "Sound")
         };
     }
 
@@ -98,6 +114,10 @@ public class LaunchSettingsTest {
 
         for (Page page : PAGES) {
             mResult.put(page.title, new ArrayList<Integer>());
+            mResult.put(getControllerCreationTitle(page.title), new ArrayList<Integer>());
+        }
+        for (String phase : HOMEPAGE_STARTUP_PHASES) {
+            mResult.put(getHomepageStartupTitle(phase), new ArrayList<Integer>());
         }
     }
 
@@ -126,6 +146,61 @@ public class LaunchSettingsTest {
         final String mString = mDevice.executeShellCommand("am start -W -a" + action);
         mDevice.wait(Until.findObject(By.text(displayName)), TIME_OUT);
         handleLaunchResult(title, mString);
+        mDevice.waitForIdle(TIME_OUT);
+        final String dumpResult = mDevice.executeShellCommand(DUMP_SERVICE_COMMAND);
+        handleControllerCreationTimings(title, dumpResult);
+        if (HOMEPAGE_ACTION.equals(action)) {
+            handleHomepageStartupTimings(dumpResult);
+        }
+    }
+
+    /**
+     * Records the total time spent creating preference controllers during the launch, summed
+     * over the pages created since the app was restarted.
+     */
+    private void handleControllerCreationTimings(String title, String dumpResult) {
+        final JSONObject pages;
+        try {
+            pages = new JSONObject(dumpResult.substring(dumpResult.indexOf('{')))
+                    .getJSONObject(KEY_PAGE_TIMINGS);
+        } catch (JSONException | StringIndexOutOfBoundsException e) {
+            Log.e(TAG, "Fail to get page timings.", e);
+            return;
+        }
+        int totalMicros = 0;
+        final Iterator<String> pageNames = pages.keys();
+        while (pageNames.hasNext()) {
+            final JSONObject phase = pages.optJSONObject(pageNames.next())
+                    .optJSONObject(PHASE_CONTROLLER_CREATION);
+            if (phase != null) {
+                totalMicros += phase.optInt(KEY_LAST_DURATION);
+            }
+        }
+        mResult.get(getControllerCreationTitle(title)).add(totalMicros);
+    }
+
+    private static String getControllerCreationTitle(String title) {
+        return "ControllerCreation_" + title;
+    }
+
+    private void handleHomepageStartupTimings(String dumpResult) {
+        final JSONObject timings;
+        try {
+            timings = new JSONObject(dumpResult.substring(dumpResult.indexOf('{')))
+                    .getJSONObject(KEY_HOMEPAGE_STARTUP);
+        } catch (JSONException | StringIndexOutOfBoundsException e) {
+            Log.e(TAG, "Fail to get homepage startup timings.", e);
+            return;
+        }
+        for (String phase : HOMEPAGE_STARTUP_PHASES) {
+            if (timings.has(phase)) {
+                mResult.get(getHomepageStartupTitle(phase)).add(timings.optInt(phase));
+            }
+        }
+    }
+
+    private static String getHomepageStartupTitle(String phase) {
+        return "HomepageStartup_" + phase;
     }
 
     private void handleLaunchResult(String title, String shellCommandResult) {
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.AppOpsManager;
+import android.app.AppOpsManager.OpEntry;
+import android.app.AppOpsManager.PackageOps;
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppOpsSnapshotTest {
+    private static final int OP = AppOpsManager.OP_SYSTEM_ALERT_WINDOW;
+    private static final String PACKAGE_NAME = "pkg";
+    private static final int UID = 10001;
+
+    @Mock
+    private AppOpsManager mAppOpsManager;
+    @Mock
+    private Context mContext;
+    @Mock
+    private Context mAppContext;
+
+    private AppOpsSnapshot mSnapshot;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mSnapshot = new AppOpsSnapshot();
+        when(mContext.getApplicationContext()).thenReturn(mAppContext);
+        when(mAppContext.getApplicationContext()).thenReturn(mAppContext);
+        when(mAppContext.getSystemService(Context.APP_OPS_SERVICE)).thenReturn(mAppOpsManager);
+        when(mAppOpsManager.getPackagesForOps(any(int[].class))).thenReturn(
+                Arrays.asList(new PackageOps(PACKAGE_NAME, UID, Collections.singletonList(
+                        new OpEntry(OP, AppOpsManager.MODE_ALLOWED, Collections.emptyMap())))));
+    }
+
+    @Test
+    public void getPackageModes_shouldReturnModeOfEachPackage() {
+        final Collection<AppOpsSnapshot.PackageMode> modes =
+                mSnapshot.getPackageModes(mContext, OP);
+
+        assertThat(modes).hasSize(1);
+        final AppOpsSnapshot.PackageMode mode = modes.iterator().next();
+        assertThat(mode.packageName).isEqualTo(PACKAGE_NAME);
+        assertThat(mode.uid).isEqualTo(UID);
+        assertThat(mode.mode).isEqualTo(AppOpsManager.MODE_ALLOWED);
+    }
+
+    @Test
+    public void getPackageModes_shouldWatchThroughApplicationContext() {
+        mSnapshot.getPackageModes(mContext, OP);
+
+        verify(mContext, never()).getSystemService(Context.APP_OPS_SERVICE);
+        verify(mAppOpsManager).startWatchingMode(eq(OP), isNull(),
+                any(AppOpsManager.OnOpChangedListener.class));
+    }
+
+    @Test
+    public void getPackageModes_calledTwice_shouldFetchOnce() {
+        mSnapshot.getPackageModes(mContext, OP);
+        mSnapshot.getPackageModes(mContext, OP);
+
+        verify(mAppOpsManager, times(1)).getPackagesForOps(any(int[].class));
+        verify(mAppOpsManager, times(1)).startWatchingMode(eq(OP), isNull(),
+                any(AppOpsManager.OnOpChangedListener.class));
+    }
+
+    @Test
+    public void getPackageModes_afterInvalidate_shouldFetchAgain() {
+        mSnapshot.getPackageModes(mContext, OP);
+        mSnapshot.invalidate(OP);
+        mSnapshot.getPackageModes(mContext, OP);
+
+        verify(mAppOpsManager, times(2)).getPackagesForOps(any(int[].class));
+    }
+
+    @Test
+    public void getPackageModes_afterOpChanged_shouldFetchAgain() {
+        final ArgumentCaptor<AppOpsManager.OnOpChangedListener> captor =
+                ArgumentCaptor.forClass(AppOpsManager.OnOpChangedListener.class);
+        mSnapshot.getPackageModes(mContext, OP);
+        verify(mAppOpsManager).startWatchingMode(eq(OP), isNull(), captor.capture());
+
+        captor.getValue().onOpChanged(AppOpsManager.opToPublicName(OP), PACKAGE_NAME);
+        mSnapshot.getPackageModes(mContext, OP);
+
+        verify(mAppOpsManager, times(2)).getPackagesForOps(any(int[].class));
+    }
+
+    @Test
+    public void verifyMode_sameMode_shouldKeepSnapshot() {
+        mSnapshot.getPackageModes(mContext, OP);
+        mSnapshot.verifyMode(OP, UID, PACKAGE_NAME, AppOpsManager.MODE_ALLOWED);
+        mSnapshot.verifyMode(OP, UID, "other", AppOpsManager.MODE_DEFAULT);
+        mSnapshot.getPackageModes(mContext, OP);
+
+        verify(mAppOpsManager, times(1)).getPackagesForOps(any(int[].class));
+    }
+
+    @Test
+    public void verifyMode_differentMode_shouldFetchAgain() {
+        mSnapshot.getPackageModes(mContext, OP);
+        mSnapshot.verifyMode(OP, UID, PACKAGE_NAME, AppOpsManager.MODE_ERRORED);
+        mSnapshot.getPackageModes(mContext, OP);
+
+        verify(mAppOpsManager, times(2)).getPackagesForOps(any(int[].class));
+    }
+}
@@ -35,6 +35,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -71,6 +72,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -100,9 +102,18 @@ public class AppStateNotificationBridgeTest {
         when(mState.getBackgroundLooper()).thenReturn(mock(Looper.class));
         when(mBackend.getNotificationsBanned(anyString(), anyInt())).thenReturn(true);
         when(mBackend.enableSwitch(any(), any())).thenReturn(true);
+        when(mBackend.getBlockStates(any(), anyList())).thenAnswer(invocation -> {
+            final List<NotificationBackend.BlockState> states = new ArrayList<>();
+            final int count = ((List<?>) invocation.getArgument(1)).size();
+            for (int i = 0; i < count; i++) {
+                states.add(new NotificationBackend.BlockState(true, true));
+            }
+            return states;
+        });
         // most tests assume no work profile
         when(mUserManager.getProfileIdsWithDisabled(anyInt())).thenReturn(new int[]{});
         mContext = RuntimeEnvironment.application.getApplicationContext();
+        NotificationSentStatsCache.getInstance(mContext).clear();
 
         mBridge = new AppStateNotificationBridge(mContext, mState,
                 mock(AppStateBaseBridge.Callback.class), mUsageStats, mUserManager, mBackend);
@@ -214,7 +225,7 @@ public class AppStateNotificationBridgeTest {
         mBridge.loadAllExtraInfo();
         // extra info should exist and blocked status should be populated
         assertThat(apps.get(0).extraInfo).isNotNull();
-        verify(mBackend).getNotificationsBanned(PKG1, 0);
+        verify(mBackend).getBlockStates(mContext, Collections.singletonList(apps.get(0).info));
         // but the recent/frequent counts should be 0 so they don't appear on those screens
         assertThat(((NotificationsSentState) apps.get(0).extraInfo).avgSentDaily).isEqualTo(0);
         assertThat(((NotificationsSentState) apps.get(0).extraInfo).lastSent).isEqualTo(0);
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static android.app.usage.UsageEvents.Event.NOTIFICATION_INTERRUPTION;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageEvents.Event;
+import android.os.Parcel;
+import android.util.AtomicFile;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationSentStatsCacheTest {
+    private static final String PKG1 = "pkg1";
+    private static final String PKG2 = "pkg2";
+    private static final int USER_ID = 0;
+
+    private AtomicFile mFile;
+    private NotificationSentStatsCache mCache;
+    private List<long[]> mQueries;
+
+    @Before
+    public void setUp() {
+        mFile = new AtomicFile(new File(RuntimeEnvironment.application.getNoBackupFilesDir(),
+                NotificationSentStatsCache.FILE_NAME));
+        mFile.delete();
+        mCache = new NotificationSentStatsCache(mFile);
+        mQueries = new ArrayList<>();
+    }
+
+    @Test
+    public void update_firstTime_shouldScanWholeWindow() {
+        update(10, 100, createEvent(PKG1, 20), createEvent(PKG1, 30), createEvent(PKG2, 40));
+
+        assertThat(mQueries.get(0)).isEqualTo(new long[] {10, 100});
+        assertThat(mCache.getStats(USER_ID, PKG1).sentCount).isEqualTo(2);
+        assertThat(mCache.getStats(USER_ID, PKG1).lastSent).isEqualTo(30);
+        assertThat(mCache.getStats(USER_ID, PKG2).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void update_secondTime_shouldOnlyScanSinceCheckpoint() {
+        update(10, 100, createEvent(PKG1, 20));
+        update(20, 200, createEvent(PKG1, 150));
+
+        assertThat(mQueries.get(1)).isEqualTo(new long[] {100, 200});
+        assertThat(mCache.getStats(USER_ID, PKG1).sentCount).isEqualTo(2);
+        assertThat(mCache.getStats(USER_ID, PKG1).lastSent).isEqualTo(150);
+    }
+
+    @Test
+    public void update_windowMoved_shouldDropOldNotifications() {
+        update(10, 100, createEvent(PKG1, 20), createEvent(PKG1, 90), createEvent(PKG2, 30));
+        update(50, 200);
+
+        assertThat(mCache.getStats(USER_ID, PKG1).sentCount).isEqualTo(1);
+        assertThat(mCache.getStats(USER_ID, PKG1).lastSent).isEqualTo(90);
+        assertThat(mCache.getStats(USER_ID, PKG2)).isNull();
+        assertThat(mCache.getStats(USER_ID)).containsKey(PKG1);
+    }
+
+    @Test
+    public void update_queryFailed_shouldNotMoveCheckpoint() {
+        update(10, 100, createEvent(PKG1, 20));
+        mCache.update(USER_ID, 20, 200, (beginTime, endTime) -> null);
+        update(30, 300);
+
+        assertThat(mQueries.get(1)).isEqualTo(new long[] {100, 300});
+    }
+
+    @Test
+    public void update_otherEvents_shouldBeIgnored() {
+        final Event event = createEvent(PKG1, 20);
+        event.mEventType = Event.CHOOSER_ACTION;
+
+        update(10, 100, event);
+
+        assertThat(mCache.getStats(USER_ID, PKG1)).isNull();
+        assertThat(mCache.hasUser(USER_ID)).isTrue();
+    }
+
+    @Test
+    public void newCache_afterUpdate_shouldReadPersistedStatsAndScanIncrementally() {
+        update(10, 100, createEvent(PKG1, 20), createEvent(PKG1, 30));
+
+        mCache = new NotificationSentStatsCache(mFile);
+        assertThat(mCache.hasUser(USER_ID)).isTrue();
+        assertThat(mCache.getStats(USER_ID, PKG1).sentCount).isEqualTo(2);
+        assertThat(mCache.getStats(USER_ID, PKG1).lastSent).isEqualTo(30);
+
+        update(10, 200, createEvent(PKG1, 150));
+
+        assertThat(mQueries.get(1)).isEqualTo(new long[] {100, 200});
+        assertThat(mCache.getStats(USER_ID, PKG1).sentCount).isEqualTo(3);
+    }
+
+    @Test
+    public void newCache_corruptedFile_shouldScanWholeWindow() throws Exception {
+        final FileOutputStream outputStream = mFile.startWrite();
+        outputStream.write(new byte[] {1, 2, 3});
+        mFile.finishWrite(outputStream);
+
+        assertThat(mCache.hasUser(USER_ID)).isFalse();
+        update(10, 100, createEvent(PKG1, 20));
+
+        assertThat(mQueries.get(0)).isEqualTo(new long[] {10, 100});
+        assertThat(mCache.getStats(USER_ID, PKG1).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void update_clockWentBack_shouldScanWholeWindow() {
+        update(10, 100, createEvent(PKG1, 20));
+        update(5, 50, createEvent(PKG1, 30));
+
+        assertThat(mQueries.get(1)).isEqualTo(new long[] {5, 50});
+        assertThat(mCache.getStats(USER_ID, PKG1).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void clear_shouldDropPersistedStats() {
+        update(10, 100, createEvent(PKG1, 20));
+
+        mCache.clear();
+
+        assertThat(new NotificationSentStatsCache(mFile).hasUser(USER_ID)).isFalse();
+    }
+
+    private void update(long windowStart, long now, Event... events) {
+        mCache.update(USER_ID, windowStart, now, (beginTime, endTime) -> {
+            mQueries.add(new long[] {beginTime, endTime});
+            return getUsageEvents(Arrays.asList(events));
+        });
+    }
+
+    private static Event createEvent(String pkg, long timestamp) {
+        final Event event = new Event();
+        event.mEventType = NOTIFICATION_INTERRUPTION;
+        event.mPackage = pkg;
+        event.mTimeStamp = timestamp;
+        return event;
+    }
+
+    private static UsageEvents getUsageEvents(List<Event> events) {
+        final UsageEvents usageEvents = new UsageEvents(events, new String[] {PKG1, PKG2});
+        final Parcel parcel = Parcel.obtain();
+        parcel.setDataPosition(0);
+        usageEvents.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        return UsageEvents.CREATOR.createFromParcel(parcel);
+    }
+}
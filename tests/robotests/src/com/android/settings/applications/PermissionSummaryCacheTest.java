@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.LocaleList;
+
+import com.android.settingslib.applications.PermissionsSummaryHelper.PermissionsResultCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class PermissionSummaryCacheTest {
+    private static final String PKG1 = "pkg1";
+    private static final String PKG2 = "pkg2";
+    private static final int UID = 10001;
+
+    @Mock
+    private Context mContext;
+    @Mock
+    private PackageManager mPackageManager;
+    @Mock
+    private Resources mResources;
+
+    private Configuration mConfiguration;
+    private List<String> mRequests;
+    private List<PermissionsResultCallback> mCallbacks;
+    private PermissionSummaryCache mCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mContext.getApplicationContext()).thenReturn(mContext);
+        when(mContext.getPackageManager()).thenReturn(mPackageManager);
+        mConfiguration = new Configuration();
+        mConfiguration.setLocales(new LocaleList(Locale.US));
+        when(mContext.getResources()).thenReturn(mResources);
+        when(mResources.getConfiguration()).thenReturn(mConfiguration);
+        mRequests = new ArrayList<>();
+        mCallbacks = new ArrayList<>();
+        mCache = new PermissionSummaryCache((context, packageName, callback) -> {
+            mRequests.add(packageName);
+            mCallbacks.add(callback);
+        });
+    }
+
+    @Test
+    public void getPermissionSummaries_shouldDeliverOnceAllLoaded() {
+        final List<Map<String, PermissionSummaryCache.PermissionSummary>> results =
+                new ArrayList<>();
+
+        mCache.getPermissionSummaries(mContext, Arrays.asList(PKG1, PKG2), results::add);
+        mCallbacks.get(0).onPermissionSummaryResult(1, 2, 0, Collections.singletonList("A"));
+        assertThat(results).isEmpty();
+        mCallbacks.get(1).onPermissionSummaryResult(0, 1, 0, Collections.emptyList());
+
+        assertThat(mRequests).containsExactly(PKG1, PKG2);
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).get(PKG1).grantedGroupLabels).containsExactly("A");
+        assertThat(results.get(0).get(PKG2).requestedPermissionCount).isEqualTo(1);
+        verify(mPackageManager).addOnPermissionsChangeListener(any());
+    }
+
+    @Test
+    public void getPermissionSummaries_cached_shouldDeliverWithoutRequest() {
+        loadSummary(PKG1);
+        final List<Map<String, PermissionSummaryCache.PermissionSummary>> results =
+                new ArrayList<>();
+
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(PKG1), results::add);
+
+        assertThat(mRequests).hasSize(1);
+        assertThat(results).hasSize(1);
+    }
+
+    @Test
+    public void getPermissionSummaries_pendingRequest_shouldNotRequestAgain() {
+        final List<Map<String, PermissionSummaryCache.PermissionSummary>> results =
+                new ArrayList<>();
+
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(PKG1), results::add);
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(PKG1), results::add);
+        mCallbacks.get(0).onPermissionSummaryResult(1, 1, 0, Collections.emptyList());
+
+        assertThat(mRequests).hasSize(1);
+        assertThat(results).hasSize(2);
+    }
+
+    @Test
+    public void getPermissionSummaries_localeChanged_shouldRequestAgain() {
+        loadSummary(PKG1);
+        mConfiguration.setLocales(new LocaleList(Locale.FRANCE));
+
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(PKG1), summaries -> {});
+
+        assertThat(mRequests).containsExactly(PKG1, PKG1);
+    }
+
+    @Test
+    public void localeChanged_duringRequest_shouldNotCacheResult() {
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(PKG1), summaries -> {});
+        mConfiguration.setLocales(new LocaleList(Locale.FRANCE));
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(PKG2), summaries -> {});
+        mCallbacks.get(0).onPermissionSummaryResult(1, 1, 0, Collections.emptyList());
+
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(PKG1), summaries -> {});
+
+        assertThat(mRequests).containsExactly(PKG1, PKG2, PKG1);
+    }
+
+    @Test
+    public void invalidateUid_shouldRequestPackagesOfUidAgain() {
+        when(mPackageManager.getPackagesForUid(UID)).thenReturn(new String[] {PKG1});
+        loadSummary(PKG1);
+        loadSummary(PKG2);
+
+        mCache.invalidateUid(UID);
+        mCache.getPermissionSummaries(mContext, Arrays.asList(PKG1, PKG2), summaries -> {});
+
+        assertThat(mRequests).containsExactly(PKG1, PKG2, PKG1);
+    }
+
+    @Test
+    public void invalidate_duringRequest_shouldNotCacheResult() {
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(PKG1), summaries -> {});
+        mCache.invalidate(PKG1);
+        mCallbacks.get(0).onPermissionSummaryResult(1, 1, 0, Collections.emptyList());
+
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(PKG1), summaries -> {});
+
+        assertThat(mRequests).containsExactly(PKG1, PKG1);
+    }
+
+    private void loadSummary(String packageName) {
+        mCache.getPermissionSummaries(mContext, Collections.singletonList(packageName),
+                summaries -> {});
+        mCallbacks.get(mCallbacks.size() - 1).onPermissionSummaryResult(1, 1, 0,
+                Collections.emptyList());
+    }
+}
@@ -85,6 +85,7 @@ public class RecentAppStatsMixinTest {
         doReturn(mPackageManager).when(context).getPackageManager();
         doReturn(mPowerManager).when(context).getSystemService(PowerManager.class);
         when(mUserManager.getProfileIdsWithDisabled(anyInt())).thenReturn(new int[]{});
+        RecentAppsStore.getInstance().clear();
 
         mRecentAppStatsMixin = new RecentAppStatsMixin(context, 3 /* maximumApps */);
     }
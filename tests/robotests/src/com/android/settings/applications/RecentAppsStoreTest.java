@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static android.app.usage.UsageEvents.Event.ACTIVITY_RESUMED;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageEvents.Event;
+import android.app.usage.UsageStats;
+import android.app.usage.UsageStatsManager;
+import android.os.Parcel;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class RecentAppsStoreTest {
+    private static final String PKG1 = "pkg1";
+    private static final String PKG2 = "pkg2";
+
+    @Mock
+    private UsageStatsManager mUsageStatsManager;
+
+    private RecentAppsStore mStore;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mStore = new RecentAppsStore();
+        when(mUsageStatsManager.queryUsageStats(anyInt(), anyLong(), anyLong())).thenReturn(
+                Arrays.asList(createStats(PKG1, 20), createStats(PKG1, 30)));
+    }
+
+    @Test
+    public void getUsageStats_firstTime_shouldAggregateUsageStats() {
+        final List<UsageStats> stats = mStore.getUsageStats(mUsageStatsManager, 10, 100);
+
+        assertThat(stats).hasSize(1);
+        assertThat(stats.get(0).getPackageName()).isEqualTo(PKG1);
+        assertThat(stats.get(0).getLastTimeUsed()).isEqualTo(30);
+        verify(mUsageStatsManager, never()).queryEvents(anyLong(), anyLong());
+    }
+
+    @Test
+    public void getUsageStats_secondTime_shouldOnlyReadEventsSinceCheckpoint() {
+        when(mUsageStatsManager.queryEvents(100, 200)).thenReturn(
+                getUsageEvents(createEvent(PKG1, 150), createEvent(PKG2, 160)));
+
+        mStore.getUsageStats(mUsageStatsManager, 10, 100);
+        final List<UsageStats> stats = mStore.getUsageStats(mUsageStatsManager, 10, 200);
+
+        verify(mUsageStatsManager, times(1)).queryUsageStats(anyInt(), anyLong(), anyLong());
+        assertThat(stats).hasSize(2);
+        for (UsageStats pkgStats : stats) {
+            assertThat(pkgStats.getLastTimeUsed())
+                    .isEqualTo(PKG1.equals(pkgStats.getPackageName()) ? 150 : 160);
+        }
+    }
+
+    @Test
+    public void getUsageStats_windowMoved_shouldDropOldPackages() {
+        when(mUsageStatsManager.queryEvents(anyLong(), anyLong())).thenReturn(getUsageEvents());
+
+        mStore.getUsageStats(mUsageStatsManager, 10, 100);
+
+        assertThat(mStore.getUsageStats(mUsageStatsManager, 40, 200)).isEmpty();
+    }
+
+    @Test
+    public void getUsageStats_eventsUnavailable_shouldQueryUsageStatsAgain() {
+        mStore.getUsageStats(mUsageStatsManager, 10, 100);
+        mStore.getUsageStats(mUsageStatsManager, 10, 200);
+
+        verify(mUsageStatsManager, times(2)).queryUsageStats(anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void getUsageStats_modelExpired_shouldQueryUsageStatsAgain() {
+        when(mUsageStatsManager.queryEvents(anyLong(), anyLong())).thenReturn(getUsageEvents());
+
+        mStore.getUsageStats(mUsageStatsManager, 10, 100);
+        mStore.getUsageStats(mUsageStatsManager, 10, 100 + RecentAppsStore.MAX_AGE_MS + 1);
+
+        verify(mUsageStatsManager, times(2)).queryUsageStats(anyInt(), anyLong(), anyLong());
+        verify(mUsageStatsManager, never()).queryEvents(anyLong(), anyLong());
+    }
+
+    @Test
+    public void getUsageStats_returnedStatsModified_shouldNotChangeModel() {
+        mStore.getUsageStats(mUsageStatsManager, 10, 100).get(0).mLastTimeUsed = 0;
+        when(mUsageStatsManager.queryEvents(anyLong(), anyLong())).thenReturn(getUsageEvents());
+
+        assertThat(mStore.getUsageStats(mUsageStatsManager, 10, 200).get(0).getLastTimeUsed())
+                .isEqualTo(30);
+    }
+
+    private static UsageStats createStats(String pkg, long lastTimeUsed) {
+        final UsageStats stats = new UsageStats();
+        stats.mPackageName = pkg;
+        stats.mLastTimeUsed = lastTimeUsed;
+        return stats;
+    }
+
+    private static Event createEvent(String pkg, long timestamp) {
+        final Event event = new Event();
+        event.mEventType = ACTIVITY_RESUMED;
+        event.mPackage = pkg;
+        event.mTimeStamp = timestamp;
+        return event;
+    }
+
+    private static UsageEvents getUsageEvents(Event... events) {
+        final UsageEvents usageEvents = new UsageEvents(Arrays.asList(events),
+                new String[] {PKG1, PKG2});
+        final Parcel parcel = Parcel.obtain();
+        parcel.setDataPosition(0);
+        usageEvents.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        return UsageEvents.CREATOR.createFromParcel(parcel);
+    }
+}
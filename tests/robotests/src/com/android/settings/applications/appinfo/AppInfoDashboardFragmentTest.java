@@ -24,6 +24,7 @@ import static com.android.settings.applications.appinfo.AppInfoDashboardFragment
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -233,16 +234,35 @@ public final class AppInfoDashboardFragmentTest {
         mFragment.onPackageSizeChanged("Not_" + PACKAGE_NAME);
 
         verify(mFragment, never()).refreshUi();
+        verify(mFragment, never()).notifyInputsChanged(anyInt());
     }
 
     @Test
-    public void packageSizeChange_isOwnPackage_shouldRefreshUi() {
-        doReturn(Boolean.TRUE).when(mFragment).refreshUi();
+    public void packageSizeChange_isOwnPackage_shouldRefreshStorageOnly() {
         ReflectionHelpers.setField(mFragment, "mPackageName", PACKAGE_NAME);
 
         mFragment.onPackageSizeChanged(PACKAGE_NAME);
 
-        verify(mFragment).refreshUi();
+        verify(mFragment).notifyInputsChanged(AppInfoDashboardFragment.INPUT_STORAGE);
+        verify(mFragment, never()).refreshUi();
+    }
+
+    @Test
+    public void notifyInputsChanged_shouldOnlyRefreshDependentCallbacks() {
+        final AppInfoDashboardFragment.Callback storageCallback =
+                mock(AppInfoDashboardFragment.Callback.class);
+        final AppInfoDashboardFragment.Callback packageCallback =
+                mock(AppInfoDashboardFragment.Callback.class);
+        when(storageCallback.getRefreshInputs()).thenReturn(AppInfoDashboardFragment.INPUT_STORAGE);
+        when(packageCallback.getRefreshInputs())
+                .thenReturn(AppInfoDashboardFragment.INPUT_PACKAGE_INFO);
+        mFragment.addToCallbackList(storageCallback);
+        mFragment.addToCallbackList(packageCallback);
+
+        mFragment.notifyInputsChanged(AppInfoDashboardFragment.INPUT_STORAGE);
+
+        verify(storageCallback).refreshUi();
+        verify(packageCallback, never()).refreshUi();
     }
 
     // Tests that we don't show the "uninstall for all users" button for instant apps.
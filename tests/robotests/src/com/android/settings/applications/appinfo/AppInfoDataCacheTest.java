@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.appinfo;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import com.android.settingslib.applications.StorageStatsSource.AppStorageStats;
+import com.android.settingslib.net.NetworkCycleDataForUid;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppInfoDataCacheTest {
+    private static final String PACKAGE_NAME = "pkg";
+    private static final int USER_ID = 0;
+    private static final int UID = 10001;
+
+    private AppInfoDataCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = new AppInfoDataCache();
+    }
+
+    @Test
+    public void getStorageStats_notLoaded_returnNull() {
+        assertThat(mCache.getStorageStats(USER_ID, PACKAGE_NAME)).isNull();
+    }
+
+    @Test
+    public void putStorageStats_shouldBeKeyedByUserAndPackage() {
+        final AppStorageStats stats = mock(AppStorageStats.class);
+
+        mCache.putStorageStats(USER_ID, PACKAGE_NAME, stats);
+
+        assertThat(mCache.getStorageStats(USER_ID, PACKAGE_NAME)).isSameInstanceAs(stats);
+        assertThat(mCache.getStorageStats(USER_ID + 10, PACKAGE_NAME)).isNull();
+        assertThat(mCache.getStorageStats(USER_ID, "other")).isNull();
+    }
+
+    @Test
+    public void putStorageStats_null_shouldKeepLastStats() {
+        final AppStorageStats stats = mock(AppStorageStats.class);
+        mCache.putStorageStats(USER_ID, PACKAGE_NAME, stats);
+
+        mCache.putStorageStats(USER_ID, PACKAGE_NAME, null);
+
+        assertThat(mCache.getStorageStats(USER_ID, PACKAGE_NAME)).isSameInstanceAs(stats);
+    }
+
+    @Test
+    public void putStorageStats_tooManyApps_shouldEvictLeastRecentlyUsed() {
+        for (int i = 0; i <= AppInfoDataCache.MAX_CACHED_APPS; i++) {
+            mCache.putStorageStats(USER_ID, PACKAGE_NAME + i, mock(AppStorageStats.class));
+        }
+
+        assertThat(mCache.getStorageStats(USER_ID, PACKAGE_NAME + 0)).isNull();
+        assertThat(mCache.getStorageStats(USER_ID, PACKAGE_NAME + 1)).isNotNull();
+    }
+
+    @Test
+    public void putDataUsage_shouldBeKeyedByUid() {
+        final List<NetworkCycleDataForUid> data = new ArrayList<>();
+
+        mCache.putDataUsage(UID, data);
+        mCache.putDataUsage(UID + 1, null);
+
+        assertThat(mCache.getDataUsage(UID)).isSameInstanceAs(data);
+        assertThat(mCache.getDataUsage(UID + 1)).isNull();
+    }
+
+    @Test
+    public void clear_shouldDropEverything() {
+        mCache.putStorageStats(USER_ID, PACKAGE_NAME, mock(AppStorageStats.class));
+        mCache.putDataUsage(UID, new ArrayList<>());
+
+        mCache.clear();
+
+        assertThat(mCache.getStorageStats(USER_ID, PACKAGE_NAME)).isNull();
+        assertThat(mCache.getDataUsage(UID)).isNull();
+    }
+}
@@ -100,6 +100,8 @@ public class AdvancedBluetoothDetailsHeaderControllerTest {
         when(mCachedDevice.getDevice()).thenReturn(mBluetoothDevice);
         when(mCachedDevice.getAddress()).thenReturn(MAC_ADDRESS);
         when(mCachedDevice.getIdentityAddress()).thenReturn(MAC_ADDRESS);
+        when(mBluetoothDevice.getAddress()).thenReturn(MAC_ADDRESS);
+        mController.mIconResolver.clear();
     }
 
     @Test
@@ -325,13 +327,25 @@ public class AdvancedBluetoothDetailsHeaderControllerTest {
 
     @Test
     public void updateIcon_existInCache_setImageBitmap() {
-        mController.mIconCache.put(ICON_URI, mBitmap);
+        mController.mIconResolver.putIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON,
+                ICON_URI, mBitmap);
 
-        mController.updateIcon(mImageView, ICON_URI);
+        mController.updateIcon(mImageView, BluetoothDevice.METADATA_MAIN_ICON, ICON_URI);
 
         verify(mImageView).setImageBitmap(mBitmap);
     }
 
+    @Test
+    public void updateIcon_iconUriChanged_notUseCachedIcon() {
+        mController.mIconResolver.putIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON,
+                ICON_URI, mBitmap);
+
+        mController.updateIcon(mImageView, BluetoothDevice.METADATA_MAIN_ICON,
+                ICON_URI + "_new");
+
+        verify(mImageView, never()).setImageBitmap(mBitmap);
+    }
+
     @Test
     public void onStart_isAvailable_registerCallback() {
         DeviceConfig.setProperty(DeviceConfig.NAMESPACE_SETTINGS_UI,
@@ -377,13 +391,15 @@ public class AdvancedBluetoothDetailsHeaderControllerTest {
     }
 
     @Test
-    public void onDestroy_recycleBitmap() {
-        mController.mIconCache.put(ICON_URI, mBitmap);
+    public void onDestroy_notRecycleSharedBitmap() {
+        mController.mIconResolver.putIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON,
+                ICON_URI, mBitmap);
 
         mController.onDestroy();
 
-        assertThat(mController.mIconCache).isEmpty();
-        verify(mBitmap).recycle();
+        verify(mBitmap, never()).recycle();
+        assertThat(mController.mIconResolver.getIcon(mBluetoothDevice,
+                BluetoothDevice.METADATA_MAIN_ICON, ICON_URI)).isEqualTo(mBitmap);
     }
 
     @Test
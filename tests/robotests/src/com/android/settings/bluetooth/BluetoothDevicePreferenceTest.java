@@ -103,6 +103,7 @@ public class BluetoothDevicePreferenceTest {
         when(mCachedDevice3.getAddress()).thenReturn(MAC_ADDRESS_4);
         when(mCachedDevice3.getDrawableWithDescription())
                 .thenReturn(new Pair<>(mDrawable, FAKE_DESCRIPTION));
+        BluetoothIconResolver.getInstance(mContext).clear();
         mPreference = new BluetoothDevicePreference(mContext, mCachedBluetoothDevice,
                 SHOW_DEVICES_WITHOUT_NAMES, BluetoothDevicePreference.SortType.TYPE_DEFAULT);
     }
@@ -290,4 +291,51 @@ public class BluetoothDevicePreferenceTest {
 
         verify(mCachedBluetoothDevice, times(2)).registerCallback(any());
     }
+
+    @Test
+    public void constructor_iconNotResolved_showClassIconUntilResolved() {
+        final BluetoothIconResolver resolver = BluetoothIconResolver.getInstance(mContext);
+        final List<Runnable> backgroundTasks = new ArrayList<>();
+        resolver.mBackgroundExecutor = backgroundTasks::add;
+
+        final BluetoothDevicePreference preference = new BluetoothDevicePreference(mContext,
+                mCachedDevice1, SHOW_DEVICES_WITHOUT_NAMES,
+                BluetoothDevicePreference.SortType.TYPE_DEFAULT);
+
+        assertThat(preference.getIcon()).isNotNull();
+        assertThat(resolver.getDeviceIcon(mCachedDevice1)).isNull();
+
+        backgroundTasks.get(0).run();
+
+        assertThat(resolver.getDeviceIcon(mCachedDevice1)).isNotNull();
+        verify(mCachedDevice1, never()).getDrawableWithDescription();
+    }
+
+    @Test
+    public void onPreferenceAttributesChanged_whileResolving_resolveOnceMoreAfterward() {
+        final List<Runnable> backgroundTasks = new ArrayList<>();
+        BluetoothIconResolver.getInstance(mContext).mBackgroundExecutor = backgroundTasks::add;
+
+        mPreference.onPreferenceAttributesChanged();
+        mPreference.onPreferenceAttributesChanged();
+        assertThat(backgroundTasks).hasSize(1);
+
+        backgroundTasks.get(0).run();
+
+        // One resolution for both changes, as the first was still running at the second one.
+        assertThat(backgroundTasks).hasSize(2);
+    }
+
+    @Test
+    public void constructor_deviceWithoutAddress_resolveIconWithoutCaching() {
+        when(mCachedDevice1.getAddress()).thenReturn(null);
+
+        final BluetoothDevicePreference preference = new BluetoothDevicePreference(mContext,
+                mCachedDevice1, SHOW_DEVICES_WITHOUT_NAMES,
+                BluetoothDevicePreference.SortType.TYPE_DEFAULT);
+
+        assertThat(preference.getIcon()).isNotNull();
+        assertThat(BluetoothIconResolver.getInstance(mContext).getDeviceIcon(mCachedDevice1))
+                .isNull();
+    }
 }
@@ -25,6 +25,7 @@ import static org.mockito.Mockito.when;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothProfile;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.drawable.Drawable;
@@ -50,9 +51,11 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {ShadowBluetoothAdapter.class})
@@ -274,4 +277,48 @@ public class BluetoothDeviceUpdaterTest {
 
         assertThat(mPreference.getTitle()).isEqualTo(TEST_NAME);
     }
+
+    @Test
+    public void onProfileConnectionStateChanged_burst_coalesceUpdates() {
+        mBluetoothDeviceUpdater.onProfileConnectionStateChanged(mCachedBluetoothDevice,
+                BluetoothProfile.STATE_CONNECTED, BluetoothProfile.A2DP);
+        assertThat(mBluetoothDeviceUpdater.getFilterEvaluationCount()).isEqualTo(1);
+
+        mBluetoothDeviceUpdater.onProfileConnectionStateChanged(mCachedBluetoothDevice,
+                BluetoothProfile.STATE_CONNECTED, BluetoothProfile.HEADSET);
+        mBluetoothDeviceUpdater.onAclConnectionStateChanged(mCachedBluetoothDevice,
+                BluetoothAdapter.STATE_CONNECTED);
+        assertThat(mBluetoothDeviceUpdater.getFilterEvaluationCount()).isEqualTo(1);
+
+        ShadowLooper.idleMainLooper(BluetoothDeviceUpdater.UPDATE_COALESCE_WINDOW_MS,
+                TimeUnit.MILLISECONDS);
+        assertThat(mBluetoothDeviceUpdater.getFilterEvaluationCount()).isEqualTo(2);
+        verify(mDevicePreferenceCallback).onDeviceAdded(any(Preference.class));
+    }
+
+    @Test
+    public void forceUpdate_copyCachedDevicesOnce() {
+        mShadowBluetoothAdapter.setEnabled(true);
+        mBluetoothDeviceUpdater = new BluetoothDeviceUpdater(mContext, mDashboardFragment,
+                mDevicePreferenceCallback, mLocalManager) {
+            @Override
+            public boolean isFilterMatched(CachedBluetoothDevice cachedBluetoothDevice) {
+                return isDeviceInCachedDevicesList(cachedBluetoothDevice);
+            }
+
+            @Override
+            protected String getPreferenceKey() {
+                return "test_bt";
+            }
+        };
+        mBluetoothDeviceUpdater.setPrefContext(mContext);
+        when(mSubCachedBluetoothDevice.getDrawableWithDescription())
+                .thenReturn(new Pair<>(mDrawable, "fake_sub_device"));
+        mCachedDevices.add(mSubCachedBluetoothDevice);
+
+        mBluetoothDeviceUpdater.forceUpdate();
+
+        verify(mCachedDeviceManager).getCachedDevicesCopy();
+        assertThat(mBluetoothDeviceUpdater.getFilterEvaluationCount()).isEqualTo(2);
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.bluetooth.BluetoothDevice;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.util.Pair;
+
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+import com.android.settingslib.widget.AdaptiveOutlineDrawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BluetoothIconResolverTest {
+    private static final String MAC_ADDRESS = "04:52:C7:0B:D8:3C";
+    private static final String ICON_URI = "content://test.provider/icon.png";
+
+    @Mock
+    private BluetoothDevice mBluetoothDevice;
+    @Mock
+    private CachedBluetoothDevice mCachedDevice;
+    @Mock
+    private Bitmap mBitmap;
+
+    private BluetoothIconResolver mResolver;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mBluetoothDevice.getAddress()).thenReturn(MAC_ADDRESS);
+        when(mCachedDevice.getAddress()).thenReturn(MAC_ADDRESS);
+        mResolver = BluetoothIconResolver.getInstance(RuntimeEnvironment.application);
+        mResolver.clear();
+    }
+
+    @Test
+    public void getIcon_sameUri_returnCachedIcon() {
+        mResolver.putIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON, ICON_URI,
+                mBitmap);
+
+        assertThat(mResolver.getIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON,
+                ICON_URI)).isEqualTo(mBitmap);
+    }
+
+    @Test
+    public void getIcon_differentUriOrKey_returnNull() {
+        mResolver.putIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON, ICON_URI,
+                mBitmap);
+
+        assertThat(mResolver.getIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON,
+                ICON_URI + "_new")).isNull();
+        assertThat(mResolver.getIcon(mBluetoothDevice,
+                BluetoothDevice.METADATA_UNTETHERED_LEFT_ICON, ICON_URI)).isNull();
+    }
+
+    @Test
+    public void loadIcon_iconCached_invokeCallbackImmediately() {
+        final List<Bitmap> bitmaps = new ArrayList<>();
+        mResolver.putIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON, ICON_URI,
+                mBitmap);
+
+        mResolver.loadIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON, ICON_URI,
+                bitmaps::add);
+
+        assertThat(bitmaps).containsExactly(mBitmap);
+    }
+
+    @Test
+    public void getDeviceIcon_notResolved_returnNull() {
+        assertThat(mResolver.getDeviceIcon(mCachedDevice)).isNull();
+    }
+
+    @Test
+    public void resolveDeviceIcon_noMainIcon_resolveClassIconInBackground() {
+        final List<Runnable> backgroundTasks = new ArrayList<>();
+        final List<Pair<Drawable, String>> icons = new ArrayList<>();
+        mResolver.mBackgroundExecutor = backgroundTasks::add;
+
+        mResolver.resolveDeviceIcon(mCachedDevice, icons::add);
+        assertThat(icons).isEmpty();
+        backgroundTasks.get(0).run();
+
+        assertThat(icons).hasSize(1);
+        assertThat(icons.get(0).second)
+                .isEqualTo(mResolver.getDeviceClassIcon(mCachedDevice).second);
+        assertThat(mResolver.getDeviceIcon(mCachedDevice)).isNotNull();
+        verify(mCachedDevice, never()).getDrawableWithDescription();
+    }
+
+    @Test
+    public void resolveDeviceIcon_mainIconCached_resolveMainIcon() {
+        final Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        final List<Pair<Drawable, String>> icons = new ArrayList<>();
+        when(mCachedDevice.getDevice()).thenReturn(mBluetoothDevice);
+        when(mBluetoothDevice.getMetadata(BluetoothDevice.METADATA_IS_UNTETHERED_HEADSET))
+                .thenReturn("true".getBytes());
+        when(mBluetoothDevice.getMetadata(BluetoothDevice.METADATA_MAIN_ICON))
+                .thenReturn(ICON_URI.getBytes());
+        mResolver.putIcon(mBluetoothDevice, BluetoothDevice.METADATA_MAIN_ICON, ICON_URI, bitmap);
+
+        mResolver.resolveDeviceIcon(mCachedDevice, icons::add);
+
+        assertThat(icons).hasSize(1);
+        assertThat(icons.get(0).first).isInstanceOf(AdaptiveOutlineDrawable.class);
+        assertThat(mResolver.getDeviceIcon(mCachedDevice).first)
+                .isInstanceOf(AdaptiveOutlineDrawable.class);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.settings.slices.FakeContextOnlyPreferenceController;
+import com.android.settings.slices.FakePreferenceController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceControllerRegistryTest {
+    private static final String KEY = "key";
+
+    private Context mContext;
+    private PreferenceControllerRegistry mRegistry;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mRegistry = new PreferenceControllerRegistry();
+    }
+
+    @Test
+    public void createController_contextOnlyConstructor_shouldCreate() {
+        final BasePreferenceController controller = mRegistry.createController(mContext,
+                FakeContextOnlyPreferenceController.class.getName(), null /* key */,
+                false /* isWorkProfile */);
+
+        assertThat(controller).isInstanceOf(FakeContextOnlyPreferenceController.class);
+    }
+
+    @Test
+    public void createController_keyConstructor_shouldCreateWithKey() {
+        final BasePreferenceController controller = mRegistry.createController(mContext,
+                FakePreferenceController.class.getName(), KEY, false /* isWorkProfile */);
+
+        assertThat(controller).isInstanceOf(FakePreferenceController.class);
+        assertThat(controller.getPreferenceKey()).isEqualTo(KEY);
+    }
+
+    @Test
+    public void createController_contextOnlyConstructorForWork_shouldNotMarkForWork() {
+        final BasePreferenceController controller = mRegistry.createController(mContext,
+                FakeContextOnlyPreferenceController.class.getName(), KEY,
+                true /* isWorkProfile */);
+
+        // Not marked for work, so no work profile is needed to be available.
+        assertThat(controller.isAvailable()).isTrue();
+    }
+
+    @Test
+    public void createController_keyConstructorForWork_shouldMarkForWork() {
+        final BasePreferenceController controller = mRegistry.createController(mContext,
+                FakePreferenceController.class.getName(), KEY, true /* isWorkProfile */);
+
+        // Marked for work, and there is no work profile.
+        assertThat(controller.isAvailable()).isFalse();
+    }
+
+    @Test
+    public void createController_keyConstructorWithoutKey_shouldReturnNull() {
+        assertThat(mRegistry.createController(mContext,
+                FakePreferenceController.class.getName(), null /* key */,
+                false /* isWorkProfile */)).isNull();
+    }
+
+    @Test
+    public void createController_constructorThrows_shouldReturnNull() {
+        assertThat(mRegistry.createController(mContext, BadPreferenceController.class.getName(),
+                KEY, false /* isWorkProfile */)).isNull();
+    }
+
+    @Test
+    public void createController_unknownClass_shouldReturnNull() {
+        assertThat(mRegistry.createController(mContext, "com.example.UnknownController", KEY,
+                false /* isWorkProfile */)).isNull();
+    }
+
+    @Test
+    public void getFactory_sameClass_shouldResolveOnce() {
+        final String name = FakePreferenceController.class.getName();
+
+        assertThat(mRegistry.getFactory(name)).isSameInstanceAs(mRegistry.getFactory(name));
+    }
+
+    @Test
+    public void register_shouldUseRegisteredFactory() {
+        final String name = FakePreferenceController.class.getName();
+        final BasePreferenceController expected = new FakePreferenceController(mContext, KEY);
+        mRegistry.register(name, (context, key) -> expected);
+
+        assertThat(mRegistry.createController(mContext, name, KEY, false /* isWorkProfile */))
+                .isSameInstanceAs(expected);
+    }
+}
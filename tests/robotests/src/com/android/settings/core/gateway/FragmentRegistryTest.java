@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.gateway;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.settings.DisplaySettings;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class FragmentRegistryTest {
+    private static final String UNKNOWN_FRAGMENT = "com.example.UnknownFragment";
+
+    private Context mContext;
+    private FragmentRegistry mRegistry;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mRegistry = new FragmentRegistry();
+    }
+
+    @Test
+    public void isEntryFragment_gatewayFragment_returnTrue() {
+        assertThat(FragmentRegistry.isEntryFragment(DisplaySettings.class.getName())).isTrue();
+    }
+
+    @Test
+    public void isEntryFragment_unknownFragment_returnFalse() {
+        assertThat(FragmentRegistry.isEntryFragment(UNKNOWN_FRAGMENT)).isFalse();
+        assertThat(FragmentRegistry.isEntryFragment(null)).isFalse();
+    }
+
+    @Test
+    public void getFragmentInfo_unknownFragment_returnEmptyInfo() {
+        final FragmentRegistry.FragmentInfo info =
+                mRegistry.getFragmentInfo(mContext, UNKNOWN_FRAGMENT);
+
+        assertThat(info.getControllerNames()).isEmpty();
+        assertThat(mRegistry.prefetchControllers(mContext, UNKNOWN_FRAGMENT)).isEqualTo(0);
+    }
+
+    @Test
+    public void getFragmentInfo_calledTwice_shouldReturnCachedInfo() {
+        final FragmentRegistry.FragmentInfo info =
+                mRegistry.getFragmentInfo(mContext, UNKNOWN_FRAGMENT);
+
+        assertThat(mRegistry.getFragmentInfo(mContext, UNKNOWN_FRAGMENT)).isSameInstanceAs(info);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class PageTimingRecorderTest {
+    private static final String PAGE = "TestPage";
+
+    private PageTimingRecorder mRecorder;
+
+    @Before
+    public void setUp() {
+        mRecorder = new PageTimingRecorder();
+    }
+
+    @Test
+    public void getLastDurationMicros_notRecorded_returnNegative() {
+        assertThat(mRecorder.getLastDurationMicros(PAGE,
+                PageTimingRecorder.PHASE_XML_INFLATION)).isEqualTo(-1L);
+    }
+
+    @Test
+    public void record_shouldKeepLastMaxAndTotal() {
+        mRecorder.record(PAGE, PageTimingRecorder.PHASE_XML_INFLATION,
+                TimeUnit.MILLISECONDS.toNanos(5));
+        mRecorder.record(PAGE, PageTimingRecorder.PHASE_XML_INFLATION,
+                TimeUnit.MILLISECONDS.toNanos(2));
+
+        final PageTimingRecorder.PhaseStats stats =
+                mRecorder.getStats().get(PAGE).get(PageTimingRecorder.PHASE_XML_INFLATION);
+        assertThat(stats.getCount()).isEqualTo(2);
+        assertThat(stats.getLastMicros()).isEqualTo(2000L);
+        assertThat(stats.getMaxMicros()).isEqualTo(5000L);
+        assertThat(stats.getTotalMicros()).isEqualTo(7000L);
+    }
+
+    @Test
+    public void beginPhase_closed_shouldRecordPhase() {
+        try (PageTimingRecorder.Section section =
+                mRecorder.beginPhase(PAGE, PageTimingRecorder.PHASE_TILE_BINDING)) {
+            // Nothing to time.
+        }
+
+        assertThat(mRecorder.getLastDurationMicros(PAGE,
+                PageTimingRecorder.PHASE_TILE_BINDING)).isAtLeast(0L);
+    }
+
+    @Test
+    public void getStats_shouldReturnCopy() {
+        mRecorder.record(PAGE, PageTimingRecorder.PHASE_FIRST_DRAW, 1000);
+        final Map<String, Map<String, PageTimingRecorder.PhaseStats>> stats =
+                mRecorder.getStats();
+
+        mRecorder.record(PAGE, PageTimingRecorder.PHASE_FIRST_DRAW, 1000);
+
+        assertThat(stats.get(PAGE).get(PageTimingRecorder.PHASE_FIRST_DRAW).getCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void clear_shouldDropStats() {
+        mRecorder.record(PAGE, PageTimingRecorder.PHASE_FIRST_DRAW, 1000);
+
+        mRecorder.clear();
+
+        assertThat(mRecorder.getStats()).isEmpty();
+    }
+}
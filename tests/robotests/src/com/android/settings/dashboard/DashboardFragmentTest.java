@@ -46,6 +46,7 @@ import androidx.preference.SwitchPreference;
 
 import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
 import com.android.settings.core.PreferenceControllerMixin;
+import com.android.settings.core.instrumentation.PageTimingRecorder;
 import com.android.settings.slices.BlockingSlicePrefController;
 import com.android.settings.testutils.FakeFeatureFactory;
 import com.android.settingslib.PrimarySwitchPreference;
@@ -89,6 +90,7 @@ public class DashboardFragmentTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        PageTimingRecorder.getInstance().clear();
         mContext = spy(RuntimeEnvironment.application);
         final ActivityInfo activityInfo = new ActivityInfo();
         activityInfo.packageName = "pkg";
@@ -174,6 +176,19 @@ public class DashboardFragmentTest {
         verify(mTestFragment.mScreen, times(2)).addPreference(nullable(Preference.class));
     }
 
+    @Test
+    public void onCreatePreferences_shouldRecordPhaseTimings() {
+        final PageTimingRecorder recorder = PageTimingRecorder.getInstance();
+        final String page = TestFragment.class.getSimpleName();
+
+        mTestFragment.onCreatePreferences(new Bundle(), "rootKey");
+
+        final Map<String, PageTimingRecorder.PhaseStats> stats = recorder.getStats().get(page);
+        assertThat(stats.get(PageTimingRecorder.PHASE_CONTROLLER_CREATION).getCount())
+                .isEqualTo(1);
+        assertThat(stats.get(PageTimingRecorder.PHASE_TILE_BINDING).getCount()).isEqualTo(1);
+    }
+
     @Test
     public void displayTilesAsPreference_shouldNotAddTilesWithoutIntent() {
         mTestFragment.onCreatePreferences(new Bundle(), "rootKey");
@@ -18,17 +18,23 @@ package com.android.settings.datausage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.net.ConnectivityManager;
+import android.net.NetworkPolicyManager;
 import android.net.NetworkTemplate;
 import android.os.Bundle;
 import android.provider.Settings;
@@ -39,7 +45,11 @@ import android.widget.Spinner;
 
 import androidx.fragment.app.FragmentActivity;
 import androidx.loader.app.LoaderManager;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceGroup;
 import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
 import com.android.settings.SettingsActivity;
@@ -50,6 +60,8 @@ import com.android.settingslib.AppItem;
 import com.android.settingslib.NetworkPolicyEditor;
 import com.android.settingslib.core.instrumentation.VisibilityLoggerMixin;
 import com.android.settingslib.net.NetworkCycleChartData;
+import com.android.settingslib.net.UidDetail;
+import com.android.settingslib.net.UidDetailProvider;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -59,6 +71,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.android.controller.ActivityController;
 import org.robolectric.util.ReflectionHelpers;
 
@@ -67,6 +80,13 @@ import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
 public class DataUsageListTest {
+    private static final int APP_UID_1 = 10001;
+    private static final int APP_UID_2 = 10002;
+    private static final int USER_KEY = -2000;
+    private static final long CYCLE_1_START = 1521583200000L;
+    private static final long CYCLE_1_END = 1521676800000L;
+    private static final long CYCLE_2_START = 1521676800000L;
+    private static final long CYCLE_2_END = 1521763200000L;
 
     @Mock
     private MobileDataEnabledListener mMobileDataEnabledListener;
@@ -225,6 +245,150 @@ public class DataUsageListTest {
 
         verify(mLoaderManager).destroyLoader(DataUsageList.LOADER_CHART_DATA);
         verify(mLoaderManager).destroyLoader(DataUsageList.LOADER_SUMMARY);
+        verify(mLoaderManager).destroyLoader(DataUsageList.LOADER_PREFETCH);
+    }
+
+    @Test
+    public void bindStats_restrictedAppWithoutUsage_listedAfterUserItems() {
+        final PreferenceGroup apps = setUpAppList();
+        final NetworkCycleAppUsageAggregator aggregator = new NetworkCycleAppUsageAggregator();
+        aggregator.add(USER_KEY, AppItem.CATEGORY_USER, APP_UID_1, 100);
+        aggregator.add(APP_UID_1, AppItem.CATEGORY_APP, APP_UID_1, 100);
+
+        mDataUsageList.bindStats(aggregator.build(/* topCount= */ 10), new int[] {APP_UID_2});
+
+        assertThat(apps.getPreferenceCount()).isEqualTo(3);
+        assertThat(getItem(apps, 0).key).isEqualTo(USER_KEY);
+        assertThat(getItem(apps, 1).key).isEqualTo(APP_UID_2);
+        assertThat(getItem(apps, 1).restricted).isTrue();
+        assertThat(getItem(apps, 2).key).isEqualTo(APP_UID_1);
+        assertThat(getItem(apps, 2).restricted).isFalse();
+    }
+
+    @Test
+    public void bindStats_restrictedAppWithUsage_markedRestrictedInPlace() {
+        final PreferenceGroup apps = setUpAppList();
+        final NetworkCycleAppUsageAggregator aggregator = new NetworkCycleAppUsageAggregator();
+        aggregator.add(APP_UID_1, AppItem.CATEGORY_APP, APP_UID_1, 200);
+        aggregator.add(APP_UID_2, AppItem.CATEGORY_APP, APP_UID_2, 100);
+        final NetworkCycleAppUsage usage = aggregator.build(/* topCount= */ 10);
+
+        mDataUsageList.bindStats(usage, new int[] {APP_UID_2});
+
+        assertThat(apps.getPreferenceCount()).isEqualTo(2);
+        assertThat(getItem(apps, 1).key).isEqualTo(APP_UID_2);
+        assertThat(getItem(apps, 1).restricted).isTrue();
+        // The item shared by the cached usage is left unchanged.
+        assertThat(usage.getItem(1).restricted).isFalse();
+    }
+
+    @Test
+    public void bindStats_manyItems_bindRowsPageByPage() {
+        final PreferenceGroup apps = setUpAppList();
+        final NetworkCycleAppUsageAggregator aggregator = new NetworkCycleAppUsageAggregator();
+        final int itemCount = NetworkCycleAppUsageLoader.TOP_ITEM_COUNT * 2 + 10;
+        for (int i = 0; i < itemCount; i++) {
+            aggregator.add(APP_UID_1 + i, AppItem.CATEGORY_APP, APP_UID_1 + i, itemCount - i);
+        }
+
+        mDataUsageList.bindStats(aggregator.build(NetworkCycleAppUsageLoader.TOP_ITEM_COUNT),
+                new int[0]);
+
+        assertThat(apps.getPreferenceCount()).isEqualTo(NetworkCycleAppUsageLoader.TOP_ITEM_COUNT);
+
+        mDataUsageList.bindNextPage();
+
+        assertThat(apps.getPreferenceCount())
+                .isEqualTo(NetworkCycleAppUsageLoader.TOP_ITEM_COUNT * 2);
+        // Items out of the materialized top items keep the order of the usage.
+        assertThat(getItem(apps, NetworkCycleAppUsageLoader.TOP_ITEM_COUNT).key)
+                .isEqualTo(APP_UID_1 + NetworkCycleAppUsageLoader.TOP_ITEM_COUNT);
+
+        mDataUsageList.bindNextPage();
+        mDataUsageList.bindNextPage();
+
+        assertThat(apps.getPreferenceCount()).isEqualTo(itemCount);
+        assertThat(getItem(apps, itemCount - 1).key).isEqualTo(APP_UID_1 + itemCount - 1);
+    }
+
+    @Test
+    public void updateDetailData_cycleNotCached_startQuery() {
+        setUpDetailData();
+        selectCycle(CYCLE_1_START, CYCLE_1_END);
+
+        mDataUsageList.updateDetailData();
+
+        verify(mLoaderManager).restartLoader(eq(DataUsageList.LOADER_SUMMARY), any(), any());
+    }
+
+    @Test
+    public void updateDetailData_switchBetweenCachedCycles_bindFromCacheWithoutQuery() {
+        final PreferenceGroup apps = setUpDetailData();
+        final NetworkCycleAppUsageCache cache =
+                ReflectionHelpers.getField(mDataUsageList, "mAppUsageCache");
+        cache.put(mDataUsageList.mTemplate, CYCLE_1_START, CYCLE_1_END, createUsage(APP_UID_1));
+        cache.put(mDataUsageList.mTemplate, CYCLE_2_START, CYCLE_2_END, createUsage(APP_UID_2));
+
+        selectCycle(CYCLE_1_START, CYCLE_1_END);
+        mDataUsageList.updateDetailData();
+        assertThat(getItem(apps, 0).key).isEqualTo(APP_UID_1);
+
+        selectCycle(CYCLE_2_START, CYCLE_2_END);
+        mDataUsageList.updateDetailData();
+        assertThat(apps.getPreferenceCount()).isEqualTo(1);
+        assertThat(getItem(apps, 0).key).isEqualTo(APP_UID_2);
+
+        selectCycle(CYCLE_1_START, CYCLE_1_END);
+        mDataUsageList.updateDetailData();
+        assertThat(getItem(apps, 0).key).isEqualTo(APP_UID_1);
+
+        verify(mLoaderManager, never()).restartLoader(eq(DataUsageList.LOADER_SUMMARY), any(),
+                any());
+    }
+
+    private PreferenceGroup setUpDetailData() {
+        final PreferenceGroup apps = setUpAppList();
+        doReturn(apps.getParent()).when(mDataUsageList).getPreferenceScreen();
+        doReturn(Robolectric.buildActivity(FragmentActivity.class).get())
+                .when(mDataUsageList).getActivity();
+        mDataUsageList.mTemplate = mock(NetworkTemplate.class);
+        mNetworkServices.mPolicyManager = mock(NetworkPolicyManager.class);
+        when(mNetworkServices.mPolicyManager.getUidsWithPolicy(anyInt())).thenReturn(new int[0]);
+        ReflectionHelpers.setField(mDataUsageList, "mChart",
+                mock(ChartDataUsagePreference.class));
+        ReflectionHelpers.setField(mDataUsageList, "mUsageAmount", mock(Preference.class));
+        return apps;
+    }
+
+    private void selectCycle(long start, long end) {
+        final ChartDataUsagePreference chart =
+                ReflectionHelpers.getField(mDataUsageList, "mChart");
+        when(chart.getInspectStart()).thenReturn(start);
+        when(chart.getInspectEnd()).thenReturn(end);
+    }
+
+    private static NetworkCycleAppUsage createUsage(int uid) {
+        final NetworkCycleAppUsageAggregator aggregator = new NetworkCycleAppUsageAggregator();
+        aggregator.add(uid, AppItem.CATEGORY_APP, uid, 100);
+        return aggregator.build(/* topCount= */ 10);
+    }
+
+    private PreferenceGroup setUpAppList() {
+        final Context context = RuntimeEnvironment.application;
+        doReturn(context).when(mDataUsageList).getContext();
+        final PreferenceScreen screen =
+                new PreferenceManager(context).createPreferenceScreen(context);
+        final PreferenceCategory apps = new PreferenceCategory(context);
+        screen.addPreference(apps);
+        ReflectionHelpers.setField(mDataUsageList, "mApps", apps);
+        final UidDetailProvider uidDetailProvider = mock(UidDetailProvider.class);
+        when(uidDetailProvider.getUidDetail(anyInt(), anyBoolean())).thenReturn(new UidDetail());
+        ReflectionHelpers.setField(mDataUsageList, "mUidDetailProvider", uidDetailProvider);
+        return apps;
+    }
+
+    private static AppItem getItem(PreferenceGroup apps, int index) {
+        return ((AppDataUsagePreference) apps.getPreference(index)).getItem();
     }
 
     private View getHeader() {
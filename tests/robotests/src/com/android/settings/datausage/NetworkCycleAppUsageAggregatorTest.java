@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.settingslib.AppItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class NetworkCycleAppUsageAggregatorTest {
+    private static final int APP_UID_1 = 10001;
+    private static final int APP_UID_2 = 10002;
+    private static final int APP_UID_3 = 10003;
+    private static final int USER_KEY = -2000;
+
+    private NetworkCycleAppUsageAggregator mAggregator;
+
+    @Before
+    public void setUp() {
+        mAggregator = new NetworkCycleAppUsageAggregator();
+    }
+
+    @Test
+    public void build_sameCollapseKey_sumUsageAndUids() {
+        mAggregator.add(APP_UID_1, AppItem.CATEGORY_APP, APP_UID_1, 100);
+        mAggregator.add(APP_UID_1, AppItem.CATEGORY_APP, APP_UID_2, 50);
+        mAggregator.add(APP_UID_1, AppItem.CATEGORY_APP, APP_UID_1, 10);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 10);
+
+        assertThat(usage.getItemCount()).isEqualTo(1);
+        final AppItem item = usage.getItem(0);
+        assertThat(item.key).isEqualTo(APP_UID_1);
+        assertThat(item.total).isEqualTo(160);
+        assertThat(item.uids.size()).isEqualTo(2);
+        assertThat(item.uids.get(APP_UID_1)).isTrue();
+        assertThat(item.uids.get(APP_UID_2)).isTrue();
+        assertThat(usage.getLargest()).isEqualTo(160);
+    }
+
+    @Test
+    public void build_sortUserItemsFirstThenByUsage() {
+        mAggregator.add(APP_UID_1, AppItem.CATEGORY_APP, APP_UID_1, 10);
+        mAggregator.add(APP_UID_2, AppItem.CATEGORY_APP, APP_UID_2, 300);
+        mAggregator.add(USER_KEY, AppItem.CATEGORY_USER, APP_UID_3, 5);
+        mAggregator.add(APP_UID_3, AppItem.CATEGORY_APP, APP_UID_3, 20);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 10);
+
+        assertThat(usage.getItem(0).key).isEqualTo(USER_KEY);
+        assertThat(usage.getItem(1).key).isEqualTo(APP_UID_2);
+        assertThat(usage.getItem(2).key).isEqualTo(APP_UID_3);
+        assertThat(usage.getItem(3).key).isEqualTo(APP_UID_1);
+    }
+
+    @Test
+    public void build_itemsOutOfTop_materializeOnRequest() {
+        mAggregator.add(APP_UID_1, AppItem.CATEGORY_APP, APP_UID_1, 300);
+        mAggregator.add(APP_UID_2, AppItem.CATEGORY_APP, APP_UID_2, 200);
+        mAggregator.add(APP_UID_3, AppItem.CATEGORY_APP, APP_UID_3, 100);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 1);
+
+        assertThat(usage.getItem(0)).isSameInstanceAs(usage.getItem(0));
+        assertThat(usage.getItem(2)).isNotSameInstanceAs(usage.getItem(2));
+        assertThat(usage.getItem(2).key).isEqualTo(APP_UID_3);
+        assertThat(usage.getItem(2).total).isEqualTo(100);
+        assertThat(usage.getItem(2).uids.get(APP_UID_3)).isTrue();
+    }
+
+    @Test
+    public void getPosition_returnSortedPositionOfKey() {
+        mAggregator.add(APP_UID_1, AppItem.CATEGORY_APP, APP_UID_1, 100);
+        mAggregator.add(APP_UID_2, AppItem.CATEGORY_APP, APP_UID_2, 200);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 1);
+
+        assertThat(usage.getPosition(APP_UID_2)).isEqualTo(0);
+        assertThat(usage.getPosition(APP_UID_1)).isEqualTo(1);
+        assertThat(usage.getPosition(APP_UID_3)).isEqualTo(-1);
+    }
+}
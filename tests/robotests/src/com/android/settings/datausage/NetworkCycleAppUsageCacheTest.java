@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.net.NetworkTemplate;
+
+import com.android.settingslib.AppItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class NetworkCycleAppUsageCacheTest {
+    private static final long START = 1521583200000L;
+    private static final long END = 1521676800000L;
+
+    private NetworkTemplate mTemplate;
+    private NetworkCycleAppUsageCache mCache;
+
+    @Before
+    public void setUp() {
+        mTemplate = mock(NetworkTemplate.class);
+        mCache = new NetworkCycleAppUsageCache(/* maxCachedItems= */ 10);
+    }
+
+    @Test
+    public void get_sameTemplateAndCycle_returnCachedUsage() {
+        final NetworkCycleAppUsage usage = createUsage(2);
+        mCache.put(mTemplate, START, END, usage);
+
+        assertThat(mCache.get(mTemplate, START, END)).isSameInstanceAs(usage);
+    }
+
+    @Test
+    public void get_differentCycle_returnNull() {
+        mCache.put(mTemplate, START, END, createUsage(2));
+
+        assertThat(mCache.get(mTemplate, START, END + 1)).isNull();
+    }
+
+    @Test
+    public void get_differentTemplate_returnNull() {
+        mCache.put(mTemplate, START, END, createUsage(2));
+
+        assertThat(mCache.get(mock(NetworkTemplate.class), START, END)).isNull();
+    }
+
+    @Test
+    public void put_exceedMaxCachedItems_evictLeastRecentlyUsedCycle() {
+        mCache.put(mTemplate, START, END, createUsage(4));
+        mCache.put(mTemplate, END, END + 1, createUsage(4));
+        mCache.get(mTemplate, START, END);
+
+        mCache.put(mTemplate, END + 1, END + 2, createUsage(4));
+
+        assertThat(mCache.get(mTemplate, START, END)).isNotNull();
+        assertThat(mCache.get(mTemplate, END, END + 1)).isNull();
+        assertThat(mCache.get(mTemplate, END + 1, END + 2)).isNotNull();
+    }
+
+    @Test
+    public void clear_dropAllCycles() {
+        mCache.put(mTemplate, START, END, createUsage(2));
+
+        mCache.clear();
+
+        assertThat(mCache.get(mTemplate, START, END)).isNull();
+    }
+
+    private static NetworkCycleAppUsage createUsage(int itemCount) {
+        final NetworkCycleAppUsageAggregator aggregator = new NetworkCycleAppUsageAggregator();
+        for (int i = 0; i < itemCount; i++) {
+            aggregator.add(10000 + i, AppItem.CATEGORY_APP, 10000 + i, i);
+        }
+        return aggregator.build(itemCount);
+    }
+}
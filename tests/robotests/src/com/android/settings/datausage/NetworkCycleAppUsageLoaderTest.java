@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.when;
+
+import android.content.pm.UserInfo;
+import android.os.Process;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class NetworkCycleAppUsageLoaderTest {
+    private static final int CURRENT_USER_ID = 0;
+    private static final int MANAGED_USER_ID = 10;
+    private static final int OTHER_USER_ID = 11;
+    private static final int REMOVED_USER_ID = 12;
+    private static final int APP_UID = UserHandle.getUid(CURRENT_USER_ID, 10001);
+    private static final int MANAGED_APP_UID = UserHandle.getUid(MANAGED_USER_ID, 10001);
+
+    @Mock
+    private UserManager mUserManager;
+
+    private List<UserHandle> mProfiles;
+    private NetworkCycleAppUsageAggregator mAggregator;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mProfiles = Arrays.asList(UserHandle.of(CURRENT_USER_ID), UserHandle.of(MANAGED_USER_ID));
+        mAggregator = new NetworkCycleAppUsageAggregator();
+        when(mUserManager.getUserInfo(OTHER_USER_ID))
+                .thenReturn(new UserInfo(OTHER_USER_ID, "other", 0 /* flags */));
+    }
+
+    @Test
+    public void addUsage_appOfCurrentUser_collapseIntoApp() {
+        addUsage(APP_UID, 100);
+        addUsage(Process.toSdkSandboxUid(APP_UID), 20);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 10);
+
+        assertThat(usage.getItemCount()).isEqualTo(1);
+        final AppItem item = usage.getItem(0);
+        assertThat(item.key).isEqualTo(APP_UID);
+        assertThat(item.category).isEqualTo(AppItem.CATEGORY_APP);
+        assertThat(item.total).isEqualTo(120);
+    }
+
+    @Test
+    public void addUsage_appOfManagedProfile_addToUserAndApp() {
+        addUsage(MANAGED_APP_UID, 100);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 10);
+
+        assertThat(usage.getItemCount()).isEqualTo(2);
+        assertThat(usage.getItem(0).key)
+                .isEqualTo(UidDetailProvider.buildKeyForUser(MANAGED_USER_ID));
+        assertThat(usage.getItem(0).category).isEqualTo(AppItem.CATEGORY_USER);
+        assertThat(usage.getItem(0).total).isEqualTo(100);
+        assertThat(usage.getItem(1).key).isEqualTo(MANAGED_APP_UID);
+        assertThat(usage.getItem(1).total).isEqualTo(100);
+    }
+
+    @Test
+    public void addUsage_appOfOtherUser_collapseIntoUser() {
+        addUsage(UserHandle.getUid(OTHER_USER_ID, 10001), 100);
+        addUsage(UserHandle.getUid(OTHER_USER_ID, 10002), 50);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 10);
+
+        assertThat(usage.getItemCount()).isEqualTo(1);
+        assertThat(usage.getItem(0).key)
+                .isEqualTo(UidDetailProvider.buildKeyForUser(OTHER_USER_ID));
+        assertThat(usage.getItem(0).category).isEqualTo(AppItem.CATEGORY_USER);
+        assertThat(usage.getItem(0).total).isEqualTo(150);
+    }
+
+    @Test
+    public void addUsage_appOfRemovedUser_collapseIntoRemoved() {
+        addUsage(UserHandle.getUid(REMOVED_USER_ID, 10001), 100);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 10);
+
+        assertThat(usage.getItemCount()).isEqualTo(1);
+        assertThat(usage.getItem(0).key).isEqualTo(UID_REMOVED);
+        assertThat(usage.getItem(0).category).isEqualTo(AppItem.CATEGORY_APP);
+    }
+
+    @Test
+    public void addUsage_specialUids_keepOwnItems() {
+        addUsage(UID_REMOVED, 10);
+        addUsage(UID_TETHERING, 20);
+        addUsage(Process.OTA_UPDATE_UID, 30);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 10);
+
+        assertThat(usage.getItemCount()).isEqualTo(3);
+        assertThat(usage.getPosition(UID_REMOVED)).isAtLeast(0);
+        assertThat(usage.getPosition(UID_TETHERING)).isAtLeast(0);
+        assertThat(usage.getPosition(Process.OTA_UPDATE_UID)).isAtLeast(0);
+    }
+
+    @Test
+    public void addUsage_systemUids_collapseIntoSystem() {
+        addUsage(Process.SYSTEM_UID, 10);
+        addUsage(Process.PHONE_UID, 20);
+
+        final NetworkCycleAppUsage usage = mAggregator.build(/* topCount= */ 10);
+
+        assertThat(usage.getItemCount()).isEqualTo(1);
+        final AppItem item = usage.getItem(0);
+        assertThat(item.key).isEqualTo(Process.SYSTEM_UID);
+        assertThat(item.total).isEqualTo(30);
+        assertThat(item.uids.get(Process.SYSTEM_UID)).isTrue();
+        assertThat(item.uids.get(Process.PHONE_UID)).isTrue();
+    }
+
+    private void addUsage(int uid, long bytes) {
+        NetworkCycleAppUsageLoader.addUsage(mAggregator, mUserManager, mProfiles,
+                CURRENT_USER_ID, uid, bytes);
+    }
+}
@@ -56,6 +56,7 @@ public class BatteryInfoLoaderTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        BatteryUsageStatsCache.invalidate();
         mContext = spy(RuntimeEnvironment.application);
         FakeFeatureFactory.setupForTest().getPowerUsageFeatureProvider(mContext);
 
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.os.BatteryStatsManager;
+import android.os.BatteryUsageStats;
+import android.os.BatteryUsageStatsQuery;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatteryUsageStatsCacheTest {
+    private Context mContext;
+    @Mock
+    private BatteryStatsManager mBatteryStatsManager;
+    @Mock
+    private BatteryUsageStats mBatteryUsageStats;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        BatteryUsageStatsCache.invalidate();
+        mContext = spy(RuntimeEnvironment.application);
+        doReturn(mBatteryStatsManager).when(mContext).getSystemService(
+                Context.BATTERY_STATS_SERVICE);
+        when(mBatteryStatsManager.getBatteryUsageStats(any(BatteryUsageStatsQuery.class)))
+                .thenReturn(mBatteryUsageStats);
+    }
+
+    @Test
+    public void getBatteryUsageStats_calledTwice_fetchOnlyOnce() {
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+
+        assertThat(BatteryUsageStatsCache.getBatteryUsageStats(
+                mContext, /* includeBatteryHistory */ false)).isEqualTo(mBatteryUsageStats);
+        verify(mBatteryStatsManager).getBatteryUsageStats(any(BatteryUsageStatsQuery.class));
+    }
+
+    @Test
+    public void getBatteryUsageStats_withHistory_fetchEveryTimeAndNotCache() {
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ true);
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ true);
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+
+        verify(mBatteryStatsManager, times(3))
+                .getBatteryUsageStats(any(BatteryUsageStatsQuery.class));
+    }
+
+    @Test
+    public void getBatteryUsageStats_cachedWithoutHistory_fetchAgainForHistory() {
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ true);
+
+        verify(mBatteryStatsManager, times(2))
+                .getBatteryUsageStats(any(BatteryUsageStatsQuery.class));
+    }
+
+    @Test
+    public void invalidate_closeCachedSnapshot() throws Exception {
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+
+        BatteryUsageStatsCache.invalidate();
+
+        verify(mBatteryUsageStats).close();
+    }
+
+    @Test
+    public void getBatteryUsageStats_afterInvalidate_fetchAgain() {
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+        BatteryUsageStatsCache.invalidate();
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+
+        verify(mBatteryStatsManager, times(2))
+                .getBatteryUsageStats(any(BatteryUsageStatsQuery.class));
+    }
+
+    @Test
+    public void getBatteryUsageStats_invalidatedDuringFetch_returnStatsButNotCache() {
+        when(mBatteryStatsManager.getBatteryUsageStats(any(BatteryUsageStatsQuery.class)))
+                .thenAnswer(invocation -> {
+                    BatteryUsageStatsCache.invalidate();
+                    return mBatteryUsageStats;
+                });
+
+        assertThat(BatteryUsageStatsCache.getBatteryUsageStats(
+                mContext, /* includeBatteryHistory */ false)).isEqualTo(mBatteryUsageStats);
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+
+        verify(mBatteryStatsManager, times(2))
+                .getBatteryUsageStats(any(BatteryUsageStatsQuery.class));
+    }
+
+    @Test
+    public void getBatteryUsageStats_afterValidityWindow_fetchAgain() {
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+        SystemClock.sleep(BatteryUsageStatsCache.VALIDITY_WINDOW_MS);
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+
+        verify(mBatteryStatsManager, times(2))
+                .getBatteryUsageStats(any(BatteryUsageStatsQuery.class));
+    }
+
+    @Test
+    public void getBatteryUsageStats_fetchFailed_returnDefaultAndNotCache() {
+        when(mBatteryStatsManager.getBatteryUsageStats(any(BatteryUsageStatsQuery.class)))
+                .thenThrow(new RuntimeException());
+
+        assertThat(BatteryUsageStatsCache.getBatteryUsageStats(
+                mContext, /* includeBatteryHistory */ false)).isNotNull();
+        BatteryUsageStatsCache.getBatteryUsageStats(mContext, /* includeBatteryHistory */ false);
+
+        verify(mBatteryStatsManager, times(2))
+                .getBatteryUsageStats(any(BatteryUsageStatsQuery.class));
+    }
+}
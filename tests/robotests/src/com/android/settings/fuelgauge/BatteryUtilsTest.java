@@ -141,6 +141,7 @@ public class BatteryUtilsTest {
     @Before
     public void setUp() throws PackageManager.NameNotFoundException {
         MockitoAnnotations.initMocks(this);
+        BatteryUsageStatsCache.invalidate();
 
         mFeatureFactory = FakeFeatureFactory.setupForTest();
         mProvider = mFeatureFactory.powerUsageFeatureProvider;
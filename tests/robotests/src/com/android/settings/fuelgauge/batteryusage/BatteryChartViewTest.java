@@ -20,8 +20,10 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.spy;
 
 import android.content.Context;
+import android.graphics.Canvas;
 import android.os.LocaleList;
 import android.view.View;
+import android.widget.TextView;
 
 import com.android.settings.fuelgauge.PowerUsageFeatureProvider;
 import com.android.settings.testutils.FakeFeatureFactory;
@@ -90,4 +92,69 @@ public final class BatteryChartViewTest {
         mBatteryChartView.onClick(mMockView);
         assertThat(selectedIndex[0]).isEqualTo(BatteryChartViewModel.SELECTED_INDEX_ALL);
     }
+
+    @Test
+    public void draw_withoutModelOrSizeChange_reuseGeometry() {
+        final BatteryChartView chartView = createChartView();
+        final BatteryChartViewModel viewModel = createViewModel();
+        chartView.setViewModel(viewModel);
+        chartView.layout(0, 0, 1000, 500);
+
+        chartView.draw(new Canvas());
+        chartView.draw(new Canvas());
+
+        assertThat(chartView.mDrawCount).isEqualTo(2);
+        assertThat(chartView.mGeometryUpdateCount).isEqualTo(1);
+    }
+
+    @Test
+    public void setViewModel_onlySelectedIndexChanged_reuseGeometry() {
+        final BatteryChartView chartView = createChartView();
+        final BatteryChartViewModel viewModel = createViewModel();
+        chartView.setViewModel(viewModel);
+        chartView.layout(0, 0, 1000, 500);
+        chartView.draw(new Canvas());
+
+        viewModel.setSelectedIndex(1);
+        chartView.setViewModel(viewModel);
+        chartView.draw(new Canvas());
+
+        assertThat(chartView.mGeometryUpdateCount).isEqualTo(1);
+    }
+
+    @Test
+    public void setViewModel_newViewModel_updateGeometry() {
+        final BatteryChartView chartView = createChartView();
+        chartView.setViewModel(createViewModel());
+        chartView.layout(0, 0, 1000, 500);
+        chartView.draw(new Canvas());
+
+        chartView.setViewModel(createViewModel());
+        chartView.draw(new Canvas());
+
+        assertThat(chartView.mGeometryUpdateCount).isEqualTo(2);
+    }
+
+    private BatteryChartView createChartView() {
+        final BatteryChartView chartView = new BatteryChartView(mContext, /* attrs= */ null);
+        chartView.setCompanionTextView(new TextView(mContext));
+        return chartView;
+    }
+
+    private static BatteryChartViewModel createViewModel() {
+        return new BatteryChartViewModel(
+                List.of(90, 80, 70, 60), List.of(0L, 1L, 2L, 3L),
+                BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS,
+                new BatteryChartViewModel.LabelTextGenerator() {
+                    @Override
+                    public String generateText(List<Long> timestamps, int index) {
+                        return String.valueOf(timestamps.get(index));
+                    }
+
+                    @Override
+                    public String generateFullText(List<Long> timestamps, int index) {
+                        return generateText(timestamps, index);
+                    }
+                });
+    }
 }
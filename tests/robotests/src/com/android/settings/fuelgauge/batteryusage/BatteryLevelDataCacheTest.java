@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryLevelDataCacheTest {
+    private static final String FAKE_ENTRY_KEY = "fake_entry_key";
+    // Timezone GMT+8
+    private static final long[] TIMESTAMPS = {
+            1640966400000L, // 2022-01-01 00:00:00
+            1640970000000L, // 2022-01-01 01:00:00
+            1640973600000L, // 2022-01-01 02:00:00
+            1640977200000L, // 2022-01-01 03:00:00
+            1640980800000L  // 2022-01-01 04:00:00
+    };
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT+8"));
+        mContext = RuntimeEnvironment.application;
+        BatteryLevelDataCache.clear(mContext);
+    }
+
+    @Test
+    public void loadBatteryLevelData_noTimeline_returnNull() {
+        assertThat(BatteryLevelDataCache.loadBatteryLevelData(mContext, TIMESTAMPS[0])).isNull();
+    }
+
+    @Test
+    public void loadBatteryLevelData_afterGetBatteryLevelData_returnCachedLevels() {
+        BatteryLevelDataCache.getBatteryLevelData(
+                mContext, TIMESTAMPS[0], createHistoryMap(new int[] {100, 94, 90, 82, 50}));
+
+        final BatteryLevelData levelData =
+                BatteryLevelDataCache.loadBatteryLevelData(mContext, TIMESTAMPS[0]);
+
+        assertThat(levelData.getDailyBatteryLevels().getTimestamps())
+                .containsExactly(TIMESTAMPS[0], TIMESTAMPS[4]).inOrder();
+        assertThat(levelData.getDailyBatteryLevels().getLevels())
+                .containsExactly(100, 50).inOrder();
+        assertThat(levelData.getHourlyBatteryLevelsPerDay().get(0).getLevels())
+                .containsExactly(100, 90, 50).inOrder();
+    }
+
+    @Test
+    public void getBatteryLevelData_sameFullCharge_reuseLevelsBeforeLastCachedSlot() {
+        BatteryLevelDataCache.getBatteryLevelData(
+                mContext, TIMESTAMPS[0], createHistoryMap(new int[] {100, 94, 90, 82, 50}));
+
+        final BatteryLevelData levelData = BatteryLevelDataCache.getBatteryLevelData(
+                mContext, TIMESTAMPS[0], createHistoryMap(new int[] {99, 93, 89, 81, 49}));
+
+        // Slots before the last cached slot are reused, the last cached slot is recomputed.
+        assertThat(levelData.getHourlyBatteryLevelsPerDay().get(0).getLevels())
+                .containsExactly(100, 90, 49).inOrder();
+    }
+
+    @Test
+    public void getBatteryLevelData_differentFullCharge_recomputeAllLevels() {
+        BatteryLevelDataCache.getBatteryLevelData(
+                mContext, TIMESTAMPS[0], createHistoryMap(new int[] {100, 94, 90, 82, 50}));
+
+        final BatteryLevelData levelData = BatteryLevelDataCache.getBatteryLevelData(
+                mContext, TIMESTAMPS[1], createHistoryMap(new int[] {99, 93, 89, 81, 49}));
+
+        assertThat(levelData.getHourlyBatteryLevelsPerDay().get(0).getLevels())
+                .containsExactly(99, 89, 49).inOrder();
+    }
+
+    @Test
+    public void getBatteryLevelData_fullChargeBeforeTimeline_reuseLevelsAsLoadDoes() {
+        BatteryLevelDataCache.getBatteryLevelData(
+                mContext, TIMESTAMPS[0], createHistoryMap(new int[] {100, 94, 90, 82, 50}));
+
+        assertThat(BatteryLevelDataCache.loadBatteryLevelData(mContext, TIMESTAMPS[0] - 1))
+                .isNotNull();
+        final BatteryLevelData levelData = BatteryLevelDataCache.getBatteryLevelData(
+                mContext, TIMESTAMPS[0] - 1, createHistoryMap(new int[] {99, 93, 89, 81, 49}));
+        assertThat(levelData.getHourlyBatteryLevelsPerDay().get(0).getLevels())
+                .containsExactly(100, 90, 49).inOrder();
+    }
+
+    @Test
+    public void loadBatteryLevelData_fullChargedAfterTimeline_returnNull() {
+        BatteryLevelDataCache.getBatteryLevelData(
+                mContext, TIMESTAMPS[0], createHistoryMap(new int[] {100, 94, 90, 82, 50}));
+
+        assertThat(BatteryLevelDataCache.loadBatteryLevelData(mContext, TIMESTAMPS[2])).isNull();
+        assertThat(BatteryLevelDataCache.loadBatteryLevelData(mContext, TIMESTAMPS[0])).isNull();
+    }
+
+    @Test
+    public void loadBatteryLevelData_timezoneChanged_returnNull() {
+        BatteryLevelDataCache.getBatteryLevelData(
+                mContext, TIMESTAMPS[0], createHistoryMap(new int[] {100, 94, 90, 82, 50}));
+
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+
+        assertThat(BatteryLevelDataCache.loadBatteryLevelData(mContext, TIMESTAMPS[0])).isNull();
+    }
+
+    @Test
+    public void loadBatteryLevelData_corruptedFile_returnNullAndDeleteFile() throws IOException {
+        final File file =
+                new File(mContext.getNoBackupFilesDir(), BatteryLevelDataCache.FILE_NAME);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] {1, 2, 3});
+        }
+
+        assertThat(BatteryLevelDataCache.loadBatteryLevelData(mContext, TIMESTAMPS[0])).isNull();
+        assertThat(file.exists()).isFalse();
+    }
+
+    private static Map<Long, Map<String, BatteryHistEntry>> createHistoryMap(final int[] levels) {
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
+        for (int index = 0; index < TIMESTAMPS.length; index++) {
+            final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+            final ContentValues values = new ContentValues();
+            values.put(BatteryHistEntry.KEY_BATTERY_LEVEL, levels[index]);
+            entryMap.put(FAKE_ENTRY_KEY, new BatteryHistEntry(values));
+            batteryHistoryMap.put(TIMESTAMPS[index], entryMap);
+        }
+        return batteryHistoryMap;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.robolectric.shadows.ShadowLooper.idleMainLooper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class HomepageStartupSchedulerTest {
+
+    private HomepageStartupScheduler mScheduler;
+    private List<String> mRunTasks;
+
+    @Before
+    public void setUp() {
+        mScheduler = new HomepageStartupScheduler();
+        mRunTasks = new ArrayList<>();
+    }
+
+    @Test
+    public void runWhenIdle_shouldRunTasksInOrderOnceIdle() {
+        mScheduler.runWhenIdle(() -> mRunTasks.add("first"));
+        mScheduler.runWhenIdle(() -> mRunTasks.add("second"));
+
+        assertThat(mRunTasks).isEmpty();
+
+        idleMainLooper();
+
+        assertThat(mRunTasks).containsExactly("first", "second").inOrder();
+        assertThat(HomepageStartupScheduler.getLastStartupTimings())
+                .containsKey(HomepageStartupScheduler.PHASE_DEFERRED);
+    }
+
+    @Test
+    public void cancel_shouldDropPendingTasks() {
+        mScheduler.runWhenIdle(() -> mRunTasks.add("task"));
+
+        mScheduler.cancel();
+        mScheduler.runWhenIdle(() -> mRunTasks.add("late task"));
+        idleMainLooper();
+
+        assertThat(mRunTasks).isEmpty();
+    }
+
+    @Test
+    public void markPhase_shouldPublishLastStartupTimings() {
+        mScheduler.markPhase(HomepageStartupScheduler.PHASE_TOP_LEVEL);
+        mScheduler.markPhase(HomepageStartupScheduler.PHASE_CREATE);
+
+        assertThat(HomepageStartupScheduler.getLastStartupTimings().keySet()).containsAtLeast(
+                HomepageStartupScheduler.PHASE_TOP_LEVEL, HomepageStartupScheduler.PHASE_CREATE);
+    }
+
+    @Test
+    public void prefetchControllers_unknownFragment_shouldLoadNothing() {
+        assertThat(HomepageStartupScheduler.prefetchControllers(
+                RuntimeEnvironment.application, "com.example.Unknown"))
+                .isEqualTo(0);
+    }
+}
@@ -32,14 +32,17 @@ import static org.mockito.Mockito.when;
 import android.app.ActivityManager;
 import android.content.Intent;
 import android.os.Build;
+import android.util.FeatureFlagUtils;
 import android.view.View;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
 
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
 
 import com.android.settings.R;
+import com.android.settings.core.FeatureFlags;
 import com.android.settings.dashboard.suggestions.SuggestionFeatureProviderImpl;
 import com.android.settings.testutils.shadow.ShadowActivityEmbeddingUtils;
 import com.android.settings.testutils.shadow.ShadowPasswordUtils;
@@ -76,6 +79,7 @@ public class SettingsHomepageActivityTest {
     @After
     public void tearDown() {
         ShadowPasswordUtils.reset();
+        ShadowActivityEmbeddingUtils.setIsEmbeddingActivityEnabled(false);
     }
 
     @Test
@@ -243,6 +247,42 @@ public class SettingsHomepageActivityTest {
         assertTrue(homepageActivity.isCallingAppPermitted(permission));
     }
 
+    @Test
+    public void launch_contextualHomeEnabled_showContextualCardsOnceIdle() {
+        FeatureFlagUtils.setEnabled(RuntimeEnvironment.application, FeatureFlags.CONTEXTUAL_HOME,
+                true);
+        final SettingsHomepageActivity activity = Robolectric.buildActivity(
+                SettingsHomepageActivity.class).create().get();
+        final FragmentManager fragmentManager = activity.getSupportFragmentManager();
+        fragmentManager.executePendingTransactions();
+
+        assertThat(fragmentManager.findFragmentById(R.id.contextual_cards_content)).isNull();
+
+        activity.mStartupScheduler.runDeferredTasks();
+        fragmentManager.executePendingTransactions();
+
+        assertThat(fragmentManager.findFragmentById(R.id.contextual_cards_content)).isNotNull();
+    }
+
+    @Test
+    @Config(shadows = ShadowActivityEmbeddingUtils.class)
+    public void launch_embeddingNotSplit_showTwoPaneSuggestionOnceIdle() {
+        ShadowActivityEmbeddingUtils.setIsEmbeddingActivityEnabled(true);
+        final SettingsHomepageActivity activity = Robolectric.buildActivity(
+                SettingsHomepageActivity.class).create().get();
+        final FragmentManager fragmentManager = activity.getSupportFragmentManager();
+        fragmentManager.executePendingTransactions();
+
+        assertThat(fragmentManager.findFragmentById(R.id.suggestion_content)).isNotNull();
+        assertThat(fragmentManager.findFragmentById(R.id.two_pane_suggestion_content)).isNull();
+
+        activity.mStartupScheduler.runDeferredTasks();
+        fragmentManager.executePendingTransactions();
+
+        assertThat(fragmentManager.findFragmentById(R.id.two_pane_suggestion_content))
+                .isNotNull();
+    }
+
     @Implements(SuggestionFeatureProviderImpl.class)
     public static class ShadowSuggestionFeatureProviderImpl {
 
@@ -48,6 +48,7 @@ import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiManager;
 import android.os.Bundle;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.UserManager;
 import android.provider.Settings;
 import android.view.ContextMenu;
@@ -94,6 +95,7 @@ import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.shadows.ShadowToast;
 
+import java.util.Arrays;
 import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
@@ -102,6 +104,7 @@ public class NetworkProviderSettingsTest {
     private static final int XML_RES = R.xml.wifi_tether_settings;
     private static final int NUM_NETWORKS = 4;
     private static final String FAKE_URI_STRING = "fakeuri";
+    private static final String TEST_KEY = "key";
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
@@ -787,6 +790,72 @@ public class NetworkProviderSettingsTest {
         verify(mWifiEntry, never()).getKey();
     }
 
+    @Test
+    public void updateWifiEntryPreferences_newWifiEntry_createPreference() {
+        final PreferenceCategory category = setUpForUpdateWifiEntryPreferences();
+        when(mWifiEntry.getKey()).thenReturn(TEST_KEY);
+        when(mMockWifiPickerTracker.getWifiEntries()).thenReturn(Arrays.asList(mWifiEntry));
+
+        mNetworkProviderSettings.updateWifiEntryPreferences();
+
+        verify(category).addPreference(any(LongPressWifiEntryPreference.class));
+        assertThat(mNetworkProviderSettings.mCreatedPreferenceCount).isEqualTo(1);
+        assertThat(mNetworkProviderSettings.mReboundPreferenceCount).isEqualTo(0);
+    }
+
+    @Test
+    public void updateWifiEntryPreferences_wifiEntryRecreated_rebindPreferenceInPlace() {
+        final PreferenceCategory category = setUpForUpdateWifiEntryPreferences();
+        final WifiEntry oldWifiEntry = mock(WifiEntry.class);
+        when(oldWifiEntry.getKey()).thenReturn(TEST_KEY);
+        when(oldWifiEntry.getHelpUriString()).thenReturn(FAKE_URI_STRING);
+        final LongPressWifiEntryPreference preference =
+                spy(mNetworkProviderSettings.createLongPressWifiEntryPreference(oldWifiEntry));
+        preference.setKey(TEST_KEY);
+        when(category.getPreferenceCount()).thenReturn(1);
+        when(category.getPreference(0)).thenReturn(preference);
+        final WifiEntry newWifiEntry = mock(WifiEntry.class);
+        when(newWifiEntry.getKey()).thenReturn(TEST_KEY);
+        when(mMockWifiPickerTracker.getWifiEntries()).thenReturn(Arrays.asList(newWifiEntry));
+
+        mNetworkProviderSettings.updateWifiEntryPreferences();
+
+        assertThat(preference.getWifiEntry()).isSameInstanceAs(newWifiEntry);
+        verify(category, never()).removePreference(preference);
+        verify(category, never()).addPreference(any(LongPressWifiEntryPreference.class));
+        // The new WifiEntry has no help page, so the old help button listener is dropped.
+        verify(preference).setOnButtonClickListener(null);
+        assertThat(mNetworkProviderSettings.mReboundPreferenceCount).isEqualTo(1);
+        assertThat(mNetworkProviderSettings.mCreatedPreferenceCount).isEqualTo(0);
+    }
+
+    @Test
+    public void onScrollStateChanged_scrolling_holdBackUpdatesUntilIdle() {
+        final RecyclerView recyclerView = mock(RecyclerView.class);
+        final WifiEntryUpdateScheduler scheduler = mNetworkProviderSettings.mUpdateScheduler;
+
+        mNetworkProviderSettings.mScrollListener.onScrollStateChanged(recyclerView,
+                RecyclerView.SCROLL_STATE_DRAGGING);
+
+        assertThat(scheduler.onUpdateRequested(SystemClock.uptimeMillis())).isEqualTo(-1);
+
+        mNetworkProviderSettings.mScrollListener.onScrollStateChanged(recyclerView,
+                RecyclerView.SCROLL_STATE_IDLE);
+
+        assertThat(scheduler.onUpdateRequested(SystemClock.uptimeMillis()))
+                .isAtLeast(WifiEntryUpdateScheduler.MIN_DELAY_MILLIS);
+    }
+
+    private PreferenceCategory setUpForUpdateWifiEntryPreferences() {
+        final FragmentActivity activity = mock(FragmentActivity.class);
+        doReturn(activity).when(mNetworkProviderSettings).getActivity();
+        doReturn(mock(View.class)).when(mNetworkProviderSettings).getView();
+        when(mMockWifiPickerTracker.getWifiState()).thenReturn(WifiManager.WIFI_STATE_ENABLED);
+        final PreferenceCategory category = mock(PreferenceCategory.class);
+        mNetworkProviderSettings.mWifiEntryPreferenceCategory = category;
+        return category;
+    }
+
     @Implements(PreferenceFragmentCompat.class)
     public static class ShadowPreferenceFragmentCompat {
 
@@ -20,6 +20,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -34,6 +35,7 @@ import android.content.Intent;
 import android.database.ContentObserver;
 import android.net.Uri;
 import android.provider.Settings;
+import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
 
 import com.android.internal.telephony.TelephonyIntents;
@@ -48,6 +50,10 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 @RunWith(RobolectricTestRunner.class)
 public class SubscriptionsChangeListenerTest {
 
@@ -97,6 +103,32 @@ public class SubscriptionsChangeListenerTest {
         verify(mClient).onSubscriptionsChanged();
     }
 
+    @Test
+    public void onSubscriptionsChangedEvent_clientReadsSubscriptions_snapshotRefreshed() {
+        SubscriptionSnapshot.resetForTesting();
+        final SubscriptionInfo info1 = mock(SubscriptionInfo.class);
+        final SubscriptionInfo info2 = mock(SubscriptionInfo.class);
+        when(mSubscriptionManager.getAvailableSubscriptionInfoList())
+                .thenReturn(Arrays.asList(info1));
+        assertThat(SubscriptionUtil.getAvailableSubscriptions(mContext)).hasSize(1);
+        final List<List<SubscriptionInfo>> seenByClient = new ArrayList<>();
+        doAnswer(invocation -> seenByClient.add(
+                SubscriptionUtil.getAvailableSubscriptions(mContext)))
+                .when(mClient).onSubscriptionsChanged();
+        initListener(true);
+        final ArgumentCaptor<SubscriptionManager.OnSubscriptionsChangedListener> captor =
+                ArgumentCaptor.forClass(SubscriptionManager.OnSubscriptionsChangedListener.class);
+        verify(mSubscriptionManager).addOnSubscriptionsChangedListener(any(), captor.capture());
+        when(mSubscriptionManager.getAvailableSubscriptionInfoList())
+                .thenReturn(Arrays.asList(info1, info2));
+
+        captor.getValue().onSubscriptionsChanged();
+
+        assertThat(seenByClient).hasSize(1);
+        assertThat(seenByClient.get(0)).containsExactly(info1, info2);
+        SubscriptionSnapshot.resetForTesting();
+    }
+
     @Test
     public void
     onSubscriptionsChangedEvent_ignoresStickyBroadcastFromBeforeRegistering() {
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.android.settings.network.WifiEntryUpdateScheduler.MAX_DELAY_MILLIS;
+import static com.android.settings.network.WifiEntryUpdateScheduler.MAX_SCROLLING_DEFER_MILLIS;
+import static com.android.settings.network.WifiEntryUpdateScheduler.MIN_DELAY_MILLIS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class WifiEntryUpdateSchedulerTest {
+
+    private WifiEntryUpdateScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new WifiEntryUpdateScheduler();
+    }
+
+    @Test
+    public void onUpdateRequested_firstChange_shouldUseMinDelay() {
+        assertThat(mScheduler.onUpdateRequested(1000)).isEqualTo(MIN_DELAY_MILLIS);
+    }
+
+    @Test
+    public void onUpdateRequested_slowChanges_shouldUseMinDelay() {
+        mScheduler.onUpdateRequested(0);
+        mScheduler.onUpdateRequested(5000);
+
+        assertThat(mScheduler.onUpdateRequested(10000)).isEqualTo(MIN_DELAY_MILLIS);
+    }
+
+    @Test
+    public void onUpdateRequested_fastChanges_shouldIncreaseDelay() {
+        long delay = 0;
+        for (int i = 0; i < 20; i++) {
+            delay = mScheduler.onUpdateRequested(i * 100L);
+        }
+
+        assertThat(delay).isGreaterThan(MIN_DELAY_MILLIS);
+        assertThat(delay).isAtMost(MAX_DELAY_MILLIS);
+    }
+
+    @Test
+    public void onUpdateRequested_scrolling_shouldDeferUntilLimit() {
+        mScheduler.setScrolling(true);
+
+        assertThat(mScheduler.onUpdateRequested(0)).isEqualTo(-1);
+        assertThat(mScheduler.onUpdateRequested(MAX_SCROLLING_DEFER_MILLIS - 1)).isEqualTo(-1);
+        assertThat(mScheduler.onUpdateRequested(MAX_SCROLLING_DEFER_MILLIS)).isAtLeast(0);
+    }
+
+    @Test
+    public void onUpdated_shouldCountUpdates() {
+        mScheduler.onUpdateRequested(0);
+        mScheduler.onUpdateRequested(100);
+        mScheduler.onUpdated();
+
+        assertThat(mScheduler.getRequestCount()).isEqualTo(2);
+        assertThat(mScheduler.getUpdateCount()).isEqualTo(1);
+        assertThat(mScheduler.getAverageIntervalMillis()).isEqualTo(100);
+    }
+}
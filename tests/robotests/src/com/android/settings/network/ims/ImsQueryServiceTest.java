@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.ims;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.telephony.AccessNetworkConstants;
+import android.telephony.CarrierConfigManager;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.telephony.ims.ImsException;
+import android.telephony.ims.ImsMmTelManager;
+import android.telephony.ims.feature.MmTelFeature;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+@RunWith(RobolectricTestRunner.class)
+public class ImsQueryServiceTest {
+
+    private static final int SUB_ID = 1;
+    private static final int OTHER_SUB_ID = 2;
+    private static final int CAPABILITY = MmTelFeature.MmTelCapabilities.CAPABILITY_TYPE_VOICE;
+    private static final int TRANSPORT_TYPE = AccessNetworkConstants.TRANSPORT_TYPE_WWAN;
+    private static final long TIMEOUT_MILLIS = 100;
+
+    @Mock
+    private ImsMmTelManager mImsMmTelManager;
+    @Mock
+    private SubscriptionManager mSubscriptionManager;
+
+    private Context mContext;
+    private ImsQueryService mService;
+    private boolean mIsSupported;
+    private boolean mRespond;
+
+    @Before
+    public void setUp() throws ImsException {
+        MockitoAnnotations.initMocks(this);
+        mContext = spy(ApplicationProvider.getApplicationContext());
+        doReturn(mSubscriptionManager).when(mContext).getSystemService(SubscriptionManager.class);
+        doReturn(mock(SubscriptionInfo.class))
+                .when(mSubscriptionManager).getActiveSubscriptionInfo(anyInt());
+        mIsSupported = true;
+        mRespond = true;
+        doAnswer(invocation -> {
+            if (mRespond) {
+                final Consumer<Boolean> callback = invocation.getArgument(3);
+                callback.accept(mIsSupported);
+            }
+            return null;
+        }).when(mImsMmTelManager).isSupported(anyInt(), anyInt(), any(), any());
+
+        mService = new ImsQueryService(mContext, Runnable::run, subId -> mImsMmTelManager,
+                TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void isSupported_queriedTwice_shouldQueryPlatformOnce() throws Exception {
+        assertThat(isSupported(SUB_ID).get()).isTrue();
+        mIsSupported = false;
+
+        assertThat(isSupported(SUB_ID).get()).isTrue();
+        verify(mImsMmTelManager).isSupported(eq(CAPABILITY), eq(TRANSPORT_TYPE), any(), any());
+    }
+
+    @Test
+    public void isSupported_afterInvalidate_shouldQueryPlatformAgain() throws Exception {
+        isSupported(SUB_ID).get();
+        mIsSupported = false;
+
+        mService.invalidate(SUB_ID);
+
+        assertThat(isSupported(SUB_ID).get()).isFalse();
+        verify(mImsMmTelManager, times(2)).isSupported(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void isSupported_otherSubscriptionInvalidated_shouldKeepCachedResult()
+            throws Exception {
+        isSupported(SUB_ID).get();
+
+        mService.invalidate(OTHER_SUB_ID);
+        isSupported(SUB_ID).get();
+
+        verify(mImsMmTelManager).isSupported(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void isSupported_carrierConfigChanged_shouldQueryPlatformAgain() throws Exception {
+        isSupported(SUB_ID).get();
+
+        mService.mCarrierConfigReceiver.onReceive(mContext,
+                new Intent(CarrierConfigManager.ACTION_CARRIER_CONFIG_CHANGED)
+                        .putExtra(CarrierConfigManager.EXTRA_SUBSCRIPTION_INDEX, SUB_ID));
+        isSupported(SUB_ID).get();
+
+        verify(mImsMmTelManager, times(2)).isSupported(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void isSupported_noResponse_shouldTimeOutAndNotCache() throws Exception {
+        mRespond = false;
+
+        final ExecutionException exception =
+                assertThrows(ExecutionException.class, () -> isSupported(SUB_ID).get());
+        assertThat(exception).hasCauseThat().isInstanceOf(TimeoutException.class);
+
+        mRespond = true;
+        assertThat(isSupported(SUB_ID).get()).isTrue();
+        verify(mImsMmTelManager, times(2)).isSupported(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void isSupported_registrationFailed_shouldNotCacheAndBackOff() throws Exception {
+        doThrow(new ImsException("unavailable")).when(mImsMmTelManager)
+                .registerImsRegistrationCallback(any(),
+                        any(ImsMmTelManager.RegistrationCallback.class));
+
+        isSupported(SUB_ID).get();
+        isSupported(SUB_ID).get();
+
+        verify(mImsMmTelManager, times(2)).isSupported(anyInt(), anyInt(), any(), any());
+        verify(mImsMmTelManager).registerImsRegistrationCallback(any(),
+                any(ImsMmTelManager.RegistrationCallback.class));
+
+        SystemClock.sleep(ImsQueryService.REGISTRATION_RETRY_MIN_MILLIS);
+        isSupported(SUB_ID).get();
+
+        verify(mImsMmTelManager, times(2)).registerImsRegistrationCallback(any(),
+                any(ImsMmTelManager.RegistrationCallback.class));
+    }
+
+    @Test
+    public void releaseInactiveSubscriptions_subscriptionRemoved_shouldUnregisterCallbacks()
+            throws Exception {
+        isSupported(SUB_ID).get();
+        assertThat(mService.isListening(SUB_ID)).isTrue();
+        doReturn(null).when(mSubscriptionManager).getActiveSubscriptionInfo(SUB_ID);
+
+        mService.releaseInactiveSubscriptions();
+
+        assertThat(mService.isListening(SUB_ID)).isFalse();
+        verify(mImsMmTelManager).unregisterImsRegistrationCallback(
+                any(ImsMmTelManager.RegistrationCallback.class));
+        verify(mImsMmTelManager).unregisterMmTelCapabilityCallback(any());
+    }
+
+    @Test
+    public void releaseInactiveSubscriptions_subscriptionActive_shouldKeepCallbacks()
+            throws Exception {
+        isSupported(SUB_ID).get();
+
+        mService.releaseInactiveSubscriptions();
+
+        assertThat(mService.isListening(SUB_ID)).isTrue();
+        verify(mImsMmTelManager, never()).unregisterImsRegistrationCallback(
+                any(ImsMmTelManager.RegistrationCallback.class));
+    }
+
+    private CompletableFuture<Boolean> isSupported(int subId) {
+        return mService.isSupported(subId, CAPABILITY, TRANSPORT_TYPE);
+    }
+}
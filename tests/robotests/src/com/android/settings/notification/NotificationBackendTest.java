@@ -23,6 +23,9 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.INotificationManager;
@@ -32,6 +35,7 @@ import android.bluetooth.BluetoothAdapter;
 import android.companion.AssociationInfo;
 import android.companion.ICompanionDeviceManager;
 import android.content.ComponentName;
+import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
@@ -55,6 +59,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -153,6 +158,77 @@ public class NotificationBackendTest {
         assertFalse(appRow.lockedImportance);
     }
 
+    @Test
+    public void getBlockStates_shouldFetchPackagesOncePerUserInOrder() throws Exception {
+        final PackageManager pm = mock(PackageManager.class);
+        final Context context = mockContext(pm);
+        final PackageInfo granted = createPackageInfo("granted", 10001, true /* granted */);
+        final PackageInfo denied = createPackageInfo("denied", 10002, false /* granted */);
+        when(pm.getInstalledPackagesAsUser(PackageManager.GET_PERMISSIONS, 0))
+                .thenReturn(Arrays.asList(granted, denied));
+
+        final List<NotificationBackend.BlockState> states = mNotificationBackend.getBlockStates(
+                context, Arrays.asList(denied.applicationInfo, granted.applicationInfo));
+
+        assertThat(states).hasSize(2);
+        assertTrue(states.get(0).banned);
+        assertTrue(states.get(0).blockable);
+        assertFalse(states.get(1).banned);
+        assertTrue(states.get(1).blockable);
+        verify(pm, times(1)).getInstalledPackagesAsUser(anyInt(), anyInt());
+        verify(mInm, never()).areNotificationsEnabledForPackage(anyString(), anyInt());
+    }
+
+    @Test
+    public void getBlockStates_permissionNotRequested_askNoManForBannedOnly() throws Exception {
+        final PackageManager pm = mock(PackageManager.class);
+        final PackageInfo pi = createPackageInfo("test", 10001, false /* granted */);
+        pi.requestedPermissions = new String[] {"something"};
+        pi.requestedPermissionsFlags = new int[] {0};
+        when(pm.getInstalledPackagesAsUser(PackageManager.GET_PERMISSIONS, 0))
+                .thenReturn(Arrays.asList(pi));
+        when(mInm.areNotificationsEnabledForPackage("test", 10001)).thenReturn(false);
+
+        final List<NotificationBackend.BlockState> states = mNotificationBackend.getBlockStates(
+                mockContext(pm), Arrays.asList(pi.applicationInfo));
+
+        assertTrue(states.get(0).banned);
+        // Targets T without requesting the permission, so it is locked without asking NoMan.
+        assertFalse(states.get(0).blockable);
+        verify(mInm, never()).isImportanceLocked(anyString(), anyInt());
+    }
+
+    @Test
+    public void getBlockStates_importanceLocked_notBlockable() throws Exception {
+        final PackageManager pm = mock(PackageManager.class);
+        final PackageInfo pi = createPackageInfo("test", 10001, true /* granted */);
+        when(pm.getInstalledPackagesAsUser(PackageManager.GET_PERMISSIONS, 0))
+                .thenReturn(Arrays.asList(pi));
+        when(mInm.isImportanceLocked("test", 10001)).thenReturn(true);
+
+        final List<NotificationBackend.BlockState> states = mNotificationBackend.getBlockStates(
+                mockContext(pm), Arrays.asList(pi.applicationInfo));
+
+        assertFalse(states.get(0).banned);
+        assertFalse(states.get(0).blockable);
+    }
+
+    @Test
+    public void getBlockStates_packageNotInstalled_fallBackToPerAppQueries() throws Exception {
+        final PackageManager pm = mock(PackageManager.class);
+        final PackageInfo pi = createPackageInfo("test", 10001, true /* granted */);
+        when(pm.getInstalledPackagesAsUser(PackageManager.GET_PERMISSIONS, 0))
+                .thenReturn(new ArrayList<>());
+        when(pm.getPackageInfo("test", PackageManager.GET_PERMISSIONS)).thenReturn(pi);
+        when(mInm.areNotificationsEnabledForPackage("test", 10001)).thenReturn(false);
+
+        final List<NotificationBackend.BlockState> states = mNotificationBackend.getBlockStates(
+                mockContext(pm), Arrays.asList(pi.applicationInfo));
+
+        assertTrue(states.get(0).banned);
+        assertTrue(states.get(0).blockable);
+    }
+
     @Test
     public void testGetAggregatedUsageEvents_multipleEventsAgg() {
         List<UsageEvents.Event> events = new ArrayList<>();
@@ -279,4 +355,23 @@ public class NotificationBackendTest {
         }
         return ImmutableList.copyOf(associations);
     }
+
+    private static Context mockContext(PackageManager pm) {
+        final Context context = mock(Context.class);
+        when(context.getPackageManager()).thenReturn(pm);
+        return context;
+    }
+
+    private static PackageInfo createPackageInfo(String pkg, int uid, boolean granted) {
+        final PackageInfo pi = new PackageInfo();
+        pi.packageName = pkg;
+        pi.applicationInfo = new ApplicationInfo();
+        pi.applicationInfo.packageName = pkg;
+        pi.applicationInfo.uid = uid;
+        pi.applicationInfo.targetSdkVersion = Build.VERSION_CODES.TIRAMISU;
+        pi.requestedPermissions = new String[] {android.Manifest.permission.POST_NOTIFICATIONS};
+        pi.requestedPermissionsFlags =
+                new int[] {granted ? PackageInfo.REQUESTED_PERMISSION_GRANTED : 0};
+        return pi;
+    }
 }
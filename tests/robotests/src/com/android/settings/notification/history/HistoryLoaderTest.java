@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.NotificationHistory;
+import android.app.NotificationHistory.HistoricalNotification;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.Parcel;
+
+import com.android.settings.notification.NotificationBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class HistoryLoaderTest {
+    private static final String PACKAGE_PREFIX = "com.example.app";
+    private static final int UID = 10001;
+
+    @Mock
+    private NotificationBackend mBackend;
+    @Mock
+    private PackageManager mPackageManager;
+
+    private Context mContext;
+    private HistoryLoader mLoader;
+    private List<Page> mPages;
+
+    @Before
+    public void setUp() throws PackageManager.NameNotFoundException {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        when(mPackageManager.getApplicationInfoAsUser(anyString(), anyInt(), anyInt()))
+                .thenReturn(new ApplicationInfo());
+        when(mPackageManager.getApplicationLabel(any())).thenReturn("label");
+        mLoader = new HistoryLoader(mContext, mBackend, mPackageManager);
+        mLoader.mBackgroundExecutor = Runnable::run;
+        mLoader.mMainExecutor = Runnable::run;
+        mPages = new ArrayList<>();
+    }
+
+    @Test
+    public void load_noHistory_shouldDeliverOneEmptyPage() {
+        setHistoryPackageCount(0);
+
+        mLoader.load(this::onHistoryLoaded);
+
+        assertThat(mPages).hasSize(1);
+        assertThat(mPages.get(0).mPackages).isEmpty();
+        assertThat(mPages.get(0).mOffset).isEqualTo(0);
+        assertThat(mPages.get(0).mHasMore).isFalse();
+    }
+
+    @Test
+    public void load_oneFullPage_shouldHaveNoMorePages() {
+        setHistoryPackageCount(HistoryLoader.PAGE_SIZE);
+
+        mLoader.load(this::onHistoryLoaded);
+
+        assertThat(mPages).hasSize(1);
+        assertThat(mPages.get(0).mPackages).hasSize(HistoryLoader.PAGE_SIZE);
+        assertThat(mPages.get(0).mHasMore).isFalse();
+    }
+
+    @Test
+    public void load_severalPages_shouldOnlyDeliverFirstPage() {
+        setHistoryPackageCount(2 * HistoryLoader.PAGE_SIZE + 1);
+
+        mLoader.load(this::onHistoryLoaded);
+
+        assertThat(mPages).hasSize(1);
+        assertThat(mPages.get(0).mHasMore).isTrue();
+        assertThat(mLoader.hasMorePages()).isTrue();
+    }
+
+    @Test
+    public void loadNextPage_severalPages_shouldDeliverPagesInOrder() {
+        final int packageCount = 2 * HistoryLoader.PAGE_SIZE + 1;
+        setHistoryPackageCount(packageCount);
+
+        mLoader.load(this::onHistoryLoaded);
+        mLoader.loadNextPage();
+        mLoader.loadNextPage();
+        mLoader.loadNextPage();
+
+        assertThat(mPages).hasSize(3);
+        assertThat(mLoader.hasMorePages()).isFalse();
+        for (int i = 0; i < mPages.size(); i++) {
+            assertThat(mPages.get(i).mOffset).isEqualTo(i * HistoryLoader.PAGE_SIZE);
+            assertThat(mPages.get(i).mHasMore).isEqualTo(i < mPages.size() - 1);
+        }
+        assertThat(mPages.get(2).mPackages).hasSize(1);
+        // Most recent first, so the last page holds the package posted first.
+        assertThat(mPages.get(0).mPackages.get(0).pkgName)
+                .isEqualTo(PACKAGE_PREFIX + (packageCount - 1));
+        assertThat(mPages.get(2).mPackages.get(0).pkgName).isEqualTo(PACKAGE_PREFIX + 0);
+        assertThat(mPages.get(0).mPackages.get(0).label).isEqualTo("label");
+    }
+
+    @Test
+    public void load_cancelled_shouldDeliverNothing() {
+        setHistoryPackageCount(1);
+
+        mLoader.cancel();
+        mLoader.load(this::onHistoryLoaded);
+
+        assertThat(mPages).isEmpty();
+    }
+
+    @Test
+    public void loadNextPage_cancelledAfterFirstPage_shouldStopPublishingPages() {
+        setHistoryPackageCount(2 * HistoryLoader.PAGE_SIZE + 1);
+
+        mLoader.load(this::onHistoryLoaded);
+        // As the activity does when it goes away while the history is being loaded.
+        mLoader.cancel();
+        mLoader.loadNextPage();
+
+        assertThat(mPages).hasSize(1);
+        assertThat(mPages.get(0).mOffset).isEqualTo(0);
+    }
+
+    @Test
+    public void loadNextPage_pageBeingLoaded_shouldLoadItOnce() {
+        setHistoryPackageCount(2 * HistoryLoader.PAGE_SIZE + 1);
+        mLoader.load(this::onHistoryLoaded);
+        final List<Runnable> backgroundTasks = new ArrayList<>();
+        mLoader.mBackgroundExecutor = backgroundTasks::add;
+
+        // As the scroll listener does for every scroll near the end.
+        mLoader.loadNextPage();
+        mLoader.loadNextPage();
+
+        assertThat(backgroundTasks).hasSize(1);
+        backgroundTasks.get(0).run();
+        assertThat(mPages).hasSize(2);
+        assertThat(mPages.get(1).mOffset).isEqualTo(HistoryLoader.PAGE_SIZE);
+    }
+
+    @Test
+    public void load_shouldNotResolveIcons() {
+        setHistoryPackageCount(HistoryLoader.PAGE_SIZE);
+
+        mLoader.load(this::onHistoryLoaded);
+
+        verify(mPackageManager, never()).getApplicationIcon(any(ApplicationInfo.class));
+        assertThat(mPages.get(0).mPackages.get(0).icon).isNull();
+    }
+
+    @Test
+    public void loadIcon_shouldSetIconThenRunCallback() {
+        final Drawable icon = new ColorDrawable();
+        when(mPackageManager.getUserBadgedIcon(any(), any())).thenReturn(icon);
+        final NotificationHistoryPackage nhp = new NotificationHistoryPackage(PACKAGE_PREFIX, UID);
+        final List<Drawable> shownIcons = new ArrayList<>();
+
+        mLoader.loadIcon(nhp, () -> shownIcons.add(nhp.icon));
+
+        assertThat(shownIcons).containsExactly(icon);
+    }
+
+    @Test
+    public void loadIcon_appGone_shouldSetDefaultIcon()
+            throws PackageManager.NameNotFoundException {
+        final Drawable icon = new ColorDrawable();
+        when(mPackageManager.getDefaultActivityIcon()).thenReturn(icon);
+        when(mPackageManager.getApplicationInfoAsUser(anyString(), anyInt(), anyInt()))
+                .thenThrow(new PackageManager.NameNotFoundException());
+        final NotificationHistoryPackage nhp = new NotificationHistoryPackage(PACKAGE_PREFIX, UID);
+
+        mLoader.loadIcon(nhp, () -> {});
+
+        assertThat(nhp.icon).isSameInstanceAs(icon);
+    }
+
+    @Test
+    public void loadIcon_cancelled_shouldNotRunCallback() {
+        final NotificationHistoryPackage nhp = new NotificationHistoryPackage(PACKAGE_PREFIX, UID);
+        final List<Drawable> shownIcons = new ArrayList<>();
+
+        mLoader.cancel();
+        mLoader.loadIcon(nhp, () -> shownIcons.add(nhp.icon));
+
+        assertThat(shownIcons).isEmpty();
+    }
+
+    private void onHistoryLoaded(List<NotificationHistoryPackage> packages, int offset,
+            boolean hasMore) {
+        mPages.add(new Page(packages, offset, hasMore));
+    }
+
+    /** Sets a history with one notification for each package, posted one after the other. */
+    private void setHistoryPackageCount(int packageCount) {
+        final NotificationHistory history = new NotificationHistory();
+        for (int i = 0; i < packageCount; i++) {
+            final String packageName = PACKAGE_PREFIX + i;
+            history.addNotificationToWrite(new HistoricalNotification.Builder()
+                    .setPackage(packageName)
+                    .setChannelName("channel")
+                    .setChannelId("channel")
+                    .setUid(UID + i)
+                    .setUserId(0)
+                    .setPostedTimeMs(1000 + i)
+                    .setTitle("title")
+                    .setText("text")
+                    .setIcon(Icon.createWithResource(packageName, 1))
+                    .build());
+        }
+        // Notifications are only read back from a parcel.
+        history.poolStringsFromNotifications();
+        final Parcel parcel = Parcel.obtain();
+        history.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        when(mBackend.getNotificationHistory(any(), any()))
+                .thenReturn(NotificationHistory.CREATOR.createFromParcel(parcel));
+        parcel.recycle();
+    }
+
+    private static final class Page {
+        private final List<NotificationHistoryPackage> mPackages;
+        private final int mOffset;
+        private final boolean mHasMore;
+
+        private Page(List<NotificationHistoryPackage> packages, int offset, boolean hasMore) {
+            mPackages = packages;
+            mOffset = offset;
+            mHasMore = hasMore;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationEventBufferTest {
+
+    private NotificationEventBuffer<String[]> mBuffer;
+
+    @Before
+    public void setUp() {
+        // Entries are {key, name} pairs.
+        mBuffer = new NotificationEventBuffer<>(3, entry -> entry[0]);
+    }
+
+    @Test
+    public void addFirst_shouldKeepNewestFirst() {
+        final String[] first = entry("a", "1");
+        final String[] second = entry("b", "2");
+
+        assertThat(mBuffer.addFirst(first)).isNull();
+        assertThat(mBuffer.addFirst(second)).isNull();
+
+        assertThat(mBuffer.size()).isEqualTo(2);
+        assertThat(mBuffer.get(0)).isSameInstanceAs(second);
+        assertThat(mBuffer.get(1)).isSameInstanceAs(first);
+    }
+
+    @Test
+    public void addFirst_full_shouldEvictOldest() {
+        final String[] oldest = entry("a", "1");
+        mBuffer.addFirst(oldest);
+        mBuffer.addFirst(entry("b", "2"));
+        mBuffer.addFirst(entry("c", "3"));
+        final String[] newest = entry("d", "4");
+
+        assertThat(mBuffer.addFirst(newest)).isSameInstanceAs(oldest);
+
+        assertThat(mBuffer.size()).isEqualTo(3);
+        assertThat(mBuffer.get(0)).isSameInstanceAs(newest);
+        assertThat(mBuffer.get(2)[1]).isEqualTo("2");
+        assertThat(mBuffer.getNewest("a")).isNull();
+    }
+
+    @Test
+    public void getNewest_sameKey_shouldReturnNewestEntry() {
+        final String[] older = entry("a", "1");
+        final String[] newer = entry("a", "2");
+        mBuffer.addFirst(older);
+        mBuffer.addFirst(newer);
+
+        assertThat(mBuffer.getNewest("a")).isSameInstanceAs(newer);
+    }
+
+    @Test
+    public void addFirst_evictOlderEntryOfKey_shouldKeepNewerOne() {
+        mBuffer.addFirst(entry("a", "1"));
+        final String[] newer = entry("a", "2");
+        mBuffer.addFirst(newer);
+        mBuffer.addFirst(entry("b", "3"));
+
+        mBuffer.addFirst(entry("c", "4"));
+
+        assertThat(mBuffer.getNewest("a")).isSameInstanceAs(newer);
+    }
+
+    @Test
+    public void addLast_shouldAppendOlderEntriesUntilFull() {
+        final String[] newer = entry("a", "1");
+        mBuffer.addLast(newer);
+        mBuffer.addLast(entry("a", "2"));
+        mBuffer.addLast(entry("b", "3"));
+
+        assertThat(mBuffer.addLast(entry("c", "4"))).isFalse();
+        assertThat(mBuffer.size()).isEqualTo(3);
+        assertThat(mBuffer.get(2)[1]).isEqualTo("3");
+        assertThat(mBuffer.getNewest("a")).isSameInstanceAs(newer);
+    }
+
+    @Test
+    public void clear_shouldRemoveAllEntries() {
+        mBuffer.addFirst(entry("a", "1"));
+
+        mBuffer.clear();
+
+        assertThat(mBuffer.size()).isEqualTo(0);
+        assertThat(mBuffer.getNewest("a")).isNull();
+    }
+
+    private static String[] entry(String key, String name) {
+        return new String[] {key, name};
+    }
+}
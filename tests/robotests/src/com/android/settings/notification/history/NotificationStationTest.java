@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.Activity;
+import android.app.Notification;
+import android.os.Process;
+import android.service.notification.StatusBarNotification;
+import android.util.Pair;
+
+import com.android.settings.notification.history.NotificationStation.HistoricalNotificationInfo;
+import com.android.settings.notification.history.NotificationStation.HistoricalNotificationPreference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationStationTest {
+    private static final String PACKAGE_NAME = "com.example.app";
+    private static final long POST_TIME = 1000;
+
+    private Activity mActivity;
+    private NotificationStation mFragment;
+    private List<Runnable> mBackgroundTasks;
+    private List<Runnable> mMainTasks;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(Activity.class);
+        mFragment = new NotificationStation();
+        mFragment.onAttach(mActivity);
+        mBackgroundTasks = new ArrayList<>();
+        mMainTasks = new ArrayList<>();
+        mFragment.mBackgroundExecutor = mBackgroundTasks::add;
+        mFragment.mMainExecutor = mMainTasks::add;
+    }
+
+    @Test
+    public void loadNotificationExtras_shouldGenerateInOnePassAndShowInOneUpdate() {
+        final List<Pair<StatusBarNotification, HistoricalNotificationPreference>> entries =
+                new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final StatusBarNotification sbn = createSbn(i, POST_TIME + i);
+            entries.add(Pair.create(sbn, createPreference(sbn)));
+        }
+
+        mFragment.loadNotificationExtras(entries);
+        assertThat(mBackgroundTasks).hasSize(1);
+        mBackgroundTasks.get(0).run();
+
+        assertThat(mMainTasks).hasSize(1);
+        assertThat(entries.get(0).second.mInfo.notificationExtra).isNull();
+
+        mMainTasks.get(0).run();
+
+        for (Pair<StatusBarNotification, HistoricalNotificationPreference> entry : entries) {
+            assertThat(entry.second.mInfo.notificationExtra.toString())
+                    .contains(entry.first.getKey());
+        }
+    }
+
+    @Test
+    public void loadNotificationExtras_entryUpdatedMeanwhile_shouldKeepNewerEntry() {
+        final StatusBarNotification sbn = createSbn(0, POST_TIME);
+        final HistoricalNotificationPreference pref = createPreference(sbn);
+
+        mFragment.loadNotificationExtras(Collections.singletonList(Pair.create(sbn, pref)));
+        mBackgroundTasks.get(0).run();
+        // A newer post of the notification updated the entry.
+        pref.mInfo.timestamp = POST_TIME + 1;
+        mMainTasks.get(0).run();
+
+        assertThat(pref.mInfo.notificationExtra).isNull();
+    }
+
+    @Test
+    public void loadNotificationExtras_noEntries_shouldNotPostTask() {
+        mFragment.loadNotificationExtras(Collections.emptyList());
+
+        assertThat(mBackgroundTasks).isEmpty();
+    }
+
+    private StatusBarNotification createSbn(int id, long postTime) {
+        final Notification notification = new Notification.Builder(mActivity, "channel")
+                .setSmallIcon(android.R.drawable.ic_dialog_info)
+                .setContentTitle("title")
+                .build();
+        return new StatusBarNotification(PACKAGE_NAME, PACKAGE_NAME, id, null /* tag */,
+                Process.myUid(), 0 /* initialPid */, notification, Process.myUserHandle(),
+                null /* overrideGroupKey */, postTime);
+    }
+
+    private HistoricalNotificationPreference createPreference(StatusBarNotification sbn) {
+        final HistoricalNotificationInfo info = new HistoricalNotificationInfo();
+        info.key = sbn.getKey();
+        info.pkg = sbn.getPackageName();
+        info.timestamp = sbn.getPostTime();
+        return new HistoricalNotificationPreference(mActivity, info, 0 /* order */);
+    }
+}
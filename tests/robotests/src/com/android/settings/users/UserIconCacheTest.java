@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.os.Looper;
+import android.os.UserManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class UserIconCacheTest {
+    private static final int USER_ID = 10;
+    private static final int ICON_SIZE = 40;
+
+    @Mock
+    private UserManager mUserManager;
+
+    private Context mContext;
+    private UserIconCache mIconCache;
+    private int mLoadedCount;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = spy(RuntimeEnvironment.application);
+        doReturn(mUserManager).when(mContext).getSystemService(UserManager.class);
+        doReturn(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888))
+                .when(mUserManager).getUserIcon(USER_ID);
+        mIconCache = new UserIconCache(Runnable::run, Runnable::run);
+    }
+
+    @Test
+    public void getIcon_notLoaded_returnNull() {
+        assertThat(mIconCache.getIcon(mContext.getResources(), USER_ID, ICON_SIZE)).isNull();
+    }
+
+    @Test
+    public void loadIcons_shouldCacheIconAtSizeAndNotify() {
+        mIconCache.loadIcons(mContext, Collections.singletonList(USER_ID), ICON_SIZE,
+                () -> mLoadedCount++);
+
+        assertThat(mLoadedCount).isEqualTo(1);
+        assertThat(mIconCache.getIcon(mContext.getResources(), USER_ID, ICON_SIZE)
+                .getIntrinsicWidth()).isEqualTo(ICON_SIZE);
+    }
+
+    @Test
+    public void loadIcons_iconCached_shouldNotLoadAgain() {
+        mIconCache.loadIcons(mContext, Collections.singletonList(USER_ID), ICON_SIZE,
+                () -> mLoadedCount++);
+        mIconCache.loadIcons(mContext, Collections.singletonList(USER_ID), ICON_SIZE,
+                () -> mLoadedCount++);
+
+        assertThat(mLoadedCount).isEqualTo(1);
+        verify(mUserManager, times(1)).getUserIcon(USER_ID);
+    }
+
+    @Test
+    public void loadIcons_noUserIcon_shouldUseDefaultIcon() {
+        final int userWithoutIcon = USER_ID + 1;
+
+        mIconCache.loadIcons(mContext, Arrays.asList(USER_ID, userWithoutIcon), ICON_SIZE,
+                () -> mLoadedCount++);
+
+        assertThat(mLoadedCount).isEqualTo(1);
+        assertThat(mIconCache.getIcon(mContext.getResources(), userWithoutIcon, ICON_SIZE))
+                .isNotNull();
+    }
+
+    @Test
+    public void loadIcons_iconBeingLoaded_shouldNotifyBothCallers() {
+        final List<Runnable> backgroundTasks = new ArrayList<>();
+        mIconCache = new UserIconCache(backgroundTasks::add, Runnable::run);
+        final int[] secondLoadedCount = new int[1];
+
+        mIconCache.loadIcons(mContext, Collections.singletonList(USER_ID), ICON_SIZE,
+                () -> mLoadedCount++);
+        mIconCache.loadIcons(mContext, Collections.singletonList(USER_ID), ICON_SIZE,
+                () -> secondLoadedCount[0]++);
+        assertThat(backgroundTasks).hasSize(1);
+        backgroundTasks.get(0).run();
+
+        assertThat(mLoadedCount).isEqualTo(1);
+        assertThat(secondLoadedCount[0]).isEqualTo(1);
+        verify(mUserManager, times(1)).getUserIcon(USER_ID);
+    }
+
+    @Test
+    public void loadIcons_someIconsBeingLoaded_shouldNotifyOnceAllLoaded() {
+        final List<Runnable> backgroundTasks = new ArrayList<>();
+        mIconCache = new UserIconCache(backgroundTasks::add, Runnable::run);
+        final int otherUserId = USER_ID + 1;
+        final int[] secondLoadedCount = new int[1];
+
+        mIconCache.loadIcons(mContext, Collections.singletonList(USER_ID), ICON_SIZE,
+                () -> mLoadedCount++);
+        mIconCache.loadIcons(mContext, Arrays.asList(USER_ID, otherUserId), ICON_SIZE,
+                () -> secondLoadedCount[0]++);
+        assertThat(backgroundTasks).hasSize(2);
+        backgroundTasks.get(0).run();
+
+        assertThat(mLoadedCount).isEqualTo(1);
+        assertThat(secondLoadedCount[0]).isEqualTo(0);
+
+        backgroundTasks.get(1).run();
+
+        assertThat(secondLoadedCount[0]).isEqualTo(1);
+    }
+
+    @Test
+    public void userInfoChanged_shouldDropCachedIcon() {
+        mIconCache.loadIcons(mContext, Collections.singletonList(USER_ID), ICON_SIZE,
+                () -> mLoadedCount++);
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_USER_INFO_CHANGED)
+                .putExtra(Intent.EXTRA_USER_HANDLE, USER_ID));
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertThat(mIconCache.getIcon(mContext.getResources(), USER_ID, ICON_SIZE)).isNull();
+    }
+
+    @Test
+    public void invalidate_shouldDropCachedIcon() {
+        mIconCache.putIcon(USER_ID, ICON_SIZE,
+                Bitmap.createBitmap(ICON_SIZE, ICON_SIZE, Bitmap.Config.ARGB_8888));
+
+        mIconCache.invalidate(USER_ID);
+
+        assertThat(mIconCache.getIcon(mContext.getResources(), USER_ID, ICON_SIZE)).isNull();
+    }
+}
@@ -61,6 +61,7 @@ import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceManager;
 import androidx.preference.PreferenceScreen;
 
+import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.SubSettings;
 import com.android.settings.testutils.shadow.SettingsShadowResources;
@@ -185,6 +186,7 @@ public class UserSettingsTest {
         mFragment.mGuestCategory = mock(PreferenceCategory.class);
         mFragment.mGuestResetPreference = mock(Preference.class);
         mFragment.mGuestExitPreference = mock(Preference.class);
+        mFragment.mUserIconCache = new UserIconCache(Runnable::run, Runnable::run);
     }
 
     @After
@@ -637,7 +639,7 @@ public class UserSettingsTest {
         UserInfo currentUser = getAdminUser(true);
         currentUser.iconPath = "/data/system/users/0/photo.png";
         givenUsers(currentUser);
-        mFragment.mUserIcons.put(ACTIVE_USER_ID,
+        mFragment.mUserIconCache.putIcon(ACTIVE_USER_ID, getUserIconSize(),
                 Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
 
         mFragment.updateUserList();
@@ -652,8 +654,9 @@ public class UserSettingsTest {
         UserInfo currentUser = getAdminUser(true);
         currentUser.iconPath = "/data/system/users/0/photo.png";
         givenUsers(currentUser);
-        // create a non-empty sparsearray
-        mFragment.mUserIcons.put(5, Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
+        // create a non-empty cache
+        mFragment.mUserIconCache.putIcon(5, getUserIconSize(),
+                Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
         Bitmap userIcon = Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888);
         doReturn(userIcon).when(mUserManager).getUserIcon(ACTIVE_USER_ID);
 
@@ -664,6 +667,30 @@ public class UserSettingsTest {
         verify(mUserManager, times(2)).getAliveUsers();
     }
 
+    @Test
+    public void finishLoadProfile_iconCached_shouldSetIconWithoutLoading() {
+        mFragment.mUserIconCache.putIcon(UserHandle.myUserId(), getUserIconSize(),
+                Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
+
+        mFragment.finishLoadProfile("name", false /* photoAssigned */);
+
+        verify(mMePreference).setIcon(any(Drawable.class));
+        verify(mUserManager, never()).getUserIcon(anyInt());
+    }
+
+    @Test
+    public void finishLoadProfile_photoAssigned_shouldReloadIcon() {
+        mFragment.mUserIconCache.putIcon(UserHandle.myUserId(), getUserIconSize(),
+                Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
+        doReturn(Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888))
+                .when(mUserManager).getUserIcon(UserHandle.myUserId());
+
+        mFragment.finishLoadProfile("name", true /* photoAssigned */);
+
+        verify(mUserManager).getUserIcon(UserHandle.myUserId());
+        verify(mMePreference).setIcon(any(Drawable.class));
+    }
+
     @Test
     public void onPreferenceClick_addGuestClicked_createGuestAndOpenDetails() {
         UserInfo createdGuest = getGuest(false);
@@ -794,6 +821,11 @@ public class UserSettingsTest {
         }
     }
 
+    private int getUserIconSize() {
+        return mContext.getResources().getDimensionPixelSize(
+                R.dimen.multiple_users_user_icon_size);
+    }
+
     private void givenUsers(UserInfo... userInfo) {
         List<UserInfo> users = Arrays.asList(userInfo);
         doReturn(users).when(mUserManager).getUsers();
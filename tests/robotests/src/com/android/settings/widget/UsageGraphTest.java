@@ -25,7 +25,7 @@ import static org.mockito.Mockito.when;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Canvas;
-import android.graphics.Paint;
+import android.graphics.Path;
 import android.util.SparseIntArray;
 
 import com.android.settingslib.R;
@@ -181,12 +181,40 @@ public class UsageGraphTest {
     }
 
     @Test
-    public void drawFilledPath_emptyPath_shouldNotCrash() {
-        final Canvas canvas = new Canvas();
+    public void buildFilledPath_emptyPath_shouldNotCrash() {
         final SparseIntArray localPaths = new SparseIntArray();
-        final Paint paint = new Paint();
 
         // Should not crash
-        mGraph.drawFilledPath(canvas, localPaths, paint);
+        mGraph.buildFilledPath(new Path(), localPaths);
+    }
+
+    @Test
+    public void onDraw_withoutPathChange_reuseDrawingPaths() {
+        final Canvas canvas = new Canvas();
+        final SparseIntArray paths = new SparseIntArray();
+        paths.append(0, 100);
+        paths.append(500, 50);
+        mGraph.addPath(paths);
+
+        mGraph.onDraw(canvas);
+        mGraph.onDraw(canvas);
+
+        assertThat(mGraph.mDrawCount).isEqualTo(2);
+        assertThat(mGraph.mPathBuildCount).isEqualTo(1);
+    }
+
+    @Test
+    public void onDraw_afterPathChange_rebuildDrawingPaths() {
+        final Canvas canvas = new Canvas();
+        final SparseIntArray paths = new SparseIntArray();
+        paths.append(0, 100);
+        paths.append(500, 50);
+        mGraph.addPath(paths);
+        mGraph.onDraw(canvas);
+
+        mGraph.addProjectedPath(paths);
+        mGraph.onDraw(canvas);
+
+        assertThat(mGraph.mPathBuildCount).isEqualTo(2);
     }
 }
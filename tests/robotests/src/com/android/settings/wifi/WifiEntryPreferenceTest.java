@@ -18,6 +18,7 @@ package com.android.settings.wifi;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -116,6 +117,22 @@ public class WifiEntryPreferenceTest {
         assertThat(pref.getSummary()).isEqualTo(MOCK_SUMMARY);
     }
 
+    @Test
+    public void setWifiEntry_shouldListenToAndShowNewWifiEntry() {
+        final WifiEntryPreference pref =
+                new WifiEntryPreference(mContext, mMockWifiEntry, mMockIconInjector);
+        final WifiEntry newWifiEntry = mock(WifiEntry.class);
+        final String updatedTitle = "updated title";
+        when(newWifiEntry.getTitle()).thenReturn(updatedTitle);
+
+        pref.setWifiEntry(newWifiEntry);
+
+        assertThat(pref.getWifiEntry()).isEqualTo(newWifiEntry);
+        assertThat(pref.getTitle()).isEqualTo(updatedTitle);
+        verify(mMockWifiEntry).setListener(null);
+        verify(newWifiEntry).setListener(pref);
+    }
+
     @Test
     public void constructor_shouldSetIcon() {
         when(mMockWifiEntry.getLevel()).thenReturn(0);
@@ -23,10 +23,15 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.content.res.Configuration;
+import android.net.wifi.WifiManager;
+
 import androidx.lifecycle.Lifecycle;
+import androidx.slice.builders.ListBuilder;
 
 import com.android.settings.wifi.WifiPickerTrackerHelper;
 import com.android.wifitrackerlib.WifiEntry;
@@ -41,6 +46,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.Arrays;
+import java.util.Collections;
 
 @RunWith(RobolectricTestRunner.class)
 public class WifiScanWorkerTest {
@@ -113,6 +119,73 @@ public class WifiScanWorkerTest {
         assertThat(mWifiScanWorker.getWifiEntry(key)).isEqualTo(reachableWifiEntry);
     }
 
+    @Test
+    public void getWifiEntry_afterWifiEntriesChanged_shouldNotQueryWifiEntriesAgain() {
+        final String key = "key";
+        final WifiEntry reachableWifiEntry = mock(WifiEntry.class);
+        when(reachableWifiEntry.getKey()).thenReturn(key);
+        when(mWifiPickerTracker.getWifiEntries()).thenReturn(Arrays.asList(reachableWifiEntry));
+        mWifiScanWorker.onWifiEntriesChanged();
+
+        assertThat(mWifiScanWorker.getWifiEntry(key)).isEqualTo(reachableWifiEntry);
+        assertThat(mWifiScanWorker.getWifiEntry("other")).isNull();
+        verify(mWifiPickerTracker, times(1)).getWifiEntries();
+    }
+
+    @Test
+    public void onWifiEntriesChanged_shownEntryReplaced_shouldStopListeningToHiddenEntry() {
+        final WifiEntry shownWifiEntry = mock(WifiEntry.class);
+        when(shownWifiEntry.getKey()).thenReturn("shown");
+        final WifiEntry newWifiEntry = mock(WifiEntry.class);
+        when(newWifiEntry.getKey()).thenReturn("new");
+        when(mWifiPickerTracker.getWifiState()).thenReturn(WifiManager.WIFI_STATE_ENABLED);
+        when(mWifiPickerTracker.getConnectedWifiEntry()).thenReturn(shownWifiEntry);
+        mWifiScanWorker.onSlicePinned();
+        verify(shownWifiEntry).setListener(mWifiScanWorker);
+
+        when(mWifiPickerTracker.getConnectedWifiEntry()).thenReturn(newWifiEntry);
+        mWifiScanWorker.onWifiEntriesChanged();
+
+        verify(shownWifiEntry).setListener(null);
+        verify(newWifiEntry).setListener(mWifiScanWorker);
+    }
+
+    @Test
+    public void getCachedRow_sameConfiguration_shouldReturnCachedRow() {
+        final WifiSliceItem item = createWifiSliceItem();
+        final ListBuilder.RowBuilder row = new ListBuilder.RowBuilder();
+        final Configuration configuration = new Configuration();
+        mWifiScanWorker.setCachedRows(configuration, Collections.singletonMap(item, row));
+
+        assertThat(mWifiScanWorker.getCachedRow(new Configuration(configuration), item))
+                .isSameInstanceAs(row);
+    }
+
+    @Test
+    public void getCachedRow_configurationChanged_shouldReturnNull() {
+        final WifiSliceItem item = createWifiSliceItem();
+        final Configuration configuration = new Configuration();
+        mWifiScanWorker.setCachedRows(configuration,
+                Collections.singletonMap(item, new ListBuilder.RowBuilder()));
+
+        final Configuration nightConfiguration = new Configuration(configuration);
+        nightConfiguration.uiMode = Configuration.UI_MODE_NIGHT_YES;
+
+        assertThat(mWifiScanWorker.getCachedRow(nightConfiguration, item)).isNull();
+    }
+
+    @Test
+    public void getCachedRow_afterSliceUnpinned_shouldReturnNull() {
+        final WifiSliceItem item = createWifiSliceItem();
+        final Configuration configuration = new Configuration();
+        mWifiScanWorker.setCachedRows(configuration,
+                Collections.singletonMap(item, new ListBuilder.RowBuilder()));
+
+        mWifiScanWorker.onSliceUnpinned();
+
+        assertThat(mWifiScanWorker.getCachedRow(configuration, item)).isNull();
+    }
+
     @Test
     public void setCarrierNetworkEnabledIfNeeded_shouldSetCarrierNetworkEnabled() {
         mWifiScanWorker.setCarrierNetworkEnabledIfNeeded(true, SUB_ID);
@@ -143,4 +216,11 @@ public class WifiScanWorkerTest {
 
         verify(mWifiPickerTrackerHelper).connectCarrierNetwork(any());
     }
+
+    private WifiSliceItem createWifiSliceItem() {
+        final WifiEntry wifiEntry = mock(WifiEntry.class);
+        when(wifiEntry.getKey()).thenReturn("key");
+        when(wifiEntry.getTitle()).thenReturn("title");
+        return new WifiSliceItem(RuntimeEnvironment.application, wifiEntry);
+    }
 }
@@ -44,6 +44,8 @@ public class CarrierConfigCacheTest {
 
     static final int ONCE_SUB_ID = 11;
     static final int TWICE_SUB_ID = 12;
+    static final int COUNTED_SUB_ID = 13;
+    static final int NULL_SUB_ID = 14;
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
@@ -98,4 +100,29 @@ public class CarrierConfigCacheTest {
 
         verify(mCarrierConfigManager, times(1)).getConfigForSubId(TWICE_SUB_ID);
     }
+
+    @Test
+    public void getConfigForSubId_getTwice_countOneMissAndOneHit() {
+        when(mCarrierConfigManager.getConfigForSubId(COUNTED_SUB_ID)).thenReturn(mCarrierConfig);
+        final long hitCount = mCarrierConfigCache.getHitCount();
+        final long missCount = mCarrierConfigCache.getMissCount();
+        final long loadCount = mCarrierConfigCache.getLoadCount();
+
+        mCarrierConfigCache.getConfigForSubId(COUNTED_SUB_ID);
+        mCarrierConfigCache.getConfigForSubId(COUNTED_SUB_ID);
+
+        assertThat(mCarrierConfigCache.getHitCount() - hitCount).isEqualTo(1);
+        assertThat(mCarrierConfigCache.getMissCount() - missCount).isEqualTo(1);
+        assertThat(mCarrierConfigCache.getLoadCount() - loadCount).isEqualTo(1);
+    }
+
+    @Test
+    public void getConfigForSubId_nullConfig_notCached() {
+        when(mCarrierConfigManager.getConfigForSubId(NULL_SUB_ID)).thenReturn(null);
+
+        assertThat(mCarrierConfigCache.getConfigForSubId(NULL_SUB_ID)).isNull();
+        mCarrierConfigCache.getConfigForSubId(NULL_SUB_ID);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(NULL_SUB_ID);
+    }
 }
@@ -43,6 +43,7 @@ import com.android.settings.testutils.ResourcesUtils;
 import com.android.settingslib.RestrictedPreference;
 import com.android.settingslib.core.lifecycle.Lifecycle;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -127,6 +128,7 @@ public class NetworkProviderCallsSmsControllerTest {
         MockitoAnnotations.initMocks(this);
         mContext = spy(ApplicationProvider.getApplicationContext());
         when(mContext.getSystemService(SubscriptionManager.class)).thenReturn(mSubscriptionManager);
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
 
         if (Looper.myLooper() == null) {
             Looper.prepare();
@@ -142,6 +144,11 @@ public class NetworkProviderCallsSmsControllerTest {
         when(mLifecycleOwner.getLifecycle()).thenReturn(mLifecycleRegistry);
     }
 
+    @After
+    public void tearDown() {
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
+    }
+
     private void displayPreferenceWithLifecycle() {
         mLifecycleRegistry.addObserver(mController);
         mPreferenceScreen.addPreference(mPreference);
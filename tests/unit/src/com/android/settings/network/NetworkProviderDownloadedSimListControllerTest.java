@@ -42,6 +42,7 @@ import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.android.settings.testutils.ResourcesUtils;
 import com.android.settingslib.core.lifecycle.Lifecycle;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -128,6 +129,7 @@ public class NetworkProviderDownloadedSimListControllerTest {
         MockitoAnnotations.initMocks(this);
         mContext = spy(ApplicationProvider.getApplicationContext());
         when(mContext.getSystemService(SubscriptionManager.class)).thenReturn(mSubscriptionManager);
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
 
         if (Looper.myLooper() == null) {
             Looper.prepare();
@@ -145,6 +147,11 @@ public class NetworkProviderDownloadedSimListControllerTest {
         when(mLifecycleOwner.getLifecycle()).thenReturn(mLifecycleRegistry);
     }
 
+    @After
+    public void tearDown() {
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
+    }
+
     private void displayPreferenceWithLifecycle() {
         mLifecycleRegistry.addObserver(mController);
         mPreferenceScreen.addPreference(mPreference);
@@ -45,6 +45,7 @@ import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.android.settings.testutils.ResourcesUtils;
 import com.android.settingslib.core.lifecycle.Lifecycle;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -128,6 +129,7 @@ public class NetworkProviderSimListControllerTest {
         MockitoAnnotations.initMocks(this);
         mContext = spy(ApplicationProvider.getApplicationContext());
         when(mContext.getSystemService(SubscriptionManager.class)).thenReturn(mSubscriptionManager);
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
 
         if (Looper.myLooper() == null) {
             Looper.prepare();
@@ -142,6 +144,11 @@ public class NetworkProviderSimListControllerTest {
         when(mLifecycleOwner.getLifecycle()).thenReturn(mLifecycleRegistry);
     }
 
+    @After
+    public void tearDown() {
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
+    }
+
     private void displayPreferenceWithLifecycle() {
         mLifecycleRegistry.addObserver(mController);
         mPreferenceScreen.addPreference(mPreference);
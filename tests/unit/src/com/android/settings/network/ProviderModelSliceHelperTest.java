@@ -55,6 +55,7 @@ import com.android.settings.testutils.ResourcesUtils;
 import com.android.settings.wifi.slice.WifiSliceItem;
 import com.android.wifitrackerlib.WifiEntry;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -105,6 +106,7 @@ public class ProviderModelSliceHelperTest {
         mNetwork = mock(Network.class);
 
         when(mContext.getSystemService(SubscriptionManager.class)).thenReturn(mSubscriptionManager);
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
         when(mContext.getSystemService(CarrierConfigManager.class)).thenReturn(
                 mCarrierConfigManager);
         when(mCarrierConfigManager.getConfigForSubId(anyInt())).thenReturn(mBundle);
@@ -127,6 +129,11 @@ public class ProviderModelSliceHelperTest {
                 Arrays.asList(mDefaultDataSubscriptionInfo));
     }
 
+    @After
+    public void tearDown() {
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
+    }
+
     @Test
     public void getConnectedWifiItem_inputListInvolveOneConnectedWifiItem_verifyReturnItem() {
         when(mWifiSliceItem1.getConnectedState()).thenReturn(WifiEntry.CONNECTED_STATE_CONNECTED);
@@ -22,6 +22,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -72,6 +74,7 @@ public class SubscriptionUtilTest {
         when(mContext.getSystemService(SubscriptionManager.class)).thenReturn(mSubMgr);
         when(mContext.getSystemService(TelephonyManager.class)).thenReturn(mTelMgr);
         when(mTelMgr.getUiccSlotsInfo()).thenReturn(null);
+        SubscriptionSnapshot.resetForTesting();
     }
 
     @Ignore
@@ -111,6 +114,46 @@ public class SubscriptionUtilTest {
         assertThat(subs).hasSize(2);
     }
 
+    @Test
+    public void getAvailableSubscriptions_calledTwice_querySubscriptionManagerOnce() {
+        final SubscriptionInfo info = mock(SubscriptionInfo.class);
+        when(mSubMgr.getAvailableSubscriptionInfoList()).thenReturn(Arrays.asList(info));
+
+        SubscriptionUtil.getAvailableSubscriptions(mContext);
+        final List<SubscriptionInfo> subs = SubscriptionUtil.getAvailableSubscriptions(mContext);
+
+        assertThat(subs).hasSize(1);
+        verify(mSubMgr, times(1)).getAvailableSubscriptionInfoList();
+    }
+
+    @Test
+    public void getAvailableSubscriptions_afterInvalidate_querySubscriptionManagerAgain() {
+        final SubscriptionInfo info = mock(SubscriptionInfo.class);
+        when(mSubMgr.getAvailableSubscriptionInfoList()).thenReturn(Arrays.asList(info));
+
+        SubscriptionUtil.getAvailableSubscriptions(mContext);
+        SubscriptionSnapshot.invalidate();
+        SubscriptionUtil.getAvailableSubscriptions(mContext);
+
+        verify(mSubMgr, times(2)).getAvailableSubscriptionInfoList();
+    }
+
+    @Test
+    public void getUniqueDisplayName_subscriptionMissingFromSnapshot_rebuildWithoutSnapshot() {
+        final SubscriptionInfo info1 = mock(SubscriptionInfo.class);
+        final SubscriptionInfo info2 = mock(SubscriptionInfo.class);
+        when(info1.getSubscriptionId()).thenReturn(SUBID_1);
+        when(info2.getSubscriptionId()).thenReturn(SUBID_2);
+        when(mSubMgr.getAvailableSubscriptionInfoList()).thenReturn(Arrays.asList(info1));
+        SubscriptionUtil.getAvailableSubscriptions(mContext);
+
+        // A subscription inserted before the snapshot is invalidated.
+        when(mSubMgr.getAvailableSubscriptionInfoList()).thenReturn(Arrays.asList(info1, info2));
+        SubscriptionUtil.getUniqueSubscriptionDisplayName(SUBID_2, mContext);
+
+        verify(mSubMgr, times(2)).getAvailableSubscriptionInfoList();
+    }
+
     @Test
     public void getActiveSubscriptions_nullInfoFromSubscriptionManager_nonNullResult() {
         when(mSubMgr.getActiveSubscriptionInfoList()).thenReturn(null);
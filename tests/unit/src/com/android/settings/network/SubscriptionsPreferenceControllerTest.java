@@ -133,6 +133,7 @@ public class SubscriptionsPreferenceControllerTest {
         mLifecycleRegistry = new LifecycleRegistry(mLifecycleOwner);
 
         when(mContext.getSystemService(SubscriptionManager.class)).thenReturn(mSubscriptionManager);
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
         when(mContext.getSystemService(ConnectivityManager.class)).thenReturn(mConnectivityManager);
         when(mContext.getSystemService(TelephonyManager.class)).thenReturn(mTelephonyManager);
         when(mContext.getSystemService(UserManager.class)).thenReturn(mUserManager);
@@ -171,6 +172,7 @@ public class SubscriptionsPreferenceControllerTest {
     @After
     public void tearDown() {
         SubscriptionUtil.setActiveSubscriptionsForTesting(null);
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
     }
 
     @Test
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class TelephonyTaskExecutorTest {
+
+    private final List<Runnable> mPendingTasks = new ArrayList<>();
+    private TelephonyTaskExecutor.SerialTaskGroup mTaskGroup;
+
+    @Before
+    public void setUp() {
+        mTaskGroup = new TelephonyTaskExecutor.SerialTaskGroup(mPendingTasks::add);
+    }
+
+    @Test
+    public void serialTaskGroup_runsTasksOneAtATimeInOrder() {
+        final List<Integer> results = new ArrayList<>();
+        mTaskGroup.execute(() -> results.add(1));
+        mTaskGroup.execute(() -> results.add(2));
+
+        assertThat(mPendingTasks).hasSize(1);
+
+        runNextPendingTask();
+        assertThat(results).containsExactly(1);
+        assertThat(mPendingTasks).hasSize(1);
+
+        runNextPendingTask();
+        assertThat(results).containsExactly(1, 2).inOrder();
+        assertThat(mPendingTasks).isEmpty();
+    }
+
+    @Test
+    public void serialTaskGroup_cancel_dropsPendingAndLaterTasks() {
+        final List<Integer> results = new ArrayList<>();
+        mTaskGroup.execute(() -> results.add(1));
+        mTaskGroup.execute(() -> results.add(2));
+
+        mTaskGroup.cancel();
+        runNextPendingTask();
+        mTaskGroup.execute(() -> results.add(3));
+
+        assertThat(mTaskGroup.isCancelled()).isTrue();
+        assertThat(results).containsExactly(1);
+        assertThat(mPendingTasks).isEmpty();
+    }
+
+    @Test
+    public void execute_shouldCountCompletedTasks() throws InterruptedException {
+        final TelephonyTaskExecutor executor = new TelephonyTaskExecutor("test", 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        executor.execute(latch::countDown);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        // The counters are updated right after the task returns.
+        for (int i = 0; i < 50 && executor.getTaskCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(executor.getTaskCount()).isEqualTo(1);
+        assertThat(executor.getQueueDepth()).isEqualTo(0);
+        assertThat(executor.getMaxQueueDepth()).isEqualTo(1);
+    }
+
+    private void runNextPendingTask() {
+        mPendingTasks.remove(0).run();
+    }
+}
@@ -70,6 +70,7 @@ public class DefaultSubscriptionControllerTest {
         MockitoAnnotations.initMocks(this);
         mContext = spy(ApplicationProvider.getApplicationContext());
         when(mContext.getSystemService(SubscriptionManager.class)).thenReturn(mSubMgr);
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
         when(mContext.getSystemService(TelecomManager.class)).thenReturn(mTelecomManager);
 
         final String key = "prefkey";
@@ -88,6 +89,7 @@ public class DefaultSubscriptionControllerTest {
     @After
     public void tearDown() {
         SubscriptionUtil.setActiveSubscriptionsForTesting(null);
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
     }
 
     @Test
@@ -312,6 +314,8 @@ public class DefaultSubscriptionControllerTest {
 
         SubscriptionUtil.setActiveSubscriptionsForTesting(Arrays.asList(sub1, sub2));
         when(mSubMgr.getAvailableSubscriptionInfoList()).thenReturn(Arrays.asList(sub1, sub2));
+        // As the controller's change listener does before calling back.
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
         mController.onSubscriptionsChanged();
 
         assertThat(mController.isAvailable()).isTrue();
@@ -335,6 +339,8 @@ public class DefaultSubscriptionControllerTest {
         SubscriptionUtil.setActiveSubscriptionsForTesting(Arrays.asList(sub1, sub2, sub3));
         when(mSubMgr.getAvailableSubscriptionInfoList()).thenReturn(
                 Arrays.asList(sub1, sub2, sub3));
+        // As the controller's change listener does before calling back.
+        SubscriptionUtil.resetSubscriptionSnapshotForTesting();
         mController.onSubscriptionsChanged();
 
         assertThat(mController.isAvailable()).isTrue();